@@ -0,0 +1,203 @@
+package ru.habittracker.analytics;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Аналитические запросы по всем записям о выполнении привычек.
+ * <p>
+ * Запросы выполняются над снимком {@link CompletionColumns}: строки делятся на блоки,
+ * каждый блок агрегируется в отдельном потоке {@link ForkJoinPool} в массив примитивов,
+ * после чего частичные результаты складываются. На строку не создаются объекты,
+ * поэтому время запроса определяется проходом по массивам.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public class CompletionAnalytics {
+
+    private static final int CHUNK_SIZE = 1 << 20;
+
+    // 1970-01-01 — четверг
+    private static final int EPOCH_DAY_OF_WEEK = DayOfWeek.THURSDAY.ordinal();
+
+    private final CompletionColumns columns;
+    private final ForkJoinPool pool;
+
+    /**
+     * Создает аналитику, выполняющую запросы в общем пуле {@link ForkJoinPool#commonPool()}.
+     *
+     * @param columns столбцовое хранилище записей
+     */
+    public CompletionAnalytics(CompletionColumns columns) {
+        this(columns, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Создает аналитику, выполняющую запросы в указанном пуле.
+     *
+     * @param columns столбцовое хранилище записей
+     * @param pool    пул потоков для параллельной агрегации
+     */
+    public CompletionAnalytics(CompletionColumns columns, ForkJoinPool pool) {
+        this.columns = columns;
+        this.pool = pool;
+    }
+
+    /**
+     * Вычисляет процент выполненных записей по дням недели за период по всем пользователям.
+     *
+     * @param from начало периода (включительно)
+     * @param to   конец периода (включительно)
+     * @return массив из 7 процентов, индексированный {@link DayOfWeek#ordinal()}; 0 для дней без записей
+     */
+    public double[] completionRateByWeekday(LocalDate from, LocalDate to) {
+        CompletionColumns.Snapshot snapshot = columns.snapshot();
+        int fromDay = (int) from.toEpochDay();
+        int toDay = (int) to.toEpochDay();
+
+        // [0..6] — всего записей, [7..13] — выполненных
+        long[] counts = aggregate(snapshot, 14, (partial, start, end) -> {
+            int[] days = snapshot.epochDays;
+            for (int row = start; row < end; row++) {
+                int day = days[row];
+                if (day >= fromDay && day <= toDay) {
+                    int weekday = Math.floorMod(day + EPOCH_DAY_OF_WEEK, 7);
+                    partial[weekday]++;
+                    if (snapshot.isCompleted(row)) {
+                        partial[7 + weekday]++;
+                    }
+                }
+            }
+        });
+
+        double[] rates = new double[7];
+        for (int weekday = 0; weekday < 7; weekday++) {
+            rates[weekday] = counts[weekday] == 0 ? 0 : (double) counts[7 + weekday] / counts[weekday] * 100;
+        }
+        return rates;
+    }
+
+    /**
+     * Считает количество привычек с указанной частотой, выполненных в указанный день.
+     *
+     * @param date      день
+     * @param frequency частота привычки (1 — ежедневная, 2 — еженедельная)
+     * @return количество различных привычек с отметкой выполнения
+     */
+    public int countHabitsCompletedOn(LocalDate date, int frequency) {
+        CompletionColumns.Snapshot snapshot = columns.snapshot();
+        int frequencyCode = codeOf(snapshot.frequencyValues, snapshot.frequencyCount, frequency);
+        if (frequencyCode < 0) {
+            return 0;
+        }
+        int day = (int) date.toEpochDay();
+
+        // Битовая маска привычек, чтобы повторные отметки одного дня не считались дважды
+        long[] habits = aggregate(snapshot, (snapshot.habitCount + 63) >>> 6, (partial, start, end) -> {
+            int[] days = snapshot.epochDays;
+            int[] habitCodes = snapshot.habitCodes;
+            for (int row = start; row < end; row++) {
+                if (days[row] == day && snapshot.isCompleted(row)) {
+                    int habit = habitCodes[row];
+                    if (snapshot.habitFrequencyCodes[habit] == frequencyCode) {
+                        partial[habit >>> 6] |= 1L << habit;
+                    }
+                }
+            }
+        }, true);
+
+        int count = 0;
+        for (long word : habits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Считает количество выполнений каждого пользователя за период.
+     *
+     * @param from начало периода (включительно)
+     * @param to   конец периода (включительно)
+     * @return количество выполнений по ID пользователя (только пользователи с выполнениями)
+     */
+    public Map<Integer, Long> completionsByUser(LocalDate from, LocalDate to) {
+        CompletionColumns.Snapshot snapshot = columns.snapshot();
+        int fromDay = (int) from.toEpochDay();
+        int toDay = (int) to.toEpochDay();
+        int userCount = 0;
+        for (int habit = 0; habit < snapshot.habitCount; habit++) {
+            userCount = Math.max(userCount, snapshot.habitUserCodes[habit] + 1);
+        }
+
+        long[] counts = aggregate(snapshot, userCount, (partial, start, end) -> {
+            int[] days = snapshot.epochDays;
+            int[] habitCodes = snapshot.habitCodes;
+            for (int row = start; row < end; row++) {
+                int day = days[row];
+                if (day >= fromDay && day <= toDay && snapshot.isCompleted(row)) {
+                    partial[snapshot.habitUserCodes[habitCodes[row]]]++;
+                }
+            }
+        });
+
+        Map<Integer, Long> result = new HashMap<>();
+        for (int user = 0; user < counts.length; user++) {
+            if (counts[user] > 0) {
+                result.put(snapshot.userIds[user], counts[user]);
+            }
+        }
+        return result;
+    }
+
+    private long[] aggregate(CompletionColumns.Snapshot snapshot, int width, ChunkAggregator aggregator) {
+        return aggregate(snapshot, width, aggregator, false);
+    }
+
+    private long[] aggregate(CompletionColumns.Snapshot snapshot, int width, ChunkAggregator aggregator, boolean bitwiseOr) {
+        int chunks = (snapshot.size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        if (chunks <= 1) {
+            long[] result = new long[width];
+            aggregator.aggregate(result, 0, snapshot.size);
+            return result;
+        }
+        return pool.submit(() -> IntStream.range(0, chunks)
+                .parallel()
+                .mapToObj(chunk -> {
+                    long[] partial = new long[width];
+                    int start = chunk * CHUNK_SIZE;
+                    aggregator.aggregate(partial, start, Math.min(start + CHUNK_SIZE, snapshot.size));
+                    return partial;
+                })
+                .reduce((a, b) -> {
+                    for (int i = 0; i < width; i++) {
+                        a[i] = bitwiseOr ? a[i] | b[i] : a[i] + b[i];
+                    }
+                    return a;
+                })
+                .orElseGet(() -> new long[width]))
+                .join();
+    }
+
+    private static int codeOf(int[] values, int count, int value) {
+        for (int code = 0; code < count; code++) {
+            if (values[code] == value) {
+                return code;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Агрегация диапазона строк в частичный результат.
+     */
+    @FunctionalInterface
+    private interface ChunkAggregator {
+        void aggregate(long[] partial, int start, int end);
+    }
+}
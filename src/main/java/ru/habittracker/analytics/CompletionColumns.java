@@ -0,0 +1,205 @@
+package ru.habittracker.analytics;
+
+import java.util.Arrays;
+
+/**
+ * Столбцовое хранилище всех записей о выполнении привычек для аналитики.
+ * <p>
+ * Каждая запись — это позиция в параллельных массивах: код привычки ({@code int[]}), номер дня эпохи
+ * ({@code int[]}) и бит выполнения в битовой маске ({@code long[]}). Пользователь и частота
+ * не хранятся в каждой строке: они закодированы словарями в измерении привычки
+ * ({@code int[]} кодов пользователя и частоты по коду привычки).
+ * </p>
+ * <p>
+ * Изменяет хранилище один поток-загрузчик; запросы работают с неизменяемым {@link Snapshot},
+ * который публикуется через volatile-поле после каждой порции добавлений. Массивы только растут,
+ * а строки снимка не перезаписываются, поэтому читатели не блокируются.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public class CompletionColumns {
+
+    private IntDictionary habits = new IntDictionary();
+    private IntDictionary users = new IntDictionary();
+    private IntDictionary frequencies = new IntDictionary();
+
+    private int[] habitCodes;
+    private int[] epochDays;
+    private long[] completed;
+    private int size;
+
+    private int[] habitUserCodes = new int[16];
+    private int[] habitFrequencyCodes = new int[16];
+    private boolean dimensionsShared;
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * Создает пустое хранилище с указанной начальной ёмкостью.
+     *
+     * @param initialCapacity начальное количество строк
+     */
+    public CompletionColumns(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 64);
+        habitCodes = new int[capacity];
+        epochDays = new int[capacity];
+        completed = new long[(capacity + 63) >>> 6];
+        snapshot = new Snapshot(0, habitCodes, epochDays, completed, 0,
+                habitUserCodes, habitFrequencyCodes, new int[0], new int[0], new int[0], 0);
+    }
+
+    /**
+     * Добавляет или обновляет привычку в измерении привычек.
+     * <p>
+     * Измерение копируется при изменении, поэтому опубликованные снимки не меняются.
+     * </p>
+     *
+     * @param habitId   ID привычки
+     * @param userId    ID пользователя
+     * @param frequency частота выполнения
+     */
+    public void putHabit(int habitId, int userId, int frequency) {
+        int code = habits.encode(habitId);
+        int userCode = users.encode(userId);
+        int frequencyCode = frequencies.encode(frequency);
+        if (code >= habitUserCodes.length) {
+            habitUserCodes = Arrays.copyOf(habitUserCodes, habitUserCodes.length * 2);
+            habitFrequencyCodes = Arrays.copyOf(habitFrequencyCodes, habitFrequencyCodes.length * 2);
+            dimensionsShared = false;
+        } else if (code < snapshot.habitCount) {
+            if (habitUserCodes[code] == userCode && habitFrequencyCodes[code] == frequencyCode) {
+                return;
+            }
+            if (dimensionsShared) {
+                habitUserCodes = habitUserCodes.clone();
+                habitFrequencyCodes = habitFrequencyCodes.clone();
+                dimensionsShared = false;
+            }
+        }
+        habitUserCodes[code] = userCode;
+        habitFrequencyCodes[code] = frequencyCode;
+    }
+
+    /**
+     * Добавляет запись о выполнении. Привычка должна быть добавлена через {@link #putHabit}.
+     *
+     * @param habitId   ID привычки
+     * @param epochDay  номер дня эпохи
+     * @param done      признак выполнения
+     * @return false, если привычка неизвестна и запись пропущена
+     */
+    public boolean append(int habitId, int epochDay, boolean done) {
+        int code = habits.codeOf(habitId);
+        if (code < 0) {
+            return false;
+        }
+        if (size == habitCodes.length) {
+            int capacity = habitCodes.length + (habitCodes.length >> 1);
+            habitCodes = Arrays.copyOf(habitCodes, capacity);
+            epochDays = Arrays.copyOf(epochDays, capacity);
+            completed = Arrays.copyOf(completed, (capacity + 63) >>> 6);
+        }
+        habitCodes[size] = code;
+        epochDays[size] = epochDay;
+        if (done) {
+            completed[size >>> 6] |= 1L << size;
+        }
+        size++;
+        return true;
+    }
+
+    /**
+     * Начинает заполнение хранилища заново, например для полной перезагрузки.
+     * <p>
+     * Опубликованный снимок остаётся доступным запросам до следующего {@link #publish()}.
+     * </p>
+     */
+    public void reset() {
+        habits = new IntDictionary();
+        users = new IntDictionary();
+        frequencies = new IntDictionary();
+        habitCodes = new int[habitCodes.length];
+        epochDays = new int[epochDays.length];
+        completed = new long[completed.length];
+        size = 0;
+        habitUserCodes = new int[16];
+        habitFrequencyCodes = new int[16];
+        dimensionsShared = false;
+    }
+
+    /**
+     * Публикует добавленные строки и изменения измерения привычек для запросов.
+     */
+    public void publish() {
+        snapshot = new Snapshot(size, habitCodes, epochDays, completed, habits.size(),
+                habitUserCodes, habitFrequencyCodes, habits.values(), users.values(), frequencies.values(),
+                frequencies.size());
+        dimensionsShared = true;
+    }
+
+    /**
+     * Возвращает последний опубликованный снимок.
+     *
+     * @return снимок данных
+     */
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Неизменяемый снимок столбцов для выполнения запросов.
+     */
+    public static final class Snapshot {
+        final int size;
+        final int[] habitCodes;
+        final int[] epochDays;
+        final long[] completed;
+        final int habitCount;
+        final int[] habitUserCodes;
+        final int[] habitFrequencyCodes;
+        final int[] habitIds;
+        final int[] userIds;
+        final int[] frequencyValues;
+        final int frequencyCount;
+
+        Snapshot(int size, int[] habitCodes, int[] epochDays, long[] completed, int habitCount,
+                 int[] habitUserCodes, int[] habitFrequencyCodes,
+                 int[] habitIds, int[] userIds, int[] frequencyValues, int frequencyCount) {
+            this.size = size;
+            this.habitCodes = habitCodes;
+            this.epochDays = epochDays;
+            this.completed = completed;
+            this.habitCount = habitCount;
+            this.habitUserCodes = habitUserCodes;
+            this.habitFrequencyCodes = habitFrequencyCodes;
+            this.habitIds = habitIds;
+            this.userIds = userIds;
+            this.frequencyValues = frequencyValues;
+            this.frequencyCount = frequencyCount;
+        }
+
+        /**
+         * Возвращает количество строк в снимке.
+         *
+         * @return количество строк
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Возвращает количество привычек в снимке.
+         *
+         * @return количество привычек
+         */
+        public int habitCount() {
+            return habitCount;
+        }
+
+        boolean isCompleted(int row) {
+            return (completed[row >>> 6] & (1L << row)) != 0;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package ru.habittracker.analytics;
+
+import ru.habittracker.config.DatabaseConnectionManager;
+import ru.habittracker.config.DatabaseWorkload;
+import ru.habittracker.repository.SqlConstants;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Загрузчик записей о выполнении из PostgreSQL в {@link CompletionColumns}.
+ * <p>
+ * Записи читаются потоково: курсор с {@code fetchSize}, без накопления строк в памяти драйвера.
+ * Обычное обновление инкрементальное — загружаются только записи с ID больше последнего загруженного.
+ * Привычки и записи читаются в одной транзакции REPEATABLE READ, поэтому каждая новая запись
+ * видит свою привычку.
+ * </p>
+ * <p>
+ * Курсор по ID не видит изменений статуса существующих записей, удалений и записей, чья транзакция
+ * зафиксирована позже транзакции записи с большим ID. Поэтому не реже чем раз в заданный интервал
+ * хранилище перезагружается полностью; до окончания перезагрузки запросы работают с прежним снимком.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public class CompletionColumnsLoader {
+
+    // Интервал полной перезагрузки по умолчанию, мс
+    public static final long DEFAULT_FULL_RELOAD_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private static final int FETCH_SIZE = 10_000;
+    private static final int PUBLISH_EVERY_ROWS = 1 << 20;
+
+    private final DatabaseConnectionManager dbManager;
+    private final CompletionColumns columns;
+    private final long fullReloadNanos;
+
+    private int lastRecordId;
+    private boolean loaded;
+    private boolean reloadRequired = true;
+    private long lastFullReloadNanos;
+    private volatile long lastRefreshMillis;
+
+    /**
+     * Конструктор загрузчика с интервалом полной перезагрузки по умолчанию.
+     *
+     * @param dbManager менеджер подключения к базе данных
+     * @param columns   хранилище, в которое загружаются записи
+     */
+    public CompletionColumnsLoader(DatabaseConnectionManager dbManager, CompletionColumns columns) {
+        this(dbManager, columns, DEFAULT_FULL_RELOAD_MILLIS);
+    }
+
+    /**
+     * Конструктор загрузчика.
+     *
+     * @param dbManager        менеджер подключения к базе данных
+     * @param columns          хранилище, в которое загружаются записи
+     * @param fullReloadMillis интервал полной перезагрузки
+     */
+    public CompletionColumnsLoader(DatabaseConnectionManager dbManager, CompletionColumns columns,
+                                   long fullReloadMillis) {
+        if (fullReloadMillis < 0) {
+            throw new IllegalArgumentException("Интервал перезагрузки не может быть отрицательным");
+        }
+        this.dbManager = dbManager;
+        this.columns = columns;
+        this.fullReloadNanos = TimeUnit.MILLISECONDS.toNanos(fullReloadMillis);
+    }
+
+    /**
+     * Загружает изменения привычек и новые записи о выполнении; если интервал полной перезагрузки
+     * истёк, перезагружает хранилище полностью.
+     * <p>
+     * При первой загрузке промежуточные результаты публикуются каждые {@value #PUBLISH_EVERY_ROWS}
+     * строк, чтобы запросы могли работать до окончания загрузки.
+     * </p>
+     *
+     * @return количество загруженных записей
+     */
+    public synchronized int refresh() {
+        return load(reloadRequired || System.nanoTime() - lastFullReloadNanos >= fullReloadNanos);
+    }
+
+    /**
+     * Перезагружает хранилище полностью, учитывая изменения и удаления записей.
+     *
+     * @return количество загруженных записей
+     */
+    public synchronized int reload() {
+        return load(true);
+    }
+
+    /**
+     * Возвращает длительность последнего обновления в миллисекундах.
+     *
+     * @return длительность обновления
+     */
+    public long getLastRefreshMillis() {
+        return lastRefreshMillis;
+    }
+
+    private int load(boolean full) {
+        long start = System.nanoTime();
+        int appended = 0;
+        try {
+            appended = dbManager.execute(DatabaseWorkload.REPORT, true, conn -> {
+                conn.setAutoCommit(false);
+                conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+                conn.setReadOnly(true);
+                try {
+                    int rows = read(conn, full);
+                    conn.commit();
+                    return rows;
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            });
+            if (full) {
+                loaded = true;
+                reloadRequired = false;
+                lastFullReloadNanos = start;
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            // Хранилище могло остаться заполненным частично: следующее обновление загрузит его заново,
+            // а запросы до тех пор работают с прежним снимком
+            if (full) {
+                reloadRequired = true;
+            }
+        }
+        if (!reloadRequired) {
+            columns.publish();
+        }
+        lastRefreshMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        return appended;
+    }
+
+    private int read(Connection conn, boolean full) throws SQLException {
+        boolean publishPartial = full && !loaded;
+        // Повтор после сбоя начинает полную загрузку с начала
+        if (full) {
+            columns.reset();
+            lastRecordId = 0;
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(SqlConstants.SELECT_ALL_HABIT_DIMENSIONS)) {
+            stmt.setFetchSize(FETCH_SIZE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    columns.putHabit(rs.getInt(1), rs.getInt(2), rs.getInt(3));
+                }
+            }
+        }
+
+        int appended = 0;
+        try (PreparedStatement stmt = conn.prepareStatement(SqlConstants.SELECT_HABIT_RECORDS_AFTER_ID)) {
+            stmt.setFetchSize(FETCH_SIZE);
+            stmt.setInt(1, lastRecordId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    lastRecordId = rs.getInt(1);
+                    if (columns.append(rs.getInt(2), rs.getInt(3), rs.getBoolean(4))
+                            && ++appended % PUBLISH_EVERY_ROWS == 0 && publishPartial) {
+                        columns.publish();
+                    }
+                }
+            }
+        }
+        return appended;
+    }
+}
@@ -0,0 +1,82 @@
+package ru.habittracker.analytics;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Словарь для кодирования целых значений плотными номерами {@code 0..size-1}.
+ * <p>
+ * Коды выдаются в порядке первого появления значения и не меняются, поэтому столбцы,
+ * хранящие коды, остаются корректными при добавлении новых значений.
+ * Не потокобезопасен: изменяется только загрузчиком, а запросы читают снимок массива значений.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public final class IntDictionary {
+
+    private final Map<Integer, Integer> codes = new HashMap<>();
+    private int[] values = new int[16];
+    private int size;
+
+    /**
+     * Возвращает код значения, добавляя значение в словарь при первом появлении.
+     *
+     * @param value значение
+     * @return код значения
+     */
+    public int encode(int value) {
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size] = value;
+        codes.put(value, size);
+        return size++;
+    }
+
+    /**
+     * Возвращает код значения без добавления.
+     *
+     * @param value значение
+     * @return код значения или -1, если значения нет в словаре
+     */
+    public int codeOf(int value) {
+        Integer code = codes.get(value);
+        return code != null ? code : -1;
+    }
+
+    /**
+     * Возвращает значение по коду.
+     *
+     * @param code код
+     * @return значение
+     */
+    public int decode(int code) {
+        return values[code];
+    }
+
+    /**
+     * Возвращает количество значений в словаре.
+     *
+     * @return количество значений
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Возвращает внутренний массив значений без копирования. Значения с кодами меньше
+     * текущего размера в нём больше не меняются, поэтому массив можно передавать читателям.
+     *
+     * @return массив значений, индексированный кодом
+     */
+    int[] values() {
+        return values;
+    }
+}
@@ -0,0 +1,34 @@
+package ru.habittracker.api;
+
+/**
+ * Ошибка обработки запроса HTTP API с кодом ответа.
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public class ApiException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int status;
+
+    /**
+     * Конструктор ошибки.
+     *
+     * @param status  HTTP-код ответа
+     * @param message сообщение для клиента
+     */
+    public ApiException(int status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    /**
+     * Возвращает HTTP-код ответа.
+     *
+     * @return код ответа
+     */
+    public int getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,755 @@
+package ru.habittracker.api;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import ru.habittracker.config.QueryDeadline;
+import ru.habittracker.export.ExportFormat;
+import ru.habittracker.model.BackfillPattern;
+import ru.habittracker.model.Habit;
+import ru.habittracker.model.User;
+import ru.habittracker.report.ReportFormat;
+import ru.habittracker.security.LoginThrottledException;
+import ru.habittracker.service.IHabitService;
+import ru.habittracker.service.IHabitTrackerService;
+import ru.habittracker.service.IUserService;
+import ru.habittracker.session.SessionStore;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * HTTP/JSON API трекера привычек на встроенном {@link HttpServer} JDK.
+ * <p>
+ * Каждый запрос обрабатывается в отдельном виртуальном потоке, если JVM их поддерживает
+ * (JDK 21+, определяется при запуске); иначе — в ограниченном пуле потоков, который при переполнении
+ * очереди выполняет запрос в потоке приёма соединений и тем самым притормаживает приём.
+ * Состояние входа хранится в сессиях по токену, поэтому один процесс обслуживает любое количество
+ * пользователей одновременно.
+ * </p>
+ * <p>
+ * Ограничения: количество одновременно обрабатываемых запросов (сверх лимита — 503 без ожидания)
+ * и размер тела запроса (сверх лимита — 413). Срок обработки запроса передаётся операциям с базой
+ * через {@link QueryDeadline}; если он истёк, ответ — 504. При остановке сервера операции незавершённых
+ * запросов отменяются.
+ * </p>
+ * <p>
+ * Маршруты (все, кроме регистрации и входа, требуют {@code Authorization: Bearer <токен>}):
+ * <ul>
+ *     <li>{@code POST /api/users} — регистрация {@code {email, password, name}}</li>
+ *     <li>{@code POST /api/sessions} — вход {@code {email, password}}, ответ {@code {token, user}}</li>
+ *     <li>{@code DELETE /api/sessions} — выход</li>
+ *     <li>{@code GET|PUT|DELETE /api/users/me} — профиль</li>
+ *     <li>{@code GET /api/habits[?date=|?frequency=]}, {@code POST /api/habits}</li>
+ *     <li>{@code GET|PUT|DELETE /api/habits/{id}}</li>
+ *     <li>{@code PUT} профиля и привычки принимает {@code version} из последнего ответа; если ресурс уже
+ *     изменён с другого устройства, возвращается 409. Профиль без {@code version} сверяется с версией
+ *     на момент входа</li>
+ *     <li>{@code POST /api/habits/{id}/completions} — отметка выполнения {@code {date?}}</li>
+ *     <li>{@code POST /api/habits/{id}/backfill} — отметка за период {@code {from, to, pattern?}}</li>
+ *     <li>{@code POST /api/completions} — отметка нескольких привычек {@code {habitIds?, date?}};
+ *     без {@code habitIds} отмечаются все ежедневные привычки</li>
+ *     <li>{@code GET /api/habits/{id}/history}, {@code GET /api/habits/{id}/stats}</li>
+ *     <li>{@code GET /api/report[?format=text|csv|json]} — отчёт о прогрессе; с параметром {@code format}
+ *     отчёт передаётся потоком в указанном формате</li>
+ *     <li>{@code GET /api/export[?format=csv|ndjson]} — выгрузка всех привычек и записей потоком</li>
+ * </ul>
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public class HabitTrackerApiServer implements Closeable {
+
+    private static final String PREFIX = "/api";
+    private static final int BACKLOG = 1024;
+    private static final int STREAM_BUFFER_CHARS = 16 * 1024;
+
+    private final IUserService userService;
+    private final IHabitService habitService;
+    private final IHabitTrackerService habitTrackerService;
+    private final SessionStore sessions;
+
+    private final int maxBodyBytes;
+    private final Semaphore inFlight;
+    private final int workerThreads;
+    private final long requestTimeoutMillis;
+    private final Set<QueryDeadline> activeDeadlines = ConcurrentHashMap.newKeySet();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * Конструктор сервера.
+     *
+     * @param userService           сервис пользователей
+     * @param habitService          сервис привычек
+     * @param habitTrackerService   сервис отслеживания привычек
+     * @param maxBodyBytes          максимальный размер тела запроса
+     * @param maxConcurrentRequests максимальное количество одновременно обрабатываемых запросов
+     * @param workerThreads         размер пула потоков, если виртуальные потоки недоступны
+     */
+    public HabitTrackerApiServer(IUserService userService, IHabitService habitService,
+                                 IHabitTrackerService habitTrackerService,
+                                 int maxBodyBytes, int maxConcurrentRequests, int workerThreads) {
+        this(userService, habitService, habitTrackerService, new SessionStore(SessionStore.DEFAULT_TTL),
+                maxBodyBytes, maxConcurrentRequests, workerThreads);
+    }
+
+    /**
+     * Конструктор сервера с общим хранилищем сессий.
+     *
+     * @param userService           сервис пользователей
+     * @param habitService          сервис привычек
+     * @param habitTrackerService   сервис отслеживания привычек
+     * @param sessions              хранилище сессий
+     * @param maxBodyBytes          максимальный размер тела запроса
+     * @param maxConcurrentRequests максимальное количество одновременно обрабатываемых запросов
+     * @param workerThreads         размер пула потоков, если виртуальные потоки недоступны
+     */
+    public HabitTrackerApiServer(IUserService userService, IHabitService habitService,
+                                 IHabitTrackerService habitTrackerService, SessionStore sessions,
+                                 int maxBodyBytes, int maxConcurrentRequests, int workerThreads) {
+        this(userService, habitService, habitTrackerService, sessions, maxBodyBytes, maxConcurrentRequests,
+                workerThreads, 0);
+    }
+
+    /**
+     * Конструктор сервера со сроком обработки запросов.
+     *
+     * @param userService           сервис пользователей
+     * @param habitService          сервис привычек
+     * @param habitTrackerService   сервис отслеживания привычек
+     * @param sessions              хранилище сессий
+     * @param maxBodyBytes          максимальный размер тела запроса
+     * @param maxConcurrentRequests максимальное количество одновременно обрабатываемых запросов
+     * @param workerThreads         размер пула потоков, если виртуальные потоки недоступны
+     * @param requestTimeoutMillis  срок обработки запроса; 0 — без срока
+     */
+    public HabitTrackerApiServer(IUserService userService, IHabitService habitService,
+                                 IHabitTrackerService habitTrackerService, SessionStore sessions,
+                                 int maxBodyBytes, int maxConcurrentRequests, int workerThreads,
+                                 long requestTimeoutMillis) {
+        this.userService = userService;
+        this.habitService = habitService;
+        this.habitTrackerService = habitTrackerService;
+        this.sessions = sessions;
+        this.maxBodyBytes = maxBodyBytes;
+        this.inFlight = new Semaphore(maxConcurrentRequests);
+        this.workerThreads = workerThreads;
+        this.requestTimeoutMillis = requestTimeoutMillis;
+    }
+
+    /**
+     * Запускает сервер.
+     *
+     * @param address адрес и порт (порт 0 — любой свободный)
+     * @throws IOException если не удалось открыть порт
+     */
+    public synchronized void start(InetSocketAddress address) throws IOException {
+        server = HttpServer.create(address, BACKLOG);
+        executor = createExecutor(workerThreads);
+        server.setExecutor(executor);
+        server.createContext(PREFIX, this::handle);
+        server.start();
+    }
+
+    /**
+     * Возвращает порт, на котором запущен сервер.
+     *
+     * @return номер порта
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Останавливает сервер, давая текущим запросам до секунды на завершение; операции с базой
+     * оставшихся запросов отменяются.
+     */
+    @Override
+    public synchronized void close() {
+        if (server != null) {
+            server.stop(1);
+            executor.shutdown();
+            for (QueryDeadline deadline : activeDeadlines) {
+                deadline.cancel();
+            }
+            server = null;
+        }
+    }
+
+    /**
+     * Создает исполнитель «виртуальный поток на запрос» через отражение (доступен с JDK 21),
+     * иначе — ограниченный пул потоков.
+     */
+    static ExecutorService createExecutor(int workerThreads) {
+        try {
+            Method factory = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            AtomicInteger counter = new AtomicInteger();
+            return new ThreadPoolExecutor(workerThreads, workerThreads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(workerThreads * 4),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "api-worker-" + counter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        if (!inFlight.tryAcquire()) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            send(exchange, 503, Map.of("error", "Сервер перегружен"));
+            return;
+        }
+        QueryDeadline deadline = requestTimeoutMillis > 0 ? QueryDeadline.start(requestTimeoutMillis) : null;
+        if (deadline != null) {
+            activeDeadlines.add(deadline);
+        }
+        try {
+            Object response = route(exchange);
+            // Репозитории возвращают пустой результат, если операция не уложилась в срок
+            if (deadline != null && deadline.isExpired()) {
+                throw new ApiException(504, "Время обработки запроса истекло");
+            }
+            if (response == null) {
+                send(exchange, 204, null);
+            } else if (response instanceof Created created) {
+                send(exchange, 201, created.body());
+            } else if (response instanceof Export export) {
+                stream(exchange, export);
+            } else if (response instanceof Report report) {
+                stream(exchange, report);
+            } else {
+                send(exchange, 200, response);
+            }
+        } catch (ApiException e) {
+            send(exchange, e.getStatus(), Map.of("error", e.getMessage()));
+        } catch (LoginThrottledException e) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            send(exchange, 503, Map.of("error", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            send(exchange, 400, Map.of("error", e.getMessage()));
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            send(exchange, 500, Map.of("error", "Внутренняя ошибка сервера"));
+        } finally {
+            if (deadline != null) {
+                activeDeadlines.remove(deadline);
+                deadline.close();
+            }
+            inFlight.release();
+        }
+    }
+
+    private Object route(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String[] path = exchange.getRequestURI().getPath().substring(PREFIX.length()).split("/");
+        // path[0] — пустая строка перед первым '/'
+        String resource = path.length > 1 ? path[1] : "";
+
+        switch (resource) {
+            case "users" -> {
+                if (path.length == 2 && "POST".equals(method)) {
+                    return register(readBody(exchange));
+                }
+                if (path.length == 3 && "me".equals(path[2])) {
+                    return me(exchange, method, authenticate(exchange));
+                }
+            }
+            case "sessions" -> {
+                if (path.length == 2 && "POST".equals(method)) {
+                    return login(readBody(exchange));
+                }
+                if (path.length == 2 && "DELETE".equals(method)) {
+                    authenticate(exchange);
+                    sessions.remove(token(exchange));
+                    return null;
+                }
+            }
+            case "habits" -> {
+                int userId = authenticate(exchange).getId();
+                if (path.length == 2) {
+                    return habits(exchange, method, userId);
+                }
+                int habitId = parseId(path[2]);
+                if (path.length == 3) {
+                    return habit(exchange, method, userId, habitId);
+                }
+                if (path.length == 4) {
+                    return habitAction(exchange, method, userId, habitId, path[3]);
+                }
+            }
+            case "completions" -> {
+                if (path.length == 2 && "POST".equals(method)) {
+                    return markMany(readBody(exchange), authenticate(exchange).getId());
+                }
+            }
+            case "export" -> {
+                if (path.length == 2 && "GET".equals(method)) {
+                    int userId = authenticate(exchange).getId();
+                    return new Export(userId, ExportFormat.parse(query(exchange).get("format")));
+                }
+            }
+            case "report" -> {
+                if (path.length == 2 && "GET".equals(method)) {
+                    int userId = authenticate(exchange).getId();
+                    String format = query(exchange).get("format");
+                    if (format != null) {
+                        return new Report(userId, ReportFormat.parse(format));
+                    }
+                    return Map.of("report",
+                            habitTrackerService.generateProgressReport(userId, habitService.getHabits(userId)));
+                }
+            }
+            default -> {
+            }
+        }
+        throw new ApiException(404, "Маршрут не найден: " + method + " " + exchange.getRequestURI().getPath());
+    }
+
+    private Object register(Map<String, Object> body) {
+        Optional<User> user = userService.registerUser(
+                requireString(body, "email"), requireString(body, "password"), requireString(body, "name"));
+        return new Created(toJson(user.orElseThrow(
+                () -> new ApiException(409, "Пользователь с таким email уже существует"))));
+    }
+
+    private Object login(Map<String, Object> body) {
+        User user = userService.loginUser(requireString(body, "email"), requireString(body, "password"))
+                .orElseThrow(() -> new ApiException(401, "Неверный email или пароль"));
+        Map<String, Object> response = new LinkedHashMap<>();
+        String token;
+        try {
+            token = sessions.create(user);
+        } catch (IllegalStateException e) {
+            throw new ApiException(503, e.getMessage());
+        }
+        response.put("token", token);
+        response.put("user", toJson(user));
+        return response;
+    }
+
+    private Object me(HttpExchange exchange, String method, User user) throws IOException {
+        switch (method) {
+            case "GET" -> {
+                return toJson(user);
+            }
+            case "PUT" -> {
+                Map<String, Object> body = readBody(exchange);
+                String email = requireString(body, "email");
+                String name = requireString(body, "name");
+                // Без версии в запросе ожидается версия, прочитанная при входе
+                int version = body.containsKey("version") ? requireInt(body, "version") : user.getVersion();
+                OptionalInt updated = userService.updateUser(user.getId(), version, email,
+                        requireString(body, "password"), name);
+                if (updated.isEmpty()) {
+                    throw new ApiException(409, "Профиль изменён на другом устройстве или email уже занят");
+                }
+                // Другие сессии пользователя увидят новые данные после повторного входа
+                user.setEmail(email);
+                user.setName(name);
+                user.setVersion(updated.getAsInt());
+                return toJson(user);
+            }
+            case "DELETE" -> {
+                if (!userService.deleteUser(user.getId())) {
+                    throw new ApiException(404, "Пользователь не найден");
+                }
+                sessions.removeUser(user.getId());
+                return null;
+            }
+            default -> throw methodNotAllowed();
+        }
+    }
+
+    private Object habits(HttpExchange exchange, String method, int userId) throws IOException {
+        switch (method) {
+            case "GET" -> {
+                Map<String, String> query = query(exchange);
+                List<Habit> habits;
+                if (query.containsKey("date")) {
+                    habits = habitService.getHabitsByCreationDate(userId, parseDate(query.get("date")));
+                } else if (query.containsKey("frequency")) {
+                    habits = habitService.getHabitsByFrequency(userId, parseId(query.get("frequency")));
+                } else {
+                    habits = habitService.getHabits(userId);
+                }
+                return habits.stream().map(HabitTrackerApiServer::toJson).collect(Collectors.toList());
+            }
+            case "POST" -> {
+                Map<String, Object> body = readBody(exchange);
+                Habit habit = habitService.createHabit(userId, requireString(body, "title"),
+                        optionalString(body, "description"), requireFrequency(body));
+                if (habit == null) {
+                    throw new ApiException(500, "Не удалось создать привычку");
+                }
+                return new Created(toJson(habit));
+            }
+            default -> throw methodNotAllowed();
+        }
+    }
+
+    private Object habit(HttpExchange exchange, String method, int userId, int habitId) throws IOException {
+        switch (method) {
+            case "GET" -> {
+                return toJson(requireHabit(userId, habitId));
+            }
+            case "PUT" -> {
+                Map<String, Object> body = readBody(exchange);
+                String title = requireString(body, "title");
+                String description = optionalString(body, "description");
+                int frequency = requireFrequency(body);
+                // Версия обязательна: без неё изменение с другого устройства было бы молча перезаписано
+                if (habitService.updateHabit(userId, habitId, requireInt(body, "version"), title, description,
+                        frequency).isEmpty()) {
+                    requireHabit(userId, habitId);
+                    throw new ApiException(409, "Привычка изменена на другом устройстве");
+                }
+                return toJson(requireHabit(userId, habitId));
+            }
+            case "DELETE" -> {
+                if (!habitService.deleteHabit(userId, habitId)) {
+                    throw new ApiException(404, "Привычка не найдена");
+                }
+                return null;
+            }
+            default -> throw methodNotAllowed();
+        }
+    }
+
+    private Object habitAction(HttpExchange exchange, String method, int userId, int habitId, String action)
+            throws IOException {
+        switch (action) {
+            case "completions" -> {
+                if (!"POST".equals(method)) {
+                    throw methodNotAllowed();
+                }
+                LocalDate completionDate = completionDate(readBody(exchange));
+                requireHabit(userId, habitId);
+                habitTrackerService.markHabitCompletion(userId, habitId, completionDate);
+                return new Created(Map.of("habitId", habitId, "date", completionDate));
+            }
+            case "backfill" -> {
+                if (!"POST".equals(method)) {
+                    throw methodNotAllowed();
+                }
+                Map<String, Object> body = readBody(exchange);
+                OptionalInt marked = habitTrackerService.backfill(userId, habitId,
+                        parseDate(requireString(body, "from")), parseDate(requireString(body, "to")),
+                        BackfillPattern.parse(optionalString(body, "pattern")));
+                if (marked.isEmpty()) {
+                    throw new ApiException(404, "Привычка не найдена");
+                }
+                return Map.of("habitId", habitId, "marked", marked.getAsInt());
+            }
+            case "history" -> {
+                requireGet(method);
+                requireHabit(userId, habitId);
+                return Map.of("habitId", habitId, "history", habitTrackerService.getHabitHistory(userId, habitId));
+            }
+            case "stats" -> {
+                requireGet(method);
+                requireHabit(userId, habitId);
+                Map<String, Object> stats = new LinkedHashMap<>();
+                stats.put("habitId", habitId);
+                stats.put("streak", habitTrackerService.calculateStreak(userId, habitId));
+                stats.put("successRate", habitTrackerService.calculateSuccessRate(userId, habitId));
+                return stats;
+            }
+            default -> throw new ApiException(404, "Маршрут не найден: " + action);
+        }
+    }
+
+    private Object markMany(Map<String, Object> body, int userId) {
+        LocalDate completionDate = completionDate(body);
+        List<Integer> habitIds = new ArrayList<>();
+        Object ids = body.get("habitIds");
+        if (ids == null) {
+            for (Habit habit : habitService.getHabitsByFrequency(userId, 1)) {
+                habitIds.add(habit.getId());
+            }
+        } else if (ids instanceof List<?> list) {
+            for (Object id : list) {
+                if (!(id instanceof Long number) || number < Integer.MIN_VALUE || number > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("Поле 'habitIds' должно быть массивом целых чисел");
+                }
+                habitIds.add(number.intValue());
+            }
+        } else {
+            throw new IllegalArgumentException("Поле 'habitIds' должно быть массивом целых чисел");
+        }
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        habitTrackerService.markHabitCompletions(userId, habitIds, completionDate).forEach((habitId, result) -> {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("habitId", habitId);
+            item.put("result", result);
+            results.add(item);
+        });
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("date", completionDate);
+        response.put("results", results);
+        return response;
+    }
+
+    private Habit requireHabit(int userId, int habitId) {
+        Habit habit = habitService.getHabit(userId, habitId);
+        if (habit == null) {
+            throw new ApiException(404, "Привычка не найдена");
+        }
+        return habit;
+    }
+
+    private User authenticate(HttpExchange exchange) {
+        String token = token(exchange);
+        User user = sessions.userOf(token);
+        if (user == null) {
+            throw new ApiException(401, "Требуется авторизация");
+        }
+        return user;
+    }
+
+    private static String token(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        return header != null && header.startsWith("Bearer ") ? header.substring("Bearer ".length()).trim() : null;
+    }
+
+    private Map<String, Object> readBody(HttpExchange exchange) throws IOException {
+        String length = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (length != null && Long.parseLong(length) > maxBodyBytes) {
+            throw new ApiException(413, "Тело запроса больше " + maxBodyBytes + " байт");
+        }
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                if (body.size() + read > maxBodyBytes) {
+                    throw new ApiException(413, "Тело запроса больше " + maxBodyBytes + " байт");
+                }
+                body.write(buffer, 0, read);
+            }
+        }
+        if (body.size() == 0) {
+            return new HashMap<>();
+        }
+        return Json.parseObject(body.toString(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int status, Object body) throws IOException {
+        try (exchange) {
+            if (body == null) {
+                exchange.sendResponseHeaders(status, -1);
+                return;
+            }
+            byte[] bytes = Json.write(body).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * Передаёт выгрузку истории частями (chunked), не собирая её в памяти.
+     * <p>
+     * После отправки заголовков код ответа уже не изменить, поэтому при ошибке соединение разрывается
+     * без завершающего фрагмента и клиент видит незавершённый ответ, а не обрезанный файл.
+     * </p>
+     */
+    private void stream(HttpExchange exchange, Export export) throws IOException {
+        ExportFormat format = export.format();
+        exchange.getResponseHeaders().set("Content-Type", format.getContentType() + "; charset=utf-8");
+        exchange.getResponseHeaders().set("Content-Disposition",
+                "attachment; filename=\"history." + format.name().toLowerCase(Locale.ROOT) + "\"");
+        exchange.sendResponseHeaders(200, 0);
+        try {
+            habitTrackerService.exportHistory(export.userId(), format,
+                    Channels.newChannel(exchange.getResponseBody()));
+        } catch (RuntimeException e) {
+            throw new IOException("Ошибка выгрузки истории пользователя " + export.userId(), e);
+        }
+        exchange.close();
+    }
+
+    /**
+     * Передаёт отчёт о прогрессе частями (chunked) по мере расчёта статистики привычек.
+     */
+    private void stream(HttpExchange exchange, Report report) throws IOException {
+        ReportFormat format = report.format();
+        // Список привычек читается до отправки заголовков, чтобы ошибка базы вернула код 500
+        List<Habit> habits = habitService.getHabits(report.userId());
+        exchange.getResponseHeaders().set("Content-Type", format.getContentType() + "; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);
+        // Поток не закрывается при ошибке: закрытие завершило бы ответ, и обрезанный отчёт выглядел бы полным
+        Writer writer = new BufferedWriter(
+                new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), STREAM_BUFFER_CHARS);
+        try {
+            habitTrackerService.writeProgressReport(report.userId(), habits, format, writer);
+            writer.flush();
+        } catch (RuntimeException e) {
+            throw new IOException("Ошибка формирования отчёта пользователя " + report.userId(), e);
+        }
+        exchange.close();
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> query = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null) {
+            return query;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                query.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    private static String requireString(Map<String, Object> body, String field) {
+        String value = optionalString(body, field);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Поле '" + field + "' обязательно");
+        }
+        return value;
+    }
+
+    private static String optionalString(Map<String, Object> body, String field) {
+        Object value = body.get(field);
+        if (value != null && !(value instanceof String)) {
+            throw new IllegalArgumentException("Поле '" + field + "' должно быть строкой");
+        }
+        return (String) value;
+    }
+
+    private static int requireInt(Map<String, Object> body, String field) {
+        Object value = body.get(field);
+        if (!(value instanceof Long number) || number < Integer.MIN_VALUE || number > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Поле '" + field + "' должно быть целым числом");
+        }
+        return number.intValue();
+    }
+
+    private static int requireFrequency(Map<String, Object> body) {
+        int frequency = requireInt(body, "frequency");
+        if (frequency != 1 && frequency != 2) {
+            throw new IllegalArgumentException("Поле 'frequency' должно быть 1 (ежедневно) или 2 (еженедельно)");
+        }
+        return frequency;
+    }
+
+    private static LocalDate completionDate(Map<String, Object> body) {
+        String date = optionalString(body, "date");
+        if (date == null) {
+            return LocalDate.now();
+        }
+        LocalDate completionDate = parseDate(date);
+        // Отметка в будущем сдвинула бы дату последнего выполнения и испортила серии, как и в backfill
+        if (completionDate.isAfter(LocalDate.now())) {
+            throw new IllegalArgumentException("Нельзя отметить выполнение в будущем");
+        }
+        return completionDate;
+    }
+
+    private static int parseId(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректное число: " + value);
+        }
+    }
+
+    private static LocalDate parseDate(String value) {
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Некорректная дата (ожидается ГГГГ-ММ-ДД): " + value);
+        }
+    }
+
+    private static void requireGet(String method) {
+        if (!"GET".equals(method)) {
+            throw methodNotAllowed();
+        }
+    }
+
+    private static ApiException methodNotAllowed() {
+        return new ApiException(405, "Метод не поддерживается");
+    }
+
+    private static Map<String, Object> toJson(User user) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", user.getId());
+        json.put("email", user.getEmail());
+        json.put("name", user.getName());
+        json.put("version", user.getVersion());
+        return json;
+    }
+
+    private static Map<String, Object> toJson(Habit habit) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", habit.getId());
+        json.put("title", habit.getTitle());
+        json.put("description", habit.getDescription());
+        json.put("frequency", habit.getFrequency());
+        json.put("creationDate", habit.getCreationDate());
+        json.put("version", habit.getVersion());
+        return json;
+    }
+
+    /**
+     * Ответ на создание ресурса (код 201).
+     */
+    private record Created(Object body) {
+    }
+
+    /**
+     * Ответ-выгрузка истории, передаваемый потоком.
+     */
+    private record Export(int userId, ExportFormat format) {
+    }
+
+    /**
+     * Ответ-отчёт о прогрессе, передаваемый потоком.
+     */
+    private record Report(int userId, ReportFormat format) {
+    }
+}
@@ -0,0 +1,285 @@
+package ru.habittracker.api;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Минимальная сериализация JSON для HTTP API без внешних зависимостей.
+ * <p>
+ * Запись поддерживает {@link Map}, {@link Iterable}, строки, числа, логические значения и null;
+ * остальные объекты записываются через {@code toString()} как строки. Разбор возвращает
+ * {@link Map}, {@link List}, {@link String}, {@link Long}/{@link Double}, {@link Boolean} или null.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public final class Json {
+
+    // Ограничение вложенности при разборе, чтобы глубокий JSON не переполнял стек
+    private static final int MAX_DEPTH = 32;
+
+    private Json() {
+    }
+
+    /**
+     * Записывает значение в JSON.
+     *
+     * @param value значение
+     * @return строка JSON
+     */
+    public static String write(Object value) {
+        StringBuilder out = new StringBuilder();
+        write(out, value);
+        return out.toString();
+    }
+
+    /**
+     * Разбирает JSON-объект.
+     *
+     * @param json строка JSON
+     * @return объект как упорядоченный {@link Map}
+     * @throws IllegalArgumentException если строка не является корректным JSON-объектом
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> parseObject(String json) {
+        Parser parser = new Parser(json);
+        Object value = parser.parseValue(0);
+        parser.skipWhitespace();
+        if (parser.pos != json.length()) {
+            throw parser.error("лишние символы после значения");
+        }
+        if (!(value instanceof Map)) {
+            throw new IllegalArgumentException("Ожидался JSON-объект");
+        }
+        return (Map<String, Object>) value;
+    }
+
+    private static void write(StringBuilder out, Object value) {
+        if (value == null) {
+            out.append("null");
+        } else if (value instanceof Number || value instanceof Boolean) {
+            out.append(value);
+        } else if (value instanceof Map<?, ?> map) {
+            out.append('{');
+            Iterator<? extends Map.Entry<?, ?>> entries = map.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<?, ?> entry = entries.next();
+                writeString(out, String.valueOf(entry.getKey()));
+                out.append(':');
+                write(out, entry.getValue());
+                if (entries.hasNext()) {
+                    out.append(',');
+                }
+            }
+            out.append('}');
+        } else if (value instanceof Iterable<?> items) {
+            out.append('[');
+            Iterator<?> iterator = items.iterator();
+            while (iterator.hasNext()) {
+                write(out, iterator.next());
+                if (iterator.hasNext()) {
+                    out.append(',');
+                }
+            }
+            out.append(']');
+        } else {
+            writeString(out, value.toString());
+        }
+    }
+
+    private static void writeString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+
+    /**
+     * Рекурсивный разбор JSON по RFC 8259.
+     */
+    private static final class Parser {
+        private final String json;
+        private int pos;
+
+        Parser(String json) {
+            this.json = json;
+        }
+
+        Object parseValue(int depth) {
+            if (depth > MAX_DEPTH) {
+                throw error("слишком глубокая вложенность");
+            }
+            skipWhitespace();
+            if (pos >= json.length()) {
+                throw error("неожиданный конец");
+            }
+            char c = json.charAt(pos);
+            return switch (c) {
+                case '{' -> parseObject(depth);
+                case '[' -> parseArray(depth);
+                case '"' -> parseString();
+                case 't' -> literal("true", Boolean.TRUE);
+                case 'f' -> literal("false", Boolean.FALSE);
+                case 'n' -> literal("null", null);
+                default -> parseNumber();
+            };
+        }
+
+        private Map<String, Object> parseObject(int depth) {
+            Map<String, Object> object = new LinkedHashMap<>();
+            pos++;
+            skipWhitespace();
+            if (peek() == '}') {
+                pos++;
+                return object;
+            }
+            while (true) {
+                skipWhitespace();
+                if (peek() != '"') {
+                    throw error("ожидалось имя поля");
+                }
+                String key = parseString();
+                skipWhitespace();
+                expect(':');
+                object.put(key, parseValue(depth + 1));
+                skipWhitespace();
+                if (peek() == ',') {
+                    pos++;
+                } else {
+                    expect('}');
+                    return object;
+                }
+            }
+        }
+
+        private List<Object> parseArray(int depth) {
+            List<Object> array = new ArrayList<>();
+            pos++;
+            skipWhitespace();
+            if (peek() == ']') {
+                pos++;
+                return array;
+            }
+            while (true) {
+                array.add(parseValue(depth + 1));
+                skipWhitespace();
+                if (peek() == ',') {
+                    pos++;
+                } else {
+                    expect(']');
+                    return array;
+                }
+            }
+        }
+
+        private String parseString() {
+            StringBuilder value = new StringBuilder();
+            pos++;
+            while (pos < json.length()) {
+                char c = json.charAt(pos++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (pos >= json.length()) {
+                    break;
+                }
+                char escape = json.charAt(pos++);
+                switch (escape) {
+                    case '"', '\\', '/' -> value.append(escape);
+                    case 'b' -> value.append('\b');
+                    case 'f' -> value.append('\f');
+                    case 'n' -> value.append('\n');
+                    case 'r' -> value.append('\r');
+                    case 't' -> value.append('\t');
+                    case 'u' -> {
+                        if (pos + 4 > json.length()) {
+                            throw error("неполная escape-последовательность");
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(json.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("некорректная escape-последовательность");
+                        }
+                        pos += 4;
+                    }
+                    default -> throw error("некорректная escape-последовательность");
+                }
+            }
+            throw error("незакрытая строка");
+        }
+
+        private Object parseNumber() {
+            int start = pos;
+            while (pos < json.length() && "+-0123456789.eE".indexOf(json.charAt(pos)) >= 0) {
+                pos++;
+            }
+            String number = json.substring(start, pos);
+            if (number.isEmpty()) {
+                throw error("неожиданный символ");
+            }
+            try {
+                if (number.indexOf('.') < 0 && number.indexOf('e') < 0 && number.indexOf('E') < 0) {
+                    return Long.parseLong(number);
+                }
+                return Double.parseDouble(number);
+            } catch (NumberFormatException e) {
+                throw error("некорректное число");
+            }
+        }
+
+        private Object literal(String text, Object value) {
+            if (!json.startsWith(text, pos)) {
+                throw error("неожиданный символ");
+            }
+            pos += text.length();
+            return value;
+        }
+
+        private void expect(char c) {
+            if (peek() != c) {
+                throw error("ожидался символ '" + c + "'");
+            }
+            pos++;
+        }
+
+        private char peek() {
+            if (pos >= json.length()) {
+                throw error("неожиданный конец");
+            }
+            return json.charAt(pos);
+        }
+
+        void skipWhitespace() {
+            while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Некорректный JSON в позиции " + pos + ": " + message);
+        }
+    }
+}
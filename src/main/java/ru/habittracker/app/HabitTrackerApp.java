@@ -8,20 +8,77 @@ import liquibase.database.DatabaseFactory;
 import liquibase.database.jvm.JdbcConnection;
 import liquibase.exception.LiquibaseException;
 import liquibase.resource.ClassLoaderResourceAccessor;
+import ru.habittracker.api.HabitTrackerApiServer;
+import ru.habittracker.analytics.CompletionAnalytics;
+import ru.habittracker.analytics.CompletionColumns;
+import ru.habittracker.analytics.CompletionColumnsLoader;
+import ru.habittracker.config.AppConfig;
+import ru.habittracker.config.Bulkhead;
+import ru.habittracker.config.CircuitBreaker;
 import ru.habittracker.config.DatabaseConnectionManager;
+import ru.habittracker.config.DatabaseWorkload;
+import ru.habittracker.config.ShardedConnectionManager;
+import ru.habittracker.config.SqlRetryPolicy;
 import ru.habittracker.controller.HabitTrackerController;
+import ru.habittracker.job.DatabaseBackupJob;
+import ru.habittracker.job.HabitStatsRebuildJob;
+import ru.habittracker.job.NightlyReportJob;
+import ru.habittracker.job.ShardRebalanceJob;
+import ru.habittracker.report.ReportCache;
+import ru.habittracker.report.ReportFormat;
+import ru.habittracker.repository.IHabitRepository;
+import ru.habittracker.repository.IHabitStatsRepository;
+import ru.habittracker.repository.impl.HabitRecordRepository;
+import ru.habittracker.repository.impl.HabitRepository;
+import ru.habittracker.repository.impl.HabitStatsRepository;
+import ru.habittracker.repository.impl.UserRepository;
+import ru.habittracker.repository.mapped.MappedHabitRecordRepository;
+import ru.habittracker.repository.mapped.MappedHabitStatsRepository;
+import ru.habittracker.repository.mapped.MappedRecordLog;
+import ru.habittracker.repository.memory.InMemoryHabitRecordRepository;
+import ru.habittracker.repository.memory.InMemoryHabitRepository;
+import ru.habittracker.repository.memory.InMemoryHabitStatsRepository;
+import ru.habittracker.repository.memory.InMemoryStore;
+import ru.habittracker.repository.memory.InMemoryUserRepository;
+import ru.habittracker.repository.memory.StorePersistence;
+import ru.habittracker.repository.sharded.HabitShardLocator;
+import ru.habittracker.repository.sharded.ShardedHabitRecordRepository;
+import ru.habittracker.repository.sharded.ShardedHabitRepository;
+import ru.habittracker.repository.sharded.ShardedHabitStatsRepository;
+import ru.habittracker.repository.sharded.ShardedUserRepository;
+import ru.habittracker.security.PasswordHasher;
+import ru.habittracker.security.PasswordVerificationExecutor;
 import ru.habittracker.service.impl.HabitService;
 import ru.habittracker.service.impl.HabitTrackerService;
 import ru.habittracker.service.impl.UserService;
 import ru.habittracker.service.IHabitService;
 import ru.habittracker.service.IHabitTrackerService;
 import ru.habittracker.service.IUserService;
+import ru.habittracker.session.SessionStore;
 
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.PrintStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.TextStyle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 
 // Код класса HabitTrackerApp
 
@@ -31,21 +88,303 @@ public class HabitTrackerApp {
         System.setOut(new PrintStream(System.out, true, "UTF-8"));
         System.setErr(new PrintStream(System.err, true, "UTF-8"));
 
-        DatabaseConnectionManager dbManager = new DatabaseConnectionManager();
+        AppConfig config = new AppConfig();
 
-        // Запуск миграций Liquibase
-        runLiquibaseMigrations(dbManager);
+        IUserService userService;
+        IHabitService habitService;
+        IHabitTrackerService habitTrackerService;
+        IHabitRepository habitRepository;
+        PasswordVerificationExecutor passwords = new PasswordVerificationExecutor(
+                new PasswordHasher(config.getPasswordIterations()), config.getPasswordThreads(),
+                config.getPasswordQueueCapacity());
+        ReportCache reportCache = new ReportCache(config.getReportCacheMaxBytes());
 
-        // Инициализация сервисов и контроллера
-        IUserService userService = new UserService(dbManager);
-        IHabitService habitService = new HabitService(dbManager);
-        IHabitTrackerService habitTrackerService = new HabitTrackerService(dbManager);
+        if (AppConfig.STORAGE_MEMORY.equalsIgnoreCase(config.getStorageType())) {
+            // In-memory хранилище без PostgreSQL
+            InMemoryStore store = new InMemoryStore();
+            String dataDir = config.getMemoryDataDir();
+            if (dataDir != null) {
+                startPersistence(store, Paths.get(dataDir), config.getMemorySnapshotIntervalSeconds());
+            }
+            habitRepository = new InMemoryHabitRepository(store);
+            userService = new UserService(new InMemoryUserRepository(store), passwords);
+            habitService = new HabitService(habitRepository, reportCache);
+            habitTrackerService = new HabitTrackerService(
+                    new InMemoryHabitRecordRepository(store), new InMemoryHabitStatsRepository(store), reportCache);
+        } else if (!config.getDbShards().isEmpty()) {
+            // Несколько шардов PostgreSQL, пользователи распределены по хешу ID
+            ShardedConnectionManager shards = new ShardedConnectionManager(config);
+            for (int shard = 0; shard < shards.getShardCount(); shard++) {
+                // Демонстрационные данные загружаются только на первый шард
+                runLiquibaseMigrations(shards.getShard(shard), shard == 0 ? new Contexts() : new Contexts("shard"));
+            }
+            shards.configureSequences();
 
-        HabitTrackerController controller = new HabitTrackerController(userService, habitService, habitTrackerService);
-        controller.run();
+            // Перенос пользователей на шарды-владельцы после изменения состава шардов: --rebalance-shards
+            if (args.length > 0 && "--rebalance-shards".equals(args[0])) {
+                new ShardRebalanceJob(shards).run();
+                return;
+            }
+
+            HabitShardLocator locator = new HabitShardLocator(shards);
+            IHabitStatsRepository habitStatsRepository = new ShardedHabitStatsRepository(shards, locator);
+            if (args.length > 0 && "--rebuild-stats".equals(args[0])) {
+                new HabitStatsRebuildJob(habitStatsRepository).run();
+                return;
+            }
+
+            List<DatabaseConnectionManager> shardManagers = new ArrayList<>();
+            for (int shard = 0; shard < shards.getShardCount(); shard++) {
+                shardManagers.add(shards.getShard(shard));
+            }
+            printDatabaseMetricsOnShutdown(shardManagers);
+            habitRepository = new ShardedHabitRepository(shards, locator);
+            userService = new UserService(new ShardedUserRepository(shards), passwords);
+            habitService = new HabitService(habitRepository, reportCache);
+            habitTrackerService = new HabitTrackerService(
+                    new ShardedHabitRecordRepository(shards, locator), habitStatsRepository, reportCache);
+        } else {
+            DatabaseConnectionManager dbManager = new DatabaseConnectionManager();
+
+            // Запуск миграций Liquibase
+            runLiquibaseMigrations(dbManager);
+
+            // Пересчёт статистики привычек по запросу: --rebuild-stats
+            if (args.length > 0 && "--rebuild-stats".equals(args[0])) {
+                new HabitStatsRebuildJob(dbManager).run();
+                return;
+            }
+
+            // Резервное копирование и восстановление: --backup <каталог>, --restore <каталог> [--force]
+            if (args.length > 1 && ("--backup".equals(args[0]) || "--restore".equals(args[0]))) {
+                boolean force = args.length > 2 && "--force".equals(args[2]);
+                runBackup(new DatabaseBackupJob(dbManager, config.getBackupThreads()), args[0], Paths.get(args[1]), force);
+                return;
+            }
+
+            // Отчёты о прогрессе всех пользователей: --nightly-report [text|csv|json]
+            if (args.length > 0 && "--nightly-report".equals(args[0])) {
+                runNightlyReport(new NightlyReportJob(dbManager, config.getReportThreads(), config.getReportPageSize()),
+                        Paths.get(config.getReportDir()), ReportFormat.parse(args.length > 1 ? args[1] : null));
+                return;
+            }
+
+            // Сводная аналитика по всем записям: --analytics
+            if (args.length > 0 && "--analytics".equals(args[0])) {
+                printAnalytics(dbManager);
+                return;
+            }
+
+            // Инициализация сервисов
+            printDatabaseMetricsOnShutdown(List.of(dbManager));
+            habitRepository = new HabitRepository(dbManager);
+            userService = new UserService(new UserRepository(dbManager), passwords);
+            habitService = new HabitService(habitRepository, reportCache);
+            habitTrackerService = new HabitTrackerService(
+                    new HabitRecordRepository(dbManager), new HabitStatsRepository(dbManager), reportCache);
+        }
+
+        if (AppConfig.STORAGE_MAPPED.equalsIgnoreCase(config.getRecordStorageType())) {
+            // Записи о выполнении в файлах, отображённых в память
+            MappedRecordLog recordLog = openRecordLog(Paths.get(config.getMappedDataDir()),
+                    config.getMappedMaintenanceIntervalSeconds());
+            habitTrackerService = new HabitTrackerService(
+                    new MappedHabitRecordRepository(recordLog, habitRepository), new MappedHabitStatsRepository(recordLog),
+                    reportCache);
+        }
+
+        String reportCacheFile = config.getReportCacheFile();
+        if (reportCacheFile != null) {
+            loadReportCache(reportCache, Paths.get(reportCacheFile));
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            long requests = reportCache.getHits() + reportCache.getMisses();
+            if (requests > 0) {
+                System.out.printf("Кэш отчётов: попаданий %.1f%% (%d из %d), записей %d, память %d КБ, вытеснений %d%n",
+                        reportCache.getHitRatio() * 100, reportCache.getHits(), requests, reportCache.size(),
+                        reportCache.getFootprintBytes() / 1024, reportCache.getEvictions());
+            }
+            if (reportCacheFile != null) {
+                try {
+                    reportCache.save(Paths.get(reportCacheFile));
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }));
+
+        SessionStore sessions = new SessionStore(Duration.ofMinutes(config.getSessionTtlMinutes()),
+                config.getSessionMaxSessions());
+        sessions.startSweeper(Duration.ofSeconds(config.getSessionSweepIntervalSeconds()));
+
+        if (AppConfig.APP_MODE_API.equalsIgnoreCase(config.getAppMode())) {
+            startApiServer(config, userService, habitService, habitTrackerService, sessions);
+            return;
+        }
+
+        HabitTrackerController controller = new HabitTrackerController(userService, habitService,
+                habitTrackerService, sessions);
+        // Выполнение сценария команд без меню: --script <файл> или --script - для чтения из stdin
+        if (args.length > 1 && "--script".equals(args[0])) {
+            runScript(controller, args[1]);
+        } else {
+            controller.run();
+        }
+        sessions.close();
+    }
+
+    private static void startApiServer(AppConfig config, IUserService userService, IHabitService habitService,
+                                       IHabitTrackerService habitTrackerService, SessionStore sessions) {
+        HabitTrackerApiServer server = new HabitTrackerApiServer(userService, habitService, habitTrackerService,
+                sessions, config.getApiMaxBodyBytes(), config.getApiMaxConcurrentRequests(),
+                config.getApiWorkerThreads(), config.getApiRequestTimeoutMillis());
+        try {
+            server.start(new InetSocketAddress(config.getApiPort()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка запуска HTTP API на порту " + config.getApiPort(), e);
+        }
+        System.out.println("HTTP API запущен на порту " + server.getPort());
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+    }
+
+    private static void runScript(HabitTrackerController controller, String script) {
+        try (Reader reader = "-".equals(script)
+                ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                : Files.newBufferedReader(Paths.get(script), StandardCharsets.UTF_8)) {
+            controller.runScript(reader, new FileOutputStream(FileDescriptor.out));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка чтения сценария " + script, e);
+        }
+    }
+
+    private static void runNightlyReport(NightlyReportJob job, Path directory, ReportFormat format) {
+        NightlyReportJob.Summary summary;
+        try {
+            summary = job.run(directory, format, LocalDate.now());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка формирования отчётов в " + directory, e);
+        }
+        System.out.printf("Отчёты сформированы: пользователей %d, привычек %d, страниц %d за %d мс "
+                        + "(%.1f пользователей/с; запросы %d мс, запись %d мс)%n",
+                summary.users(), summary.habits(), summary.pages(), summary.elapsedMillis(),
+                summary.usersPerSecond(), summary.queryMillis(), summary.writeMillis());
+    }
+
+    private static void runBackup(DatabaseBackupJob job, String command, Path directory, boolean force) {
+        try {
+            if ("--backup".equals(command)) {
+                job.backup(directory);
+            } else {
+                job.restore(directory, force);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка работы с резервной копией в " + directory, e);
+        }
+    }
+
+    private static void printAnalytics(DatabaseConnectionManager dbManager) {
+        CompletionColumns columns = new CompletionColumns(1 << 16);
+        CompletionColumnsLoader loader = new CompletionColumnsLoader(dbManager, columns);
+        int rows = loader.refresh();
+        System.out.println("Загружено записей: " + rows + " за " + loader.getLastRefreshMillis() + " мс");
+
+        CompletionAnalytics analytics = new CompletionAnalytics(columns);
+        LocalDate today = LocalDate.now();
+        double[] rates = analytics.completionRateByWeekday(today.minusYears(1), today);
+        System.out.println("Процент выполнения по дням недели за год:");
+        for (DayOfWeek day : DayOfWeek.values()) {
+            System.out.printf("  %s: %.2f%%%n", day.getDisplayName(TextStyle.FULL, Locale.forLanguageTag("ru")),
+                    rates[day.ordinal()]);
+        }
+        System.out.println("Ежедневных привычек, выполненных вчера: "
+                + analytics.countHabitsCompletedOn(today.minusDays(1), 1));
+    }
+
+    private static void printDatabaseMetricsOnShutdown(List<DatabaseConnectionManager> managers) {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            // Политика повторов общая для всех шардов
+            SqlRetryPolicy retryPolicy = managers.get(0).getRetryPolicy();
+            long failures = 0;
+            for (SqlRetryPolicy.Failure failure : SqlRetryPolicy.Failure.values()) {
+                failures += retryPolicy.getFailures(failure);
+            }
+            if (failures > 0) {
+                System.out.printf("Повторы запросов к БД: операций %d, сбоев %d, повторов %d, восстановлено %d, "
+                                + "попытки исчерпаны %d, отклонено бюджетом %d%n",
+                        retryPolicy.getOperations(), failures, retryPolicy.getRetries(), retryPolicy.getRecovered(),
+                        retryPolicy.getExhausted(), retryPolicy.getBudgetRejected());
+            }
+            for (int shard = 0; shard < managers.size(); shard++) {
+                Bulkhead bulkhead = managers.get(shard).getBulkhead();
+                CircuitBreaker circuitBreaker = managers.get(shard).getCircuitBreaker();
+                long rejected = 0;
+                for (DatabaseWorkload workload : DatabaseWorkload.values()) {
+                    rejected += bulkhead.getRejected(workload);
+                }
+                if (rejected > 0 || circuitBreaker.getTrips() > 0) {
+                    System.out.printf("БД %d: отклонено по лимиту чтение %d, запись %d, отчёты %d; "
+                                    + "размыканий выключателя %d, отклонено выключателем %d%n", shard,
+                            bulkhead.getRejected(DatabaseWorkload.READ), bulkhead.getRejected(DatabaseWorkload.WRITE),
+                            bulkhead.getRejected(DatabaseWorkload.REPORT), circuitBreaker.getTrips(),
+                            circuitBreaker.getRejected());
+                }
+            }
+        }));
+    }
+
+    private static void loadReportCache(ReportCache reportCache, Path file) {
+        try {
+            System.out.println("Загружено отчётов из кэша: " + reportCache.load(file, LocalDate.now()));
+        } catch (IOException e) {
+            // Кэш можно пересчитать, поэтому повреждённый файл не мешает запуску
+            System.err.println("Кэш отчётов не загружен из " + file + ": " + e.getMessage());
+        }
+    }
+
+    private static void startPersistence(InMemoryStore store, Path dataDir, long snapshotIntervalSeconds) {
+        StorePersistence persistence = new StorePersistence(dataDir, store);
+        try {
+            persistence.recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка восстановления данных из " + dataDir, e);
+        }
+        System.out.println("Данные восстановлены за " + persistence.getRecoveryMillis() + " мс, записей журнала: "
+                + persistence.getReplayedEntries());
+        persistence.startSnapshots(snapshotIntervalSeconds);
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                persistence.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }));
+    }
+
+    private static MappedRecordLog openRecordLog(Path dataDir, long maintenanceIntervalSeconds) {
+        MappedRecordLog recordLog;
+        try {
+            recordLog = MappedRecordLog.open(dataDir, MappedRecordLog.DEFAULT_SEGMENT_CAPACITY);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка открытия хранилища записей " + dataDir, e);
+        }
+        recordLog.startMaintenance(maintenanceIntervalSeconds);
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                recordLog.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }));
+        return recordLog;
     }
 
     private static void runLiquibaseMigrations(DatabaseConnectionManager dbManager) {
+        runLiquibaseMigrations(dbManager, new Contexts());
+    }
+
+    private static void runLiquibaseMigrations(DatabaseConnectionManager dbManager, Contexts contexts) {
         try (Connection connection = dbManager.getConnection();
              Statement statement = connection.createStatement()) {
 
@@ -58,7 +397,7 @@ public class HabitTrackerApp {
             database.setDefaultSchemaName("service");
 
             Liquibase liquibase = new Liquibase("db/changelog/changelog.xml", new ClassLoaderResourceAccessor(), database);
-            liquibase.update(new Contexts(), new LabelExpression());
+            liquibase.update(contexts, new LabelExpression());
 
         } catch (SQLException | LiquibaseException e) {
             e.printStackTrace();
@@ -2,7 +2,10 @@ package ru.habittracker.config;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Properties;
+import java.util.stream.Collectors;
 
 /**
  * Класс для загрузки и предоставления настроек приложения из файла properties.
@@ -14,6 +17,12 @@ import java.util.Properties;
  *      Ekaterina Ishchuk
  */
 public class AppConfig {
+    public static final String STORAGE_JDBC = "jdbc";
+    public static final String STORAGE_MEMORY = "memory";
+    public static final String STORAGE_MAPPED = "mapped";
+    public static final String APP_MODE_CONSOLE = "console";
+    public static final String APP_MODE_API = "api";
+
     private Properties properties = new Properties();
 
     /**
@@ -67,6 +76,407 @@ public class AppConfig {
         return properties.getProperty("db.driver");
     }
 
+    /**
+     * Получает имена шардов PostgreSQL из свойства {@code db.shards} (через запятую).
+     *
+     * @return список имён шардов; пустой, если шардирование не используется
+     */
+    public List<String> getDbShards() {
+        String shards = properties.getProperty("db.shards", "");
+        return Arrays.stream(shards.split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Получает URL базы данных шарда.
+     *
+     * @param shard имя шарда
+     * @return URL базы данных шарда
+     */
+    public String getDbShardUrl(String shard) {
+        return properties.getProperty("db.shard." + shard + ".url");
+    }
+
+    /**
+     * Получает имя пользователя базы данных шарда.
+     *
+     * @param shard имя шарда
+     * @return имя пользователя, по умолчанию {@link #getDbUsername()}
+     */
+    public String getDbShardUsername(String shard) {
+        return properties.getProperty("db.shard." + shard + ".username", getDbUsername());
+    }
+
+    /**
+     * Получает пароль базы данных шарда.
+     *
+     * @param shard имя шарда
+     * @return пароль, по умолчанию {@link #getDbPassword()}
+     */
+    public String getDbShardPassword(String shard) {
+        return properties.getProperty("db.shard." + shard + ".password", getDbPassword());
+    }
+
+    /**
+     * Получает количество виртуальных узлов на шард в кольце консистентного хеширования.
+     *
+     * @return количество виртуальных узлов, по умолчанию 128
+     */
+    public int getDbShardVirtualNodes() {
+        return Integer.parseInt(properties.getProperty("db.shards.virtualNodes", "128"));
+    }
+
+    /**
+     * Получает максимальное количество попыток операции с базой данных при временных сбоях.
+     *
+     * @return количество попыток, включая первую; 1 — без повторов
+     */
+    public int getDbRetryMaxAttempts() {
+        return Integer.parseInt(properties.getProperty("db.retry.maxAttempts", "3"));
+    }
+
+    /**
+     * Получает задержку перед первым повтором операции с базой данных.
+     *
+     * @return задержка в миллисекундах
+     */
+    public long getDbRetryBaseDelayMillis() {
+        return Long.parseLong(properties.getProperty("db.retry.baseDelayMillis", "50"));
+    }
+
+    /**
+     * Получает максимальную задержку между повторами операции с базой данных.
+     *
+     * @return задержка в миллисекундах
+     */
+    public long getDbRetryMaxDelayMillis() {
+        return Long.parseLong(properties.getProperty("db.retry.maxDelayMillis", "1000"));
+    }
+
+    /**
+     * Получает допустимую долю повторов от количества операций с базой данных.
+     *
+     * @return доля в процентах
+     */
+    public int getDbRetryBudgetPercent() {
+        return Integer.parseInt(properties.getProperty("db.retry.budgetPercent", "10"));
+    }
+
+    /**
+     * Получает количество одновременных операций чтения с базой данных.
+     *
+     * @return количество операций; 0 — без ограничения
+     */
+    public int getDbBulkheadReads() {
+        return Integer.parseInt(properties.getProperty("db.bulkhead.reads", "8"));
+    }
+
+    /**
+     * Получает количество одновременных операций записи в базу данных.
+     *
+     * @return количество операций; 0 — без ограничения
+     */
+    public int getDbBulkheadWrites() {
+        return Integer.parseInt(properties.getProperty("db.bulkhead.writes", "4"));
+    }
+
+    /**
+     * Получает количество одновременных тяжёлых операций с базой данных: выгрузки истории и пересчёта статистики.
+     *
+     * @return количество операций; 0 — без ограничения
+     */
+    public int getDbBulkheadReports() {
+        return Integer.parseInt(properties.getProperty("db.bulkhead.reports", "2"));
+    }
+
+    /**
+     * Получает время ожидания свободного места для операции с базой данных.
+     *
+     * @return время ожидания в миллисекундах
+     */
+    public long getDbBulkheadWaitMillis() {
+        return Long.parseLong(properties.getProperty("db.bulkhead.waitMillis", "200"));
+    }
+
+    /**
+     * Получает количество сбоев подряд, после которого операции с базой данных отклоняются без обращения к ней.
+     *
+     * @return количество сбоев; 0 — не отклонять
+     */
+    public int getDbBreakerFailureThreshold() {
+        return Integer.parseInt(properties.getProperty("db.breaker.failureThreshold", "5"));
+    }
+
+    /**
+     * Получает время, в течение которого операции отклоняются после серии сбоев.
+     *
+     * @return время в миллисекундах
+     */
+    public long getDbBreakerOpenMillis() {
+        return Long.parseLong(properties.getProperty("db.breaker.openMillis", "5000"));
+    }
+
+    /**
+     * Получает количество пробных операций, пропускаемых к базе данных по истечении времени отклонения.
+     *
+     * @return количество пробных операций
+     */
+    public int getDbBreakerHalfOpenProbes() {
+        return Integer.parseInt(properties.getProperty("db.breaker.halfOpenProbes", "1"));
+    }
+
+    /**
+     * Получает таймаут запросов чтения к базе данных.
+     *
+     * @return таймаут в миллисекундах; 0 — без таймаута
+     */
+    public long getDbTimeoutReadMillis() {
+        return Long.parseLong(properties.getProperty("db.timeout.readMillis", "2000"));
+    }
+
+    /**
+     * Получает таймаут запросов, изменяющих данные.
+     *
+     * @return таймаут в миллисекундах; 0 — без таймаута
+     */
+    public long getDbTimeoutWriteMillis() {
+        return Long.parseLong(properties.getProperty("db.timeout.writeMillis", "5000"));
+    }
+
+    /**
+     * Получает таймаут тяжёлых запросов: выгрузки истории и пересчёта статистики.
+     *
+     * @return таймаут в миллисекундах; 0 — без таймаута
+     */
+    public long getDbTimeoutReportMillis() {
+        return Long.parseLong(properties.getProperty("db.timeout.reportMillis", "30000"));
+    }
+
+    /**
+     * Получает тип хранилища данных: {@code jdbc} (PostgreSQL) или {@code memory}.
+     *
+     * @return тип хранилища, по умолчанию {@code jdbc}
+     */
+    public String getStorageType() {
+        return properties.getProperty("storage.type", STORAGE_JDBC);
+    }
+
+    /**
+     * Получает каталог для снимков и журнала in-memory хранилища.
+     *
+     * @return путь к каталогу или null, если данные хранятся только в памяти
+     */
+    public String getMemoryDataDir() {
+        String dir = properties.getProperty("storage.memory.dataDir");
+        return dir == null || dir.isBlank() ? null : dir;
+    }
+
+    /**
+     * Получает интервал между снимками in-memory хранилища.
+     *
+     * @return интервал в секундах, по умолчанию 300
+     */
+    public long getMemorySnapshotIntervalSeconds() {
+        return Long.parseLong(properties.getProperty("storage.memory.snapshotIntervalSeconds", "300"));
+    }
+
+    /**
+     * Получает тип хранилища записей о выполнении: {@code jdbc}, {@code memory} или {@code mapped}
+     * (файлы, отображённые в память).
+     *
+     * @return тип хранилища записей, по умолчанию совпадает с {@link #getStorageType()}
+     */
+    public String getRecordStorageType() {
+        String type = properties.getProperty("storage.records.type");
+        return type == null || type.isBlank() ? getStorageType() : type;
+    }
+
+    /**
+     * Получает каталог сегментов хранилища записей {@code mapped}.
+     *
+     * @return путь к каталогу, по умолчанию {@code data/records}
+     */
+    public String getMappedDataDir() {
+        return properties.getProperty("storage.mapped.dataDir", "data/records");
+    }
+
+    /**
+     * Получает интервал фоновой компактификации хранилища записей {@code mapped}.
+     *
+     * @return интервал в секундах, по умолчанию 60
+     */
+    public long getMappedMaintenanceIntervalSeconds() {
+        return Long.parseLong(properties.getProperty("storage.mapped.maintenanceIntervalSeconds", "60"));
+    }
+
+    /**
+     * Получает режим запуска приложения: {@code console} (консольное меню) или {@code api} (HTTP API).
+     *
+     * @return режим запуска, по умолчанию {@code console}
+     */
+    public String getAppMode() {
+        return properties.getProperty("app.mode", APP_MODE_CONSOLE);
+    }
+
+    /**
+     * Получает порт HTTP API.
+     *
+     * @return порт, по умолчанию 8080
+     */
+    public int getApiPort() {
+        return Integer.parseInt(properties.getProperty("api.port", "8080"));
+    }
+
+    /**
+     * Получает максимальный размер тела запроса HTTP API.
+     *
+     * @return размер в байтах, по умолчанию 65536
+     */
+    public int getApiMaxBodyBytes() {
+        return Integer.parseInt(properties.getProperty("api.maxBodyBytes", "65536"));
+    }
+
+    /**
+     * Получает максимальное количество одновременно обрабатываемых запросов HTTP API.
+     * Запросы сверх лимита получают ответ 503.
+     *
+     * @return количество запросов, по умолчанию 10000
+     */
+    public int getApiMaxConcurrentRequests() {
+        return Integer.parseInt(properties.getProperty("api.maxConcurrentRequests", "10000"));
+    }
+
+    /**
+     * Получает срок обработки запроса HTTP API. Операции с базой данных после истечения срока не начинаются,
+     * а запрос получает ответ 504.
+     *
+     * @return срок в миллисекундах, по умолчанию 30000; 0 — без срока
+     */
+    public long getApiRequestTimeoutMillis() {
+        return Long.parseLong(properties.getProperty("api.requestTimeoutMillis", "30000"));
+    }
+
+    /**
+     * Получает размер пула потоков HTTP API, если виртуальные потоки недоступны.
+     *
+     * @return количество потоков, по умолчанию 200
+     */
+    public int getApiWorkerThreads() {
+        return Integer.parseInt(properties.getProperty("api.workerThreads", "200"));
+    }
+
+    /**
+     * Получает срок жизни сессии без обращений в минутах.
+     *
+     * @return срок жизни сессии
+     */
+    public long getSessionTtlMinutes() {
+        return Long.parseLong(properties.getProperty("session.ttlMinutes", "30"));
+    }
+
+    /**
+     * Получает максимальное количество одновременных сессий.
+     *
+     * @return максимальное количество сессий
+     */
+    public int getSessionMaxSessions() {
+        return Integer.parseInt(properties.getProperty("session.maxSessions", "1000000"));
+    }
+
+    /**
+     * Получает интервал очистки просроченных сессий в секундах.
+     *
+     * @return интервал очистки
+     */
+    public long getSessionSweepIntervalSeconds() {
+        return Long.parseLong(properties.getProperty("session.sweepIntervalSeconds", "60"));
+    }
+
+    /**
+     * Получает количество итераций PBKDF2 при хешировании паролей.
+     *
+     * @return количество итераций
+     */
+    public int getPasswordIterations() {
+        return Integer.parseInt(properties.getProperty("security.password.iterations", "600000"));
+    }
+
+    /**
+     * Получает количество потоков проверки паролей (по умолчанию — число ядер).
+     *
+     * @return количество потоков
+     */
+    public int getPasswordThreads() {
+        String threads = properties.getProperty("security.password.threads", "");
+        return threads.isBlank() ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(threads.trim());
+    }
+
+    /**
+     * Получает максимальное количество ожидающих проверок паролей.
+     *
+     * @return размер очереди
+     */
+    public int getPasswordQueueCapacity() {
+        return Integer.parseInt(properties.getProperty("security.password.queueCapacity", "64"));
+    }
+
+    /**
+     * Получает количество параллельных потоков резервного копирования и восстановления.
+     *
+     * @return количество потоков
+     */
+    public int getBackupThreads() {
+        return Integer.parseInt(properties.getProperty("backup.threads", "4"));
+    }
+
+    /**
+     * Получает количество потоков ночных отчётов; каждый поток держит одно соединение с базой.
+     *
+     * @return количество потоков
+     */
+    public int getReportThreads() {
+        return Integer.parseInt(properties.getProperty("report.threads", "4"));
+    }
+
+    /**
+     * Получает количество пользователей на странице ночных отчётов.
+     *
+     * @return размер страницы
+     */
+    public int getReportPageSize() {
+        return Integer.parseInt(properties.getProperty("report.pageSize", "500"));
+    }
+
+    /**
+     * Получает каталог ночных отчётов.
+     *
+     * @return путь к каталогу
+     */
+    public String getReportDir() {
+        return properties.getProperty("report.dir", "reports");
+    }
+
+    /**
+     * Получает предельный размер кэша статистики отчётов.
+     *
+     * @return размер в байтах; 0 — кэш отключён
+     */
+    public long getReportCacheMaxBytes() {
+        return Long.parseLong(properties.getProperty("report.cache.maxBytes", "16777216"));
+    }
+
+    /**
+     * Получает файл, в котором кэш отчётов сохраняется между запусками.
+     *
+     * @return путь к файлу или null, если кэш не сохраняется
+     */
+    public String getReportCacheFile() {
+        String file = properties.getProperty("report.cache.file");
+        return file == null || file.isBlank() ? null : file;
+    }
+
     /**
      * Получает путь к файлу Liquibase changelog.
      *
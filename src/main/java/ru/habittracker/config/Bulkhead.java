@@ -0,0 +1,131 @@
+package ru.habittracker.config;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Ограничение числа одновременных операций с базой данных по видам операций.
+ * <p>
+ * У каждого {@link DatabaseWorkload} свой семафор: когда база замедляется, ожидающие операции одного вида
+ * не занимают соединения остальных. Операция ждёт свободного места не дольше заданного времени, затем
+ * отклоняется, вместо того чтобы копить очередь к перегруженной базе.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public class Bulkhead {
+
+    private final Map<DatabaseWorkload, Semaphore> permits = new EnumMap<>(DatabaseWorkload.class);
+    private final long waitMillis;
+    private final AtomicLongArray rejected = new AtomicLongArray(DatabaseWorkload.values().length);
+
+    /**
+     * Создаёт ограничение одновременных операций.
+     *
+     * @param reads      количество одновременных чтений; 0 — без ограничения
+     * @param writes     количество одновременных изменений; 0 — без ограничения
+     * @param reports    количество одновременных тяжёлых операций; 0 — без ограничения
+     * @param waitMillis время ожидания свободного места
+     */
+    public Bulkhead(int reads, int writes, int reports, long waitMillis) {
+        if (reads < 0 || writes < 0 || reports < 0 || waitMillis < 0) {
+            throw new IllegalArgumentException("Некорректные параметры ограничения операций с базой данных");
+        }
+        permits.put(DatabaseWorkload.READ, semaphore(reads));
+        permits.put(DatabaseWorkload.WRITE, semaphore(writes));
+        permits.put(DatabaseWorkload.REPORT, semaphore(reports));
+        this.waitMillis = waitMillis;
+    }
+
+    /**
+     * Создаёт ограничение одновременных операций по настройкам приложения.
+     *
+     * @param config настройки приложения
+     * @return ограничение операций
+     */
+    public static Bulkhead of(AppConfig config) {
+        return new Bulkhead(config.getDbBulkheadReads(), config.getDbBulkheadWrites(),
+                config.getDbBulkheadReports(), config.getDbBulkheadWaitMillis());
+    }
+
+    /**
+     * Создаёт ограничение без ограничений, например для тестов и пакетных задач.
+     *
+     * @return ограничение, которое пропускает все операции
+     */
+    public static Bulkhead unlimited() {
+        return new Bulkhead(0, 0, 0, 0);
+    }
+
+    /**
+     * Занимает место для операции, ожидая его не дольше заданного времени.
+     *
+     * @param workload вид операции
+     * @throws SQLTransientException если место не освободилось
+     * @throws SQLException          если ожидание прервано
+     */
+    public void acquire(DatabaseWorkload workload) throws SQLException {
+        acquire(workload, waitMillis);
+    }
+
+    /**
+     * Занимает место для операции, ожидая его не дольше заданного времени и не дольше указанного срока.
+     *
+     * @param workload      вид операции
+     * @param maxWaitMillis предельное время ожидания, например оставшийся срок вызывающего
+     * @throws SQLTransientException если место не освободилось
+     * @throws SQLException          если ожидание прервано
+     */
+    public void acquire(DatabaseWorkload workload, long maxWaitMillis) throws SQLException {
+        boolean acquired;
+        try {
+            acquired = permits.get(workload).tryAcquire(Math.min(waitMillis, maxWaitMillis), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Ожидание операции с базой данных прервано", e);
+        }
+        if (!acquired) {
+            rejected.incrementAndGet(workload.ordinal());
+            throw new SQLTransientException("Превышено количество одновременных операций с базой данных: " + workload);
+        }
+    }
+
+    /**
+     * Освобождает место, занятое {@link #acquire(DatabaseWorkload)}.
+     *
+     * @param workload вид операции
+     */
+    public void release(DatabaseWorkload workload) {
+        permits.get(workload).release();
+    }
+
+    /**
+     * Возвращает количество свободных мест для операций указанного вида.
+     *
+     * @param workload вид операции
+     * @return количество свободных мест
+     */
+    public int getAvailable(DatabaseWorkload workload) {
+        return permits.get(workload).availablePermits();
+    }
+
+    /**
+     * Возвращает количество операций указанного вида, отклонённых из-за отсутствия места.
+     *
+     * @param workload вид операции
+     * @return количество отклонённых операций
+     */
+    public long getRejected(DatabaseWorkload workload) {
+        return rejected.get(workload.ordinal());
+    }
+
+    private static Semaphore semaphore(int limit) {
+        return new Semaphore(limit == 0 ? Integer.MAX_VALUE : limit);
+    }
+}
@@ -0,0 +1,193 @@
+package ru.habittracker.config;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Автоматический выключатель для операций с базой данных.
+ * <p>
+ * После заданного числа сбоев подряд выключатель размыкается, и операции отклоняются сразу, не дожидаясь
+ * таймаутов недоступной базы. По истечении паузы к базе пропускается несколько пробных операций: успех
+ * замыкает выключатель, сбой размыкает его снова.
+ * </p>
+ * <p>
+ * Сбоем считается только недоступность базы: отказ в подключении, обрыв соединения и таймаут запроса
+ * (см. {@link SqlRetryPolicy#classify(SQLException)}). Нарушения ограничений и откаты транзакций означают,
+ * что база отвечает, и сбрасывают счётчик сбоев.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public class CircuitBreaker {
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final int halfOpenProbes;
+    private final LongSupplier clock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private int probesInFlight;
+    private long trips;
+    private long rejected;
+
+    /**
+     * Создаёт выключатель.
+     *
+     * @param failureThreshold количество сбоев подряд для размыкания; 0 — выключатель не размыкается
+     * @param openMillis       пауза, в течение которой операции отклоняются
+     * @param halfOpenProbes   количество одновременных пробных операций после паузы
+     */
+    public CircuitBreaker(int failureThreshold, long openMillis, int halfOpenProbes) {
+        this(failureThreshold, openMillis, halfOpenProbes, System::nanoTime);
+    }
+
+    /**
+     * Создаёт выключатель с заданными часами.
+     *
+     * @param failureThreshold количество сбоев подряд для размыкания; 0 — выключатель не размыкается
+     * @param openMillis       пауза, в течение которой операции отклоняются
+     * @param halfOpenProbes   количество одновременных пробных операций после паузы
+     * @param clock            источник времени в наносекундах
+     */
+    CircuitBreaker(int failureThreshold, long openMillis, int halfOpenProbes, LongSupplier clock) {
+        if (failureThreshold < 0 || openMillis < 0 || halfOpenProbes < 1) {
+            throw new IllegalArgumentException("Некорректные параметры выключателя операций с базой данных");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+        this.halfOpenProbes = halfOpenProbes;
+        this.clock = clock;
+    }
+
+    /**
+     * Создаёт выключатель по настройкам приложения.
+     *
+     * @param config настройки приложения
+     * @return выключатель
+     */
+    public static CircuitBreaker of(AppConfig config) {
+        return new CircuitBreaker(config.getDbBreakerFailureThreshold(), config.getDbBreakerOpenMillis(),
+                config.getDbBreakerHalfOpenProbes());
+    }
+
+    /**
+     * Создаёт выключатель, который никогда не размыкается.
+     *
+     * @return выключатель
+     */
+    public static CircuitBreaker disabled() {
+        return new CircuitBreaker(0, 0, 1);
+    }
+
+    /**
+     * Проверяет, можно ли выполнить операцию. Каждое успешное разрешение должно завершиться вызовом
+     * {@link #onResult(boolean)}.
+     *
+     * @throws SQLTransientConnectionException если выключатель разомкнут или все пробные операции заняты
+     */
+    public synchronized void acquirePermission() throws SQLTransientConnectionException {
+        if (state == State.OPEN && clock.getAsLong() - openedAt >= openNanos) {
+            state = State.HALF_OPEN;
+            probesInFlight = 0;
+        }
+        if (state == State.OPEN || (state == State.HALF_OPEN && probesInFlight >= halfOpenProbes)) {
+            rejected++;
+            throw new SQLTransientConnectionException("База данных недоступна: операции временно отклоняются");
+        }
+        if (state == State.HALF_OPEN) {
+            probesInFlight++;
+        }
+    }
+
+    /**
+     * Учитывает результат операции, разрешённой {@link #acquirePermission()}.
+     *
+     * @param failed true, если база данных недоступна
+     */
+    public synchronized void onResult(boolean failed) {
+        if (state == State.HALF_OPEN) {
+            probesInFlight--;
+            if (failed) {
+                trip();
+            } else {
+                state = State.CLOSED;
+                consecutiveFailures = 0;
+            }
+            return;
+        }
+        if (!failed) {
+            consecutiveFailures = 0;
+        } else if (state == State.CLOSED && failureThreshold > 0 && ++consecutiveFailures >= failureThreshold) {
+            trip();
+        }
+    }
+
+    /**
+     * Проверяет, означает ли ошибка недоступность базы данных.
+     *
+     * @param e ошибка операции
+     * @return true для отказа в подключении, обрыва соединения и таймаута запроса
+     */
+    public static boolean isFailure(SQLException e) {
+        SqlRetryPolicy.Failure failure = SqlRetryPolicy.classify(e);
+        return failure == SqlRetryPolicy.Failure.CONNECT || failure == SqlRetryPolicy.Failure.CONNECTION_LOST
+                || failure == SqlRetryPolicy.Failure.TIMEOUT;
+    }
+
+    private void trip() {
+        state = State.OPEN;
+        openedAt = clock.getAsLong();
+        consecutiveFailures = 0;
+        trips++;
+    }
+
+    /**
+     * Возвращает состояние выключателя.
+     *
+     * @return состояние
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Возвращает количество размыканий.
+     *
+     * @return количество размыканий
+     */
+    public synchronized long getTrips() {
+        return trips;
+    }
+
+    /**
+     * Возвращает количество операций, отклонённых без обращения к базе данных.
+     *
+     * @return количество отклонённых операций
+     */
+    public synchronized long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * Состояние выключателя.
+     */
+    public enum State {
+        /**
+         * Операции выполняются.
+         */
+        CLOSED,
+        /**
+         * Операции отклоняются до истечения паузы.
+         */
+        OPEN,
+        /**
+         * К базе пропускаются только пробные операции.
+         */
+        HALF_OPEN
+    }
+}
@@ -0,0 +1,109 @@
+package ru.habittracker.config;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Кольцо консистентного хеширования с виртуальными узлами.
+ * <p>
+ * Каждый узел (шард) размещается на кольце {@code virtualNodes} раз по хешу строки {@code "имя#номер"},
+ * ключ относится к первому узлу по часовой стрелке от своего хеша. Положение узлов зависит только
+ * от их имён, поэтому при добавлении шарда на него переходит около {@code 1/N} ключей,
+ * а остальные ключи остаются на прежних шардах.
+ * </p>
+ * <p>
+ * Точки кольца хранятся в отсортированном массиве {@code long[]}, поиск узла — двоичный поиск.
+ * Экземпляр неизменяем и потокобезопасен.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public final class ConsistentHashRing {
+
+    private final long[] points;
+    private final int[] owners;
+
+    /**
+     * Строит кольцо для указанных узлов.
+     *
+     * @param nodes        имена узлов; индекс в списке — номер узла
+     * @param virtualNodes количество виртуальных узлов на один узел
+     * @throws IllegalArgumentException если список узлов пуст или количество виртуальных узлов не положительно
+     */
+    public ConsistentHashRing(List<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("Кольцо должно содержать хотя бы один узел");
+        }
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("Количество виртуальных узлов должно быть положительным: " + virtualNodes);
+        }
+        int size = nodes.size() * virtualNodes;
+        long[] hashes = new long[size];
+        for (int node = 0; node < nodes.size(); node++) {
+            for (int replica = 0; replica < virtualNodes; replica++) {
+                hashes[node * virtualNodes + replica] = hash(nodes.get(node) + "#" + replica);
+            }
+        }
+
+        // Сортировка индексов по хешу; при совпадении хешей побеждает меньший индекс
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> hashes[a] != hashes[b] ? Long.compareUnsigned(hashes[a], hashes[b]) : a - b);
+
+        points = new long[size];
+        owners = new int[size];
+        for (int i = 0; i < size; i++) {
+            points[i] = hashes[order[i]];
+            owners[i] = order[i] / virtualNodes;
+        }
+    }
+
+    /**
+     * Возвращает номер узла для ключа.
+     *
+     * @param key ключ (например, ID пользователя)
+     * @return индекс узла в списке, переданном в конструктор
+     */
+    public int nodeFor(long key) {
+        long hash = mix(key);
+        int low = 0;
+        int high = points.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Long.compareUnsigned(points[mid], hash) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return owners[low == points.length ? 0 : low];
+    }
+
+    /**
+     * Хеш строки: FNV-1a по байтам UTF-8 с последующим перемешиванием битов.
+     */
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Финализатор MurmurHash3 (fmix64): равномерно распределяет последовательные ключи по кольцу.
+     */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
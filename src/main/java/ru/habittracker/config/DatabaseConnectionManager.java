@@ -3,6 +3,8 @@ package ru.habittracker.config;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Properties;
 
 /**
  * Управляет подключениями к базе данных.
@@ -15,10 +17,17 @@ import java.sql.SQLException;
  */
 public class DatabaseConnectionManager {
 
+    // Запас таймаута сокета сверх statement_timeout, чтобы сервер успел сообщить об отмене запроса
+    private static final long NETWORK_TIMEOUT_GRACE_MILLIS = 1000;
+
     private final String url;
     private final String username;
     private final String password;
     private final String driver;
+    private final SqlRetryPolicy retryPolicy;
+    private final Bulkhead bulkhead;
+    private final CircuitBreaker circuitBreaker;
+    private final QueryTimeouts queryTimeouts;
 
     /**
      * Конструктор по умолчанию, использующий настройки из AppConfig.
@@ -29,6 +38,10 @@ public class DatabaseConnectionManager {
         this.username = config.getDbUsername();
         this.password = config.getDbPassword();
         this.driver = config.getDbDriver();
+        this.retryPolicy = SqlRetryPolicy.of(config);
+        this.bulkhead = Bulkhead.of(config);
+        this.circuitBreaker = CircuitBreaker.of(config);
+        this.queryTimeouts = QueryTimeouts.of(config);
     }
 
     /**
@@ -40,10 +53,33 @@ public class DatabaseConnectionManager {
      * @param driver   драйвер базы данных
      */
     public DatabaseConnectionManager(String url, String username, String password, String driver) {
+        this(url, username, password, driver, SqlRetryPolicy.NONE, Bulkhead.unlimited(), CircuitBreaker.disabled(),
+                QueryTimeouts.none());
+    }
+
+    /**
+     * Конструктор с пользовательскими параметрами и защитой операций от сбоев и перегрузки базы.
+     *
+     * @param url            URL базы данных
+     * @param username       имя пользователя
+     * @param password       пароль
+     * @param driver         драйвер базы данных
+     * @param retryPolicy    политика повтора операций при временных сбоях
+     * @param bulkhead       ограничение одновременных операций по видам
+     * @param circuitBreaker выключатель операций при недоступности базы
+     * @param queryTimeouts  таймауты запросов по видам операций
+     */
+    public DatabaseConnectionManager(String url, String username, String password, String driver,
+                                     SqlRetryPolicy retryPolicy, Bulkhead bulkhead, CircuitBreaker circuitBreaker,
+                                     QueryTimeouts queryTimeouts) {
         this.url = url;
         this.username = username;
         this.password = password;
         this.driver = driver;
+        this.retryPolicy = retryPolicy;
+        this.bulkhead = bulkhead;
+        this.circuitBreaker = circuitBreaker;
+        this.queryTimeouts = queryTimeouts;
     }
 
     /**
@@ -54,11 +90,141 @@ public class DatabaseConnectionManager {
      */
     public Connection getConnection() {
         try {
-            Class.forName(driver);
-            return DriverManager.getConnection(url, username, password);
-        } catch (ClassNotFoundException | SQLException e) {
+            return openConnection();
+        } catch (SQLException e) {
             e.printStackTrace();
             throw new RuntimeException("Ошибка подключения к базе данных", e);
         }
     }
+
+    /**
+     * Выполняет операцию на новом соединении, повторяя её при временных сбоях по политике повтора.
+     * <p>
+     * Операция ждёт места среди операций своего вида в {@link Bulkhead}; при разомкнутом
+     * {@link CircuitBreaker} она отклоняется сразу, не обращаясь к базе. Запросы каждой попытки
+     * ограничены таймаутом вида операции, сокращённым до срока вызывающего ({@link QueryDeadline});
+     * после истечения срока попытки не начинаются, а при его отмене соединение прерывается.
+     * </p>
+     *
+     * @param workload   вид операции
+     * @param idempotent true, если повторное выполнение не меняет результат в базе
+     * @param work       операция
+     * @param <T>        тип результата
+     * @return результат операции
+     * @throws SQLException если операция не выполнена, отклонена или срок истёк
+     * @see SqlRetryPolicy
+     */
+    public <T> T execute(DatabaseWorkload workload, boolean idempotent, SqlRetryPolicy.SqlWork<T> work)
+            throws SQLException {
+        QueryDeadline deadline = QueryDeadline.current();
+        checkDeadline(deadline);
+        // Таймаут, сокращённый сроком вызывающего, говорит о его бюджете, а не о состоянии базы
+        long workloadTimeout = queryTimeouts.getMillis(workload);
+        boolean deadlineBound = deadline != null
+                && (workloadTimeout == 0 || deadline.remainingMillis() < workloadTimeout);
+
+        bulkhead.acquire(workload, deadline != null ? deadline.remainingMillis() : Long.MAX_VALUE);
+        try {
+            circuitBreaker.acquirePermission();
+            boolean failed = false;
+            try {
+                return retryPolicy.execute(() -> openConnection(workload, deadline), idempotent, conn -> {
+                    if (deadline == null) {
+                        return work.run(conn);
+                    }
+                    deadline.register(conn);
+                    try {
+                        return work.run(conn);
+                    } finally {
+                        deadline.unregister(conn);
+                    }
+                });
+            } catch (SQLException e) {
+                failed = CircuitBreaker.isFailure(e)
+                        && !(deadlineBound && SqlRetryPolicy.classify(e) == SqlRetryPolicy.Failure.TIMEOUT);
+                throw e;
+            } finally {
+                circuitBreaker.onResult(failed);
+            }
+        } finally {
+            bulkhead.release(workload);
+        }
+    }
+
+    /**
+     * Возвращает политику повтора операций и её счётчики.
+     *
+     * @return политика повтора
+     */
+    public SqlRetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Возвращает ограничение одновременных операций и его счётчики.
+     *
+     * @return ограничение операций
+     */
+    public Bulkhead getBulkhead() {
+        return bulkhead;
+    }
+
+    /**
+     * Возвращает выключатель операций и его счётчики.
+     *
+     * @return выключатель
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    private Connection openConnection() throws SQLException {
+        return openConnection(0);
+    }
+
+    /**
+     * Открывает соединение для попытки операции с таймаутом её вида, сокращённым до срока вызывающего.
+     */
+    private Connection openConnection(DatabaseWorkload workload, QueryDeadline deadline) throws SQLException {
+        checkDeadline(deadline);
+        long timeout = queryTimeouts.getMillis(workload, deadline);
+        Connection conn = openConnection(timeout);
+        if (timeout > 0) {
+            try {
+                // Запасной таймаут сокета на случай, если сервер не ответит и об отмене запроса
+                long networkTimeout = timeout + NETWORK_TIMEOUT_GRACE_MILLIS;
+                conn.setNetworkTimeout(Runnable::run, (int) Math.min(Integer.MAX_VALUE, networkTimeout));
+            } catch (SQLException e) {
+                conn.close();
+                throw e;
+            }
+        }
+        return conn;
+    }
+
+    private Connection openConnection(long statementTimeoutMillis) throws SQLException {
+        try {
+            Class.forName(driver);
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException("Драйвер базы данных не найден: " + driver, e);
+        }
+        Properties properties = new Properties();
+        if (username != null) {
+            properties.setProperty("user", username);
+        }
+        if (password != null) {
+            properties.setProperty("password", password);
+        }
+        if (statementTimeoutMillis > 0) {
+            // Параметр сеанса передаётся при подключении, без отдельного запроса SET
+            properties.setProperty("options", "-c statement_timeout=" + statementTimeoutMillis);
+        }
+        return DriverManager.getConnection(url, properties);
+    }
+
+    private static void checkDeadline(QueryDeadline deadline) throws SQLTimeoutException {
+        if (deadline != null && deadline.isExpired()) {
+            throw new SQLTimeoutException("Срок операции с базой данных истёк");
+        }
+    }
 }
@@ -0,0 +1,26 @@
+package ru.habittracker.config;
+
+/**
+ * Вид операции с базой данных.
+ * <p>
+ * Для каждого вида {@link Bulkhead} ограничивает число одновременных операций отдельно, поэтому медленные
+ * выгрузки истории и пересчёт статистики не занимают места, нужные отметкам выполнения и чтению привычек.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public enum DatabaseWorkload {
+    /**
+     * Короткие чтения по ключу: пользователи, привычки, записи и статистика одной привычки.
+     */
+    READ,
+    /**
+     * Изменения данных, в том числе отметки выполнения.
+     */
+    WRITE,
+    /**
+     * Тяжёлые операции для отчётов и выгрузок: чтение всей истории и пересчёт статистики.
+     */
+    REPORT
+}
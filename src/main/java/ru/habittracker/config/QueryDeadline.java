@@ -0,0 +1,174 @@
+package ru.habittracker.config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Срок, к которому вызывающий ждёт результат операций с базой данных.
+ * <p>
+ * Срок привязывается к потоку на время обработки запроса и без изменения интерфейсов сервисов
+ * и репозиториев доходит до {@link DatabaseConnectionManager#execute}: таймаут каждого запроса к базе
+ * сокращается до оставшегося времени, а после истечения срока операции не начинаются. Вложенный срок
+ * не может быть позже внешнего.
+ * </p>
+ * <p>
+ * {@link #cancel()} можно вызвать из другого потока, когда вызывающий больше не ждёт результата:
+ * соединения выполняющихся операций прерываются, новые операции не начинаются.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public final class QueryDeadline implements AutoCloseable {
+
+    private static final ThreadLocal<QueryDeadline> CURRENT = new ThreadLocal<>();
+
+    private final long deadlineNanos;
+    private final QueryDeadline outer;
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled;
+
+    private QueryDeadline(long deadlineNanos, QueryDeadline outer) {
+        this.deadlineNanos = deadlineNanos;
+        this.outer = outer;
+    }
+
+    /**
+     * Устанавливает срок для операций текущего потока до вызова {@link #close()}.
+     *
+     * @param timeoutMillis время от текущего момента
+     * @return срок; если у потока уже есть более ранний срок, действует он
+     */
+    public static QueryDeadline start(long timeoutMillis) {
+        QueryDeadline outer = CURRENT.get();
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        if (outer != null && outer.deadlineNanos - deadlineNanos < 0) {
+            deadlineNanos = outer.deadlineNanos;
+        }
+        QueryDeadline deadline = new QueryDeadline(deadlineNanos, outer);
+        CURRENT.set(deadline);
+        return deadline;
+    }
+
+    /**
+     * Возвращает срок текущего потока.
+     *
+     * @return срок или null, если он не установлен
+     */
+    public static QueryDeadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Выполняет действие в текущем потоке со сроком, установленным в другом потоке.
+     *
+     * @param deadline срок или null
+     * @param action   действие
+     * @param <T>      тип результата
+     * @return результат действия
+     */
+    public static <T> T callWithin(QueryDeadline deadline, Supplier<T> action) {
+        QueryDeadline previous = CURRENT.get();
+        CURRENT.set(deadline);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Возвращает оставшееся время.
+     *
+     * @return время в миллисекундах, округлённое вверх; 0, если срок истёк или операции отменены
+     */
+    public long remainingMillis() {
+        if (isCancelled()) {
+            return 0;
+        }
+        long remaining = deadlineNanos - System.nanoTime();
+        return remaining <= 0 ? 0 : (remaining + 999_999) / 1_000_000;
+    }
+
+    /**
+     * Проверяет, истёк ли срок.
+     *
+     * @return true, если срок истёк или операции отменены
+     */
+    public boolean isExpired() {
+        return remainingMillis() == 0;
+    }
+
+    /**
+     * Отменяет операции: прерывает соединения выполняющихся и не даёт начать новые.
+     */
+    public void cancel() {
+        cancelled = true;
+        for (Connection conn : connections) {
+            abort(conn);
+        }
+        connections.clear();
+    }
+
+    /**
+     * Снимает срок с текущего потока, восстанавливая внешний.
+     */
+    @Override
+    public void close() {
+        connections.clear();
+        if (CURRENT.get() == this) {
+            if (outer == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(outer);
+            }
+        }
+    }
+
+    /**
+     * Запоминает соединение выполняющейся операции, чтобы прервать его при отмене.
+     */
+    void register(Connection conn) {
+        for (QueryDeadline deadline = this; deadline != null; deadline = deadline.outer) {
+            deadline.connections.add(conn);
+            if (deadline.cancelled) {
+                abort(conn);
+            }
+        }
+    }
+
+    /**
+     * Забывает соединение завершённой операции.
+     */
+    void unregister(Connection conn) {
+        for (QueryDeadline deadline = this; deadline != null; deadline = deadline.outer) {
+            deadline.connections.remove(conn);
+        }
+    }
+
+    private boolean isCancelled() {
+        for (QueryDeadline deadline = this; deadline != null; deadline = deadline.outer) {
+            if (deadline.cancelled) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void abort(Connection conn) {
+        try {
+            // Поток, ожидающий ответа, сразу получает ошибку; запрос на сервере ограничен statement_timeout
+            conn.abort(Runnable::run);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package ru.habittracker.config;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Таймауты запросов к базе данных по видам операций.
+ * <p>
+ * Таймаут задаётся серверу как {@code statement_timeout} соединения операции и сокращается до срока
+ * вызывающего ({@link QueryDeadline}), если тот наступит раньше.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public class QueryTimeouts {
+
+    private final Map<DatabaseWorkload, Long> timeouts = new EnumMap<>(DatabaseWorkload.class);
+
+    /**
+     * Создаёт таймауты запросов.
+     *
+     * @param readMillis   таймаут чтения; 0 — без таймаута
+     * @param writeMillis  таймаут изменения; 0 — без таймаута
+     * @param reportMillis таймаут тяжёлых операций; 0 — без таймаута
+     */
+    public QueryTimeouts(long readMillis, long writeMillis, long reportMillis) {
+        if (readMillis < 0 || writeMillis < 0 || reportMillis < 0) {
+            throw new IllegalArgumentException("Таймаут запроса не может быть отрицательным");
+        }
+        timeouts.put(DatabaseWorkload.READ, readMillis);
+        timeouts.put(DatabaseWorkload.WRITE, writeMillis);
+        timeouts.put(DatabaseWorkload.REPORT, reportMillis);
+    }
+
+    /**
+     * Создаёт таймауты запросов по настройкам приложения.
+     *
+     * @param config настройки приложения
+     * @return таймауты запросов
+     */
+    public static QueryTimeouts of(AppConfig config) {
+        return new QueryTimeouts(config.getDbTimeoutReadMillis(), config.getDbTimeoutWriteMillis(),
+                config.getDbTimeoutReportMillis());
+    }
+
+    /**
+     * Создаёт таймауты, при которых запросы ограничены только сроком вызывающего.
+     *
+     * @return таймауты запросов
+     */
+    public static QueryTimeouts none() {
+        return new QueryTimeouts(0, 0, 0);
+    }
+
+    /**
+     * Возвращает таймаут запросов операции указанного вида.
+     *
+     * @param workload вид операции
+     * @return таймаут в миллисекундах; 0 — без таймаута
+     */
+    public long getMillis(DatabaseWorkload workload) {
+        return timeouts.get(workload);
+    }
+
+    /**
+     * Возвращает таймаут операции с учётом срока вызывающего.
+     *
+     * @param workload вид операции
+     * @param deadline срок вызывающего или null
+     * @return таймаут в миллисекундах; 0 — без таймаута
+     */
+    public long getMillis(DatabaseWorkload workload, QueryDeadline deadline) {
+        long timeout = getMillis(workload);
+        if (deadline == null) {
+            return timeout;
+        }
+        long remaining = deadline.remainingMillis();
+        return timeout == 0 ? remaining : Math.min(timeout, remaining);
+    }
+}
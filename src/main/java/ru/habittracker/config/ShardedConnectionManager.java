@@ -0,0 +1,221 @@
+package ru.habittracker.config;
+
+import ru.habittracker.repository.SqlConstants;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * Управляет подключениями к нескольким шардам PostgreSQL.
+ * <p>
+ * Пользователь относится к шарду по ID через {@link ConsistentHashRing}; привычки и записи
+ * хранятся на шарде своего пользователя. Для запросов без ID пользователя (поиск по email,
+ * по ID записи) предоставляется параллельный опрос всех шардов.
+ * </p>
+ * <p>
+ * ID не пересекаются между шардами: последовательности шарда {@code i} из {@code N} выдают только
+ * значения {@code ≡ i + 1 (mod N)} (см. {@link #configureSequences()}). Поэтому ID, полученный
+ * на любом шарде, уникален глобально, и строки можно переносить между шардами без перенумерации.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public class ShardedConnectionManager implements Closeable {
+
+    // Последовательности и таблицы, ID которых выдаются с чередованием по шардам
+    private static final String[][] SEQUENCES = {
+            {"user_seq", "users"},
+            {"habit_seq", "habits"},
+            {"habit_record_seq", "habit_records"}
+    };
+
+    private final List<String> names;
+    private final List<DatabaseConnectionManager> shards;
+    private final ConsistentHashRing ring;
+    private final ExecutorService executor;
+    private final AtomicInteger idShard = new AtomicInteger();
+
+    /**
+     * Создает менеджер по настройкам {@code db.shards} из AppConfig.
+     *
+     * @param config настройки приложения
+     */
+    public ShardedConnectionManager(AppConfig config) {
+        this(config.getDbShards(), createShards(config), config.getDbShardVirtualNodes());
+    }
+
+    /**
+     * Создает менеджер для заданных шардов.
+     *
+     * @param names        имена шардов; определяют положение шардов на кольце
+     * @param shards       менеджеры подключения к шардам в том же порядке
+     * @param virtualNodes количество виртуальных узлов на шард
+     */
+    public ShardedConnectionManager(List<String> names, List<DatabaseConnectionManager> shards, int virtualNodes) {
+        if (names.size() != shards.size()) {
+            throw new IllegalArgumentException("Количество имён шардов не совпадает с количеством подключений");
+        }
+        this.names = List.copyOf(names);
+        this.shards = List.copyOf(shards);
+        this.ring = new ConsistentHashRing(this.names, virtualNodes);
+        this.executor = Executors.newFixedThreadPool(shards.size(), runnable -> {
+            Thread thread = new Thread(runnable, "shard-query");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static List<DatabaseConnectionManager> createShards(AppConfig config) {
+        List<DatabaseConnectionManager> shards = new ArrayList<>();
+        // Общая политика: бюджет и счётчики повторов на все шарды
+        SqlRetryPolicy retryPolicy = SqlRetryPolicy.of(config);
+        for (String name : config.getDbShards()) {
+            // Ограничение и выключатель у каждого шарда свои: медленный шард не отклоняет операции остальных
+            shards.add(new DatabaseConnectionManager(config.getDbShardUrl(name), config.getDbShardUsername(name),
+                    config.getDbShardPassword(name), config.getDbDriver(), retryPolicy, Bulkhead.of(config),
+                    CircuitBreaker.of(config), QueryTimeouts.of(config)));
+        }
+        return shards;
+    }
+
+    /**
+     * Возвращает количество шардов.
+     *
+     * @return количество шардов
+     */
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    /**
+     * Возвращает имя шарда.
+     *
+     * @param shard номер шарда
+     * @return имя шарда
+     */
+    public String getShardName(int shard) {
+        return names.get(shard);
+    }
+
+    /**
+     * Возвращает менеджер подключения к шарду.
+     *
+     * @param shard номер шарда
+     * @return менеджер подключения
+     */
+    public DatabaseConnectionManager getShard(int shard) {
+        return shards.get(shard);
+    }
+
+    /**
+     * Возвращает номер шарда, которому принадлежит пользователь.
+     *
+     * @param userId ID пользователя
+     * @return номер шарда
+     */
+    public int shardForUser(int userId) {
+        return ring.nodeFor(userId);
+    }
+
+    /**
+     * Возвращает шард для получения нового ID. Шарды чередуются, чтобы нагрузка
+     * на последовательности распределялась равномерно.
+     *
+     * @return номер шарда
+     */
+    public int nextIdShard() {
+        return Math.floorMod(idShard.getAndIncrement(), shards.size());
+    }
+
+    /**
+     * Выполняет запрос на всех шардах параллельно.
+     *
+     * @param query запрос, получающий номер шарда
+     * @param <T>   тип результата
+     * @return результаты в порядке номеров шардов
+     */
+    public <T> List<T> queryAll(IntFunction<T> query) {
+        List<CompletableFuture<T>> futures = new ArrayList<>(shards.size());
+        for (int shard = 0; shard < shards.size(); shard++) {
+            int current = shard;
+            // Срок вызывающего действует и в потоках опроса шардов
+            QueryDeadline deadline = QueryDeadline.current();
+            futures.add(CompletableFuture.supplyAsync(
+                    () -> QueryDeadline.callWithin(deadline, () -> query.apply(current)), executor));
+        }
+        List<T> results = new ArrayList<>(shards.size());
+        try {
+            for (CompletableFuture<T> future : futures) {
+                results.add(future.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    /**
+     * Настраивает последовательности шардов на выдачу непересекающихся ID.
+     * <p>
+     * Для шарда {@code i} из {@code N} последовательность получает шаг {@code N} и продолжается
+     * с наименьшего значения {@code ≡ i + 1 (mod N)}, большего максимального ID на всех шардах.
+     * Вызывается при запуске (в том числе после изменения количества шардов),
+     * пока приложение не принимает запросы на запись.
+     * </p>
+     */
+    public void configureSequences() {
+        int count = shards.size();
+        for (String[] sequence : SEQUENCES) {
+            String name = sequence[0];
+            String table = sequence[1];
+            long maxId = 0;
+            for (Long shardMax : queryAll(shard -> maxId(shard, table))) {
+                maxId = Math.max(maxId, shardMax);
+            }
+            for (int shard = 0; shard < count; shard++) {
+                // Наименьшее значение > maxId, сравнимое с shard + 1 по модулю count
+                long start = maxId + 1 + Math.floorMod(shard + 1 - (maxId + 1), count);
+                try (Connection conn = shards.get(shard).getConnection();
+                     Statement stmt = conn.createStatement()) {
+                    stmt.execute(String.format(SqlConstants.ALTER_SEQUENCE_FORMAT, name, count, start));
+                } catch (SQLException e) {
+                    throw new IllegalStateException("Ошибка настройки последовательности " + name
+                            + " на шарде " + names.get(shard), e);
+                }
+            }
+        }
+    }
+
+    private long maxId(int shard, String table) {
+        try (Connection conn = shards.get(shard).getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(String.format(SqlConstants.SELECT_MAX_ID_FORMAT, table))) {
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Ошибка чтения максимального ID " + table + " на шарде " + names.get(shard), e);
+        }
+    }
+
+    /**
+     * Останавливает потоки параллельных запросов.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
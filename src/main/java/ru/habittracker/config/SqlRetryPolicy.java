@@ -0,0 +1,320 @@
+package ru.habittracker.config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Повтор операций с базой данных при временных сбоях.
+ * <p>
+ * Ошибка классифицируется по SQLState: откат транзакции из-за конфликта сериализации (40001) или взаимной
+ * блокировки (40P01), отказ в подключении и обрыв соединения (класс 08, 53300, 57P01–57P03). Операция
+ * выполняется заново на новом соединении с экспоненциальной задержкой и полным случайным разбросом,
+ * чтобы клиенты после общего сбоя не повторяли запросы одновременно. Запрос, отменённый по таймауту (57014),
+ * не повторяется: он снова нагрузил бы медленную базу.
+ * </p>
+ * <p>
+ * Откат транзакции и отказ в подключении гарантируют, что операция не была применена, поэтому повторяются
+ * всегда. При обрыве уже установленного соединения результат неизвестен: такие операции повторяются, только
+ * если они идемпотентны (чтение, upsert, пересчёт статистики), иначе повтор мог бы, например, создать
+ * привычку дважды.
+ * </p>
+ * <p>
+ * Бюджет повторов ограничивает их долю: каждая операция добавляет в бюджет {@code budgetRatio} повтора,
+ * каждый повтор забирает один. При длительной недоступности базы повторы быстро исчерпывают бюджет
+ * и не умножают нагрузку на неё.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public class SqlRetryPolicy {
+
+    /**
+     * Политика без повторов.
+     */
+    public static final SqlRetryPolicy NONE = new SqlRetryPolicy(1, 0, 0, 0);
+
+    // Максимальный запас бюджета: сколько повторов подряд допускается после периода без сбоев
+    private static final long MAX_BUDGET = 10;
+    private static final long BUDGET_SCALE = 1000;
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final long budgetDeposit;
+
+    private final AtomicLong budget = new AtomicLong(MAX_BUDGET * BUDGET_SCALE);
+    private final AtomicLong operations = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong recovered = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+    private final AtomicLong budgetRejected = new AtomicLong();
+    private final AtomicLongArray failures = new AtomicLongArray(Failure.values().length);
+
+    /**
+     * Создаёт политику повторов.
+     *
+     * @param maxAttempts     максимальное количество попыток, включая первую
+     * @param baseDelayMillis задержка перед первым повтором; удваивается с каждой попыткой
+     * @param maxDelayMillis  максимальная задержка между попытками
+     * @param budgetRatio     допустимая доля повторов от количества операций, например 0.1
+     */
+    public SqlRetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis, double budgetRatio) {
+        if (maxAttempts < 1 || baseDelayMillis < 0 || maxDelayMillis < baseDelayMillis || budgetRatio < 0) {
+            throw new IllegalArgumentException("Некорректные параметры повтора операций с базой данных");
+        }
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.budgetDeposit = Math.round(budgetRatio * BUDGET_SCALE);
+    }
+
+    /**
+     * Создаёт политику повторов по настройкам приложения.
+     *
+     * @param config настройки приложения
+     * @return политика повторов
+     */
+    public static SqlRetryPolicy of(AppConfig config) {
+        return new SqlRetryPolicy(config.getDbRetryMaxAttempts(), config.getDbRetryBaseDelayMillis(),
+                config.getDbRetryMaxDelayMillis(), config.getDbRetryBudgetPercent() / 100.0);
+    }
+
+    /**
+     * Выполняет операцию на новом соединении, повторяя её при временных сбоях. Соединение закрывается
+     * после каждой попытки.
+     *
+     * @param connections источник соединений
+     * @param idempotent  true, если повторное выполнение не меняет результат в базе
+     * @param work        операция
+     * @param <T>         тип результата
+     * @return результат операции
+     * @throws SQLException последняя ошибка, если операция не выполнена
+     */
+    public <T> T execute(ConnectionSource connections, boolean idempotent, SqlWork<T> work) throws SQLException {
+        operations.incrementAndGet();
+        depositBudget();
+        for (int attempt = 1; ; attempt++) {
+            Connection conn;
+            try {
+                conn = connections.open();
+            } catch (SQLException e) {
+                Failure failure = classify(e);
+                // Соединение не установлено, поэтому операция не начиналась
+                if (!retry(failure == Failure.CONNECTION_LOST ? Failure.CONNECT : failure, idempotent, attempt)) {
+                    throw e;
+                }
+                continue;
+            }
+            try (Connection opened = conn) {
+                T result = work.run(opened);
+                if (attempt > 1) {
+                    recovered.incrementAndGet();
+                }
+                return result;
+            } catch (SQLException e) {
+                if (!retry(classify(e), idempotent, attempt)) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Учитывает сбой и решает, повторять ли операцию; перед повтором выжидает задержку.
+     */
+    private boolean retry(Failure failure, boolean idempotent, int attempt) {
+        failures.incrementAndGet(failure.ordinal());
+        boolean retryable = failure == Failure.CONNECT || failure == Failure.ROLLED_BACK
+                || (failure == Failure.CONNECTION_LOST && idempotent);
+        if (!retryable) {
+            return false;
+        }
+        if (attempt >= maxAttempts) {
+            exhausted.incrementAndGet();
+            return false;
+        }
+        if (!withdrawBudget()) {
+            budgetRejected.incrementAndGet();
+            return false;
+        }
+        retries.incrementAndGet();
+        return sleep(attempt);
+    }
+
+    /**
+     * Определяет вид сбоя по SQLState ошибки и следующих за ней ошибок пакета.
+     *
+     * @param e ошибка
+     * @return вид сбоя
+     */
+    public static Failure classify(SQLException e) {
+        for (SQLException next = e; next != null; next = next.getNextException()) {
+            Failure failure = classify(next.getSQLState());
+            if (failure != Failure.PERMANENT) {
+                return failure;
+            }
+            if (next.getNextException() == next) {
+                break;
+            }
+        }
+        return Failure.PERMANENT;
+    }
+
+    private static Failure classify(String sqlState) {
+        if (sqlState == null) {
+            return Failure.PERMANENT;
+        }
+        return switch (sqlState) {
+            case "40001", "40P01" -> Failure.ROLLED_BACK;
+            case "57014" -> Failure.TIMEOUT;
+            case "53300", "57P01", "57P02", "57P03" -> Failure.CONNECTION_LOST;
+            default -> sqlState.startsWith("08") ? Failure.CONNECTION_LOST : Failure.PERMANENT;
+        };
+    }
+
+    private void depositBudget() {
+        budget.getAndUpdate(value -> Math.min(MAX_BUDGET * BUDGET_SCALE, value + budgetDeposit));
+    }
+
+    private boolean withdrawBudget() {
+        long value;
+        do {
+            value = budget.get();
+            if (value < BUDGET_SCALE) {
+                return false;
+            }
+        } while (!budget.compareAndSet(value, value - BUDGET_SCALE));
+        return true;
+    }
+
+    private boolean sleep(int attempt) {
+        long ceiling = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt - 1, 30));
+        if (ceiling <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Возвращает количество выполненных операций.
+     *
+     * @return количество операций
+     */
+    public long getOperations() {
+        return operations.get();
+    }
+
+    /**
+     * Возвращает количество повторов.
+     *
+     * @return количество повторов
+     */
+    public long getRetries() {
+        return retries.get();
+    }
+
+    /**
+     * Возвращает количество операций, выполненных после одного или нескольких повторов.
+     *
+     * @return количество восстановленных операций
+     */
+    public long getRecovered() {
+        return recovered.get();
+    }
+
+    /**
+     * Возвращает количество операций, не выполненных за все попытки.
+     *
+     * @return количество операций с исчерпанными попытками
+     */
+    public long getExhausted() {
+        return exhausted.get();
+    }
+
+    /**
+     * Возвращает количество повторов, отклонённых из-за исчерпания бюджета.
+     *
+     * @return количество отклонённых повторов
+     */
+    public long getBudgetRejected() {
+        return budgetRejected.get();
+    }
+
+    /**
+     * Возвращает количество сбоев указанного вида.
+     *
+     * @param failure вид сбоя
+     * @return количество сбоев
+     */
+    public long getFailures(Failure failure) {
+        return failures.get(failure.ordinal());
+    }
+
+    /**
+     * Вид сбоя операции с базой данных.
+     */
+    public enum Failure {
+        /**
+         * Соединение не установлено; операция не начиналась.
+         */
+        CONNECT,
+        /**
+         * Транзакция откачена из-за конфликта сериализации или взаимной блокировки.
+         */
+        ROLLED_BACK,
+        /**
+         * Соединение оборвано во время операции; неизвестно, применена ли она.
+         */
+        CONNECTION_LOST,
+        /**
+         * Запрос отменён по таймауту; повтор нагрузил бы медленную базу ещё раз.
+         */
+        TIMEOUT,
+        /**
+         * Ошибка, которая повторится при повторе: нарушение ограничения, синтаксис запроса и т. п.
+         */
+        PERMANENT
+    }
+
+    /**
+     * Источник новых соединений.
+     */
+    @FunctionalInterface
+    public interface ConnectionSource {
+        /**
+         * Открывает соединение.
+         *
+         * @return соединение
+         * @throws SQLException при ошибке подключения
+         */
+        Connection open() throws SQLException;
+    }
+
+    /**
+     * Операция с базой данных на переданном соединении.
+     *
+     * @param <T> тип результата
+     */
+    @FunctionalInterface
+    public interface SqlWork<T> {
+        /**
+         * Выполняет операцию. Состояние, изменяемое операцией, должно создаваться внутри неё:
+         * при повторе она выполняется заново.
+         *
+         * @param conn соединение
+         * @return результат
+         * @throws SQLException при ошибке базы данных
+         */
+        T run(Connection conn) throws SQLException;
+    }
+}
@@ -1,14 +1,40 @@
 package ru.habittracker.controller;
 
+import ru.habittracker.export.ExportFormat;
+import ru.habittracker.importer.HistoryImporter;
+import ru.habittracker.importer.ImportProgress;
+import ru.habittracker.model.BackfillPattern;
+import ru.habittracker.model.CompletionResult;
 import ru.habittracker.model.Habit;
 import ru.habittracker.model.User;
+import ru.habittracker.report.ReportFormat;
+import ru.habittracker.security.LoginThrottledException;
 import ru.habittracker.service.IHabitService;
 import ru.habittracker.service.IHabitTrackerService;
 import ru.habittracker.service.IUserService;
-
+import ru.habittracker.session.SessionStore;
+import ru.habittracker.view.ConsoleRenderer;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalInt;
 import java.util.Scanner;
 
 /**
@@ -22,10 +48,43 @@ import java.util.Scanner;
  */
 public class HabitTrackerController {
 
+    // Размер буфера вывода в режиме сценария
+    private static final int SCRIPT_OUTPUT_BUFFER_BYTES = 64 * 1024;
+
+    // Наибольшее число подсказок у одной команды; недостающие аргументы дополняются пустыми строками
+    private static final int MAX_PROMPTS = 4;
+
+    // Имена команд сценария и соответствующие им номера из меню
+    private static final Map<String, Integer> SCRIPT_COMMANDS = Map.ofEntries(
+            Map.entry("register", 1),
+            Map.entry("login", 2),
+            Map.entry("update-user", 3),
+            Map.entry("delete-user", 4),
+            Map.entry("create-habit", 5),
+            Map.entry("habits", 6),
+            Map.entry("habits-by-date", 7),
+            Map.entry("habits-by-frequency", 8),
+            Map.entry("update-habit", 9),
+            Map.entry("delete-habit", 10),
+            Map.entry("mark", 11),
+            Map.entry("history", 12),
+            Map.entry("stats", 13),
+            Map.entry("report", 14),
+            Map.entry("logout", 15),
+            Map.entry("exit", 16),
+            Map.entry("mark-many", 17),
+            Map.entry("backfill", 18),
+            Map.entry("export", 19),
+            Map.entry("import", 20));
+
     private final IUserService userService;
     private final IHabitService habitService;
     private final IHabitTrackerService habitTrackerService;
-    private User loggedInUser = null;
+    private final SessionStore sessions;
+    private final ConsoleRenderer renderer;
+    private String sessionToken;
+    private boolean scriptMode;
+    private Scanner console;
 
     /**
      * Конструктор контроллера.
@@ -35,9 +94,24 @@ public class HabitTrackerController {
      * @param habitTrackerService сервис для отслеживания выполнения привычек
      */
     public HabitTrackerController(IUserService userService, IHabitService habitService, IHabitTrackerService habitTrackerService) {
+        this(userService, habitService, habitTrackerService, new SessionStore(SessionStore.DEFAULT_TTL));
+    }
+
+    /**
+     * Конструктор контроллера с общим хранилищем сессий.
+     *
+     * @param userService         сервис для работы с пользователями
+     * @param habitService        сервис для работы с привычками
+     * @param habitTrackerService сервис для отслеживания выполнения привычек
+     * @param sessions            хранилище сессий
+     */
+    public HabitTrackerController(IUserService userService, IHabitService habitService,
+                                  IHabitTrackerService habitTrackerService, SessionStore sessions) {
         this.userService = userService;
         this.habitService = habitService;
         this.habitTrackerService = habitTrackerService;
+        this.sessions = sessions;
+        this.renderer = new ConsoleRenderer(ConsoleRenderer.DEFAULT_PAGE_LINES, this::nextPage);
     }
 
     /**
@@ -45,47 +119,223 @@ public class HabitTrackerController {
      */
     public void run() {
         try (Scanner scanner = new Scanner(System.in)) {
+            console = scanner;
             System.out.println("Добро пожаловать в Трекер Привычек!");
 
             while (true) {
                 displayMenu();
-                System.out.print("Ваш выбор: ");
+                prompt("Ваш выбор: ");
 
                 int command;
                 try {
                     command = Integer.parseInt(scanner.nextLine());
                 } catch (NumberFormatException e) {
-                    System.out.println("Неверный ввод команды. Пожалуйста, введите число от 1 до 16.");
+                    System.out.println("Неверный ввод команды. Пожалуйста, введите число от 1 до 20.");
                     continue;
                 }
 
-                switch (command) {
-                    case 1 -> handleRegister(scanner);
-                    case 2 -> handleLogin(scanner);
-                    case 3 -> handleUpdateUser(scanner);
-                    case 4 -> handleDeleteUser(scanner);
-                    case 5 -> handleCreateHabit(scanner);
-                    case 6 -> handleViewHabits();
-                    case 7 -> handleViewHabitsByDate(scanner);
-                    case 8 -> handleViewHabitsByStatus(scanner);
-                    case 9 -> handleUpdateHabit(scanner);
-                    case 10 -> handleDeleteHabit(scanner);
-                    case 11 -> handleMarkComplete(scanner);
-                    case 12 -> handleViewHabitHistory(scanner);
-                    case 13 -> handleViewHabitStatistics(scanner);
-                    case 14 -> handleGenerateReport();
-                    case 15 -> {
-                        loggedInUser = null;
-                        System.out.println("Вы вышли из системы.");
-                    }
-                    case 16 -> {
-                        System.out.println("До свидания!");
-                        return;  // Завершение метода, если это необходимо
-                    }
-                    default -> System.out.println("Неверная команда.");
+                if (!execute(command, scanner)) {
+                    return;
+                }
+            }
+        } finally {
+            console = null;
+        }
+    }
+
+    /**
+     * Выполняет сценарий команд без меню и подсказок.
+     * <p>
+     * Каждая строка сценария содержит команду (номер из меню или имя, например {@code login})
+     * и её аргументы через пробел в порядке подсказок интерактивного режима. Аргументы с пробелами
+     * заключаются в двойные кавычки, пустой аргумент записывается как {@code ""}, недостающие
+     * аргументы в конце строки считаются пустыми. Пустые строки и строки, начинающиеся с {@code #},
+     * пропускаются. Вывод команд буферизуется и сбрасывается в {@code output} по завершении сценария;
+     * на время выполнения {@link System#out} перенаправляется в этот буфер.
+     * </p>
+     *
+     * @param script источник сценария
+     * @param output поток для вывода результатов команд
+     * @return количество выполненных команд
+     * @throws IOException при ошибке чтения сценария
+     */
+    public int runScript(Reader script, OutputStream output) throws IOException {
+        PrintStream console = System.out;
+        PrintStream buffered = new PrintStream(new BufferedOutputStream(output, SCRIPT_OUTPUT_BUFFER_BYTES),
+                false, StandardCharsets.UTF_8);
+        scriptMode = true;
+        System.setOut(buffered);
+        int executed = 0;
+        try {
+            BufferedReader reader = script instanceof BufferedReader br ? br : new BufferedReader(script);
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                String trimmed = line.strip();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    continue;
                 }
 
+                List<String> tokens;
+                try {
+                    tokens = tokenize(trimmed);
+                } catch (IllegalArgumentException e) {
+                    System.out.println("Строка " + lineNumber + ": " + e.getMessage());
+                    continue;
+                }
+                Integer command = commandOf(tokens.get(0));
+                if (command == null) {
+                    System.out.println("Строка " + lineNumber + ": неизвестная команда '" + tokens.get(0) + "'.");
+                    continue;
+                }
+
+                // Аргументы подаются обработчику как ответы на подсказки, по одному на строку
+                StringBuilder answers = new StringBuilder();
+                for (String argument : tokens.subList(1, tokens.size())) {
+                    answers.append(argument).append('\n');
+                }
+                answers.append("\n".repeat(MAX_PROMPTS));
+                executed++;
+                if (!execute(command, new Scanner(answers.toString()))) {
+                    break;
+                }
             }
+        } finally {
+            buffered.flush();
+            System.setOut(console);
+            scriptMode = false;
+        }
+        return executed;
+    }
+
+    /**
+     * Выполняет команду по её номеру из меню.
+     *
+     * @param command номер команды
+     * @param scanner объект {@link Scanner} для чтения аргументов команды
+     * @return false, если команда завершает работу программы
+     */
+    private boolean execute(int command, Scanner scanner) {
+        switch (command) {
+            case 1 -> handleRegister(scanner);
+            case 2 -> handleLogin(scanner);
+            case 3 -> handleUpdateUser(scanner);
+            case 4 -> handleDeleteUser(scanner);
+            case 5 -> handleCreateHabit(scanner);
+            case 6 -> handleViewHabits();
+            case 7 -> handleViewHabitsByDate(scanner);
+            case 8 -> handleViewHabitsByStatus(scanner);
+            case 9 -> handleUpdateHabit(scanner);
+            case 10 -> handleDeleteHabit(scanner);
+            case 11 -> handleMarkComplete(scanner);
+            case 12 -> handleViewHabitHistory(scanner);
+            case 13 -> handleViewHabitStatistics(scanner);
+            case 14 -> handleGenerateReport();
+            case 15 -> {
+                setLoggedInUser(null);
+                System.out.println("Вы вышли из системы.");
+            }
+            case 16 -> {
+                System.out.println("До свидания!");
+                return false;
+            }
+            case 17 -> handleMarkManyComplete(scanner);
+            case 18 -> handleBackfill(scanner);
+            case 19 -> handleExportHistory(scanner);
+            case 20 -> handleImportHistory(scanner);
+            default -> System.out.println("Неверная команда.");
+        }
+        return true;
+    }
+
+    /**
+     * Определяет номер команды сценария по номеру из меню или имени.
+     *
+     * @param name номер или имя команды
+     * @return номер команды или null, если команда неизвестна
+     */
+    static Integer commandOf(String name) {
+        try {
+            return Integer.parseInt(name);
+        } catch (NumberFormatException e) {
+            return SCRIPT_COMMANDS.get(name.toLowerCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * Разбивает строку сценария на аргументы.
+     * <p>
+     * Аргументы разделяются пробелами; внутри двойных кавычек пробелы сохраняются,
+     * а {@code \"} и {@code \\} обозначают кавычку и обратную косую черту.
+     * </p>
+     *
+     * @param line строка сценария
+     * @return список аргументов
+     * @throws IllegalArgumentException если кавычки не закрыты
+     */
+    static List<String> tokenize(String line) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        boolean quoted = false;
+        boolean inToken = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '\\' && i + 1 < line.length() && (line.charAt(i + 1) == '"' || line.charAt(i + 1) == '\\')) {
+                    token.append(line.charAt(++i));
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    token.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+                inToken = true;
+            } else if (Character.isWhitespace(c)) {
+                if (inToken) {
+                    tokens.add(token.toString());
+                    token.setLength(0);
+                    inToken = false;
+                }
+            } else {
+                token.append(c);
+                inToken = true;
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("незакрытая кавычка.");
+        }
+        if (inToken) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+
+    /**
+     * Запрашивает продолжение постраничного вывода.
+     * <p>
+     * В режиме сценария и при вызове обработчиков вне основного цикла вывод не прерывается.
+     * </p>
+     *
+     * @return false, если пользователь прервал вывод
+     */
+    private boolean nextPage() {
+        if (scriptMode || console == null) {
+            return true;
+        }
+        System.out.print("-- Enter — следующая страница, q — прервать вывод --");
+        return !(console.hasNextLine() && "q".equalsIgnoreCase(console.nextLine().trim()));
+    }
+
+    /**
+     * Выводит подсказку для ввода; в режиме сценария подсказки не выводятся.
+     *
+     * @param text текст подсказки
+     */
+    private void prompt(String text) {
+        if (!scriptMode) {
+            System.out.print(text);
         }
     }
 
@@ -110,6 +360,10 @@ public class HabitTrackerController {
         System.out.println("14 - Сформировать отчет по прогрессу");
         System.out.println("15 - Выйти из системы");
         System.out.println("16 - Завершить работу программы");
+        System.out.println("17 - Отметить выполнение нескольких привычек за сегодня");
+        System.out.println("18 - Отметить выполнение привычки за прошедший период");
+        System.out.println("19 - Выгрузить историю в файл (CSV или NDJSON)");
+        System.out.println("20 - Импортировать историю из файла (CSV или NDJSON)");
     }
 
     /**
@@ -118,11 +372,11 @@ public class HabitTrackerController {
      * @param scanner объект {@link Scanner} для чтения пользовательского ввода
      */
     public void handleRegister(Scanner scanner) {
-        System.out.print("Введите email: ");
+        prompt("Введите email: ");
         String email = scanner.nextLine().trim();
-        System.out.print("Введите пароль: ");
+        prompt("Введите пароль: ");
         String password = scanner.nextLine().trim();
-        System.out.print("Введите имя: ");
+        prompt("Введите имя: ");
         String name = scanner.nextLine().trim();
 
         Optional<User> user = userService.registerUser(email, password, name);
@@ -138,14 +392,20 @@ public class HabitTrackerController {
      * @param scanner объект {@link Scanner} для чтения пользовательского ввода
      */
     public void handleLogin(Scanner scanner) {
-        System.out.print("Введите email: ");
+        prompt("Введите email: ");
         String email = scanner.nextLine().trim();
-        System.out.print("Введите пароль: ");
+        prompt("Введите пароль: ");
         String password = scanner.nextLine().trim();
 
-        Optional<User> user = userService.loginUser(email, password);
+        Optional<User> user;
+        try {
+            user = userService.loginUser(email, password);
+        } catch (LoginThrottledException e) {
+            System.out.println("Сервис входа перегружен. Повторите попытку позже.");
+            return;
+        }
         if (user.isPresent()) {
-            loggedInUser = user.get();
+            setLoggedInUser(user.get());
             System.out.println("Успешный вход в систему.");
         } else {
             System.out.println("Неверный email или пароль.");
@@ -158,23 +418,31 @@ public class HabitTrackerController {
      * @param scanner объект {@link Scanner} для чтения пользовательского ввода
      */
     public void handleUpdateUser(Scanner scanner) {
+        User loggedInUser = getLoggedInUser();
         if (loggedInUser == null) {
             System.out.println("Вы должны войти в систему для обновления профиля.");
             return;
         }
 
-        System.out.print("Введите новый email: ");
+        prompt("Введите новый email: ");
         String newEmail = scanner.nextLine().trim();
-        System.out.print("Введите новый пароль: ");
+        prompt("Введите новый пароль: ");
         String newPassword = scanner.nextLine().trim();
-        System.out.print("Введите новое имя: ");
+        prompt("Введите новое имя: ");
         String newName = scanner.nextLine().trim();
 
-        boolean updated = userService.updateUser(loggedInUser.getId(), newEmail, newPassword, newName);
-        if (updated) {
+        // Ожидается версия профиля, прочитанная при входе
+        OptionalInt updated = userService.updateUser(loggedInUser.getId(), loggedInUser.getVersion(),
+                newEmail, newPassword, newName);
+        if (updated.isPresent()) {
+            // Пользователь сессии обновляется, как в PUT /api/users/me: следующее изменение профиля ожидает новую версию
+            loggedInUser.setEmail(newEmail);
+            loggedInUser.setName(newName);
+            loggedInUser.setVersion(updated.getAsInt());
             System.out.println("Профиль успешно обновлен.");
         } else {
-            System.out.println("Не удалось обновить профиль. Возможно, email уже используется.");
+            System.out.println("Не удалось обновить профиль. Возможно, email уже используется "
+                    + "или профиль изменён на другом устройстве.");
         }
     }
 
@@ -184,19 +452,21 @@ public class HabitTrackerController {
      * @param scanner объект {@link Scanner} для чтения пользовательского ввода
      */
     public void handleDeleteUser(Scanner scanner) {
+        User loggedInUser = getLoggedInUser();
         if (loggedInUser == null) {
             System.out.println("Вы должны войти в систему для удаления аккаунта.");
             return;
         }
 
-        System.out.print("Вы уверены, что хотите удалить аккаунт? Введите 'yes' для подтверждения: ");
+        prompt("Вы уверены, что хотите удалить аккаунт? Введите 'yes' для подтверждения: ");
         String confirmation = scanner.nextLine().trim();
 
         if ("yes".equalsIgnoreCase(confirmation)) {
             boolean deleted = userService.deleteUser(loggedInUser.getId());
             if (deleted) {
                 System.out.println("Аккаунт успешно удален.");
-                loggedInUser = null;
+                sessions.removeUser(loggedInUser.getId());
+                sessionToken = null;
             } else {
                 System.out.println("Не удалось удалить аккаунт.");
             }
@@ -211,15 +481,16 @@ public class HabitTrackerController {
      * @param scanner объект {@link Scanner} для чтения пользовательского ввода
      */
     public void handleCreateHabit(Scanner scanner) {
+        User loggedInUser = getLoggedInUser();
         if (loggedInUser == null) {
             System.out.println("Вы должны войти в систему для создания привычки.");
             return;
         }
-        System.out.print("Введите название привычки: ");
+        prompt("Введите название привычки: ");
         String title = scanner.nextLine().trim();
-        System.out.print("Введите описание привычки: ");
+        prompt("Введите описание привычки: ");
         String description = scanner.nextLine().trim();
-        System.out.print("Введите частоту (1 - ежедневная, 2 - недельная): ");
+        prompt("Введите частоту (1 - ежедневная, 2 - недельная): ");
         int frequency;
         try {
             frequency = Integer.parseInt(scanner.nextLine().trim());
@@ -239,6 +510,7 @@ public class HabitTrackerController {
      * Обрабатывает просмотр всех привычек пользователя.
      */
     public void handleViewHabits() {
+        User loggedInUser = getLoggedInUser();
         if (loggedInUser == null) {
             System.out.println("Вы должны войти в систему для просмотра привычек.");
             return;
@@ -247,7 +519,8 @@ public class HabitTrackerController {
         if (habits.isEmpty()) {
             System.out.println("У вас нет созданных привычек.");
         } else {
-            habits.forEach(habit -> System.out.println(habit));
+            habits.forEach(renderer::habit);
+            renderer.finish();
         }
     }
 
@@ -257,12 +530,13 @@ public class HabitTrackerController {
      * @param scanner объект {@link Scanner} для чтения пользовательского ввода
      */
     public void handleViewHabitsByDate(Scanner scanner) {
+        User loggedInUser = getLoggedInUser();
         if (loggedInUser == null) {
             System.out.println("Вы должны войти в систему для просмотра привычек по дате.");
             return;
         }
 
-        System.out.print("Введите дату создания (yyyy-mm-dd): ");
+        prompt("Введите дату создания (yyyy-mm-dd): ");
         String dateInput = scanner.nextLine().trim();
         LocalDate date;
 
@@ -277,7 +551,8 @@ public class HabitTrackerController {
         if (habitsByDate.isEmpty()) {
             System.out.println("Привычки не найдены на указанную дату.");
         } else {
-            habitsByDate.forEach(habit -> System.out.println(habit));
+            habitsByDate.forEach(renderer::habit);
+            renderer.finish();
         }
     }
 
@@ -287,12 +562,13 @@ public class HabitTrackerController {
      * @param scanner объект {@link Scanner} для чтения пользовательского ввода
      */
     public void handleViewHabitsByStatus(Scanner scanner) {
+        User loggedInUser = getLoggedInUser();
         if (loggedInUser == null) {
             System.out.println("Вы должны войти в систему для просмотра привычек по частоте.");
             return;
         }
 
-        System.out.print("Введите частоту для фильтрации (1 - ежедневная, 2 - недельная): ");
+        prompt("Введите частоту для фильтрации (1 - ежедневная, 2 - недельная): ");
         int frequency;
         try {
             frequency = Integer.parseInt(scanner.nextLine().trim());
@@ -308,7 +584,8 @@ public class HabitTrackerController {
         if (filteredHabits.isEmpty()) {
             System.out.println("Привычки не найдены для указанной частоты.");
         } else {
-            filteredHabits.forEach(habit -> System.out.println(habit));
+            filteredHabits.forEach(renderer::habit);
+            renderer.finish();
         }
     }
 
@@ -318,11 +595,12 @@ public class HabitTrackerController {
      * @param scanner объект {@link Scanner} для чтения пользовательского ввода
      */
     public void handleUpdateHabit(Scanner scanner) {
+        User loggedInUser = getLoggedInUser();
         if (loggedInUser == null) {
             System.out.println("Вы должны войти в систему для обновления привычек.");
             return;
         }
-        System.out.print("Введите ID привычки: ");
+        prompt("Введите ID привычки: ");
         int habitId;
         try {
             habitId = Integer.parseInt(scanner.nextLine().trim());
@@ -330,11 +608,17 @@ public class HabitTrackerController {
             System.out.println("Неверный формат ID.");
             return;
         }
-        System.out.print("Введите новое название: ");
+        // Версия читается до ввода новых значений: изменение с другого устройства за это время не будет перезаписано
+        Habit habit = habitService.getHabit(loggedInUser.getId(), habitId);
+        if (habit == null) {
+            System.out.println("Привычка не найдена.");
+            return;
+        }
+        prompt("Введите новое название: ");
         String newTitle = scanner.nextLine().trim();
-        System.out.print("Введите новое описание: ");
+        prompt("Введите новое описание: ");
         String newDescription = scanner.nextLine().trim();
-        System.out.print("Введите новую частоту (1 - ежедневная, 2 - недельная): ");
+        prompt("Введите новую частоту (1 - ежедневная, 2 - недельная): ");
         int newFrequency;
         try {
             newFrequency = Integer.parseInt(scanner.nextLine().trim());
@@ -346,11 +630,12 @@ public class HabitTrackerController {
             return;
         }
 
-        boolean updated = habitService.updateHabit(loggedInUser.getId(), habitId, newTitle, newDescription, newFrequency);
-        if (updated) {
+        OptionalInt updated = habitService.updateHabit(loggedInUser.getId(), habitId, habit.getVersion(),
+                newTitle, newDescription, newFrequency);
+        if (updated.isPresent()) {
             System.out.println("Привычка успешно обновлена.");
         } else {
-            System.out.println("Не удалось обновить привычку. Проверьте ID и попробуйте снова.");
+            System.out.println("Не удалось обновить привычку: она удалена или изменена на другом устройстве.");
         }
     }
 
@@ -360,11 +645,12 @@ public class HabitTrackerController {
      * @param scanner объект {@link Scanner} для чтения пользовательского ввода
      */
     public void handleDeleteHabit(Scanner scanner) {
+        User loggedInUser = getLoggedInUser();
         if (loggedInUser == null) {
             System.out.println("Вы должны войти в систему для удаления привычек.");
             return;
         }
-        System.out.print("Введите ID привычки для удаления: ");
+        prompt("Введите ID привычки для удаления: ");
         int habitId;
         try {
             habitId = Integer.parseInt(scanner.nextLine().trim());
@@ -387,11 +673,12 @@ public class HabitTrackerController {
      * @param scanner объект {@link Scanner} для чтения пользовательского ввода
      */
     public void handleMarkComplete(Scanner scanner) {
+        User loggedInUser = getLoggedInUser();
         if (loggedInUser == null) {
             System.out.println("Вы должны войти в систему для отметки привычки как выполненной.");
             return;
         }
-        System.out.print("Введите ID привычки для отметки выполнения: ");
+        prompt("Введите ID привычки для отметки выполнения: ");
         int habitId;
         try {
             habitId = Integer.parseInt(scanner.nextLine().trim());
@@ -400,7 +687,111 @@ public class HabitTrackerController {
             return;
         }
 
-        habitTrackerService.markHabitCompletion(loggedInUser.getId(), habitId, LocalDate.now());
+        LocalDate today = LocalDate.now();
+        habitTrackerService.markHabitCompletion(loggedInUser.getId(), habitId, today);
+        System.out.println("Привычка отмечена как выполненная за " + today + ".");
+    }
+
+    /**
+     * Обрабатывает отметку выполнения нескольких привычек за сегодня.
+     * <p>
+     * Принимает ID через запятую или пробел; пустой ввод отмечает все ежедневные привычки пользователя.
+     * </p>
+     *
+     * @param scanner объект {@link Scanner} для чтения пользовательского ввода
+     */
+    public void handleMarkManyComplete(Scanner scanner) {
+        User loggedInUser = getLoggedInUser();
+        if (loggedInUser == null) {
+            System.out.println("Вы должны войти в систему для отметки привычек как выполненных.");
+            return;
+        }
+        prompt("Введите ID привычек через запятую (пустая строка — все ежедневные привычки): ");
+        String input = scanner.nextLine().trim();
+
+        List<Integer> habitIds = new ArrayList<>();
+        if (input.isEmpty()) {
+            for (Habit habit : habitService.getHabitsByFrequency(loggedInUser.getId(), 1)) {
+                habitIds.add(habit.getId());
+            }
+        } else {
+            try {
+                for (String id : input.split("[,\\s]+")) {
+                    if (!id.isEmpty()) {
+                        habitIds.add(Integer.parseInt(id));
+                    }
+                }
+            } catch (NumberFormatException e) {
+                System.out.println("Неверный формат ID.");
+                return;
+            }
+        }
+        if (habitIds.isEmpty()) {
+            System.out.println("Нет привычек для отметки.");
+            return;
+        }
+
+        LocalDate today = LocalDate.now();
+        Map<Integer, CompletionResult> results = habitTrackerService.markHabitCompletions(loggedInUser.getId(), habitIds, today);
+        if (results.isEmpty()) {
+            System.out.println("Не удалось отметить привычки.");
+            return;
+        }
+        renderer.line("Результаты отметки за " + today + ":");
+        results.forEach((habitId, result) -> renderer.line("Привычка " + habitId + ": " + result.getDescription()));
+        renderer.finish();
+    }
+
+    /**
+     * Обрабатывает отметку выполнения привычки задним числом за период.
+     *
+     * @param scanner объект {@link Scanner} для чтения пользовательского ввода
+     */
+    public void handleBackfill(Scanner scanner) {
+        User loggedInUser = getLoggedInUser();
+        if (loggedInUser == null) {
+            System.out.println("Вы должны войти в систему для отметки привычки как выполненной.");
+            return;
+        }
+        prompt("Введите ID привычки: ");
+        int habitId;
+        try {
+            habitId = Integer.parseInt(scanner.nextLine().trim());
+        } catch (NumberFormatException e) {
+            System.out.println("Неверный формат ID.");
+            return;
+        }
+
+        LocalDate from;
+        LocalDate to;
+        BackfillPattern pattern;
+        try {
+            prompt("Введите начальную дату (yyyy-mm-dd): ");
+            from = LocalDate.parse(scanner.nextLine().trim());
+            prompt("Введите конечную дату (yyyy-mm-dd): ");
+            to = LocalDate.parse(scanner.nextLine().trim());
+        } catch (Exception e) {
+            System.out.println("Неверный формат даты. Используйте yyyy-mm-dd.");
+            return;
+        }
+        prompt("Введите дни (daily, weekdays, weekends или MON,WED,FRI; пустая строка — каждый день): ");
+        try {
+            pattern = BackfillPattern.parse(scanner.nextLine());
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+
+        try {
+            OptionalInt marked = habitTrackerService.backfill(loggedInUser.getId(), habitId, from, to, pattern);
+            if (marked.isPresent()) {
+                System.out.println("Отмечено дней: " + marked.getAsInt() + ".");
+            } else {
+                System.out.println("Привычка не найдена.");
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        }
     }
 
     /**
@@ -409,11 +800,12 @@ public class HabitTrackerController {
      * @param scanner объект {@link Scanner} для чтения пользовательского ввода
      */
     public void handleViewHabitHistory(Scanner scanner) {
+        User loggedInUser = getLoggedInUser();
         if (loggedInUser == null) {
             System.out.println("Вы должны войти в систему для просмотра истории привычки.");
             return;
         }
-        System.out.print("Введите ID привычки для просмотра истории: ");
+        prompt("Введите ID привычки для просмотра истории: ");
         int habitId;
         try {
             habitId = Integer.parseInt(scanner.nextLine().trim());
@@ -423,7 +815,96 @@ public class HabitTrackerController {
         }
 
         String history = habitTrackerService.getHabitHistory(loggedInUser.getId(), habitId);
-        System.out.println("История привычки:\n" + history);
+        renderer.line("История привычки:").text(history).finish();
+    }
+
+    /**
+     * Обрабатывает выгрузку всех привычек и записей пользователя в файл.
+     *
+     * @param scanner объект {@link Scanner} для чтения пользовательского ввода
+     */
+    public void handleExportHistory(Scanner scanner) {
+        User loggedInUser = getLoggedInUser();
+        if (loggedInUser == null) {
+            System.out.println("Вы должны войти в систему для выгрузки истории.");
+            return;
+        }
+        prompt("Введите формат (csv или ndjson; пустая строка — csv): ");
+        ExportFormat format;
+        try {
+            format = ExportFormat.parse(scanner.nextLine());
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+        prompt("Введите путь к файлу: ");
+        String path = scanner.nextLine().trim();
+        if (path.isEmpty()) {
+            System.out.println("Путь к файлу не может быть пустым.");
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long records = habitTrackerService.exportHistory(loggedInUser.getId(), format, channel);
+            System.out.println("Выгружено записей: " + records + " в файл " + path + ".");
+        } catch (IOException | InvalidPathException e) {
+            System.out.println("Ошибка выгрузки истории: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Обрабатывает импорт привычек и записей из файла.
+     * <p>
+     * Прерванный импорт того же файла продолжается с последней контрольной точки.
+     * </p>
+     *
+     * @param scanner объект {@link Scanner} для чтения пользовательского ввода
+     */
+    public void handleImportHistory(Scanner scanner) {
+        User loggedInUser = getLoggedInUser();
+        if (loggedInUser == null) {
+            System.out.println("Вы должны войти в систему для импорта истории.");
+            return;
+        }
+        prompt("Введите формат (csv или ndjson; пустая строка — csv): ");
+        ExportFormat format;
+        try {
+            format = ExportFormat.parse(scanner.nextLine());
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+        prompt("Введите путь к файлу: ");
+        Path file;
+        try {
+            file = Paths.get(scanner.nextLine().trim());
+        } catch (InvalidPathException e) {
+            System.out.println("Неверный путь к файлу.");
+            return;
+        }
+        if (Files.exists(HistoryImporter.checkpointOf(file))) {
+            System.out.println("Найдена контрольная точка, импорт будет продолжен.");
+        }
+
+        long[] lastPrinted = {0};
+        try {
+            ImportProgress result = new HistoryImporter(habitService, habitTrackerService)
+                    .run(loggedInUser.getId(), file, format, progress -> {
+                        if (progress.elapsedMillis() - lastPrinted[0] >= 1000) {
+                            lastPrinted[0] = progress.elapsedMillis();
+                            System.out.println("Обработано частей: " + progress.chunksDone() + " из "
+                                    + progress.chunksTotal() + ", строк: " + progress.rows());
+                        }
+                    });
+            System.out.println("Импорт завершён за " + result.elapsedMillis() + " мс. Строк: " + result.rows()
+                    + ", записей: " + result.records() + ", новых привычек: " + result.habits()
+                    + ", отклонено строк: " + result.rejected() + ".");
+        } catch (IOException e) {
+            System.out.println("Ошибка импорта: " + e.getMessage() + ". Повторите команду, чтобы продолжить.");
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            System.out.println(e.getMessage());
+        }
     }
 
     /**
@@ -432,12 +913,13 @@ public class HabitTrackerController {
      * @param scanner объект {@link Scanner} для чтения пользовательского ввода
      */
     public void handleViewHabitStatistics(Scanner scanner) {
+        User loggedInUser = getLoggedInUser();
         if (loggedInUser == null) {
             System.out.println("Вы должны войти в систему для просмотра статистики привычки.");
             return;
         }
 
-        System.out.print("Введите ID привычки для просмотра статистики: ");
+        prompt("Введите ID привычки для просмотра статистики: ");
         int habitId;
         try {
             habitId = Integer.parseInt(scanner.nextLine().trim());
@@ -458,31 +940,42 @@ public class HabitTrackerController {
      * Обрабатывает генерацию отчета по прогрессу пользователя.
      */
     public void handleGenerateReport() {
+        User loggedInUser = getLoggedInUser();
         if (loggedInUser == null) {
             System.out.println("Вы должны войти в систему для генерации отчета.");
             return;
         }
 
         List<Habit> habits = habitService.getHabits(loggedInUser.getId());
-        String report = habitTrackerService.generateProgressReport(loggedInUser.getId(), habits);
-        System.out.println(report);
+        try {
+            habitTrackerService.writeProgressReport(loggedInUser.getId(), habits, ReportFormat.TEXT, renderer);
+        } catch (IOException e) {
+            System.out.println("Ошибка формирования отчета: " + e.getMessage());
+        }
+        renderer.finish();
     }
 
     /**
-     * Получает текущего авторизованного пользователя.
+     * Получает текущего авторизованного пользователя по токену сессии.
      *
-     * @return объект {@link User}
+     * @return объект {@link User} или null, если пользователь не вошёл или сессия истекла
      */
     public User getLoggedInUser() {
-        return loggedInUser;
+        User user = sessions.userOf(sessionToken);
+        if (user == null && sessionToken != null) {
+            sessionToken = null;
+            System.out.println("Сессия истекла. Войдите в систему снова.");
+        }
+        return user;
     }
 
     /**
-     * Устанавливает текущего авторизованного пользователя.
+     * Устанавливает текущего авторизованного пользователя, завершая предыдущую сессию и открывая новую.
      *
      * @param user объект {@link User}
      */
     public void setLoggedInUser(User user) {
-        this.loggedInUser = user;
+        sessions.remove(sessionToken);
+        sessionToken = user != null ? sessions.create(user) : null;
     }
 }
@@ -0,0 +1,53 @@
+package ru.habittracker.export;
+
+import java.util.Locale;
+
+/**
+ * Формат выгрузки истории.
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public enum ExportFormat {
+    /**
+     * CSV с заголовком, одна строка на запись (RFC 4180).
+     */
+    CSV("text/csv"),
+    /**
+     * Один JSON-объект на строку.
+     */
+    NDJSON("application/x-ndjson");
+
+    private final String contentType;
+
+    ExportFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    /**
+     * Возвращает MIME-тип формата.
+     *
+     * @return MIME-тип
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Разбирает формат без учёта регистра.
+     *
+     * @param value название формата; пустая строка или null — CSV
+     * @return формат
+     * @throws IllegalArgumentException если формат неизвестен
+     */
+    public static ExportFormat parse(String value) {
+        if (value == null || value.isBlank()) {
+            return CSV;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Неизвестный формат выгрузки: " + value);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package ru.habittracker.export;
+
+import ru.habittracker.model.Habit;
+import ru.habittracker.repository.HistoryVisitor;
+import ru.habittracker.view.TextFormatter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Потоковая запись истории пользователя в CSV или NDJSON.
+ * <p>
+ * Каждая запись о выполнении выводится отдельной строкой вместе с полями своей привычки; привычка без записей
+ * выводится одной строкой с пустыми полями записи. Строка собирается в переиспользуемом {@link StringBuilder},
+ * кодируется в UTF-8 в буфер фиксированного размера и при его заполнении сбрасывается в канал, поэтому
+ * расход памяти не зависит от объёма истории.
+ * </p>
+ * <p>
+ * Методы {@link HistoryVisitor} не объявляют проверяемых исключений, поэтому ошибка записи в канал
+ * выбрасывается как {@link UncheckedIOException}.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public class HistoryEncoder implements HistoryVisitor {
+
+    /**
+     * Размер буфера по умолчанию.
+     */
+    public static final int DEFAULT_BUFFER_BYTES = 64 * 1024;
+
+    private static final String CSV_HEADER = "habit_id,title,description,frequency,creation_date,record_id,date,completed\n";
+
+    private final WritableByteChannel channel;
+    private final ExportFormat format;
+    private final ByteBuffer buffer;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final StringBuilder line = new StringBuilder(512);
+    // Поля текущей привычки, общие для всех её строк
+    private final StringBuilder habitFields = new StringBuilder(512);
+
+    private boolean pendingHabit;
+    private long habits;
+    private long records;
+
+    /**
+     * Конструктор кодировщика с буфером по умолчанию.
+     *
+     * @param channel канал для записи
+     * @param format  формат выгрузки
+     */
+    public HistoryEncoder(WritableByteChannel channel, ExportFormat format) {
+        this(channel, format, DEFAULT_BUFFER_BYTES);
+    }
+
+    /**
+     * Конструктор кодировщика.
+     *
+     * @param channel     канал для записи
+     * @param format      формат выгрузки
+     * @param bufferBytes размер буфера в байтах
+     */
+    public HistoryEncoder(WritableByteChannel channel, ExportFormat format, int bufferBytes) {
+        this.channel = channel;
+        this.format = format;
+        this.buffer = ByteBuffer.allocateDirect(bufferBytes);
+        if (format == ExportFormat.CSV) {
+            line.append(CSV_HEADER);
+            writeLine();
+        }
+    }
+
+    @Override
+    public void habit(Habit habit) {
+        if (pendingHabit) {
+            writeRow(0, 0, false, false);
+        }
+        habitFields.setLength(0);
+        if (format == ExportFormat.CSV) {
+            habitFields.append(habit.getId()).append(',');
+            TextFormatter.appendCsv(habitFields, habit.getTitle());
+            habitFields.append(',');
+            TextFormatter.appendCsv(habitFields, habit.getDescription());
+            habitFields.append(',').append(habit.getFrequency()).append(',');
+            if (habit.getCreationDate() != null) {
+                appendDate(habitFields, habit.getCreationDate());
+            }
+            habitFields.append(',');
+        } else {
+            habitFields.append("{\"habitId\":").append(habit.getId()).append(",\"title\":");
+            TextFormatter.appendJson(habitFields, habit.getTitle());
+            habitFields.append(",\"description\":");
+            TextFormatter.appendJson(habitFields, habit.getDescription());
+            habitFields.append(",\"frequency\":").append(habit.getFrequency()).append(",\"creationDate\":");
+            if (habit.getCreationDate() != null) {
+                habitFields.append('"');
+                appendDate(habitFields, habit.getCreationDate());
+                habitFields.append('"');
+            } else {
+                habitFields.append("null");
+            }
+            habitFields.append(',');
+        }
+        pendingHabit = true;
+        habits++;
+    }
+
+    @Override
+    public void record(int recordId, int epochDay, boolean completed) {
+        pendingHabit = false;
+        writeRow(recordId, epochDay, completed, true);
+        records++;
+    }
+
+    /**
+     * Дописывает последнюю строку и сбрасывает буфер в канал.
+     *
+     * @throws IOException при ошибке записи
+     */
+    public void finish() throws IOException {
+        try {
+            if (pendingHabit) {
+                writeRow(0, 0, false, false);
+                pendingHabit = false;
+            }
+            drain();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Возвращает количество выгруженных привычек.
+     *
+     * @return количество привычек
+     */
+    public long getHabits() {
+        return habits;
+    }
+
+    /**
+     * Возвращает количество выгруженных записей о выполнении.
+     *
+     * @return количество записей
+     */
+    public long getRecords() {
+        return records;
+    }
+
+    private void writeRow(int recordId, int epochDay, boolean completed, boolean hasRecord) {
+        line.setLength(0);
+        line.append(habitFields);
+        if (format == ExportFormat.CSV) {
+            if (hasRecord) {
+                line.append(recordId).append(',');
+                appendDate(line, LocalDate.ofEpochDay(epochDay));
+                line.append(',').append(completed);
+            } else {
+                line.append(",,");
+            }
+            line.append('\n');
+        } else {
+            if (hasRecord) {
+                line.append("\"recordId\":").append(recordId).append(",\"date\":\"");
+                appendDate(line, LocalDate.ofEpochDay(epochDay));
+                line.append("\",\"completed\":").append(completed);
+            } else {
+                line.append("\"recordId\":null,\"date\":null,\"completed\":null");
+            }
+            line.append("}\n");
+        }
+        writeLine();
+    }
+
+    private void writeLine() {
+        CharBuffer chars = CharBuffer.wrap(line);
+        while (encoder.encode(chars, buffer, false) == CoderResult.OVERFLOW) {
+            drain();
+        }
+    }
+
+    private void drain() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+
+    private static void appendDate(StringBuilder out, LocalDate date) {
+        int year = date.getYear();
+        if (year >= 0 && year < 1000) {
+            out.append(year < 10 ? "000" : year < 100 ? "00" : "0");
+        }
+        out.append(year).append('-');
+        appendTwoDigits(out, date.getMonthValue());
+        out.append('-');
+        appendTwoDigits(out, date.getDayOfMonth());
+    }
+
+    private static void appendTwoDigits(StringBuilder out, int value) {
+        if (value < 10) {
+            out.append('0');
+        }
+        out.append(value);
+    }
+}
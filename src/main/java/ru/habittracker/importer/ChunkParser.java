@@ -0,0 +1,255 @@
+package ru.habittracker.importer;
+
+import ru.habittracker.api.Json;
+import ru.habittracker.export.ExportFormat;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Разбор и проверка строк файла импорта.
+ * <p>
+ * Поддерживаются CSV с заголовком и NDJSON с теми же полями, что и у выгрузки ({@code HistoryEncoder}).
+ * Колонки CSV определяются по заголовку в любом порядке, лишние колонки игнорируются; обязательны только
+ * ID и название привычки. Строка без даты задаёт привычку без записи. Строки с пустым ID или названием,
+ * частотой не 1 или 2, некорректной или будущей датой и неизвестным статусом отклоняются и учитываются
+ * в счётчике отклонённых. Экземпляр не хранит изменяемого состояния и используется из нескольких потоков.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+final class ChunkParser {
+
+    private static final String[] CSV_COLUMNS = {
+            "habit_id", "title", "description", "frequency", "creation_date", "date", "completed"};
+    private static final String[] JSON_FIELDS = {
+            "habitId", "title", "description", "frequency", "creationDate", "date", "completed"};
+    private static final int HABIT_ID = 0;
+    private static final int TITLE = 1;
+    private static final int DESCRIPTION = 2;
+    private static final int FREQUENCY = 3;
+    private static final int CREATION_DATE = 4;
+    private static final int DATE = 5;
+    private static final int COMPLETED = 6;
+
+    private final ExportFormat format;
+    // Номер колонки CSV для каждого поля или -1, если колонки нет
+    private final int[] columns;
+    private final long today;
+
+    private ChunkParser(ExportFormat format, int[] columns, LocalDate today) {
+        this.format = format;
+        this.columns = columns;
+        this.today = today.toEpochDay();
+    }
+
+    /**
+     * Создаёт парсер CSV по строке заголовка.
+     *
+     * @param header строка заголовка
+     * @param today  текущая дата; более поздние записи отклоняются
+     * @return парсер
+     * @throws IllegalArgumentException если в заголовке нет ID или названия привычки
+     */
+    static ChunkParser csv(String header, LocalDate today) {
+        List<String> names = new ArrayList<>();
+        parseCsvRecord(header.startsWith("\uFEFF") ? header.substring(1) : header, 0, names);
+        int[] columns = new int[CSV_COLUMNS.length];
+        for (int field = 0; field < CSV_COLUMNS.length; field++) {
+            columns[field] = -1;
+            for (int i = 0; i < names.size(); i++) {
+                if (CSV_COLUMNS[field].equals(names.get(i).trim().toLowerCase(Locale.ROOT))) {
+                    columns[field] = i;
+                }
+            }
+        }
+        if (columns[HABIT_ID] < 0 || columns[TITLE] < 0) {
+            throw new IllegalArgumentException("В заголовке CSV нет обязательных колонок habit_id и title");
+        }
+        return new ChunkParser(ExportFormat.CSV, columns, today);
+    }
+
+    /**
+     * Создаёт парсер NDJSON.
+     *
+     * @param today текущая дата; более поздние записи отклоняются
+     * @return парсер
+     */
+    static ChunkParser ndjson(LocalDate today) {
+        return new ChunkParser(ExportFormat.NDJSON, null, today);
+    }
+
+    /**
+     * Разбирает текст части.
+     *
+     * @param chunk часть файла
+     * @param text  текст части, начинающийся с начала строки
+     * @return разобранные привычки и записи
+     */
+    ParsedChunk parse(ImportChunk chunk, CharSequence text) {
+        ParsedChunk out = new ParsedChunk(chunk);
+        String[] values = new String[CSV_COLUMNS.length];
+        List<String> fields = new ArrayList<>();
+        int pos = 0;
+        while (pos < text.length()) {
+            if (format == ExportFormat.CSV) {
+                pos = parseCsvRecord(text, pos, fields);
+                if (fields.size() == 1 && fields.get(0).isEmpty()) {
+                    continue;
+                }
+                for (int field = 0; field < values.length; field++) {
+                    int column = columns[field];
+                    values[field] = column >= 0 && column < fields.size() ? fields.get(column) : null;
+                }
+            } else {
+                int end = pos;
+                while (end < text.length() && text.charAt(end) != '\n') {
+                    end++;
+                }
+                String line = text.subSequence(pos, end).toString().trim();
+                pos = end + 1;
+                if (line.isEmpty()) {
+                    continue;
+                }
+                if (!readJson(line, values)) {
+                    out.rows++;
+                    out.rejected++;
+                    continue;
+                }
+            }
+            out.rows++;
+            if (!accept(out, values)) {
+                out.rejected++;
+            }
+        }
+        return out;
+    }
+
+    private boolean accept(ParsedChunk out, String[] values) {
+        String habitId = blankToNull(values[HABIT_ID]);
+        String title = blankToNull(values[TITLE]);
+        // ID попадает в построчный журнал контрольной точки, поэтому переводы строк в нём недопустимы
+        if (habitId == null || title == null || habitId.indexOf('\n') >= 0 || habitId.indexOf('\r') >= 0) {
+            return false;
+        }
+        String frequencyValue = blankToNull(values[FREQUENCY]);
+        int frequency;
+        if (frequencyValue == null) {
+            frequency = 1;
+        } else if (frequencyValue.equals("1") || frequencyValue.equals("2")) {
+            frequency = frequencyValue.charAt(0) - '0';
+        } else {
+            return false;
+        }
+        LocalDate creationDate = null;
+        String creationValue = blankToNull(values[CREATION_DATE]);
+        if (creationValue != null) {
+            creationDate = parseDate(creationValue);
+            if (creationDate == null) {
+                return false;
+            }
+        }
+
+        String dateValue = blankToNull(values[DATE]);
+        int epochDay = 0;
+        boolean completed = true;
+        if (dateValue != null) {
+            LocalDate date = parseDate(dateValue);
+            if (date == null || date.toEpochDay() > today) {
+                return false;
+            }
+            epochDay = (int) date.toEpochDay();
+            String completedValue = blankToNull(values[COMPLETED]);
+            if (completedValue != null) {
+                switch (completedValue.toLowerCase(Locale.ROOT)) {
+                    case "true", "1", "yes" -> completed = true;
+                    case "false", "0", "no" -> completed = false;
+                    default -> {
+                        return false;
+                    }
+                }
+            }
+        }
+
+        int habit = out.habit(habitId, title, blankToNull(values[DESCRIPTION]), frequency, creationDate);
+        if (dateValue != null) {
+            out.record(habit, epochDay, completed);
+        }
+        return true;
+    }
+
+    private static boolean readJson(String line, String[] values) {
+        Map<String, Object> object;
+        try {
+            object = Json.parseObject(line);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        for (int field = 0; field < JSON_FIELDS.length; field++) {
+            Object value = object.get(JSON_FIELDS[field]);
+            values[field] = value != null ? value.toString() : null;
+        }
+        return true;
+    }
+
+    /**
+     * Разбирает одну запись CSV (RFC 4180) начиная с позиции.
+     *
+     * @param text   текст
+     * @param pos    начало записи
+     * @param fields список для значений полей; очищается
+     * @return позиция начала следующей записи
+     */
+    static int parseCsvRecord(CharSequence text, int pos, List<String> fields) {
+        fields.clear();
+        StringBuilder field = new StringBuilder();
+        int length = text.length();
+        while (true) {
+            field.setLength(0);
+            if (pos < length && text.charAt(pos) == '"') {
+                pos++;
+                while (pos < length) {
+                    char c = text.charAt(pos++);
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (pos < length && text.charAt(pos) == '"') {
+                        field.append('"');
+                        pos++;
+                    } else {
+                        break;
+                    }
+                }
+            }
+            while (pos < length && text.charAt(pos) != ',' && text.charAt(pos) != '\n') {
+                if (text.charAt(pos) != '\r') {
+                    field.append(text.charAt(pos));
+                }
+                pos++;
+            }
+            fields.add(field.toString());
+            if (pos >= length) {
+                return pos;
+            }
+            if (text.charAt(pos++) == '\n') {
+                return pos;
+            }
+        }
+    }
+
+    private static LocalDate parseDate(String value) {
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+}
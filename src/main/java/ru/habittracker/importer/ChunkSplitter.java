@@ -0,0 +1,92 @@
+package ru.habittracker.importer;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Разбиение файла импорта на части по границам строк.
+ * <p>
+ * Файл читается через окна, отображённые в память. В CSV перевод строки внутри кавычек не завершает строку,
+ * поэтому для CSV файл просматривается целиком с учётом чётности кавычек; в NDJSON переводы строк внутри
+ * значений экранированы, и граница ищется только рядом с концом каждой части.
+ * Разбиение зависит только от содержимого файла и размера части, поэтому повторяется при возобновлении импорта.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+final class ChunkSplitter {
+
+    // Размер окна отображения при поиске границ
+    private static final long SCAN_WINDOW = 64L * 1024 * 1024;
+
+    private ChunkSplitter() {
+    }
+
+    /**
+     * Разбивает данные файла на части.
+     *
+     * @param channel     канал файла
+     * @param start       смещение начала данных (после заголовка)
+     * @param chunkBytes  желаемый размер части
+     * @param quoteAware  учитывать кавычки CSV
+     * @return части в порядке следования
+     * @throws IOException при ошибке чтения
+     */
+    static List<ImportChunk> split(FileChannel channel, long start, int chunkBytes, boolean quoteAware) throws IOException {
+        long size = channel.size();
+        List<ImportChunk> chunks = new ArrayList<>();
+        long chunkStart = start;
+        if (quoteAware) {
+            boolean inQuotes = false;
+            for (long pos = start; pos < size; pos += SCAN_WINDOW) {
+                int windowSize = (int) Math.min(SCAN_WINDOW, size - pos);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, pos, windowSize);
+                for (int i = 0; i < windowSize; i++) {
+                    byte b = window.get(i);
+                    if (b == '"') {
+                        inQuotes = !inQuotes;
+                    } else if (b == '\n' && !inQuotes && pos + i + 1 - chunkStart >= chunkBytes) {
+                        chunks.add(new ImportChunk(chunks.size(), chunkStart, pos + i + 1 - chunkStart));
+                        chunkStart = pos + i + 1;
+                    }
+                }
+            }
+        } else {
+            while (size - chunkStart > chunkBytes) {
+                long end = nextLineStart(channel, chunkStart + chunkBytes - 1, size);
+                chunks.add(new ImportChunk(chunks.size(), chunkStart, end - chunkStart));
+                chunkStart = end;
+            }
+        }
+        if (chunkStart < size) {
+            chunks.add(new ImportChunk(chunks.size(), chunkStart, size - chunkStart));
+        }
+        return chunks;
+    }
+
+    /**
+     * Находит начало строки, следующей за позицией.
+     *
+     * @param channel канал файла
+     * @param from    позиция, с которой ищется перевод строки
+     * @param size    размер файла
+     * @return смещение после перевода строки или размер файла
+     * @throws IOException при ошибке чтения
+     */
+    static long nextLineStart(FileChannel channel, long from, long size) throws IOException {
+        for (long pos = from; pos < size; pos += SCAN_WINDOW) {
+            int windowSize = (int) Math.min(SCAN_WINDOW, size - pos);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, pos, windowSize);
+            for (int i = 0; i < windowSize; i++) {
+                if (window.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+        }
+        return size;
+    }
+}
@@ -0,0 +1,243 @@
+package ru.habittracker.importer;
+
+import ru.habittracker.export.ExportFormat;
+import ru.habittracker.model.Habit;
+import ru.habittracker.model.HabitRecord;
+import ru.habittracker.service.IHabitService;
+import ru.habittracker.service.IHabitTrackerService;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+/**
+ * Импорт истории привычек из файла CSV или NDJSON в формате выгрузки.
+ * <p>
+ * Файл делится на части по границам строк ({@link ChunkSplitter}); части отображаются в память и разбираются
+ * параллельно в {@link ForkJoinPool}, а запись в хранилище идёт в вызывающем потоке пакетами по
+ * {@link #BATCH_SIZE} записей. Одновременно разбирается или ждёт записи не больше {@code 2 * parallelism}
+ * частей: следующая часть отправляется на разбор только после записи предыдущей, поэтому медленное
+ * хранилище притормаживает разбор, а память ограничена размером окна.
+ * </p>
+ * <p>
+ * Прогресс сохраняется в журнал контрольной точки ({@link ImportCheckpoint}) рядом с файлом; после сбоя
+ * повторный запуск пропускает завершённые части и использует уже созданные привычки. После успешного
+ * импорта статистика привычек пересчитывается, а журнал удаляется.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public class HistoryImporter {
+
+    /**
+     * Размер части файла по умолчанию.
+     */
+    public static final int DEFAULT_CHUNK_BYTES = 8 * 1024 * 1024;
+
+    /**
+     * Количество записей в одном пакете записи.
+     */
+    public static final int BATCH_SIZE = 5000;
+
+    private final IHabitService habitService;
+    private final IHabitTrackerService habitTrackerService;
+    private final int parallelism;
+    private final int chunkBytes;
+
+    /**
+     * Конструктор импорта с параметрами по умолчанию.
+     *
+     * @param habitService        сервис привычек
+     * @param habitTrackerService сервис отслеживания выполнения
+     */
+    public HistoryImporter(IHabitService habitService, IHabitTrackerService habitTrackerService) {
+        this(habitService, habitTrackerService, Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_BYTES);
+    }
+
+    /**
+     * Конструктор импорта.
+     *
+     * @param habitService        сервис привычек
+     * @param habitTrackerService сервис отслеживания выполнения
+     * @param parallelism         количество потоков разбора
+     * @param chunkBytes          размер части файла в байтах
+     */
+    public HistoryImporter(IHabitService habitService, IHabitTrackerService habitTrackerService,
+                           int parallelism, int chunkBytes) {
+        if (parallelism <= 0 || chunkBytes <= 0) {
+            throw new IllegalArgumentException("Количество потоков и размер части должны быть положительными");
+        }
+        this.habitService = habitService;
+        this.habitTrackerService = habitTrackerService;
+        this.parallelism = parallelism;
+        this.chunkBytes = chunkBytes;
+    }
+
+    /**
+     * Возвращает путь к журналу контрольной точки для файла импорта.
+     *
+     * @param file файл импорта
+     * @return путь к журналу
+     */
+    public static Path checkpointOf(Path file) {
+        return file.resolveSibling(file.getFileName() + ".checkpoint");
+    }
+
+    /**
+     * Импортирует файл в привычки пользователя, продолжая прерванный импорт того же файла.
+     *
+     * @param userId   ID пользователя
+     * @param file     файл импорта
+     * @param format   формат файла
+     * @param listener получатель прогресса, вызывается после каждой части
+     * @return итоговое состояние
+     * @throws IOException              при ошибке чтения файла, журнала или записи в хранилище;
+     *                                  импорт можно продолжить повторным запуском
+     * @throws IllegalArgumentException если в заголовке CSV нет обязательных колонок
+     * @throws IllegalStateException    если журнал контрольной точки относится к другому импорту
+     */
+    public ImportProgress run(int userId, Path file, ExportFormat format, Consumer<ImportProgress> listener)
+            throws IOException {
+        long started = System.currentTimeMillis();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ChunkParser parser;
+            long dataStart = 0;
+            if (format == ExportFormat.CSV) {
+                dataStart = ChunkSplitter.nextLineStart(channel, 0, size);
+                parser = ChunkParser.csv(decode(channel, 0, dataStart).toString().trim(), LocalDate.now());
+            } else {
+                parser = ChunkParser.ndjson(LocalDate.now());
+            }
+            List<ImportChunk> chunks = ChunkSplitter.split(channel, dataStart, chunkBytes, format == ExportFormat.CSV);
+
+            String header = "habit-import v1 user=" + userId + " size=" + size
+                    + " modified=" + Files.getLastModifiedTime(file).toMillis()
+                    + " chunk=" + chunkBytes + " format=" + format;
+            ImportCheckpoint checkpoint = ImportCheckpoint.open(checkpointOf(file), header);
+            try {
+                int created = importChunks(userId, channel, parser, chunks, checkpoint, listener, started);
+                // Записи сохранялись без статистики, поэтому она пересчитывается по всей истории каждой привычки
+                for (int habitId : checkpoint.getHabits().values()) {
+                    habitTrackerService.rebuildStats(habitId);
+                }
+                ImportProgress result = progress(chunks.size(), checkpoint, created, started);
+                checkpoint.delete();
+                return result;
+            } finally {
+                checkpoint.close();
+            }
+        }
+    }
+
+    private int importChunks(int userId, FileChannel channel, ChunkParser parser, List<ImportChunk> chunks,
+                             ImportCheckpoint checkpoint, Consumer<ImportProgress> listener, long started)
+            throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            CompletionService<ParsedChunk> parsing = new ExecutorCompletionService<>(pool);
+            int next = 0;
+            int inFlight = 0;
+            int created = 0;
+            while (true) {
+                while (inFlight < 2 * parallelism && next < chunks.size()) {
+                    ImportChunk chunk = chunks.get(next++);
+                    if (!checkpoint.isDone(chunk.index())) {
+                        parsing.submit(() -> parser.parse(chunk, decode(channel, chunk.start(), chunk.length())));
+                        inFlight++;
+                    }
+                }
+                if (inFlight == 0) {
+                    return created;
+                }
+                ParsedChunk parsed = take(parsing);
+                inFlight--;
+                created += write(userId, parsed, checkpoint);
+                listener.accept(progress(chunks.size(), checkpoint, created, started));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Создаёт новые привычки части и сохраняет её записи пакетами.
+     *
+     * @return количество созданных привычек
+     */
+    private int write(int userId, ParsedChunk parsed, ImportCheckpoint checkpoint) throws IOException {
+        Map<String, Integer> targets = checkpoint.getHabits();
+        int[] habitIds = new int[parsed.habits.size()];
+        int created = 0;
+        for (int i = 0; i < habitIds.length; i++) {
+            ParsedChunk.SourceHabit source = parsed.habits.get(i);
+            Integer habitId = targets.get(source.sourceId);
+            if (habitId == null) {
+                LocalDate creationDate = source.creationDate != null ? source.creationDate
+                        : source.firstEpochDay != Integer.MAX_VALUE ? LocalDate.ofEpochDay(source.firstEpochDay)
+                        : LocalDate.now();
+                Habit habit = habitService.createHabit(userId, source.title, source.description, source.frequency,
+                        creationDate);
+                if (habit == null) {
+                    throw new IOException("Не удалось создать привычку " + source.sourceId);
+                }
+                habitId = habit.getId();
+                checkpoint.habitCreated(source.sourceId, habitId);
+                created++;
+            }
+            habitIds[i] = habitId;
+        }
+
+        List<HabitRecord> batch = new ArrayList<>(Math.min(BATCH_SIZE, parsed.size));
+        for (int i = 0; i < parsed.size; i++) {
+            batch.add(new HabitRecord(habitIds[parsed.habitIndex[i]], LocalDate.ofEpochDay(parsed.epochDays[i]),
+                    parsed.completed[i]));
+            if (batch.size() == BATCH_SIZE || i == parsed.size - 1) {
+                if (habitTrackerService.saveRecords(batch) != batch.size()) {
+                    throw new IOException("Ошибка сохранения записей части " + parsed.chunk.index());
+                }
+                batch = new ArrayList<>(Math.min(BATCH_SIZE, parsed.size - i - 1));
+            }
+        }
+        checkpoint.chunkDone(parsed.chunk.index(), parsed.rows, parsed.size, parsed.rejected);
+        return created;
+    }
+
+    private static ParsedChunk take(CompletionService<ParsedChunk> parsing) throws IOException {
+        try {
+            return parsing.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Импорт прерван", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("Ошибка разбора файла импорта", e.getCause());
+        }
+    }
+
+    private static CharSequence decode(FileChannel channel, long start, long length) throws IOException {
+        MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        return StandardCharsets.UTF_8.decode(bytes);
+    }
+
+    private static ImportProgress progress(int total, ImportCheckpoint checkpoint, int created, long started) {
+        return new ImportProgress(total, checkpoint.getDoneChunks(), checkpoint.getRows(), checkpoint.getRecords(),
+                checkpoint.getRejected(), created, System.currentTimeMillis() - started);
+    }
+}
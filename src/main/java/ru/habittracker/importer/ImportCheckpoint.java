@@ -0,0 +1,171 @@
+package ru.habittracker.importer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Контрольная точка импорта: построчный журнал созданных привычек и завершённых частей файла.
+ * <p>
+ * Первая строка описывает импорт (пользователь, размер и время изменения файла, размер части, формат);
+ * журнал другого импорта не применяется. Строка привычки {@code habit <ID> <ID в файле>} пишется сразу после
+ * её создания, строка части {@code chunk <номер> <строк> <записей> <отклонено>} — после сохранения всех записей
+ * части, с принудительным сбросом на диск. Недописанная последняя строка после сбоя отбрасывается.
+ * Часть, не отмеченная завершённой, при возобновлении обрабатывается заново; записи сохраняются
+ * с заменой по привычке и дате, поэтому повтор не создаёт дубликатов.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+final class ImportCheckpoint implements Closeable {
+
+    private final Path path;
+    private final FileChannel channel;
+    private final Map<String, Integer> habits = new HashMap<>();
+    private final BitSet chunks = new BitSet();
+    private long rows;
+    private long records;
+    private long rejected;
+
+    private ImportCheckpoint(Path path, FileChannel channel) {
+        this.path = path;
+        this.channel = channel;
+    }
+
+    /**
+     * Открывает журнал, восстанавливая состояние прошлого запуска, или создаёт новый.
+     *
+     * @param path   путь к журналу
+     * @param header описание импорта
+     * @return контрольная точка
+     * @throws IOException           при ошибке чтения или записи
+     * @throws IllegalStateException если журнал относится к другому импорту
+     */
+    static ImportCheckpoint open(Path path, String header) throws IOException {
+        String content = Files.exists(path) ? Files.readString(path, StandardCharsets.UTF_8) : "";
+        int complete = content.lastIndexOf('\n') + 1;
+        String[] lines = content.substring(0, complete).split("\n");
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        ImportCheckpoint checkpoint = new ImportCheckpoint(path, channel);
+        try {
+            if (complete == 0) {
+                channel.truncate(0);
+                checkpoint.append(header, true);
+                return checkpoint;
+            }
+            if (!lines[0].equals(header)) {
+                throw new IllegalStateException("Контрольная точка " + path + " относится к другому импорту");
+            }
+            for (int i = 1; i < lines.length; i++) {
+                checkpoint.restore(lines[i]);
+            }
+            channel.truncate(complete);
+            channel.position(complete);
+            return checkpoint;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void restore(String line) {
+        String[] parts = line.split(" ", 3);
+        if (parts[0].equals("habit") && parts.length == 3) {
+            habits.put(parts[2], Integer.parseInt(parts[1]));
+        } else if (parts[0].equals("chunk")) {
+            String[] counts = line.split(" ");
+            chunks.set(Integer.parseInt(counts[1]));
+            rows += Long.parseLong(counts[2]);
+            records += Long.parseLong(counts[3]);
+            rejected += Long.parseLong(counts[4]);
+        }
+    }
+
+    /**
+     * Записывает созданную привычку.
+     *
+     * @param sourceId ID привычки в файле
+     * @param habitId  ID созданной привычки
+     * @throws IOException при ошибке записи
+     */
+    void habitCreated(String sourceId, int habitId) throws IOException {
+        habits.put(sourceId, habitId);
+        append("habit " + habitId + " " + sourceId, false);
+    }
+
+    /**
+     * Отмечает часть завершённой и сбрасывает журнал на диск.
+     *
+     * @param chunk        номер части
+     * @param chunkRows    прочитано строк
+     * @param chunkRecords сохранено записей
+     * @param chunkRejected отклонено строк
+     * @throws IOException при ошибке записи
+     */
+    void chunkDone(int chunk, long chunkRows, long chunkRecords, long chunkRejected) throws IOException {
+        chunks.set(chunk);
+        rows += chunkRows;
+        records += chunkRecords;
+        rejected += chunkRejected;
+        append("chunk " + chunk + " " + chunkRows + " " + chunkRecords + " " + chunkRejected, true);
+    }
+
+    Map<String, Integer> getHabits() {
+        return habits;
+    }
+
+    boolean isDone(int chunk) {
+        return chunks.get(chunk);
+    }
+
+    int getDoneChunks() {
+        return chunks.cardinality();
+    }
+
+    long getRows() {
+        return rows;
+    }
+
+    long getRecords() {
+        return records;
+    }
+
+    long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * Удаляет журнал после успешного завершения импорта.
+     *
+     * @throws IOException при ошибке удаления
+     */
+    void delete() throws IOException {
+        channel.close();
+        Files.deleteIfExists(path);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void append(String line, boolean force) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        if (force) {
+            channel.force(false);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package ru.habittracker.importer;
+
+/**
+ * Часть файла импорта, начинающаяся и заканчивающаяся на границе строки.
+ *
+ * @param index  номер части
+ * @param start  смещение первого байта
+ * @param length длина в байтах
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+record ImportChunk(int index, long start, long length) {
+}
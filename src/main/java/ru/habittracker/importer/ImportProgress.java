@@ -0,0 +1,28 @@
+package ru.habittracker.importer;
+
+/**
+ * Состояние импорта истории.
+ *
+ * @param chunksTotal   всего частей файла
+ * @param chunksDone    завершено частей, включая завершённые в прошлых запусках
+ * @param rows          прочитано строк
+ * @param records       сохранено записей о выполнении
+ * @param rejected      отклонено строк
+ * @param habits        создано привычек
+ * @param elapsedMillis время текущего запуска в миллисекундах
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public record ImportProgress(int chunksTotal, int chunksDone, long rows, long records, long rejected, int habits,
+                             long elapsedMillis) {
+
+    /**
+     * Проверяет, завершён ли импорт.
+     *
+     * @return true, если обработаны все части
+     */
+    public boolean isComplete() {
+        return chunksDone == chunksTotal;
+    }
+}
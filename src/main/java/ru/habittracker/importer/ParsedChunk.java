@@ -0,0 +1,93 @@
+package ru.habittracker.importer;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Результат разбора части файла импорта.
+ * <p>
+ * Привычки нумеруются внутри части в порядке первого появления, записи хранятся в примитивных массивах
+ * (номер привычки в части, день эпохи, статус), чтобы на строку не создавалось объектов. Повторная запись
+ * на ту же привычку и дату заменяет предыдущую.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+final class ParsedChunk {
+
+    /**
+     * Привычка из файла импорта; определяется первой строкой с её ID.
+     */
+    static final class SourceHabit {
+        final String sourceId;
+        final String title;
+        final String description;
+        final int frequency;
+        final LocalDate creationDate;
+        int firstEpochDay = Integer.MAX_VALUE;
+
+        SourceHabit(String sourceId, String title, String description, int frequency, LocalDate creationDate) {
+            this.sourceId = sourceId;
+            this.title = title;
+            this.description = description;
+            this.frequency = frequency;
+            this.creationDate = creationDate;
+        }
+    }
+
+    final ImportChunk chunk;
+    final List<SourceHabit> habits = new ArrayList<>();
+    private final Map<String, Integer> habitIndexes = new HashMap<>();
+    // Позиция записи по ключу (номер привычки, день) для замены повторов
+    private final Map<Long, Integer> positions = new HashMap<>();
+
+    int[] habitIndex = new int[1024];
+    int[] epochDays = new int[1024];
+    boolean[] completed = new boolean[1024];
+    int size;
+    long rows;
+    long rejected;
+
+    ParsedChunk(ImportChunk chunk) {
+        this.chunk = chunk;
+    }
+
+    /**
+     * Возвращает номер привычки в части, добавляя её при первом появлении.
+     */
+    int habit(String sourceId, String title, String description, int frequency, LocalDate creationDate) {
+        Integer index = habitIndexes.get(sourceId);
+        if (index == null) {
+            index = habits.size();
+            habits.add(new SourceHabit(sourceId, title, description, frequency, creationDate));
+            habitIndexes.put(sourceId, index);
+        }
+        return index;
+    }
+
+    void record(int habit, int epochDay, boolean isCompleted) {
+        SourceHabit source = habits.get(habit);
+        source.firstEpochDay = Math.min(source.firstEpochDay, epochDay);
+
+        Integer existing = positions.putIfAbsent(((long) habit << 32) | (epochDay & 0xFFFFFFFFL), size);
+        if (existing != null) {
+            completed[existing] = isCompleted;
+            return;
+        }
+        if (size == habitIndex.length) {
+            int capacity = size * 2;
+            habitIndex = Arrays.copyOf(habitIndex, capacity);
+            epochDays = Arrays.copyOf(epochDays, capacity);
+            completed = Arrays.copyOf(completed, capacity);
+        }
+        habitIndex[size] = habit;
+        epochDays[size] = epochDay;
+        completed[size] = isCompleted;
+        size++;
+    }
+}
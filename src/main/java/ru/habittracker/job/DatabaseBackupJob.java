@@ -0,0 +1,474 @@
+package ru.habittracker.job;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import ru.habittracker.config.DatabaseConnectionManager;
+import ru.habittracker.repository.SqlConstants;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Резервное копирование и восстановление таблиц users, habits, habit_records и habit_stats.
+ * <p>
+ * Копирование: каждая таблица делится на диапазоны ключа, и каждый диапазон выгружается в отдельном
+ * соединении через {@code COPY ... TO STDOUT (FORMAT binary)} в файл {@code <таблица>.<часть>.bin.gz}.
+ * Все соединения работают в одном снимке, экспортированном через {@code pg_export_snapshot()}, поэтому копия
+ * согласована без блокировки записи. Файл {@code manifest.properties} с колонками, количеством строк
+ * и значениями последовательностей записывается последним и означает, что копия завершена.
+ * </p>
+ * <p>
+ * Восстановление заменяет все данные: после проверки, что все части из манифеста на месте и читаются,
+ * таблицы очищаются, затем части загружаются параллельно через {@code COPY ... FROM STDIN (FORMAT binary)} по этапам внешних ключей из 001-create-table.xml
+ * (users, затем habits, затем habit_records и habit_stats). После загрузки последовательности
+ * user_seq, habit_seq и habit_record_seq сдвигаются за максимальный ID и сохранённое значение.
+ * Непустая база заменяется только с явным флагом {@code force}. Каждая часть загружается в своей транзакции,
+ * поэтому при ошибке загрузки таблицы очищаются снова, чтобы не оставить частично восстановленные данные.
+ * Выполняется при остановленном приложении на схеме, созданной миграциями; шардированная
+ * конфигурация не поддерживается.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public class DatabaseBackupJob {
+
+    private static final String MANIFEST = "manifest.properties";
+    private static final String FORMAT_VERSION = "1";
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    // Таблицы в порядке восстановления; таблицы одного этапа не ссылаются друг на друга
+    private static final Table[] TABLES = {
+            new Table("users", "id", 0, "id", "email", "password", "name", "version"),
+            new Table("habits", "id", 1, "id", "title", "description", "frequency", "user_id", "creation_date",
+                    "version"),
+            new Table("habit_records", "id", 2, "id", "habit_id", "date", "completed"),
+            new Table("habit_stats", "habit_id", 2, "habit_id", "current_streak", "longest_streak",
+                    "last_completed_date", "total_completions", "recent_days")
+    };
+    private static final int STAGES = 3;
+
+    // Последовательности и таблицы, ID которых они выдают
+    private static final String[][] SEQUENCES = {
+            {"user_seq", "users"},
+            {"habit_seq", "habits"},
+            {"habit_record_seq", "habit_records"}
+    };
+
+    private final DatabaseConnectionManager dbManager;
+    private final int threads;
+
+    /**
+     * Конструктор задачи резервного копирования.
+     *
+     * @param dbManager менеджер подключения к базе данных
+     * @param threads   количество параллельных потоков COPY
+     */
+    public DatabaseBackupJob(DatabaseConnectionManager dbManager, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Количество потоков должно быть положительным");
+        }
+        this.dbManager = dbManager;
+        this.threads = threads;
+    }
+
+    /**
+     * Сохраняет резервную копию в каталог.
+     *
+     * @param directory каталог копии; не должен содержать другую копию
+     * @return количество сохранённых строк
+     * @throws IOException           при ошибке записи файлов
+     * @throws IllegalStateException при ошибке базы данных или если каталог уже содержит копию
+     */
+    public long backup(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        if (Files.exists(directory.resolve(MANIFEST))) {
+            throw new IllegalStateException("Каталог " + directory + " уже содержит резервную копию");
+        }
+        long start = System.nanoTime();
+        Properties manifest = new Properties();
+        manifest.setProperty("version", FORMAT_VERSION);
+        manifest.setProperty("created", Instant.now().toString());
+
+        // Соединение держит экспортированный снимок открытым, пока его используют потоки копирования
+        try (Connection snapshotConn = dbManager.getConnection()) {
+            snapshotConn.setAutoCommit(false);
+            snapshotConn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            String snapshot;
+            try (Statement stmt = snapshotConn.createStatement();
+                 ResultSet rs = stmt.executeQuery(SqlConstants.EXPORT_SNAPSHOT)) {
+                rs.next();
+                snapshot = rs.getString(1);
+            }
+            for (String[] sequence : SEQUENCES) {
+                manifest.setProperty("sequence." + sequence[0], String.valueOf(sequenceNext(snapshotConn, sequence[0])));
+            }
+
+            List<Callable<Long>> tasks = new ArrayList<>();
+            List<Table> taskTables = new ArrayList<>();
+            for (Table table : TABLES) {
+                List<long[]> ranges = keyRanges(snapshotConn, table);
+                manifest.setProperty(table.name + ".columns", table.columnList());
+                manifest.setProperty(table.name + ".parts", String.valueOf(ranges.size()));
+                for (int part = 0; part < ranges.size(); part++) {
+                    long[] range = ranges.get(part);
+                    Path file = directory.resolve(table.name + "." + part + ".bin.gz");
+                    tasks.add(() -> copyOut(snapshot, table, range[0], range[1], file));
+                    taskTables.add(table);
+                }
+            }
+
+            List<Long> rows = runAll(tasks);
+            long total = 0;
+            for (Table table : TABLES) {
+                long tableRows = 0;
+                for (int i = 0; i < rows.size(); i++) {
+                    if (taskTables.get(i) == table) {
+                        tableRows += rows.get(i);
+                    }
+                }
+                manifest.setProperty(table.name + ".rows", String.valueOf(tableRows));
+                total += tableRows;
+            }
+            snapshotConn.commit();
+
+            Path temp = directory.resolve(MANIFEST + ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                manifest.store(out, "Habit tracker backup");
+            }
+            Files.move(temp, directory.resolve(MANIFEST), StandardCopyOption.ATOMIC_MOVE);
+
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            System.out.println("Сохранено строк: " + total + " в " + tasks.size() + " файлах за " + elapsedMillis + " мс.");
+            return total;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Ошибка резервного копирования", e);
+        }
+    }
+
+    /**
+     * Восстанавливает данные из резервной копии в пустую базу.
+     *
+     * @param directory каталог копии
+     * @return количество загруженных строк
+     * @throws IOException           при ошибке чтения файлов или незавершённой копии
+     * @throws IllegalStateException при ошибке базы данных, непустой базе или несовпадении количества строк
+     */
+    public long restore(Path directory) throws IOException {
+        return restore(directory, false);
+    }
+
+    /**
+     * Восстанавливает данные из резервной копии, заменяя текущие.
+     *
+     * @param directory каталог копии
+     * @param force     заменить данные непустой базы
+     * @return количество загруженных строк
+     * @throws IOException           при ошибке чтения файлов или незавершённой копии
+     * @throws IllegalStateException при ошибке базы данных, непустой базе без {@code force}
+     *                               или несовпадении количества строк
+     */
+    public long restore(Path directory, boolean force) throws IOException {
+        Path manifestFile = directory.resolve(MANIFEST);
+        if (!Files.exists(manifestFile)) {
+            throw new IOException("В каталоге " + directory + " нет завершённой резервной копии (" + MANIFEST + ")");
+        }
+        Properties manifest = new Properties();
+        try (InputStream in = Files.newInputStream(manifestFile)) {
+            manifest.load(in);
+        }
+        if (!FORMAT_VERSION.equals(manifest.getProperty("version"))) {
+            throw new IOException("Неподдерживаемая версия резервной копии: " + manifest.getProperty("version"));
+        }
+        // Данные удаляются только после того, как копия проверена целиком
+        checkParts(directory, manifest);
+        long start = System.nanoTime();
+
+        try (Connection conn = dbManager.getConnection();
+             Statement stmt = conn.createStatement()) {
+            if (!force) {
+                try (ResultSet rs = stmt.executeQuery(SqlConstants.SELECT_BACKUP_TABLES_NOT_EMPTY)) {
+                    if (rs.next() && rs.getBoolean(1)) {
+                        throw new IllegalStateException("База данных не пуста; для замены данных укажите --force");
+                    }
+                }
+            }
+            stmt.execute(SqlConstants.TRUNCATE_BACKUP_TABLES);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Ошибка очистки таблиц перед восстановлением", e);
+        }
+
+        long total;
+        try {
+            total = load(directory, manifest);
+        } catch (IOException | RuntimeException e) {
+            truncateAfterFailure(e);
+            throw e;
+        }
+
+        try (Connection conn = dbManager.getConnection()) {
+            for (String[] sequence : SEQUENCES) {
+                long next = Long.parseLong(manifest.getProperty("sequence." + sequence[0], "1"));
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        String.format(SqlConstants.RESET_SEQUENCE_FORMAT, sequence[0], sequence[1]))) {
+                    stmt.setLong(1, next);
+                    stmt.execute();
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Ошибка сброса последовательностей", e);
+        }
+
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("Восстановлено строк: " + total + " за " + elapsedMillis + " мс.");
+        return total;
+    }
+
+    /**
+     * Проверяет колонки из манифеста и наличие всех частей; каждая часть читается целиком, чтобы обрезанный
+     * или повреждённый файл обнаружился до очистки таблиц.
+     */
+    private void checkParts(Path directory, Properties manifest) throws IOException {
+        for (Table table : TABLES) {
+            table.checkColumns(manifest.getProperty(table.name + ".columns", table.columnList()));
+            int parts = Integer.parseInt(manifest.getProperty(table.name + ".parts", "0"));
+            for (int part = 0; part < parts; part++) {
+                Path file = directory.resolve(table.name + "." + part + ".bin.gz");
+                if (!Files.isRegularFile(file) || !Files.isReadable(file)) {
+                    throw new IOException("Часть резервной копии отсутствует или недоступна: " + file);
+                }
+                try (InputStream in = new GZIPInputStream(
+                        new BufferedInputStream(Files.newInputStream(file), BUFFER_BYTES), BUFFER_BYTES)) {
+                    // Чтение до конца проверяет сжатые данные и контрольную сумму, а не только заголовок
+                    in.transferTo(OutputStream.nullOutputStream());
+                } catch (IOException e) {
+                    throw new IOException("Часть резервной копии повреждена: " + file, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Загружает части по этапам и сверяет количество строк каждой таблицы с манифестом.
+     */
+    private long load(Path directory, Properties manifest) throws IOException {
+        long total = 0;
+        for (int stage = 0; stage < STAGES; stage++) {
+            List<Callable<Long>> tasks = new ArrayList<>();
+            List<Table> taskTables = new ArrayList<>();
+            for (Table table : TABLES) {
+                if (table.stage != stage) {
+                    continue;
+                }
+                String columns = table.checkColumns(manifest.getProperty(table.name + ".columns", table.columnList()));
+                int parts = Integer.parseInt(manifest.getProperty(table.name + ".parts", "0"));
+                for (int part = 0; part < parts; part++) {
+                    Path file = directory.resolve(table.name + "." + part + ".bin.gz");
+                    tasks.add(() -> copyIn(table, columns, file));
+                    taskTables.add(table);
+                }
+            }
+            List<Long> rows = runAll(tasks);
+            for (Table table : TABLES) {
+                if (table.stage != stage) {
+                    continue;
+                }
+                long tableRows = 0;
+                for (int i = 0; i < rows.size(); i++) {
+                    if (taskTables.get(i) == table) {
+                        tableRows += rows.get(i);
+                    }
+                }
+                long expected = Long.parseLong(manifest.getProperty(table.name + ".rows", "0"));
+                if (tableRows != expected) {
+                    throw new IllegalStateException("Таблица " + table.name + ": загружено " + tableRows
+                            + " строк, в резервной копии " + expected);
+                }
+                total += tableRows;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Очищает частично загруженные таблицы, чтобы восстановление можно было повторить.
+     */
+    private void truncateAfterFailure(Exception failure) {
+        try (Connection conn = dbManager.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(SqlConstants.TRUNCATE_BACKUP_TABLES);
+        } catch (SQLException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    private long copyOut(String snapshot, Table table, long from, long to, Path file) throws SQLException, IOException {
+        try (Connection conn = dbManager.getConnection()) {
+            conn.setAutoCommit(false);
+            conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            conn.setReadOnly(true);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(String.format(SqlConstants.SET_TRANSACTION_SNAPSHOT_FORMAT, snapshot));
+            }
+            CopyManager copy = conn.unwrap(PGConnection.class).getCopyAPI();
+            String sql = String.format(SqlConstants.COPY_OUT_BINARY_FORMAT, table.columnList(), table.name, table.key, from, to);
+            long rows;
+            try (OutputStream out = new FastGzipOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(file), BUFFER_BYTES))) {
+                rows = copy.copyOut(sql, out);
+            }
+            conn.commit();
+            return rows;
+        }
+    }
+
+    private long copyIn(Table table, String columns, Path file) throws SQLException, IOException {
+        try (Connection conn = dbManager.getConnection();
+             InputStream in = new GZIPInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_BYTES),
+                     BUFFER_BYTES)) {
+            conn.setAutoCommit(false);
+            CopyManager copy = conn.unwrap(PGConnection.class).getCopyAPI();
+            long rows = copy.copyIn(String.format(SqlConstants.COPY_IN_BINARY_FORMAT, table.name, columns), in, BUFFER_BYTES);
+            conn.commit();
+            return rows;
+        }
+    }
+
+    /**
+     * Делит диапазон ключей таблицы на части примерно одинаковой ширины, не больше одной на поток.
+     */
+    private List<long[]> keyRanges(Connection conn, Table table) throws SQLException {
+        List<long[]> ranges = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(String.format(SqlConstants.SELECT_KEY_RANGE_FORMAT, table.key, table.name))) {
+            rs.next();
+            long min = rs.getLong(1);
+            if (rs.wasNull()) {
+                return ranges;
+            }
+            long max = rs.getLong(2);
+            long parts = Math.min(threads, max - min + 1);
+            long width = (max - min + parts) / parts;
+            for (long from = min; from <= max; from += width) {
+                ranges.add(new long[]{from, Math.min(max, from + width - 1)});
+            }
+        }
+        return ranges;
+    }
+
+    private static long sequenceNext(Connection conn, String sequence) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(String.format(SqlConstants.SELECT_SEQUENCE_NEXT_FORMAT, sequence))) {
+            return rs.next() ? rs.getLong(1) : 1;
+        }
+    }
+
+    /**
+     * Выполняет задачи в пуле и возвращает их результаты; при первой ошибке остальные задачи отменяются.
+     */
+    private List<Long> runAll(List<Callable<Long>> tasks) throws IOException {
+        if (tasks.isEmpty()) {
+            return List.of();
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, tasks.size()), runnable -> {
+            Thread thread = new Thread(runnable, "backup-copy");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (Callable<Long> task : tasks) {
+                futures.add(executor.submit(task));
+            }
+            List<Long> results = new ArrayList<>(futures.size());
+            for (Future<Long> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Копирование прервано", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw new IllegalStateException("Ошибка копирования таблицы", cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Описание копируемой таблицы.
+     */
+    private static final class Table {
+        final String name;
+        final String key;
+        final int stage;
+        final List<String> columns;
+
+        Table(String name, String key, int stage, String... columns) {
+            this.name = name;
+            this.key = key;
+            this.stage = stage;
+            this.columns = Arrays.asList(columns);
+        }
+
+        String columnList() {
+            return String.join(", ", columns);
+        }
+
+        /**
+         * Проверяет список колонок из манифеста: он подставляется в SQL, поэтому допускаются только известные колонки.
+         */
+        String checkColumns(String list) {
+            Set<String> known = Set.copyOf(columns);
+            for (String column : list.split(",")) {
+                if (!known.contains(column.trim())) {
+                    throw new IllegalStateException("Неизвестная колонка " + column.trim() + " таблицы " + name);
+                }
+            }
+            return list;
+        }
+    }
+
+    /**
+     * GZIP с быстрым уровнем сжатия: при копировании узким местом обычно является процессор, а не диск.
+     */
+    private static final class FastGzipOutputStream extends GZIPOutputStream {
+        FastGzipOutputStream(OutputStream out) throws IOException {
+            super(out, BUFFER_BYTES);
+            def.setLevel(Deflater.BEST_SPEED);
+        }
+    }
+}
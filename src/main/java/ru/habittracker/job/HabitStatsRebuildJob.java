@@ -0,0 +1,49 @@
+package ru.habittracker.job;
+
+import ru.habittracker.config.DatabaseConnectionManager;
+import ru.habittracker.repository.IHabitStatsRepository;
+import ru.habittracker.repository.impl.HabitStatsRepository;
+
+/**
+ * Задача пересчёта агрегированной статистики привычек.
+ * <p>
+ * Полностью восстанавливает таблицу habit_stats из habit_records. Используется для исправления
+ * статистики после ручных изменений истории или записей, добавленных в обход сервиса.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public class HabitStatsRebuildJob implements Runnable {
+
+    private final IHabitStatsRepository habitStatsRepository;
+
+    /**
+     * Конструктор задачи пересчёта статистики.
+     *
+     * @param dbManager менеджер подключения к базе данных
+     */
+    public HabitStatsRebuildJob(DatabaseConnectionManager dbManager) {
+        this(new HabitStatsRepository(dbManager));
+    }
+
+    /**
+     * Конструктор задачи пересчёта статистики с заданным репозиторием.
+     *
+     * @param habitStatsRepository репозиторий статистики привычек
+     */
+    public HabitStatsRebuildJob(IHabitStatsRepository habitStatsRepository) {
+        this.habitStatsRepository = habitStatsRepository;
+    }
+
+    /**
+     * Пересчитывает статистику всех привычек и выводит итог.
+     */
+    @Override
+    public void run() {
+        long start = System.nanoTime();
+        int rebuilt = habitStatsRepository.rebuildAll();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("Статистика пересчитана для " + rebuilt + " привычек за " + elapsedMillis + " мс.");
+    }
+}
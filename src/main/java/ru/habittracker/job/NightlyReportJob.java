@@ -0,0 +1,303 @@
+package ru.habittracker.job;
+
+import ru.habittracker.config.DatabaseConnectionManager;
+import ru.habittracker.config.DatabaseWorkload;
+import ru.habittracker.model.CompletionBitmap;
+import ru.habittracker.model.CompletionHistory;
+import ru.habittracker.model.Habit;
+import ru.habittracker.model.HabitStats;
+import ru.habittracker.report.ProgressReportWriter;
+import ru.habittracker.report.ReportFormat;
+import ru.habittracker.repository.SqlConstants;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Ночная задача формирования отчётов о прогрессе для всех пользователей.
+ * <p>
+ * Пользователи читаются страницами по ключу ({@code WHERE id > последний ID}), без OFFSET.
+ * Каждая страница обрабатывается в {@link ForkJoinPool} с заданным числом потоков: привычки и статистика
+ * всех пользователей страницы загружаются одним запросом, а история нужна только привычкам без строки
+ * в habit_stats и тоже читается одним запросом на страницу. Отчёт каждого пользователя записывается
+ * в файл {@code <каталог>/<дата>/user-<ID>.<расширение>} через {@link ProgressReportWriter}.
+ * </p>
+ * <p>
+ * Чтение страниц и загрузка их данных выполняются через {@link DatabaseConnectionManager#execute} как
+ * операции {@link DatabaseWorkload#REPORT}, с их ограничением одновременных операций, выключателем
+ * и таймаутом запросов. Потоков обработки не больше, чем мест для таких операций, и одно место остаётся
+ * чтению страниц; если место всего одно, следующая страница читается после обработки предыдущей.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public class NightlyReportJob {
+
+    private static final CompletionBitmap NO_HISTORY = CompletionBitmap.of(CompletionHistory.empty());
+
+    private final DatabaseConnectionManager dbManager;
+    private final int parallelism;
+    private final int pageSize;
+
+    /**
+     * Конструктор задачи.
+     *
+     * @param dbManager   менеджер подключения к базе данных
+     * @param parallelism наибольшее количество потоков обработки страниц
+     * @param pageSize    количество пользователей на странице
+     */
+    public NightlyReportJob(DatabaseConnectionManager dbManager, int parallelism, int pageSize) {
+        if (parallelism < 1 || pageSize < 1) {
+            throw new IllegalArgumentException("Количество потоков и размер страницы должны быть положительными");
+        }
+        this.dbManager = dbManager;
+        this.parallelism = parallelism;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Формирует отчёты всех пользователей на указанную дату.
+     *
+     * @param directory каталог отчётов; файлы создаются в подкаталоге с датой
+     * @param format    формат отчётов
+     * @param date      дата, на которую рассчитываются серии и процент успеха
+     * @return итоги и метрики пропускной способности
+     * @throws IOException при ошибке чтения базы или записи файлов
+     */
+    public Summary run(Path directory, ReportFormat format, LocalDate date) throws IOException {
+        Path target = Files.createDirectories(directory.resolve(date.toString()));
+        long started = System.nanoTime();
+        int users = 0;
+        int habits = 0;
+        int pages = 0;
+        long queryNanos = 0;
+        long writeNanos = 0;
+
+        // Ожидание места сверх лимита отклоняется, поэтому потоков не больше, чем мест для отчётных операций
+        int available = dbManager.getBulkhead().getAvailable(DatabaseWorkload.REPORT);
+        int workers = Math.max(1, Math.min(parallelism, available - 1));
+        // Не больше двух страниц на поток в работе, чтобы не держать в памяти всех пользователей
+        int maxInFlight = available > workers ? 2 * workers : 1;
+        ForkJoinPool pool = new ForkJoinPool(workers);
+        try {
+            CompletionService<PageResult> reports = new ExecutorCompletionService<>(pool);
+            int lastId = 0;
+            int inFlight = 0;
+            boolean more = true;
+            while (more || inFlight > 0) {
+                while (more && inFlight < maxInFlight) {
+                    int[] userIds = nextPage(lastId);
+                    if (userIds.length == 0) {
+                        more = false;
+                        break;
+                    }
+                    lastId = userIds[userIds.length - 1];
+                    more = userIds.length == pageSize;
+                    reports.submit(() -> reportPage(userIds, target, format, date));
+                    inFlight++;
+                }
+                if (inFlight == 0) {
+                    break;
+                }
+                PageResult result = take(reports);
+                inFlight--;
+                pages++;
+                users += result.users();
+                habits += result.habits();
+                queryNanos += result.queryNanos();
+                writeNanos += result.writeNanos();
+            }
+        } catch (SQLException e) {
+            throw new IOException("Ошибка чтения пользователей для отчётов", e);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        return new Summary(users, habits, pages, (System.nanoTime() - started) / 1_000_000,
+                queryNanos / 1_000_000, writeNanos / 1_000_000);
+    }
+
+    private int[] nextPage(int lastId) throws SQLException {
+        return dbManager.execute(DatabaseWorkload.REPORT, true, conn -> {
+            try (PreparedStatement page = conn.prepareStatement(SqlConstants.SELECT_USER_IDS_AFTER)) {
+                page.setInt(1, lastId);
+                page.setInt(2, pageSize);
+                int[] userIds = new int[pageSize];
+                int count = 0;
+                try (ResultSet rs = page.executeQuery()) {
+                    while (rs.next()) {
+                        userIds[count++] = rs.getInt(1);
+                    }
+                }
+                return count == pageSize ? userIds : Arrays.copyOf(userIds, count);
+            }
+        });
+    }
+
+    /**
+     * Загружает данные страницы пользователей и записывает их отчёты.
+     */
+    private PageResult reportPage(int[] userIds, Path target, ReportFormat format, LocalDate date)
+            throws SQLException, IOException {
+        long queryStarted = System.nanoTime();
+        PageData data = dbManager.execute(DatabaseWorkload.REPORT, true, conn -> loadPage(conn, userIds));
+        List<Habit> habits = data.habits();
+        List<HabitStats> stats = data.stats();
+        Map<Integer, CompletionBitmap> histories = data.histories();
+        long writeStarted = System.nanoTime();
+
+        int next = 0;
+        for (int userId : userIds) {
+            Path file = target.resolve("user-" + userId + "." + format.getExtension());
+            try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                ProgressReportWriter writer = new ProgressReportWriter(out, format);
+                writer.begin(userId, date);
+                // Привычки упорядочены по user_id в том же порядке, что и страница
+                for (; next < habits.size() && habits.get(next).getUserId() == userId; next++) {
+                    HabitStats habitStats = stats.get(next);
+                    if (habitStats != null) {
+                        writer.entry(habits.get(next), habitStats.streakAsOf(date), habitStats.successRateAsOf(date));
+                    } else {
+                        CompletionBitmap history = histories.getOrDefault(habits.get(next).getId(), NO_HISTORY);
+                        writer.entry(habits.get(next), history.streakAsOf(date.toEpochDay()),
+                                history.successRateAsOf(date.toEpochDay()));
+                    }
+                }
+                writer.end();
+            }
+        }
+        long finished = System.nanoTime();
+        return new PageResult(userIds.length, habits.size(), writeStarted - queryStarted, finished - writeStarted);
+    }
+
+    /**
+     * Загружает привычки и статистику пользователей страницы и историю привычек без статистики.
+     */
+    private static PageData loadPage(Connection conn, int[] userIds) throws SQLException {
+        conn.setReadOnly(true);
+        List<Habit> habits = new ArrayList<>();
+        List<HabitStats> stats = new ArrayList<>();
+        List<Integer> withoutStats = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(SqlConstants.SELECT_REPORT_HABITS_BY_USER_IDS)) {
+            stmt.setArray(1, conn.createArrayOf("integer", Arrays.stream(userIds).boxed().toArray()));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Habit habit = new Habit(rs.getInt("id"), rs.getString("title"), rs.getString("description"),
+                            rs.getInt("frequency"), rs.getInt("user_id"), rs.getDate("creation_date").toLocalDate());
+                    habits.add(habit);
+                    rs.getInt("stats_habit_id");
+                    if (rs.wasNull()) {
+                        withoutStats.add(habit.getId());
+                        stats.add(null);
+                    } else {
+                        Date lastCompleted = rs.getDate("last_completed_date");
+                        stats.add(new HabitStats(habit.getId(), rs.getInt("current_streak"),
+                                rs.getInt("longest_streak"), lastCompleted != null ? lastCompleted.toLocalDate() : null,
+                                rs.getInt("total_completions"), rs.getLong("recent_days")));
+                    }
+                }
+            }
+        }
+        Map<Integer, CompletionBitmap> histories = withoutStats.isEmpty() ? Map.of() : loadHistories(conn, withoutStats);
+        return new PageData(habits, stats, histories);
+    }
+
+    /**
+     * Загружает историю привычек без строки в habit_stats одним запросом в виде битовых карт дней.
+     */
+    private static Map<Integer, CompletionBitmap> loadHistories(Connection conn, List<Integer> habitIds)
+            throws SQLException {
+        Map<Integer, CompletionBitmap> histories = new HashMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement(SqlConstants.SELECT_COMPLETED_EPOCH_DAYS_BY_HABIT_IDS)) {
+            stmt.setArray(1, conn.createArrayOf("integer", habitIds.toArray()));
+            CompletionHistory.Builder history = new CompletionHistory.Builder();
+            int current = -1;
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int habitId = rs.getInt(1);
+                    if (habitId != current) {
+                        if (current >= 0) {
+                            histories.put(current, CompletionBitmap.of(history.build()));
+                            history.reset();
+                        }
+                        current = habitId;
+                    }
+                    history.add(rs.getInt(2));
+                }
+            }
+            if (current >= 0) {
+                histories.put(current, CompletionBitmap.of(history.build()));
+            }
+        }
+        return histories;
+    }
+
+    private static PageResult take(CompletionService<PageResult> reports) throws IOException {
+        try {
+            return reports.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Формирование отчётов прервано", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("Ошибка формирования отчётов", e.getCause());
+        }
+    }
+
+    /**
+     * Данные страницы: привычки по порядку пользователей, их статистика (null, если строки нет) и история
+     * привычек без статистики.
+     */
+    private record PageData(List<Habit> habits, List<HabitStats> stats, Map<Integer, CompletionBitmap> histories) {
+    }
+
+    /**
+     * Итоги страницы: количество пользователей и привычек, время запросов и записи файлов.
+     */
+    private record PageResult(int users, int habits, long queryNanos, long writeNanos) {
+    }
+
+    /**
+     * Итоги ночного формирования отчётов.
+     *
+     * @param users         количество пользователей
+     * @param habits        количество привычек в отчётах
+     * @param pages         количество страниц пользователей
+     * @param elapsedMillis общее время, мс
+     * @param queryMillis   суммарное время запросов во всех потоках, мс
+     * @param writeMillis   суммарное время записи файлов во всех потоках, мс
+     */
+    public record Summary(int users, int habits, int pages, long elapsedMillis, long queryMillis,
+                          long writeMillis) {
+
+        /**
+         * Возвращает пропускную способность.
+         *
+         * @return количество пользователей в секунду
+         */
+        public double usersPerSecond() {
+            return elapsedMillis == 0 ? users : users * 1000.0 / elapsedMillis;
+        }
+    }
+}
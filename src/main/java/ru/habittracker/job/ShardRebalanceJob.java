@@ -0,0 +1,169 @@
+package ru.habittracker.job;
+
+import ru.habittracker.config.ShardedConnectionManager;
+import ru.habittracker.repository.SqlConstants;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Задача переноса пользователей между шардами.
+ * <p>
+ * После добавления шарда кольцо относит часть пользователей к новому шарду, но их строки остаются
+ * на прежних. Задача находит таких пользователей и переносит пользователя, его привычки, записи
+ * и статистику на шард-владелец. ID при переносе сохраняются, так как они уникальны глобально.
+ * </p>
+ * <p>
+ * Перенос одного пользователя: строка пользователя на исходном шарде блокируется до конца
+ * транзакции, строки копируются на целевой шард (вставка пропускает уже существующие ID)
+ * и фиксируются, затем удаляются с исходного шарда. При сбое между шагами повторный запуск
+ * завершает перенос. Задача выполняется при остановленном приложении.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public class ShardRebalanceJob implements Runnable {
+
+    private static final int FETCH_SIZE = 1000;
+    private static final int BATCH_SIZE = 500;
+
+    private final ShardedConnectionManager shards;
+
+    /**
+     * Конструктор задачи переноса пользователей.
+     *
+     * @param shards менеджер подключений к шардам
+     */
+    public ShardRebalanceJob(ShardedConnectionManager shards) {
+        this.shards = shards;
+    }
+
+    /**
+     * Переносит всех пользователей, хранящихся не на своём шарде, и выводит итог.
+     */
+    @Override
+    public void run() {
+        long start = System.nanoTime();
+        int moved = 0;
+        int failed = 0;
+        for (int shard = 0; shard < shards.getShardCount(); shard++) {
+            for (int userId : findUserIds(shard)) {
+                int owner = shards.shardForUser(userId);
+                if (owner == shard) {
+                    continue;
+                }
+                if (moveUser(userId, shard, owner)) {
+                    moved++;
+                } else {
+                    failed++;
+                }
+            }
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("Перенесено пользователей: " + moved + ", ошибок: " + failed + " за " + elapsedMillis + " мс.");
+    }
+
+    /**
+     * Переносит пользователя со всеми его данными с одного шарда на другой.
+     *
+     * @param userId ID пользователя
+     * @param from   исходный шард
+     * @param to     целевой шард
+     * @return true, если перенос завершён (или пользователя нет на исходном шарде)
+     */
+    public boolean moveUser(int userId, int from, int to) {
+        if (from == to) {
+            return true;
+        }
+        try (Connection source = shards.getShard(from).getConnection();
+             Connection target = shards.getShard(to).getConnection()) {
+            source.setAutoCommit(false);
+            target.setAutoCommit(false);
+            try {
+                try (PreparedStatement lock = source.prepareStatement(SqlConstants.SELECT_USER_FOR_MOVE)) {
+                    lock.setInt(1, userId);
+                    try (ResultSet rs = lock.executeQuery()) {
+                        if (!rs.next()) {
+                            source.rollback();
+                            return true;
+                        }
+                        try (PreparedStatement insert = target.prepareStatement(SqlConstants.INSERT_USER_WITH_ID)) {
+                            copyRow(rs, insert, 5);
+                            insert.executeBatch();
+                        }
+                    }
+                }
+                copyRows(source, SqlConstants.SELECT_HABITS_FOR_MOVE, target, SqlConstants.INSERT_HABIT_WITH_ID, 7, userId);
+                copyRows(source, SqlConstants.SELECT_HABIT_RECORDS_FOR_MOVE, target, SqlConstants.INSERT_HABIT_RECORD_WITH_ID, 4, userId);
+                copyRows(source, SqlConstants.SELECT_HABIT_STATS_FOR_MOVE, target, SqlConstants.UPSERT_HABIT_STATS, 6, userId);
+                target.commit();
+
+                // Статистика удаляется каскадно вместе с привычками
+                for (String delete : new String[]{SqlConstants.DELETE_HABIT_RECORDS_BY_USER_ID,
+                        SqlConstants.DELETE_HABITS_BY_USER_ID, SqlConstants.DELETE_USER_BY_ID}) {
+                    try (PreparedStatement stmt = source.prepareStatement(delete)) {
+                        stmt.setInt(1, userId);
+                        stmt.executeUpdate();
+                    }
+                }
+                source.commit();
+                return true;
+            } catch (SQLException e) {
+                target.rollback();
+                source.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            System.err.println("Ошибка переноса пользователя " + userId + " с шарда " + shards.getShardName(from)
+                    + " на " + shards.getShardName(to) + ": " + e.getMessage());
+        }
+        return false;
+    }
+
+    private List<Integer> findUserIds(int shard) {
+        List<Integer> userIds = new ArrayList<>();
+        try (Connection conn = shards.getShard(shard).getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SqlConstants.SELECT_ALL_USER_IDS);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                userIds.add(rs.getInt(1));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return userIds;
+    }
+
+    private static void copyRows(Connection source, String select, Connection target, String insert,
+                                 int columns, int userId) throws SQLException {
+        try (PreparedStatement query = source.prepareStatement(select);
+             PreparedStatement batch = target.prepareStatement(insert)) {
+            query.setFetchSize(FETCH_SIZE);
+            query.setInt(1, userId);
+            int pending = 0;
+            try (ResultSet rs = query.executeQuery()) {
+                while (rs.next()) {
+                    copyRow(rs, batch, columns);
+                    if (++pending == BATCH_SIZE) {
+                        batch.executeBatch();
+                        pending = 0;
+                    }
+                }
+            }
+            batch.executeBatch();
+        }
+    }
+
+    private static void copyRow(ResultSet rs, PreparedStatement insert, int columns) throws SQLException {
+        for (int column = 1; column <= columns; column++) {
+            insert.setObject(column, rs.getObject(column));
+        }
+        insert.addBatch();
+    }
+}
@@ -0,0 +1,138 @@
+package ru.habittracker.model;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Locale;
+
+/**
+ * Дни недели, которые отмечаются при заполнении выполнения привычки за период.
+ * <p>
+ * Хранится как битовая маска: бит {@code n} соответствует дню недели с ISO-номером {@code n + 1}
+ * (понедельник — бит 0). Та же маска проверяется в SQL через {@code EXTRACT(ISODOW FROM ...)}.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public final class BackfillPattern {
+
+    private static final int ALL_DAYS = 0b111_1111;
+    private static final int WEEKDAYS = 0b001_1111;
+
+    private final int daysMask;
+
+    private BackfillPattern(int daysMask) {
+        if (daysMask <= 0 || daysMask > ALL_DAYS) {
+            throw new IllegalArgumentException("Шаблон должен содержать хотя бы один день недели");
+        }
+        this.daysMask = daysMask;
+    }
+
+    /**
+     * Каждый день.
+     *
+     * @return шаблон
+     */
+    public static BackfillPattern daily() {
+        return new BackfillPattern(ALL_DAYS);
+    }
+
+    /**
+     * Будние дни.
+     *
+     * @return шаблон
+     */
+    public static BackfillPattern weekdays() {
+        return new BackfillPattern(WEEKDAYS);
+    }
+
+    /**
+     * Указанные дни недели.
+     *
+     * @param days дни недели
+     * @return шаблон
+     */
+    public static BackfillPattern of(DayOfWeek... days) {
+        int mask = 0;
+        for (DayOfWeek day : days) {
+            mask |= 1 << (day.getValue() - 1);
+        }
+        return new BackfillPattern(mask);
+    }
+
+    /**
+     * Разбирает шаблон из строки: {@code daily}, {@code weekdays}, {@code weekends}
+     * или дни недели через запятую ({@code MON,WED,FRI}).
+     *
+     * @param value строка шаблона; пустая строка или null — каждый день
+     * @return шаблон
+     * @throws IllegalArgumentException если строка не распознана
+     */
+    public static BackfillPattern parse(String value) {
+        if (value == null || value.isBlank()) {
+            return daily();
+        }
+        String pattern = value.trim().toUpperCase(Locale.ROOT);
+        switch (pattern) {
+            case "DAILY" -> {
+                return daily();
+            }
+            case "WEEKDAYS" -> {
+                return weekdays();
+            }
+            case "WEEKENDS" -> {
+                return new BackfillPattern(ALL_DAYS & ~WEEKDAYS);
+            }
+            default -> {
+                int mask = 0;
+                for (String day : pattern.split("[,\\s]+")) {
+                    mask |= 1 << (parseDay(day).getValue() - 1);
+                }
+                return new BackfillPattern(mask);
+            }
+        }
+    }
+
+    /**
+     * Проверяет, входит ли дата в шаблон.
+     *
+     * @param date дата
+     * @return true, если день недели даты входит в шаблон
+     */
+    public boolean matches(LocalDate date) {
+        return (daysMask & (1 << (date.getDayOfWeek().getValue() - 1))) != 0;
+    }
+
+    /**
+     * Возвращает битовую маску дней недели.
+     *
+     * @return маска, бит 0 — понедельник
+     */
+    public int getDaysMask() {
+        return daysMask;
+    }
+
+    private static DayOfWeek parseDay(String day) {
+        for (DayOfWeek dayOfWeek : DayOfWeek.values()) {
+            if (day.length() >= 3 && dayOfWeek.name().startsWith(day)) {
+                return dayOfWeek;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестный день недели: " + day);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof BackfillPattern other && other.daysMask == daysMask;
+    }
+
+    @Override
+    public int hashCode() {
+        return daysMask;
+    }
+
+    @Override
+    public String toString() {
+        return "BackfillPattern{daysMask=" + Integer.toBinaryString(daysMask) + "}";
+    }
+}
@@ -0,0 +1,237 @@
+package ru.habittracker.model;
+
+/**
+ * История выполнения привычки в виде битовой карты дней.
+ * <p>
+ * Бит {@code i} соответствует дню эпохи {@code baseDay + i}; слово {@code long} покрывает 64 дня.
+ * Количество выполнений за период сводится к {@link Long#bitCount(long)} по словам,
+ * а длина серии — к поиску первого нулевого бита через
+ * {@link Long#numberOfTrailingZeros(long)} и {@link Long#numberOfLeadingZeros(long)}.
+ * Оба метода — интринсики HotSpot (POPCNT, TZCNT/LZCNT), поэтому десятилетняя история
+ * обрабатывается за несколько десятков операций над словами.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public final class CompletionBitmap {
+
+    private static final CompletionBitmap EMPTY = new CompletionBitmap(0, new long[0], 0);
+
+    private final int baseDay;
+    private final long[] words;
+    private final int length;
+
+    private CompletionBitmap(int baseDay, long[] words, int length) {
+        this.baseDay = baseDay;
+        this.words = words;
+        this.length = length;
+    }
+
+    /**
+     * Строит битовую карту по истории выполнения.
+     *
+     * @param history история выполнения
+     * @return битовая карта от первого до последнего дня истории
+     */
+    public static CompletionBitmap of(CompletionHistory history) {
+        int size = history.size();
+        if (size == 0) {
+            return EMPTY;
+        }
+        int baseDay = history.dayAt(0);
+        int length = history.lastDay() - baseDay + 1;
+        long[] words = new long[(length + 63) >>> 6];
+        for (int i = 0; i < size; i++) {
+            int bit = history.dayAt(i) - baseDay;
+            words[bit >>> 6] |= 1L << bit;
+        }
+        return new CompletionBitmap(baseDay, words, length);
+    }
+
+    /**
+     * Возвращает количество дней с выполнением.
+     *
+     * @return количество дней
+     */
+    public int cardinality() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Проверяет, выполнялась ли привычка в указанный день.
+     *
+     * @param day номер дня эпохи
+     * @return true, если выполнялась
+     */
+    public boolean contains(long day) {
+        long bit = day - baseDay;
+        return bit >= 0 && bit < length && (words[(int) (bit >>> 6)] & (1L << bit)) != 0;
+    }
+
+    /**
+     * Считает количество дней с выполнением в периоде.
+     *
+     * @param from номер первого дня (включительно)
+     * @param to   номер последнего дня (включительно)
+     * @return количество дней с выполнением
+     */
+    public int countBetween(long from, long to) {
+        long start = Math.max(from - baseDay, 0);
+        long end = Math.min(to - baseDay, length - 1L);
+        if (start > end) {
+            return 0;
+        }
+        int first = (int) (start >>> 6);
+        int last = (int) (end >>> 6);
+        long firstMask = -1L << start;
+        long lastMask = -1L >>> (63 - (end & 63));
+        if (first == last) {
+            return Long.bitCount(words[first] & firstMask & lastMask);
+        }
+        int count = Long.bitCount(words[first] & firstMask);
+        for (int i = first + 1; i < last; i++) {
+            count += Long.bitCount(words[i]);
+        }
+        return count + Long.bitCount(words[last] & lastMask);
+    }
+
+    /**
+     * Считает количество дней с выполнением начиная с указанного дня.
+     *
+     * @param from номер первого дня (включительно)
+     * @return количество дней с выполнением
+     */
+    public int countSince(long from) {
+        return countBetween(from, (long) baseDay + length - 1);
+    }
+
+    /**
+     * Вычисляет процент успешного выполнения за последние {@value HabitStats#SUCCESS_RATE_DAYS} дней,
+     * как {@link HabitStats#successRateAsOf}.
+     *
+     * @param today номер текущего дня эпохи
+     * @return процент успешного выполнения
+     */
+    public double successRateAsOf(long today) {
+        return (double) countSince(today - HabitStats.SUCCESS_RATE_DAYS) / HabitStats.SUCCESS_RATE_DAYS * 100;
+    }
+
+    /**
+     * Возвращает текущую серию на указанный день.
+     * <p>
+     * Серия считается активной, если последнее выполнение было сегодня или вчера.
+     * </p>
+     *
+     * @param today номер текущего дня эпохи
+     * @return количество дней текущей серии
+     */
+    public int streakAsOf(long today) {
+        long todayBit = today - baseDay;
+        long end = Math.min(todayBit, length - 1L);
+        if (end >= 0 && !testBit((int) end)) {
+            // Сегодня не выполнено — серия может заканчиваться вчера
+            end--;
+        }
+        if (end < 0 || end < todayBit - 1 || !testBit((int) end)) {
+            return 0;
+        }
+        return runEndingAt((int) end);
+    }
+
+    /**
+     * Возвращает самую длинную серию за всю историю.
+     *
+     * @return длина самой длинной серии
+     */
+    public int longestStreak() {
+        int longest = 0;
+        // Серия, продолжающаяся из предыдущего слова
+        int carry = 0;
+        for (long word : words) {
+            if (word == -1L) {
+                carry += 64;
+                continue;
+            }
+            int low = Long.numberOfTrailingZeros(~word);
+            longest = Math.max(longest, carry + low);
+            carry = 0;
+            int pos = low;
+            while (true) {
+                long rest = word >>> pos;
+                if (rest == 0) {
+                    break;
+                }
+                pos += Long.numberOfTrailingZeros(rest);
+                int run = Long.numberOfTrailingZeros(~(word >>> pos));
+                pos += run;
+                if (pos == 64) {
+                    carry = run;
+                    break;
+                }
+                longest = Math.max(longest, run);
+            }
+        }
+        return Math.max(longest, carry);
+    }
+
+    /**
+     * Считает количество выполнений в скользящем окне для каждого дня периода.
+     * <p>
+     * Первое окно считается через {@link #countBetween}, далее окно сдвигается на день:
+     * добавляется входящий бит и вычитается выходящий.
+     * </p>
+     *
+     * @param from   первый день периода
+     * @param to     последний день периода
+     * @param window размер окна в днях (окно заканчивается в текущем дне включительно)
+     * @return количество выполнений в окне для каждого дня с {@code from} по {@code to}
+     */
+    public int[] rollingCounts(long from, long to, int window) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("Размер окна должен быть положительным: " + window);
+        }
+        if (to < from) {
+            return new int[0];
+        }
+        int[] counts = new int[Math.toIntExact(to - from + 1)];
+        int count = countBetween(from - window + 1, from);
+        counts[0] = count;
+        for (int i = 1; i < counts.length; i++) {
+            long day = from + i;
+            if (contains(day)) {
+                count++;
+            }
+            if (contains(day - window)) {
+                count--;
+            }
+            counts[i] = count;
+        }
+        return counts;
+    }
+
+    private boolean testBit(int bit) {
+        return (words[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    /**
+     * Возвращает длину серии установленных битов, заканчивающейся в указанном бите.
+     */
+    private int runEndingAt(int bit) {
+        int index = bit >>> 6;
+        // Сдвигаем бит серии в старший разряд и считаем единицы сверху
+        long word = words[index] << (63 - (bit & 63));
+        int run = Long.numberOfLeadingZeros(~word);
+        if (run <= (bit & 63)) {
+            return run;
+        }
+        while (--index >= 0 && words[index] == -1L) {
+            run += 64;
+        }
+        return index >= 0 ? run + Long.numberOfLeadingZeros(~words[index]) : run;
+    }
+}
@@ -0,0 +1,255 @@
+package ru.habittracker.model;
+
+import java.util.Arrays;
+
+/**
+ * Компактная история выполнения привычки для аналитики.
+ * <p>
+ * Хранит отсортированные номера дней эпохи ({@link java.time.LocalDate#toEpochDay()}) без повторов
+ * в массиве {@code int[]}. Расчёт серии и процента успеха выполняется двоичным поиском и проходом
+ * по массиву без создания объектов на каждую запись. Заполняется через {@link Builder}
+ * напрямую из результата запроса.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public final class CompletionHistory {
+
+    private static final CompletionHistory EMPTY = new CompletionHistory(new int[0], 0);
+
+    private final int[] days;
+    private final int size;
+
+    private CompletionHistory(int[] days, int size) {
+        this.days = days;
+        this.size = size;
+    }
+
+    /**
+     * Возвращает пустую историю.
+     *
+     * @return пустая история
+     */
+    public static CompletionHistory empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Возвращает количество дней с выполнением.
+     *
+     * @return количество дней
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Возвращает день эпохи по индексу в порядке возрастания.
+     *
+     * @param index индекс
+     * @return номер дня эпохи
+     */
+    public int dayAt(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return days[index];
+    }
+
+    /**
+     * Возвращает последний день с выполнением.
+     *
+     * @return номер дня эпохи
+     * @throws IllegalStateException если история пуста
+     */
+    public int lastDay() {
+        if (size == 0) {
+            throw new IllegalStateException("История выполнения пуста");
+        }
+        return days[size - 1];
+    }
+
+    /**
+     * Проверяет, выполнялась ли привычка в указанный день.
+     *
+     * @param day номер дня эпохи
+     * @return true, если выполнялась
+     */
+    public boolean contains(long day) {
+        int at = lowerBound(day);
+        return at < size && days[at] == day;
+    }
+
+    /**
+     * Возвращает текущую серию на указанный день.
+     * <p>
+     * Серия считается активной, если последнее выполнение было сегодня или вчера.
+     * </p>
+     *
+     * @param today номер текущего дня эпохи
+     * @return количество дней текущей серии
+     */
+    public int streakAsOf(long today) {
+        int end = lowerBound(today + 1);
+        if (end == 0 || days[end - 1] < today - 1) {
+            return 0;
+        }
+        return runEndingAt(end - 1);
+    }
+
+    /**
+     * Возвращает самую длинную серию за всю историю.
+     *
+     * @return длина самой длинной серии
+     */
+    public int longestStreak() {
+        int longest = 0;
+        int current = 0;
+        for (int i = 0; i < size; i++) {
+            current = i > 0 && days[i] == days[i - 1] + 1 ? current + 1 : 1;
+            if (current > longest) {
+                longest = current;
+            }
+        }
+        return longest;
+    }
+
+    /**
+     * Считает количество дней с выполнением начиная с указанного дня.
+     *
+     * @param from номер первого дня (включительно)
+     * @return количество дней с выполнением
+     */
+    public int countSince(long from) {
+        return size - lowerBound(from);
+    }
+
+    /**
+     * Считает количество дней с выполнением в периоде.
+     *
+     * @param from номер первого дня (включительно)
+     * @param to   номер последнего дня (включительно)
+     * @return количество дней с выполнением
+     */
+    public int countBetween(long from, long to) {
+        return Math.max(0, lowerBound(to + 1) - lowerBound(from));
+    }
+
+    /**
+     * Возвращает длину серии подряд идущих дней, заканчивающейся в указанном индексе.
+     *
+     * @param index индекс последнего дня серии
+     * @return длина серии
+     */
+    int runEndingAt(int index) {
+        int start = index;
+        while (start > 0 && days[start - 1] == days[start] - 1) {
+            start--;
+        }
+        return index - start + 1;
+    }
+
+    private int lowerBound(long day) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (days[mid] < day) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Построитель истории выполнения.
+     * <p>
+     * Принимает дни в любом порядке и с повторами; если дни добавлялись по возрастанию
+     * (как при чтении с {@code ORDER BY date}), сортировка при построении не выполняется.
+     * Построитель можно переиспользовать после {@link #reset()}.
+     * </p>
+     */
+    public static final class Builder {
+        private int[] days;
+        private int size;
+        private boolean ordered = true;
+
+        public Builder() {
+            this(16);
+        }
+
+        /**
+         * Создает построитель с заданной начальной ёмкостью.
+         *
+         * @param expectedSize ожидаемое количество дней
+         */
+        public Builder(int expectedSize) {
+            this.days = new int[Math.max(expectedSize, 1)];
+        }
+
+        /**
+         * Добавляет день с выполнением.
+         *
+         * @param day номер дня эпохи
+         * @return этот построитель
+         */
+        public Builder add(int day) {
+            if (size > 0) {
+                int last = days[size - 1];
+                if (day == last) {
+                    return this;
+                }
+                if (day < last) {
+                    ordered = false;
+                }
+            }
+            if (size == days.length) {
+                days = Arrays.copyOf(days, size * 2);
+            }
+            days[size++] = day;
+            return this;
+        }
+
+        /**
+         * Очищает построитель для повторного использования.
+         *
+         * @return этот построитель
+         */
+        public Builder reset() {
+            size = 0;
+            ordered = true;
+            return this;
+        }
+
+        /**
+         * Строит историю. Массив дней копируется, поэтому построитель можно переиспользовать.
+         *
+         * @return история выполнения
+         */
+        public CompletionHistory build() {
+            if (size == 0) {
+                return EMPTY;
+            }
+            int[] result = Arrays.copyOf(days, size);
+            int resultSize = size;
+            if (!ordered) {
+                Arrays.sort(result);
+                int unique = 1;
+                for (int i = 1; i < resultSize; i++) {
+                    if (result[i] != result[unique - 1]) {
+                        result[unique++] = result[i];
+                    }
+                }
+                resultSize = unique;
+            }
+            return new CompletionHistory(result, resultSize);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package ru.habittracker.model;
+
+/**
+ * Результат отметки выполнения одной привычки при массовой отметке.
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public enum CompletionResult {
+    /**
+     * Выполнение отмечено.
+     */
+    MARKED("отмечена"),
+    /**
+     * Выполнение за эту дату уже было отмечено.
+     */
+    ALREADY_MARKED("уже была отмечена"),
+    /**
+     * Привычка не найдена или принадлежит другому пользователю.
+     */
+    NOT_FOUND("не найдена");
+
+    private final String description;
+
+    CompletionResult(String description) {
+        this.description = description;
+    }
+
+    /**
+     * Возвращает описание результата для вывода пользователю.
+     *
+     * @return описание результата
+     */
+    public String getDescription() {
+        return description;
+    }
+}
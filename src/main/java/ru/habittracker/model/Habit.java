@@ -3,6 +3,7 @@ package ru.habittracker.model;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.Setter;
+import ru.habittracker.view.TextFormatter;
 
 import java.time.LocalDate;
 
@@ -22,11 +23,14 @@ public class Habit {
     private int frequency; // 1 - ежедневная, 2 - недельная
     private int userId;
     private LocalDate creationDate;
+    private int version; // увеличивается при каждом изменении, для оптимистичной блокировки
+
+    public Habit(int id, String title, String description, int frequency, int userId, LocalDate creationDate) {
+        this(id, title, description, frequency, userId, creationDate, 0);
+    }
 
     @Override
     public String toString() {
-        String freq = frequency == 1 ? "Ежедневная" : "Недельная";
-        return String.format("ID: %d, Название: %s, Описание: %s, Частота: %s, Дата создания: %s",
-                id, title, description, freq, creationDate);
+        return TextFormatter.appendHabit(new StringBuilder(128), this).toString();
     }
 }
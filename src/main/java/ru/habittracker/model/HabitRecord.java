@@ -3,6 +3,7 @@ package ru.habittracker.model;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.Setter;
+import ru.habittracker.view.TextFormatter;
 
 import java.time.LocalDate;
 
@@ -36,6 +37,6 @@ public class HabitRecord {
 
     @Override
     public String toString() {
-        return String.format("ID: %d, Дата: %s, Выполнено: %s", id, date, completed ? "Да" : "Нет");
+        return TextFormatter.appendRecord(new StringBuilder(48), this).toString();
     }
 }
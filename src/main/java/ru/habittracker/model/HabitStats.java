@@ -0,0 +1,182 @@
+package ru.habittracker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Класс, представляющий агрегированную статистику выполнения привычки.
+ * <p>
+ * Статистика обновляется инкрементально при отметке выполнения за O(1),
+ * поэтому для расчёта серии и процента успеха не требуется читать всю историю;
+ * отметки, которые нельзя учесть по окну, пересчитываются из истории.
+ * Поле {@code recentDays} хранит битовую маску последних {@value #WINDOW_DAYS} дней:
+ * бит i установлен, если привычка выполнена в день {@code lastCompletedDate - i}.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+public class HabitStats {
+    public static final int WINDOW_DAYS = 64;
+    // Окно расчёта процента успеха, дней
+    public static final int SUCCESS_RATE_DAYS = 30;
+
+    private int habitId;
+    private int currentStreak;
+    private int longestStreak;
+    private LocalDate lastCompletedDate;
+    private int totalCompletions;
+    private long recentDays;
+
+    /**
+     * Конструктор пустой статистики для привычки без выполнений.
+     *
+     * @param habitId ID привычки
+     */
+    public HabitStats(int habitId) {
+        this.habitId = habitId;
+    }
+
+    /**
+     * Строит статистику по полной истории выполнения за один проход.
+     *
+     * @param habitId ID привычки
+     * @param history история выполнения
+     * @return статистика привычки (пустая, если история пуста)
+     */
+    public static HabitStats of(int habitId, CompletionHistory history) {
+        HabitStats stats = new HabitStats(habitId);
+        int size = history.size();
+        if (size == 0) {
+            return stats;
+        }
+        int last = history.lastDay();
+        long recent = 0;
+        for (int i = size - 1; i >= 0 && last - history.dayAt(i) < WINDOW_DAYS; i--) {
+            recent |= 1L << (last - history.dayAt(i));
+        }
+        stats.lastCompletedDate = LocalDate.ofEpochDay(last);
+        stats.recentDays = recent;
+        stats.currentStreak = history.runEndingAt(size - 1);
+        stats.longestStreak = history.longestStreak();
+        stats.totalCompletions = size;
+        return stats;
+    }
+
+    /**
+     * Результат инкрементального учёта выполнения.
+     */
+    public enum Update {
+        // Статистика изменена
+        APPLIED,
+        // День уже отмечен, статистика не изменилась
+        UNCHANGED,
+        // Статистика не изменена: её нужно пересчитать по полной истории
+        REBUILD_REQUIRED
+    }
+
+    /**
+     * Учитывает выполнение привычки в указанную дату.
+     * <p>
+     * Отметка внутри окна в {@value #WINDOW_DAYS} дней применяется за O(1): серия, в которую попадает
+     * день, измеряется по битовой маске. Если эта серия доходит до края окна, её длина за пределами окна
+     * неизвестна; для дат старше окна неизвестно, не отмечены ли они раньше. В этих случаях статистика
+     * не меняется и возвращается {@link Update#REBUILD_REQUIRED}.
+     * </p>
+     *
+     * @param date дата выполнения
+     * @return результат учёта
+     */
+    public Update applyCompletion(LocalDate date) {
+        if (lastCompletedDate == null) {
+            lastCompletedDate = date;
+            recentDays = 1L;
+            currentStreak = 1;
+        } else {
+            long age = ChronoUnit.DAYS.between(date, lastCompletedDate);
+            if (age >= WINDOW_DAYS) {
+                return Update.REBUILD_REQUIRED;
+            }
+            if (age < 0) {
+                long shift = -age;
+                recentDays = shift >= WINDOW_DAYS ? 1L : (recentDays << shift) | 1L;
+                currentStreak = shift == 1 ? currentStreak + 1 : 1;
+                lastCompletedDate = date;
+            } else {
+                int day = (int) age;
+                long filled = recentDays | (1L << day);
+                if (filled == recentDays) {
+                    return Update.UNCHANGED;
+                }
+                // Длина серии с этим днём: отмеченные дни до него (более поздние) и после него (более ранние)
+                int older = Long.numberOfTrailingZeros(~(filled >>> day));
+                int newer = Long.numberOfLeadingZeros(~(filled << (WINDOW_DAYS - 1 - day)));
+                if (day + older == WINDOW_DAYS) {
+                    return Update.REBUILD_REQUIRED;
+                }
+                int run = older + newer - 1;
+                recentDays = filled;
+                if (newer == day + 1) {
+                    currentStreak = run;
+                }
+                longestStreak = Math.max(longestStreak, run);
+            }
+        }
+        totalCompletions++;
+        longestStreak = Math.max(longestStreak, currentStreak);
+        return Update.APPLIED;
+    }
+
+    /**
+     * Возвращает текущую серию на указанную дату.
+     * <p>
+     * Серия считается активной, если последнее выполнение было сегодня или вчера.
+     * </p>
+     *
+     * @param today текущая дата
+     * @return количество дней текущей серии
+     */
+    public int streakAsOf(LocalDate today) {
+        if (lastCompletedDate == null) {
+            return 0;
+        }
+        if (lastCompletedDate.equals(today) || lastCompletedDate.equals(today.minusDays(1))) {
+            return currentStreak;
+        }
+        return 0;
+    }
+
+    /**
+     * Считает количество дней с выполнением, начиная с указанной даты.
+     *
+     * @param from начальная дата окна (включительно)
+     * @return количество дней с выполнением в окне
+     */
+    public int completedDaysSince(LocalDate from) {
+        if (lastCompletedDate == null || lastCompletedDate.isBefore(from)) {
+            return 0;
+        }
+        long span = ChronoUnit.DAYS.between(from, lastCompletedDate);
+        if (span >= WINDOW_DAYS - 1) {
+            return Long.bitCount(recentDays);
+        }
+        return Long.bitCount(recentDays & ((1L << (span + 1)) - 1));
+    }
+
+    /**
+     * Вычисляет процент успешного выполнения за последние {@value #SUCCESS_RATE_DAYS} дней.
+     *
+     * @param today текущая дата
+     * @return процент успешного выполнения
+     */
+    public double successRateAsOf(LocalDate today) {
+        return (double) completedDaysSince(today.minusDays(SUCCESS_RATE_DAYS)) / SUCCESS_RATE_DAYS * 100;
+    }
+}
@@ -18,12 +18,17 @@ public class User {
     private String email;
     private String password;
     private String name;
+    private int version; // увеличивается при каждом изменении, для оптимистичной блокировки
 
     @Override
     public String toString() {
         return String.format("ID: %d, Имя: %s, Email: %s", id, name, email);
     }
 
+    public User(int id, String email, String password, String name) {
+        this(id, email, password, name, 0);
+    }
+
     public User(String email, String password, String name) {
         this.email = email;
         this.password = password;
@@ -0,0 +1,120 @@
+package ru.habittracker.report;
+
+import ru.habittracker.model.Habit;
+import ru.habittracker.view.TextFormatter;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+/**
+ * Потоковая запись отчёта о прогрессе в {@link Appendable}.
+ * <p>
+ * Каждая привычка собирается в переиспользуемом буфере и сразу передаётся получателю,
+ * поэтому в памяти находится одна строка отчёта, а не весь отчёт.
+ * Порядок вызовов: {@link #begin(int, LocalDate)}, {@link #entry(Habit, int, double)} для каждой привычки,
+ * {@link #end()}.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public class ProgressReportWriter {
+
+    private static final String CSV_HEADER = "habit_id,title,frequency,streak,success_rate\n";
+
+    private final Appendable out;
+    private final ReportFormat format;
+    private final StringBuilder line = new StringBuilder(256);
+    private int entries;
+
+    /**
+     * Создаёт запись отчёта.
+     *
+     * @param out    получатель отчёта
+     * @param format формат отчёта
+     */
+    public ProgressReportWriter(Appendable out, ReportFormat format) {
+        this.out = out;
+        this.format = format;
+    }
+
+    /**
+     * Записывает начало отчёта.
+     *
+     * @param userId ID пользователя
+     * @param date   дата, на которую рассчитан отчёт
+     * @throws IOException при ошибке записи
+     */
+    public void begin(int userId, LocalDate date) throws IOException {
+        switch (format) {
+            case TEXT -> out.append("Отчет о прогрессе:\n");
+            case CSV -> out.append(CSV_HEADER);
+            case JSON -> out.append("{\"userId\":").append(String.valueOf(userId))
+                    .append(",\"date\":\"").append(date.toString()).append("\",\"habits\":[");
+        }
+    }
+
+    /**
+     * Записывает раздел отчёта по одной привычке.
+     *
+     * @param habit       привычка
+     * @param streak      текущая серия в днях
+     * @param successRate процент успеха за последний месяц
+     * @throws IOException при ошибке записи
+     */
+    public void entry(Habit habit, int streak, double successRate) throws IOException {
+        line.setLength(0);
+        switch (format) {
+            case TEXT -> TextFormatter.appendReportEntry(line, habit, streak, successRate);
+            case CSV -> {
+                line.append(habit.getId()).append(',');
+                TextFormatter.appendCsv(line, habit.getTitle());
+                line.append(',').append(habit.getFrequency()).append(',').append(streak).append(',');
+                appendRate(line, successRate);
+                line.append('\n');
+            }
+            case JSON -> {
+                if (entries > 0) {
+                    line.append(',');
+                }
+                line.append("{\"habitId\":").append(habit.getId()).append(",\"title\":");
+                TextFormatter.appendJson(line, habit.getTitle());
+                line.append(",\"frequency\":").append(habit.getFrequency())
+                        .append(",\"streak\":").append(streak)
+                        .append(",\"successRate\":");
+                appendRate(line, successRate);
+                line.append('}');
+            }
+        }
+        out.append(line);
+        entries++;
+    }
+
+    /**
+     * Записывает окончание отчёта.
+     *
+     * @throws IOException при ошибке записи
+     */
+    public void end() throws IOException {
+        if (format == ReportFormat.JSON) {
+            out.append("]}\n");
+        }
+    }
+
+    /**
+     * Возвращает количество записанных привычек.
+     *
+     * @return количество привычек
+     */
+    public int getEntries() {
+        return entries;
+    }
+
+    private void appendRate(StringBuilder out, double successRate) {
+        if (Double.isFinite(successRate) && Math.abs(successRate) < 1e15) {
+            TextFormatter.appendDecimal(out, successRate, '.');
+        } else if (format == ReportFormat.JSON) {
+            out.append("null");
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package ru.habittracker.report;
+
+import ru.habittracker.model.Habit;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Кэш рассчитанной статистики отчёта о прогрессе по пользователю и дате.
+ * <p>
+ * Для каждого пользователя хранится статистика отчёта на одну дату: серии и процент успеха привычек
+ * в порядке отчёта. Запись на другую дату считается промахом и заменяется. Отметки выполнения и изменения
+ * привычек удаляют запись их владельца; обратный индекс привычка → пользователь позволяет сделать это
+ * по ID привычки без обхода кэша.
+ * </p>
+ * <p>
+ * Чтобы инвалидация во время расчёта не оставила в кэше устаревшую запись, перед расчётом берётся
+ * метка {@link #stamp()}, а {@link #put(int, Entry, long)} отбрасывает запись, если после метки
+ * данные пользователя инвалидировались. Для проверки кэш помнит последние {@value #TRACKED_INVALIDATIONS}
+ * инвалидаций; запись с более старой меткой также отбрасывается.
+ * </p>
+ * <p>
+ * Размер ограничен оценкой занимаемой памяти: при превышении вытесняются записи, к которым дольше всего
+ * не обращались. Кэш можно сохранить в файл и загрузить после перезапуска; записи прошлых дней
+ * при загрузке пропускаются. Методы синхронизированы, кэш общий для консоли и HTTP API.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public class ReportCache {
+
+    // Сколько последних инвалидаций пользователей помнит кэш для проверки меток
+    public static final int TRACKED_INVALIDATIONS = 1024;
+
+    private static final int FILE_MAGIC = 0x52435031;
+    // Оценка памяти: заголовки записи, массивов, узлов карт и индекса
+    private static final long ENTRY_OVERHEAD_BYTES = 160;
+    private static final long BYTES_PER_HABIT = 4 + 4 + 8 + 48;
+
+    private final long maxBytes;
+    private final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Integer, Integer> ownerByHabit = new HashMap<>();
+    // Пользователь → номер его последней инвалидации, в порядке инвалидаций
+    private final LinkedHashMap<Integer, Long> invalidatedAt = new LinkedHashMap<>();
+    private long generation;
+    // Номер последней инвалидации, которую нельзя отнести к пользователю, или самой новой забытой
+    private long unattributedAt;
+    private long footprintBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Создаёт кэш с ограничением памяти.
+     *
+     * @param maxBytes предельная оценка занимаемой памяти в байтах; 0 — кэш отключён
+     */
+    public ReportCache(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Размер кэша не может быть отрицательным");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Возвращает статистику отчёта пользователя, если она рассчитана на указанную дату для тех же привычек.
+     *
+     * @param userId ID пользователя
+     * @param date   дата отчёта
+     * @param habits привычки отчёта в порядке вывода
+     * @return статистика или null при промахе
+     */
+    public synchronized Entry get(int userId, LocalDate date, List<Habit> habits) {
+        Entry entry = entries.get(userId);
+        if (entry != null && entry.epochDay() == date.toEpochDay() && entry.matches(habits)) {
+            hits++;
+            return entry;
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * Возвращает метку для записи, расчёт которой начинается.
+     *
+     * @return метка для {@link #put(int, Entry, long)}
+     */
+    public synchronized long stamp() {
+        return generation;
+    }
+
+    /**
+     * Сохраняет статистику отчёта, рассчитанную после получения метки, если с тех пор данные
+     * пользователя не инвалидировались.
+     *
+     * @param userId ID пользователя
+     * @param entry  статистика отчёта
+     * @param stamp  метка, полученная {@link #stamp()} до начала расчёта
+     * @return true, если запись сохранена
+     */
+    public synchronized boolean put(int userId, Entry entry, long stamp) {
+        if (unattributedAt > stamp || invalidatedAt.getOrDefault(userId, 0L) > stamp) {
+            return false;
+        }
+        put(userId, entry);
+        return true;
+    }
+
+    /**
+     * Сохраняет статистику отчёта пользователя, вытесняя давно не использованные записи.
+     *
+     * @param userId ID пользователя
+     * @param entry  статистика отчёта
+     */
+    public synchronized void put(int userId, Entry entry) {
+        remove(userId);
+        long size = entry.footprint();
+        if (size > maxBytes) {
+            return;
+        }
+        entries.put(userId, entry);
+        for (int habitId : entry.habitIds()) {
+            ownerByHabit.put(habitId, userId);
+        }
+        footprintBytes += size;
+
+        Iterator<Map.Entry<Integer, Entry>> eldest = entries.entrySet().iterator();
+        while (footprintBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<Integer, Entry> evicted = eldest.next();
+            eldest.remove();
+            forget(evicted.getValue());
+            evictions++;
+        }
+    }
+
+    /**
+     * Удаляет статистику отчёта пользователя.
+     *
+     * @param userId ID пользователя
+     */
+    public synchronized void invalidateUser(int userId) {
+        remove(userId);
+        invalidated(userId);
+    }
+
+    /**
+     * Удаляет статистику отчётов владельцев указанных привычек.
+     *
+     * @param habitIds ID привычек
+     */
+    public synchronized void invalidateHabits(Collection<Integer> habitIds) {
+        boolean unattributed = false;
+        for (Integer habitId : habitIds) {
+            Integer owner = ownerByHabit.get(habitId);
+            if (owner != null) {
+                remove(owner);
+                invalidated(owner);
+            } else {
+                // Владелец неизвестен: отбрасываются все рассчитываемые сейчас записи
+                unattributed = true;
+            }
+        }
+        if (unattributed) {
+            unattributedAt = ++generation;
+        }
+    }
+
+    /**
+     * Удаляет все записи кэша.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        ownerByHabit.clear();
+        footprintBytes = 0;
+        invalidatedAt.clear();
+        unattributedAt = ++generation;
+    }
+
+    /**
+     * Возвращает долю попаданий среди обращений.
+     *
+     * @return доля попаданий от 0 до 1; 0, если обращений не было
+     */
+    public synchronized double getHitRatio() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Возвращает количество попаданий.
+     *
+     * @return количество попаданий
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Возвращает количество промахов.
+     *
+     * @return количество промахов
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Возвращает количество вытесненных записей.
+     *
+     * @return количество вытеснений
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Возвращает оценку памяти, занятой записями кэша.
+     *
+     * @return размер в байтах
+     */
+    public synchronized long getFootprintBytes() {
+        return footprintBytes;
+    }
+
+    /**
+     * Возвращает количество пользователей в кэше.
+     *
+     * @return количество записей
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Сохраняет записи кэша в файл, заменяя его атомарно.
+     *
+     * @param file путь к файлу
+     * @throws IOException при ошибке записи
+     */
+    public synchronized void save(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(entries.size());
+                // От давно не использованных к недавним, чтобы загрузка восстановила порядок вытеснения
+                for (Map.Entry<Integer, Entry> item : entries.entrySet()) {
+                    Entry entry = item.getValue();
+                    out.writeInt(item.getKey());
+                    out.writeInt(entry.epochDay());
+                    out.writeInt(entry.habitIds().length);
+                    for (int i = 0; i < entry.habitIds().length; i++) {
+                        out.writeInt(entry.habitIds()[i]);
+                        out.writeInt(entry.streaks()[i]);
+                        out.writeDouble(entry.successRates()[i]);
+                    }
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Загружает записи из файла, сохранённого {@link #save(Path)}; записи до указанной даты пропускаются.
+     *
+     * @param file  путь к файлу
+     * @param today текущая дата
+     * @return количество загруженных записей; 0, если файла нет
+     * @throws IOException при ошибке чтения или неверном формате файла
+     */
+    public synchronized int load(Path file, LocalDate today) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        int loaded = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC) {
+                throw new IOException("Неверный формат файла кэша отчётов " + file);
+            }
+            int count = in.readInt();
+            for (int n = 0; n < count; n++) {
+                int userId = in.readInt();
+                int epochDay = in.readInt();
+                int habits = in.readInt();
+                if (habits < 0) {
+                    throw new IOException("Неверный формат файла кэша отчётов " + file);
+                }
+                int[] habitIds = new int[habits];
+                int[] streaks = new int[habits];
+                double[] successRates = new double[habits];
+                for (int i = 0; i < habits; i++) {
+                    habitIds[i] = in.readInt();
+                    streaks[i] = in.readInt();
+                    successRates[i] = in.readDouble();
+                }
+                if (epochDay >= today.toEpochDay()) {
+                    put(userId, new Entry(epochDay, habitIds, streaks, successRates));
+                    loaded++;
+                }
+            }
+        }
+        return loaded;
+    }
+
+    private void remove(int userId) {
+        Entry removed = entries.remove(userId);
+        if (removed != null) {
+            forget(removed);
+        }
+    }
+
+    private void invalidated(int userId) {
+        invalidatedAt.remove(userId);
+        invalidatedAt.put(userId, ++generation);
+        if (invalidatedAt.size() > TRACKED_INVALIDATIONS) {
+            Iterator<Map.Entry<Integer, Long>> eldest = invalidatedAt.entrySet().iterator();
+            unattributedAt = Math.max(unattributedAt, eldest.next().getValue());
+            eldest.remove();
+        }
+    }
+
+    private void forget(Entry entry) {
+        footprintBytes -= entry.footprint();
+        for (int habitId : entry.habitIds()) {
+            ownerByHabit.remove(habitId);
+        }
+    }
+
+    /**
+     * Статистика отчёта пользователя на одну дату; массивы упорядочены как привычки в отчёте.
+     *
+     * @param epochDay     дата отчёта как номер дня эпохи
+     * @param habitIds     ID привычек
+     * @param streaks      текущие серии
+     * @param successRates проценты успеха
+     */
+    public record Entry(int epochDay, int[] habitIds, int[] streaks, double[] successRates) {
+
+        /**
+         * Проверяет, что статистика рассчитана для тех же привычек в том же порядке.
+         *
+         * @param habits привычки отчёта
+         * @return true, если ID привычек совпадают
+         */
+        public boolean matches(List<Habit> habits) {
+            if (habits.size() != habitIds.length) {
+                return false;
+            }
+            for (int i = 0; i < habitIds.length; i++) {
+                if (habits.get(i).getId() != habitIds[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        long footprint() {
+            return ENTRY_OVERHEAD_BYTES + habitIds.length * BYTES_PER_HABIT;
+        }
+    }
+}
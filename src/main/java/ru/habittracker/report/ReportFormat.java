@@ -0,0 +1,68 @@
+package ru.habittracker.report;
+
+import java.util.Locale;
+
+/**
+ * Формат отчёта о прогрессе.
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public enum ReportFormat {
+    /**
+     * Текст для чтения человеком, как в консоли.
+     */
+    TEXT("text/plain", "txt"),
+    /**
+     * CSV с заголовком, одна строка на привычку (RFC 4180).
+     */
+    CSV("text/csv", "csv"),
+    /**
+     * JSON-объект со списком привычек.
+     */
+    JSON("application/json", "json");
+
+    private final String contentType;
+    private final String extension;
+
+    ReportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    /**
+     * Возвращает MIME-тип формата.
+     *
+     * @return MIME-тип
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Возвращает расширение файла отчёта.
+     *
+     * @return расширение без точки
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Разбирает формат без учёта регистра.
+     *
+     * @param value название формата; пустая строка или null — текст
+     * @return формат
+     * @throws IllegalArgumentException если формат неизвестен
+     */
+    public static ReportFormat parse(String value) {
+        if (value == null || value.isBlank()) {
+            return TEXT;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Неизвестный формат отчёта: " + value);
+        }
+    }
+}
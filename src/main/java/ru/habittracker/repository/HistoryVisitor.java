@@ -0,0 +1,32 @@
+package ru.habittracker.repository;
+
+import ru.habittracker.model.Habit;
+
+/**
+ * Получатель потока истории пользователя при выгрузке.
+ * <p>
+ * Репозиторий вызывает {@link #habit(Habit)} для каждой привычки, а затем {@link #record(int, int, boolean)}
+ * для каждой её записи в порядке даты. Данные передаются по мере чтения и не накапливаются в памяти.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public interface HistoryVisitor {
+
+    /**
+     * Начало данных привычки.
+     *
+     * @param habit привычка
+     */
+    void habit(Habit habit);
+
+    /**
+     * Запись о выполнении текущей привычки.
+     *
+     * @param recordId  ID записи
+     * @param epochDay  дата как номер дня эпохи
+     * @param completed статус выполнения
+     */
+    void record(int recordId, int epochDay, boolean completed);
+}
@@ -1,10 +1,16 @@
 package ru.habittracker.repository;
 
+import ru.habittracker.model.BackfillPattern;
+import ru.habittracker.model.CompletionHistory;
+import ru.habittracker.model.CompletionResult;
 import ru.habittracker.model.HabitRecord;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalInt;
 
 /**
  * Интерфейс для репозитория записей привычек.
@@ -15,6 +21,7 @@ import java.util.Optional;
  * Связанные классы:
  * <ul>
  *     <li>{@link HabitRecord}</li>
+ *     <li>{@link CompletionHistory}</li>
  * </ul>
  * </p>
  *
@@ -30,6 +37,55 @@ public interface IHabitRecordRepository {
      */
     Optional<HabitRecord> save(HabitRecord record);
 
+    /**
+     * Сохраняет запись о выполнении привычки и в той же транзакции обновляет её статистику.
+     *
+     * @param record объект записи для сохранения
+     * @return сохранённый объект записи с установленным ID
+     */
+    Optional<HabitRecord> saveCompletion(HabitRecord record);
+
+    /**
+     * Отмечает выполнение нескольких привычек пользователя за дату одной транзакцией
+     * и обновляет их статистику.
+     * <p>
+     * Привычки, не принадлежащие пользователю, не отмечаются. Повторная отметка того же дня
+     * не создаёт новую запись.
+     * </p>
+     *
+     * @param userId   ID пользователя
+     * @param habitIds ID привычек без повторов
+     * @param date     дата выполнения
+     * @return результат по каждой привычке в порядке {@code habitIds}
+     */
+    Map<Integer, CompletionResult> saveCompletions(int userId, Collection<Integer> habitIds, LocalDate date);
+
+    /**
+     * Отмечает выполнение привычки пользователя за каждый день периода, подходящий под шаблон,
+     * и пересчитывает её статистику в той же транзакции.
+     *
+     * @param userId  ID пользователя
+     * @param habitId ID привычки
+     * @param from    первый день периода
+     * @param to      последний день периода включительно
+     * @param pattern дни недели для отметки
+     * @return количество новых отметок или пустой результат, если привычка не найдена у пользователя
+     */
+    OptionalInt saveCompletionRange(int userId, int habitId, LocalDate from, LocalDate to, BackfillPattern pattern);
+
+    /**
+     * Сохраняет пакет записей без обновления статистики.
+     * <p>
+     * Запись на дату, за которую у привычки уже есть запись, заменяет её статус, поэтому повторное
+     * сохранение того же пакета не создаёт дубликатов. Пакет должен содержать не больше одной записи
+     * на привычку и дату.
+     * </p>
+     *
+     * @param records записи
+     * @return количество сохранённых записей
+     */
+    int saveAll(List<HabitRecord> records);
+
     /**
      * Находит запись о выполнении привычки по ID.
      *
@@ -46,6 +102,14 @@ public interface IHabitRecordRepository {
      */
     List<HabitRecord> findByHabitId(int habitId);
 
+    /**
+     * Загружает дни выполнения привычки в компактном виде для расчёта статистики.
+     *
+     * @param habitId ID привычки
+     * @return история выполнения (пустая, если выполнений нет)
+     */
+    CompletionHistory findCompletionHistory(int habitId);
+
     /**
      * Находит записи о выполнении привычек пользователя за определённую дату.
      *
@@ -55,6 +119,16 @@ public interface IHabitRecordRepository {
      */
     List<HabitRecord> findByUserIdAndDate(int userId, LocalDate date);
 
+    /**
+     * Передаёт все привычки пользователя и их записи получателю по мере чтения, не загружая историю в память.
+     * Привычки идут в порядке ID, записи каждой привычки — в порядке даты.
+     *
+     * @param userId  ID пользователя
+     * @param visitor получатель истории
+     * @return true, если история прочитана полностью
+     */
+    boolean streamUserHistory(int userId, HistoryVisitor visitor);
+
     /**
      * Удаляет запись о выполнении привычки по ID.
      *
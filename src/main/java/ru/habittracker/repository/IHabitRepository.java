@@ -65,10 +65,11 @@ public interface IHabitRepository {
     List<Habit> findByUserIdAndFrequency(int userId, int frequency);
 
     /**
-     * Обновляет информацию о привычке.
+     * Обновляет название, описание и частоту привычки, если её версия совпадает с версией в объекте.
+     * При успешном обновлении объекту присваивается новая версия.
      *
-     * @param habit объект привычки с обновлёнными данными
-     * @return true, если обновление прошло успешно
+     * @param habit объект привычки с обновлёнными данными и прочитанной версией
+     * @return true, если обновление прошло успешно; false, если привычка не найдена или уже изменена
      */
     boolean update(Habit habit);
 
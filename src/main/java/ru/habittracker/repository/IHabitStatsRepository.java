@@ -0,0 +1,47 @@
+package ru.habittracker.repository;
+
+import ru.habittracker.model.HabitStats;
+
+import java.util.Optional;
+
+/**
+ * Интерфейс для репозитория агрегированной статистики привычек.
+ * <p>
+ * Определяет методы для поиска статистики по первичному ключу и её пересчёта из истории выполнений.
+ * Инкрементальное обновление выполняется вместе с сохранением записи в
+ * {@link IHabitRecordRepository#saveCompletion(ru.habittracker.model.HabitRecord)}.
+ * </p>
+ * <p>
+ * Связанные классы:
+ * <ul>
+ *     <li>{@link HabitStats}</li>
+ * </ul>
+ * </p>
+ *
+ * author
+ *     Ekaterina Ishchuk
+ */
+public interface IHabitStatsRepository {
+    /**
+     * Находит статистику привычки по ID привычки.
+     *
+     * @param habitId ID привычки
+     * @return объект статистики или пустой Optional, если привычка ещё не выполнялась
+     */
+    Optional<HabitStats> findByHabitId(int habitId);
+
+    /**
+     * Пересчитывает статистику одной привычки из всех её записей.
+     *
+     * @param habitId ID привычки
+     * @return пересчитанная статистика или пустой Optional, если выполнений нет
+     */
+    Optional<HabitStats> rebuild(int habitId);
+
+    /**
+     * Пересчитывает статистику всех привычек из всех записей о выполнении.
+     *
+     * @return количество привычек, для которых сохранена статистика
+     */
+    int rebuildAll();
+}
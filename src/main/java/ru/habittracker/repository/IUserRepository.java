@@ -45,10 +45,11 @@ public interface IUserRepository {
     Optional<User> findById(int userId);
 
     /**
-     * Обновляет информацию о пользователе.
+     * Обновляет информацию о пользователе, если его версия совпадает с версией в объекте.
+     * При успешном обновлении объекту присваивается новая версия.
      *
-     * @param user объект пользователя с обновлёнными данными
-     * @return true, если обновление прошло успешно
+     * @param user объект пользователя с обновлёнными данными и прочитанной версией
+     * @return true, если обновление прошло успешно; false, если пользователь не найден или уже изменён
      */
     boolean update(User user);
 
@@ -2,29 +2,125 @@ package ru.habittracker.repository;
 
 public class SqlConstants {
     // Запросы для HabitRecord
-    public static final String INSERT_HABIT_RECORD = "INSERT INTO habit_records (id, habit_id, date, completed) VALUES (nextval('habit_record_seq'), ?, ?, ?) RETURNING id";
+    public static final String INSERT_HABIT_RECORD = "INSERT INTO habit_records (id, habit_id, date, completed) VALUES (nextval('habit_record_seq'), ?, ?, ?) " +
+            "ON CONFLICT (habit_id, date) DO UPDATE SET completed = EXCLUDED.completed RETURNING id";
+    // Одна строка на привычку из массива; возвращает только вставленные и ставшие выполненными записи
+    public static final String UPSERT_HABIT_COMPLETIONS = "INSERT INTO habit_records (id, habit_id, date, completed) " +
+            "SELECT nextval('habit_record_seq'), t.habit_id, ?::date, TRUE FROM unnest(?::integer[]) AS t(habit_id) " +
+            "ON CONFLICT (habit_id, date) DO UPDATE SET completed = TRUE WHERE NOT habit_records.completed " +
+            "RETURNING habit_id";
+    // Дни периода генерируются на сервере; владелец проверяется в том же запросе, маска дней — бит (ISODOW - 1)
+    public static final String BACKFILL_HABIT_COMPLETIONS = "WITH owned AS (SELECT id FROM habits WHERE id = ? AND user_id = ?), " +
+            "inserted AS (INSERT INTO habit_records (id, habit_id, date, completed) " +
+            "SELECT nextval('habit_record_seq'), owned.id, d::date, TRUE " +
+            "FROM owned, generate_series(?::date, ?::date, INTERVAL '1 day') AS d " +
+            "WHERE (?::integer & (1 << (EXTRACT(ISODOW FROM d)::integer - 1))) <> 0 " +
+            "ON CONFLICT (habit_id, date) DO UPDATE SET completed = TRUE WHERE NOT habit_records.completed " +
+            "RETURNING 1) " +
+            "SELECT (SELECT COUNT(*) FROM owned) AS owned, (SELECT COUNT(*) FROM inserted) AS marked";
+    // Для пакетной записи: без RETURNING, который нельзя использовать в executeBatch
+    public static final String UPSERT_HABIT_RECORD = "INSERT INTO habit_records (id, habit_id, date, completed) VALUES (nextval('habit_record_seq'), ?, ?, ?) " +
+            "ON CONFLICT (habit_id, date) DO UPDATE SET completed = EXCLUDED.completed";
     public static final String SELECT_HABIT_RECORD_BY_ID = "SELECT id, habit_id, date, completed FROM habit_records WHERE id = ?";
     public static final String SELECT_HABIT_RECORDS_BY_HABIT_ID = "SELECT id, habit_id, date, completed FROM habit_records WHERE habit_id = ?";
     public static final String SELECT_HABIT_RECORDS_BY_USER_ID_AND_DATE = "SELECT hr.id, hr.habit_id, hr.date, hr.completed " +
             "FROM habit_records hr " +
             "JOIN habits h ON hr.habit_id = h.id " +
             "WHERE h.user_id = ? AND hr.date = ?";
-    public static final String DELETE_HABIT_RECORD_BY_ID = "DELETE FROM habit_records WHERE id = ?";
+    // Привычки пользователя вместе с записями одной выборкой; привычка без записей даёт строку с NULL в полях записи
+    public static final String SELECT_USER_HISTORY = "SELECT h.id, h.title, h.description, h.frequency, h.creation_date, " +
+            "hr.id AS record_id, hr.date - DATE '1970-01-01' AS epoch_day, hr.completed " +
+            "FROM habits h LEFT JOIN habit_records hr ON hr.habit_id = h.id " +
+            "WHERE h.user_id = ? ORDER BY h.id, hr.date";
+    public static final String DELETE_HABIT_RECORD_BY_ID = "DELETE FROM habit_records WHERE id = ? RETURNING habit_id, completed";
 
     // Запросы для Habit
     public static final String INSERT_HABIT = "INSERT INTO habits (id, title, description, frequency, user_id, creation_date) " +
             "VALUES (nextval('habit_seq'), ?, ?, ?, ?, ?) RETURNING id";
-    public static final String SELECT_HABIT_BY_ID_AND_USER_ID = "SELECT id, title, description, frequency, user_id, creation_date FROM habits WHERE id = ? AND user_id = ?";
-    public static final String SELECT_HABITS_BY_USER_ID = "SELECT id, title, description, frequency, user_id, creation_date FROM habits WHERE user_id = ?";
-    public static final String SELECT_HABITS_BY_USER_ID_AND_CREATION_DATE = "SELECT id, title, description, frequency, user_id, creation_date FROM habits WHERE user_id = ? AND creation_date = ?";
-    public static final String SELECT_HABITS_BY_USER_ID_AND_FREQUENCY = "SELECT id, title, description, frequency, user_id, creation_date FROM habits WHERE user_id = ? AND frequency = ?";
-    public static final String UPDATE_HABIT = "UPDATE habits SET title = ?, description = ?, frequency = ? WHERE id = ? AND user_id = ?";
+    public static final String SELECT_HABIT_BY_ID_AND_USER_ID = "SELECT id, title, description, frequency, user_id, creation_date, version FROM habits WHERE id = ? AND user_id = ?";
+    public static final String SELECT_HABITS_BY_USER_ID = "SELECT id, title, description, frequency, user_id, creation_date, version FROM habits WHERE user_id = ?";
+    public static final String SELECT_HABITS_BY_USER_ID_AND_CREATION_DATE = "SELECT id, title, description, frequency, user_id, creation_date, version FROM habits WHERE user_id = ? AND creation_date = ?";
+    public static final String SELECT_HABITS_BY_USER_ID_AND_FREQUENCY = "SELECT id, title, description, frequency, user_id, creation_date, version FROM habits WHERE user_id = ? AND frequency = ?";
+    public static final String UPDATE_HABIT = "UPDATE habits SET title = ?, description = ?, frequency = ?, version = version + 1 " +
+            "WHERE id = ? AND user_id = ? AND version = ? RETURNING version";
     public static final String DELETE_HABIT_BY_ID_AND_USER_ID = "DELETE FROM habits WHERE id = ? AND user_id = ?";
+    public static final String SELECT_HABIT_IDS_BY_USER_ID_AND_IDS = "SELECT id FROM habits WHERE user_id = ? AND id = ANY(?::integer[])";
 
     // Запросы для User
     public static final String INSERT_USER = "INSERT INTO users (id, email, password, name) VALUES (nextval('user_seq'), ?, ?, ?) RETURNING id";
-    public static final String SELECT_USER_BY_EMAIL = "SELECT id, email, password, name FROM users WHERE email = ?";
-    public static final String SELECT_USER_BY_ID = "SELECT id, email, password, name FROM users WHERE id = ?";
-    public static final String UPDATE_USER = "UPDATE users SET email = ?, password = ?, name = ? WHERE id = ?";
+    public static final String SELECT_USER_BY_EMAIL = "SELECT id, email, password, name, version FROM users WHERE email = ?";
+    public static final String SELECT_USER_BY_ID = "SELECT id, email, password, name, version FROM users WHERE id = ?";
+    public static final String UPDATE_USER = "UPDATE users SET email = ?, password = ?, name = ?, version = version + 1 " +
+            "WHERE id = ? AND version = ? RETURNING version";
     public static final String DELETE_USER_BY_ID = "DELETE FROM users WHERE id = ?";
+
+    // Запросы для HabitStats
+    public static final String SELECT_HABIT_STATS_BY_HABIT_ID = "SELECT habit_id, current_streak, longest_streak, last_completed_date, total_completions, recent_days " +
+            "FROM habit_stats WHERE habit_id = ?";
+    public static final String SELECT_HABIT_STATS_BY_HABIT_ID_FOR_UPDATE = SELECT_HABIT_STATS_BY_HABIT_ID + " FOR UPDATE";
+    public static final String INSERT_HABIT_STATS_IF_ABSENT = "INSERT INTO habit_stats (habit_id) VALUES (?) ON CONFLICT (habit_id) DO NOTHING";
+    public static final String INSERT_HABIT_STATS_IF_ABSENT_BULK = "INSERT INTO habit_stats (habit_id) SELECT unnest(?::integer[]) " +
+            "ON CONFLICT (habit_id) DO NOTHING";
+    // Блокировки берутся в порядке habit_id, чтобы параллельные массовые отметки не взаимоблокировались
+    public static final String SELECT_HABIT_STATS_BY_HABIT_IDS_FOR_UPDATE = "SELECT habit_id, current_streak, longest_streak, last_completed_date, " +
+            "total_completions, recent_days FROM habit_stats WHERE habit_id = ANY(?::integer[]) ORDER BY habit_id FOR UPDATE";
+    public static final String UPSERT_HABIT_STATS = "INSERT INTO habit_stats (habit_id, current_streak, longest_streak, last_completed_date, total_completions, recent_days) " +
+            "VALUES (?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (habit_id) DO UPDATE SET current_streak = EXCLUDED.current_streak, longest_streak = EXCLUDED.longest_streak, " +
+            "last_completed_date = EXCLUDED.last_completed_date, total_completions = EXCLUDED.total_completions, recent_days = EXCLUDED.recent_days";
+    public static final String DELETE_ALL_HABIT_STATS = "DELETE FROM habit_stats";
+    public static final String DELETE_HABIT_STATS_BY_HABIT_ID = "DELETE FROM habit_stats WHERE habit_id = ?";
+    // Дни выполнения как номер дня эпохи (int), без создания java.sql.Date на каждую строку
+    public static final String SELECT_COMPLETED_EPOCH_DAYS_BY_HABIT_ID = "SELECT date - DATE '1970-01-01' AS epoch_day " +
+            "FROM habit_records WHERE habit_id = ? AND completed ORDER BY date";
+    public static final String SELECT_ALL_COMPLETED_EPOCH_DAYS = "SELECT habit_id, date - DATE '1970-01-01' AS epoch_day " +
+            "FROM habit_records WHERE completed ORDER BY habit_id, date";
+
+    // Запросы для аналитики
+    public static final String SELECT_ALL_HABIT_DIMENSIONS = "SELECT id, user_id, frequency FROM habits";
+    public static final String SELECT_HABIT_RECORDS_AFTER_ID = "SELECT id, habit_id, date - DATE '1970-01-01' AS epoch_day, completed " +
+            "FROM habit_records WHERE id > ? ORDER BY id";
+
+    // Запросы для шардирования
+    public static final String SELECT_NEXT_USER_ID = "SELECT nextval('user_seq')";
+    public static final String INSERT_USER_WITH_ID = "INSERT INTO users (id, email, password, name, version) VALUES (?, ?, ?, ?, ?) ON CONFLICT (id) DO NOTHING";
+    public static final String INSERT_HABIT_WITH_ID = "INSERT INTO habits (id, title, description, frequency, user_id, creation_date, version) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?) ON CONFLICT (id) DO NOTHING";
+    public static final String INSERT_HABIT_RECORD_WITH_ID = "INSERT INTO habit_records (id, habit_id, date, completed) " +
+            "VALUES (?, ?, ?, ?) ON CONFLICT (id) DO NOTHING";
+    public static final String SELECT_HABIT_OWNER_BY_ID = "SELECT user_id FROM habits WHERE id = ?";
+    public static final String SELECT_ALL_USER_IDS = "SELECT id FROM users ORDER BY id";
+    public static final String SELECT_USER_FOR_MOVE = "SELECT id, email, password, name, version FROM users WHERE id = ? FOR UPDATE";
+    public static final String SELECT_HABITS_FOR_MOVE = "SELECT id, title, description, frequency, user_id, creation_date, version FROM habits WHERE user_id = ?";
+    public static final String SELECT_HABIT_RECORDS_FOR_MOVE = "SELECT hr.id, hr.habit_id, hr.date, hr.completed " +
+            "FROM habit_records hr JOIN habits h ON hr.habit_id = h.id WHERE h.user_id = ?";
+    public static final String SELECT_HABIT_STATS_FOR_MOVE = "SELECT s.habit_id, s.current_streak, s.longest_streak, s.last_completed_date, " +
+            "s.total_completions, s.recent_days FROM habit_stats s JOIN habits h ON s.habit_id = h.id WHERE h.user_id = ?";
+    public static final String DELETE_HABIT_RECORDS_BY_USER_ID = "DELETE FROM habit_records WHERE habit_id IN (SELECT id FROM habits WHERE user_id = ?)";
+    public static final String DELETE_HABITS_BY_USER_ID = "DELETE FROM habits WHERE user_id = ?";
+    // Запросы для ночных отчётов: страницы пользователей по ключу и данные всей страницы одним запросом
+    public static final String SELECT_USER_IDS_AFTER = "SELECT id FROM users WHERE id > ? ORDER BY id LIMIT ?";
+    public static final String SELECT_REPORT_HABITS_BY_USER_IDS = "SELECT h.id, h.user_id, h.title, h.description, h.frequency, " +
+            "h.creation_date, s.habit_id AS stats_habit_id, s.current_streak, s.longest_streak, s.last_completed_date, " +
+            "s.total_completions, s.recent_days FROM habits h LEFT JOIN habit_stats s ON s.habit_id = h.id " +
+            "WHERE h.user_id = ANY(?::integer[]) ORDER BY h.user_id, h.id";
+    public static final String SELECT_COMPLETED_EPOCH_DAYS_BY_HABIT_IDS = "SELECT habit_id, date - DATE '1970-01-01' AS epoch_day " +
+            "FROM habit_records WHERE habit_id = ANY(?::integer[]) AND completed ORDER BY habit_id, date";
+    // Запросы для резервного копирования; имена таблиц, колонок и последовательностей — только из констант DatabaseBackupJob
+    public static final String EXPORT_SNAPSHOT = "SELECT pg_export_snapshot()";
+    public static final String SET_TRANSACTION_SNAPSHOT_FORMAT = "SET TRANSACTION SNAPSHOT '%s'";
+    public static final String SELECT_KEY_RANGE_FORMAT = "SELECT MIN(%1$s), MAX(%1$s) FROM %2$s";
+    public static final String COPY_OUT_BINARY_FORMAT = "COPY (SELECT %1$s FROM %2$s WHERE %3$s BETWEEN %4$d AND %5$d) " +
+            "TO STDOUT WITH (FORMAT binary)";
+    public static final String COPY_IN_BINARY_FORMAT = "COPY %s (%s) FROM STDIN WITH (FORMAT binary)";
+    public static final String TRUNCATE_BACKUP_TABLES = "TRUNCATE users, habits, habit_records, habit_stats";
+    public static final String SELECT_BACKUP_TABLES_NOT_EMPTY = "SELECT EXISTS (SELECT 1 FROM users) " +
+            "OR EXISTS (SELECT 1 FROM habits) OR EXISTS (SELECT 1 FROM habit_records) OR EXISTS (SELECT 1 FROM habit_stats)";
+    public static final String SELECT_SEQUENCE_NEXT_FORMAT = "SELECT CASE WHEN is_called THEN last_value + 1 ELSE last_value END FROM %s";
+    // Следующее значение не меньше сохранённого и больше максимального ID таблицы
+    public static final String RESET_SEQUENCE_FORMAT = "SELECT setval('%s', GREATEST(?, (SELECT COALESCE(MAX(id), 0) + 1 FROM %s)), false)";
+
+    // Имена таблиц и последовательностей подставляются только из констант ShardedConnectionManager
+    public static final String SELECT_MAX_ID_FORMAT = "SELECT COALESCE(MAX(id), 0) FROM %s";
+    public static final String ALTER_SEQUENCE_FORMAT = "ALTER SEQUENCE %s INCREMENT BY %d RESTART WITH %d";
 }
@@ -1,15 +1,25 @@
 package ru.habittracker.repository.impl;
 
 import ru.habittracker.config.DatabaseConnectionManager;
+import ru.habittracker.config.DatabaseWorkload;
+import ru.habittracker.model.BackfillPattern;
+import ru.habittracker.model.CompletionHistory;
+import ru.habittracker.model.CompletionResult;
+import ru.habittracker.model.Habit;
 import ru.habittracker.model.HabitRecord;
+import ru.habittracker.repository.HistoryVisitor;
 import ru.habittracker.repository.IHabitRecordRepository;
 import ru.habittracker.repository.SqlConstants;
 
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalInt;
 
 /**
  * Репозиторий для работы с таблицей "habit_records" в базе данных.
@@ -22,6 +32,9 @@ import java.util.Optional;
  */
 public class HabitRecordRepository implements IHabitRecordRepository {
 
+    // Размер порции строк, читаемой курсором при выгрузке истории
+    private static final int HISTORY_FETCH_SIZE = 1000;
+
     private final DatabaseConnectionManager dbManager;
 
     /**
@@ -35,21 +48,24 @@ public class HabitRecordRepository implements IHabitRecordRepository {
 
     @Override
     public Optional<HabitRecord> save(HabitRecord record) {
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(SqlConstants.INSERT_HABIT_RECORD)) {
-
-            stmt.setInt(1, record.getHabitId());
-            stmt.setDate(2, Date.valueOf(record.getDate()));
-            stmt.setBoolean(3, record.isCompleted());
+        try {
+            // INSERT ... ON CONFLICT: повтор после обрыва соединения не создаёт вторую запись
+            return dbManager.execute(DatabaseWorkload.WRITE, true, conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(SqlConstants.INSERT_HABIT_RECORD)) {
+                    stmt.setInt(1, record.getHabitId());
+                    stmt.setDate(2, Date.valueOf(record.getDate()));
+                    stmt.setBoolean(3, record.isCompleted());
 
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    int id = rs.getInt(1);
-                    record.setId(id);
-                    return Optional.of(record);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (rs.next()) {
+                            int id = rs.getInt(1);
+                            record.setId(id);
+                            return Optional.of(record);
+                        }
+                    }
                 }
-            }
-
+                return Optional.empty();
+            });
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -57,22 +73,39 @@ public class HabitRecordRepository implements IHabitRecordRepository {
     }
 
     @Override
-    public Optional<HabitRecord> findById(int id) {
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(SqlConstants.SELECT_HABIT_RECORD_BY_ID)) {
+    public Optional<HabitRecord> saveCompletion(HabitRecord record) {
+        try {
+            // Повтор после обрыва соединения безопасен: запись обновляется через ON CONFLICT, а уже учтённый
+            // день не меняет статистику (HabitStats.Update.UNCHANGED)
+            return dbManager.execute(DatabaseWorkload.WRITE, true, conn -> {
+                conn.setAutoCommit(false);
+                try (PreparedStatement stmt = conn.prepareStatement(SqlConstants.INSERT_HABIT_RECORD)) {
 
-            stmt.setInt(1, id);
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    HabitRecord record = new HabitRecord(
-                            rs.getInt("id"),
-                            rs.getInt("habit_id"),
-                            rs.getDate("date").toLocalDate(),
-                            rs.getBoolean("completed")
-                    );
+                    stmt.setInt(1, record.getHabitId());
+                    stmt.setDate(2, Date.valueOf(record.getDate()));
+                    stmt.setBoolean(3, record.isCompleted());
+
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (!rs.next()) {
+                            conn.rollback();
+                            return Optional.empty();
+                        }
+                        record.setId(rs.getInt(1));
+                    }
+
+                    if (record.isCompleted()) {
+                        HabitStatsRepository.applyCompletion(conn, record.getHabitId(), record.getDate());
+                    } else {
+                        // Запись могла заменить ранее отмеченное выполнение этого дня
+                        HabitStatsRepository.rebuild(conn, record.getHabitId());
+                    }
+                    conn.commit();
                     return Optional.of(record);
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
                 }
-            }
+            });
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -80,66 +113,316 @@ public class HabitRecordRepository implements IHabitRecordRepository {
     }
 
     @Override
-    public List<HabitRecord> findByHabitId(int habitId) {
-        List<HabitRecord> records = new ArrayList<>();
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(SqlConstants.SELECT_HABIT_RECORDS_BY_HABIT_ID)) {
+    public Map<Integer, CompletionResult> saveCompletions(int userId, Collection<Integer> habitIds, LocalDate date) {
+        Map<Integer, CompletionResult> results = new LinkedHashMap<>();
+        for (Integer habitId : habitIds) {
+            results.put(habitId, CompletionResult.NOT_FOUND);
+        }
+        if (habitIds.isEmpty()) {
+            return results;
+        }
 
-            stmt.setInt(1, habitId);
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    HabitRecord record = new HabitRecord(
-                            rs.getInt("id"),
-                            rs.getInt("habit_id"),
-                            rs.getDate("date").toLocalDate(),
-                            rs.getBoolean("completed")
-                    );
-                    records.add(record);
+        try {
+            return dbManager.execute(DatabaseWorkload.WRITE, true, conn -> {
+                conn.setAutoCommit(false);
+                try (PreparedStatement owned = conn.prepareStatement(SqlConstants.SELECT_HABIT_IDS_BY_USER_ID_AND_IDS);
+                     PreparedStatement upsert = conn.prepareStatement(SqlConstants.UPSERT_HABIT_COMPLETIONS)) {
+
+                    // Проверка владельца всех привычек одним запросом
+                    owned.setInt(1, userId);
+                    owned.setArray(2, conn.createArrayOf("integer", habitIds.toArray()));
+                    List<Integer> ownedIds = new ArrayList<>();
+                    try (ResultSet rs = owned.executeQuery()) {
+                        while (rs.next()) {
+                            ownedIds.add(rs.getInt(1));
+                        }
+                    }
+                    if (ownedIds.isEmpty()) {
+                        conn.rollback();
+                        return results;
+                    }
+                    ownedIds.sort(null);
+                    for (Integer habitId : ownedIds) {
+                        results.put(habitId, CompletionResult.ALREADY_MARKED);
+                    }
+
+                    // Все записи одним INSERT ... ON CONFLICT
+                    upsert.setDate(1, Date.valueOf(date));
+                    upsert.setArray(2, conn.createArrayOf("integer", ownedIds.toArray()));
+                    List<Integer> markedIds = new ArrayList<>();
+                    try (ResultSet rs = upsert.executeQuery()) {
+                        while (rs.next()) {
+                            markedIds.add(rs.getInt(1));
+                        }
+                    }
+                    for (Integer habitId : markedIds) {
+                        results.put(habitId, CompletionResult.MARKED);
+                    }
+
+                    if (!markedIds.isEmpty()) {
+                        HabitStatsRepository.applyCompletions(conn, conn.createArrayOf("integer", markedIds.toArray()), date);
+                    }
+                    conn.commit();
+                    return results;
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
                 }
-            }
+            });
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return new LinkedHashMap<>();
+    }
 
+    @Override
+    public OptionalInt saveCompletionRange(int userId, int habitId, LocalDate from, LocalDate to, BackfillPattern pattern) {
+        try {
+            return dbManager.execute(DatabaseWorkload.WRITE, true, conn -> {
+                conn.setAutoCommit(false);
+                try (PreparedStatement stmt = conn.prepareStatement(SqlConstants.BACKFILL_HABIT_COMPLETIONS)) {
+                    stmt.setInt(1, habitId);
+                    stmt.setInt(2, userId);
+                    stmt.setDate(3, Date.valueOf(from));
+                    stmt.setDate(4, Date.valueOf(to));
+                    stmt.setInt(5, pattern.getDaysMask());
+
+                    int marked;
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (!rs.next() || rs.getInt("owned") == 0) {
+                            conn.rollback();
+                            return OptionalInt.empty();
+                        }
+                        marked = rs.getInt("marked");
+                    }
+
+                    // Отметки задним числом могут быть старше окна инкрементальной статистики, поэтому она пересчитывается
+                    if (marked > 0) {
+                        HabitStatsRepository.rebuild(conn, habitId);
+                    }
+                    conn.commit();
+                    return OptionalInt.of(marked);
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            });
         } catch (SQLException e) {
             e.printStackTrace();
         }
-        return records;
+        return OptionalInt.empty();
     }
 
     @Override
-    public List<HabitRecord> findByUserIdAndDate(int userId, LocalDate date) {
-        List<HabitRecord> records = new ArrayList<>();
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(SqlConstants.SELECT_HABIT_RECORDS_BY_USER_ID_AND_DATE)) {
+    public int saveAll(List<HabitRecord> records) {
+        if (records.isEmpty()) {
+            return 0;
+        }
+        try {
+            return dbManager.execute(DatabaseWorkload.WRITE, true, conn -> {
+                conn.setAutoCommit(false);
+                try (PreparedStatement stmt = conn.prepareStatement(SqlConstants.UPSERT_HABIT_RECORD)) {
+                    for (HabitRecord record : records) {
+                        stmt.setInt(1, record.getHabitId());
+                        stmt.setDate(2, Date.valueOf(record.getDate()));
+                        stmt.setBoolean(3, record.isCompleted());
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                    conn.commit();
+                    return records.size();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            });
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return 0;
+    }
 
-            stmt.setInt(1, userId);
-            stmt.setDate(2, Date.valueOf(date));
+    @Override
+    public Optional<HabitRecord> findById(int id) {
+        try {
+            return dbManager.execute(DatabaseWorkload.READ, true, conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(SqlConstants.SELECT_HABIT_RECORD_BY_ID)) {
+                    stmt.setInt(1, id);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (rs.next()) {
+                            HabitRecord record = new HabitRecord(
+                                    rs.getInt("id"),
+                                    rs.getInt("habit_id"),
+                                    rs.getDate("date").toLocalDate(),
+                                    rs.getBoolean("completed")
+                            );
+                            return Optional.of(record);
+                        }
+                    }
+                }
+                return Optional.empty();
+            });
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public List<HabitRecord> findByHabitId(int habitId) {
+        try {
+            return dbManager.execute(DatabaseWorkload.READ, true, conn -> {
+                List<HabitRecord> records = new ArrayList<>();
+                try (PreparedStatement stmt = conn.prepareStatement(SqlConstants.SELECT_HABIT_RECORDS_BY_HABIT_ID)) {
+                    stmt.setInt(1, habitId);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            HabitRecord record = new HabitRecord(
+                                    rs.getInt("id"),
+                                    rs.getInt("habit_id"),
+                                    rs.getDate("date").toLocalDate(),
+                                    rs.getBoolean("completed")
+                            );
+                            records.add(record);
+                        }
+                    }
+                }
+                return records;
+            });
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return new ArrayList<>();
+    }
+
+    @Override
+    public CompletionHistory findCompletionHistory(int habitId) {
+        try {
+            return dbManager.execute(DatabaseWorkload.REPORT, true, conn -> findCompletionHistory(conn, habitId));
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return CompletionHistory.empty();
+    }
 
+    /**
+     * Загружает дни выполнения привычки через уже открытое соединение.
+     * <p>
+     * Дата читается как номер дня эпохи через {@code getInt}, поэтому на строку
+     * не создаются объекты {@link Date} и {@link LocalDate}.
+     * </p>
+     *
+     * @param conn    соединение с базой данных
+     * @param habitId ID привычки
+     * @return история выполнения
+     * @throws SQLException при ошибке выполнения запроса
+     */
+    static CompletionHistory findCompletionHistory(Connection conn, int habitId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(SqlConstants.SELECT_COMPLETED_EPOCH_DAYS_BY_HABIT_ID)) {
+            stmt.setInt(1, habitId);
+            CompletionHistory.Builder history = new CompletionHistory.Builder();
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    HabitRecord record = new HabitRecord(
-                            rs.getInt("id"),
-                            rs.getInt("habit_id"),
-                            rs.getDate("date").toLocalDate(),
-                            rs.getBoolean("completed")
-                    );
-                    records.add(record);
+                    history.add(rs.getInt(1));
                 }
             }
+            return history.build();
+        }
+    }
+
+    @Override
+    public List<HabitRecord> findByUserIdAndDate(int userId, LocalDate date) {
+        try {
+            return dbManager.execute(DatabaseWorkload.READ, true, conn -> {
+                List<HabitRecord> records = new ArrayList<>();
+                try (PreparedStatement stmt = conn.prepareStatement(SqlConstants.SELECT_HABIT_RECORDS_BY_USER_ID_AND_DATE)) {
+                    stmt.setInt(1, userId);
+                    stmt.setDate(2, Date.valueOf(date));
 
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            HabitRecord record = new HabitRecord(
+                                    rs.getInt("id"),
+                                    rs.getInt("habit_id"),
+                                    rs.getDate("date").toLocalDate(),
+                                    rs.getBoolean("completed")
+                            );
+                            records.add(record);
+                        }
+                    }
+                }
+                return records;
+            });
         } catch (SQLException e) {
             e.printStackTrace();
         }
-        return records;
+        return new ArrayList<>();
     }
 
     @Override
-    public boolean delete(int id) {
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(SqlConstants.DELETE_HABIT_RECORD_BY_ID)) {
-
-            stmt.setInt(1, id);
-            int rowsDeleted = stmt.executeUpdate();
-            return rowsDeleted > 0;
+    public boolean streamUserHistory(int userId, HistoryVisitor visitor) {
+        try {
+            // Посетитель уже получил часть истории, поэтому чтение не повторяется
+            return dbManager.execute(DatabaseWorkload.REPORT, false, conn -> {
+                // Курсор на сервере работает только внутри транзакции; без него драйвер прочитает всю выборку в память
+                conn.setAutoCommit(false);
+                conn.setReadOnly(true);
+                try (PreparedStatement stmt = conn.prepareStatement(SqlConstants.SELECT_USER_HISTORY)) {
+                    stmt.setInt(1, userId);
+                    stmt.setFetchSize(HISTORY_FETCH_SIZE);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        int currentHabitId = 0;
+                        while (rs.next()) {
+                            int habitId = rs.getInt(1);
+                            if (habitId != currentHabitId) {
+                                Date creationDate = rs.getDate(5);
+                                visitor.habit(new Habit(habitId, rs.getString(2), rs.getString(3), rs.getInt(4), userId,
+                                        creationDate != null ? creationDate.toLocalDate() : null));
+                                currentHabitId = habitId;
+                            }
+                            int recordId = rs.getInt(6);
+                            if (!rs.wasNull()) {
+                                visitor.record(recordId, rs.getInt(7), rs.getBoolean(8));
+                            }
+                        }
+                    }
+                    conn.commit();
+                    return true;
+                } catch (SQLException | RuntimeException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            });
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
 
+    @Override
+    public boolean delete(int id) {
+        try {
+            return dbManager.execute(DatabaseWorkload.WRITE, false, conn -> {
+                conn.setAutoCommit(false);
+                try (PreparedStatement stmt = conn.prepareStatement(SqlConstants.DELETE_HABIT_RECORD_BY_ID)) {
+                    stmt.setInt(1, id);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (!rs.next()) {
+                            conn.rollback();
+                            return false;
+                        }
+                        // Удалённое выполнение могло входить в серию, поэтому статистика пересчитывается
+                        if (rs.getBoolean("completed")) {
+                            HabitStatsRepository.rebuild(conn, rs.getInt("habit_id"));
+                        }
+                    }
+                    conn.commit();
+                    return true;
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            });
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -1,6 +1,7 @@
 package ru.habittracker.repository.impl;
 
 import ru.habittracker.config.DatabaseConnectionManager;
+import ru.habittracker.config.DatabaseWorkload;
 import ru.habittracker.model.Habit;
 import ru.habittracker.repository.IHabitRepository;
 import ru.habittracker.repository.SqlConstants;
@@ -34,23 +35,25 @@ public class HabitRepository implements IHabitRepository {
 
     @Override
     public Habit save(Habit habit) {
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(SqlConstants.INSERT_HABIT)) {
-
-            stmt.setString(1, habit.getTitle());
-            stmt.setString(2, habit.getDescription());
-            stmt.setInt(3, habit.getFrequency());
-            stmt.setInt(4, habit.getUserId());
-            stmt.setDate(5, Date.valueOf(habit.getCreationDate()));
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    int id = rs.getInt("id");
-                    habit.setId(id);
-                    return habit;
+        try {
+            return dbManager.execute(DatabaseWorkload.WRITE, false, conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(SqlConstants.INSERT_HABIT)) {
+                    stmt.setString(1, habit.getTitle());
+                    stmt.setString(2, habit.getDescription());
+                    stmt.setInt(3, habit.getFrequency());
+                    stmt.setInt(4, habit.getUserId());
+                    stmt.setDate(5, Date.valueOf(habit.getCreationDate()));
+
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (rs.next()) {
+                            int id = rs.getInt("id");
+                            habit.setId(id);
+                            return habit;
+                        }
+                    }
                 }
-            }
-
+                return null;
+            });
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -59,25 +62,20 @@ public class HabitRepository implements IHabitRepository {
 
     @Override
     public Habit findByIdAndUserId(int id, int userId) {
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(SqlConstants.SELECT_HABIT_BY_ID_AND_USER_ID)) {
-
-            stmt.setInt(1, id);
-            stmt.setInt(2, userId);
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return new Habit(
-                            rs.getInt("id"),
-                            rs.getString("title"),
-                            rs.getString("description"),
-                            rs.getInt("frequency"),
-                            rs.getInt("user_id"),
-                            rs.getDate("creation_date").toLocalDate()
-                    );
+        try {
+            return dbManager.execute(DatabaseWorkload.READ, true, conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(SqlConstants.SELECT_HABIT_BY_ID_AND_USER_ID)) {
+                    stmt.setInt(1, id);
+                    stmt.setInt(2, userId);
+
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (rs.next()) {
+                            return mapHabit(rs);
+                        }
+                    }
                 }
-            }
-
+                return null;
+            });
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -86,124 +84,110 @@ public class HabitRepository implements IHabitRepository {
 
     @Override
     public List<Habit> findByUserId(int userId) {
-        List<Habit> habits = new ArrayList<>();
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(SqlConstants.SELECT_HABITS_BY_USER_ID)) {
-
-            stmt.setInt(1, userId);
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    Habit habit = new Habit(
-                            rs.getInt("id"),
-                            rs.getString("title"),
-                            rs.getString("description"),
-                            rs.getInt("frequency"),
-                            rs.getInt("user_id"),
-                            rs.getDate("creation_date").toLocalDate()
-                    );
-                    habits.add(habit);
-                }
-            }
-
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return habits;
+        return findHabits(SqlConstants.SELECT_HABITS_BY_USER_ID, stmt -> stmt.setInt(1, userId));
     }
 
     @Override
     public List<Habit> findByUserIdAndCreationDate(int userId, LocalDate date) {
-        List<Habit> habits = new ArrayList<>();
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(SqlConstants.SELECT_HABITS_BY_USER_ID_AND_CREATION_DATE)) {
-
+        return findHabits(SqlConstants.SELECT_HABITS_BY_USER_ID_AND_CREATION_DATE, stmt -> {
             stmt.setInt(1, userId);
             stmt.setDate(2, Date.valueOf(date));
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    Habit habit = new Habit(
-                            rs.getInt("id"),
-                            rs.getString("title"),
-                            rs.getString("description"),
-                            rs.getInt("frequency"),
-                            rs.getInt("user_id"),
-                            rs.getDate("creation_date").toLocalDate()
-                    );
-                    habits.add(habit);
-                }
-            }
-
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return habits;
+        });
     }
 
     @Override
     public List<Habit> findByUserIdAndFrequency(int userId, int frequency) {
-        List<Habit> habits = new ArrayList<>();
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(SqlConstants.SELECT_HABITS_BY_USER_ID_AND_FREQUENCY)) {
-
+        return findHabits(SqlConstants.SELECT_HABITS_BY_USER_ID_AND_FREQUENCY, stmt -> {
             stmt.setInt(1, userId);
             stmt.setInt(2, frequency);
+        });
+    }
 
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    Habit habit = new Habit(
-                            rs.getInt("id"),
-                            rs.getString("title"),
-                            rs.getString("description"),
-                            rs.getInt("frequency"),
-                            rs.getInt("user_id"),
-                            rs.getDate("creation_date").toLocalDate()
-                    );
-                    habits.add(habit);
+    @Override
+    public boolean update(Habit habit) {
+        try {
+            // Не идемпотентно: после обрыва связи повтор уже применённого обновления увидел бы чужую версию
+            return dbManager.execute(DatabaseWorkload.WRITE, false, conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(SqlConstants.UPDATE_HABIT)) {
+                    stmt.setString(1, habit.getTitle());
+                    stmt.setString(2, habit.getDescription());
+                    stmt.setInt(3, habit.getFrequency());
+                    stmt.setInt(4, habit.getId());
+                    stmt.setInt(5, habit.getUserId());
+                    stmt.setInt(6, habit.getVersion());
+
+                    // Ни одной строки: привычки нет или её уже изменили с другого устройства
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (rs.next()) {
+                            habit.setVersion(rs.getInt(1));
+                            return true;
+                        }
+                    }
                 }
-            }
-
+                return false;
+            });
         } catch (SQLException e) {
             e.printStackTrace();
         }
-        return habits;
+        return false;
     }
 
     @Override
-    public boolean update(Habit habit) {
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(SqlConstants.UPDATE_HABIT)) {
-
-            stmt.setString(1, habit.getTitle());
-            stmt.setString(2, habit.getDescription());
-            stmt.setInt(3, habit.getFrequency());
-            stmt.setInt(4, habit.getId());
-            stmt.setInt(5, habit.getUserId());
-
-            int rowsUpdated = stmt.executeUpdate();
-            return rowsUpdated > 0;
-
+    public boolean deleteByIdAndUserId(int id, int userId) {
+        try {
+            return dbManager.execute(DatabaseWorkload.WRITE, false, conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(SqlConstants.DELETE_HABIT_BY_ID_AND_USER_ID)) {
+                    stmt.setInt(1, id);
+                    stmt.setInt(2, userId);
+
+                    int rowsDeleted = stmt.executeUpdate();
+                    return rowsDeleted > 0;
+                }
+            });
         } catch (SQLException e) {
             e.printStackTrace();
         }
         return false;
     }
 
-    @Override
-    public boolean deleteByIdAndUserId(int id, int userId) {
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(SqlConstants.DELETE_HABIT_BY_ID_AND_USER_ID)) {
-
-            stmt.setInt(1, id);
-            stmt.setInt(2, userId);
-
-            int rowsDeleted = stmt.executeUpdate();
-            return rowsDeleted > 0;
-
+    private List<Habit> findHabits(String sql, StatementBinder binder) {
+        try {
+            return dbManager.execute(DatabaseWorkload.READ, true, conn -> {
+                List<Habit> habits = new ArrayList<>();
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    binder.bind(stmt);
+
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            habits.add(mapHabit(rs));
+                        }
+                    }
+                }
+                return habits;
+            });
         } catch (SQLException e) {
             e.printStackTrace();
         }
-        return false;
+        return new ArrayList<>();
+    }
+
+    private static Habit mapHabit(ResultSet rs) throws SQLException {
+        return new Habit(
+                rs.getInt("id"),
+                rs.getString("title"),
+                rs.getString("description"),
+                rs.getInt("frequency"),
+                rs.getInt("user_id"),
+                rs.getDate("creation_date").toLocalDate(),
+                rs.getInt("version")
+        );
+    }
+
+    /**
+     * Установка параметров запроса.
+     */
+    @FunctionalInterface
+    private interface StatementBinder {
+        void bind(PreparedStatement stmt) throws SQLException;
     }
 }
@@ -0,0 +1,263 @@
+package ru.habittracker.repository.impl;
+
+import ru.habittracker.config.DatabaseConnectionManager;
+import ru.habittracker.config.DatabaseWorkload;
+import ru.habittracker.model.CompletionHistory;
+import ru.habittracker.model.HabitStats;
+import ru.habittracker.repository.IHabitStatsRepository;
+import ru.habittracker.repository.SqlConstants;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Репозиторий для работы с таблицей "habit_stats" в базе данных.
+ * <p>
+ * Предоставляет методы для поиска статистики привычек и её пересчёта из таблицы "habit_records".
+ * </p>
+ * <p>
+ * author
+ * Ekaterina Ishchuk
+ */
+public class HabitStatsRepository implements IHabitStatsRepository {
+
+    private static final int REBUILD_FETCH_SIZE = 1000;
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    private final DatabaseConnectionManager dbManager;
+
+    /**
+     * Конструктор репозитория статистики привычек.
+     *
+     * @param dbManager менеджер подключения к базе данных
+     */
+    public HabitStatsRepository(DatabaseConnectionManager dbManager) {
+        this.dbManager = dbManager;
+    }
+
+    @Override
+    public Optional<HabitStats> findByHabitId(int habitId) {
+        try {
+            return dbManager.execute(DatabaseWorkload.READ, true, conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(SqlConstants.SELECT_HABIT_STATS_BY_HABIT_ID)) {
+                    stmt.setInt(1, habitId);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (rs.next()) {
+                            return Optional.of(mapRow(rs));
+                        }
+                    }
+                }
+                return Optional.empty();
+            });
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<HabitStats> rebuild(int habitId) {
+        try {
+            return dbManager.execute(DatabaseWorkload.REPORT, true, conn -> {
+                conn.setAutoCommit(false);
+                try {
+                    Optional<HabitStats> stats = rebuild(conn, habitId);
+                    conn.commit();
+                    return stats;
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            });
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public int rebuildAll() {
+        try {
+            return dbManager.execute(DatabaseWorkload.REPORT, true, conn -> {
+                conn.setAutoCommit(false);
+                try (Statement delete = conn.createStatement();
+                     PreparedStatement select = conn.prepareStatement(SqlConstants.SELECT_ALL_COMPLETED_EPOCH_DAYS);
+                     PreparedStatement upsert = conn.prepareStatement(SqlConstants.UPSERT_HABIT_STATS)) {
+
+                    delete.executeUpdate(SqlConstants.DELETE_ALL_HABIT_STATS);
+
+                    int rebuilt = 0;
+                    int pending = 0;
+                    int currentHabitId = 0;
+                    CompletionHistory.Builder history = new CompletionHistory.Builder(1024);
+                    select.setFetchSize(REBUILD_FETCH_SIZE);
+                    try (ResultSet rs = select.executeQuery()) {
+                        while (rs.next()) {
+                            int habitId = rs.getInt(1);
+                            if (habitId != currentHabitId) {
+                                if (currentHabitId != 0) {
+                                    addUpsert(upsert, HabitStats.of(currentHabitId, history.build()));
+                                    rebuilt++;
+                                    if (++pending == REBUILD_BATCH_SIZE) {
+                                        upsert.executeBatch();
+                                        pending = 0;
+                                    }
+                                }
+                                currentHabitId = habitId;
+                                history.reset();
+                            }
+                            history.add(rs.getInt(2));
+                        }
+                    }
+                    if (currentHabitId != 0) {
+                        addUpsert(upsert, HabitStats.of(currentHabitId, history.build()));
+                        rebuilt++;
+                    }
+                    upsert.executeBatch();
+                    conn.commit();
+                    return rebuilt;
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            });
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return 0;
+    }
+
+    /**
+     * Пересчитывает статистику привычки в рамках уже открытой транзакции.
+     *
+     * @param conn    соединение с открытой транзакцией
+     * @param habitId ID привычки
+     * @return пересчитанная статистика или пустой Optional, если выполнений нет
+     * @throws SQLException при ошибке выполнения запроса
+     */
+    static Optional<HabitStats> rebuild(Connection conn, int habitId) throws SQLException {
+        HabitStats stats = HabitStats.of(habitId, HabitRecordRepository.findCompletionHistory(conn, habitId));
+
+        if (stats.getTotalCompletions() == 0) {
+            try (PreparedStatement delete = conn.prepareStatement(SqlConstants.DELETE_HABIT_STATS_BY_HABIT_ID)) {
+                delete.setInt(1, habitId);
+                delete.executeUpdate();
+            }
+            return Optional.empty();
+        }
+
+        try (PreparedStatement upsert = conn.prepareStatement(SqlConstants.UPSERT_HABIT_STATS)) {
+            addUpsert(upsert, stats);
+            upsert.executeBatch();
+        }
+        return Optional.of(stats);
+    }
+
+    /**
+     * Инкрементально учитывает выполнение привычки в рамках уже открытой транзакции.
+     * <p>
+     * Строка статистики блокируется через SELECT ... FOR UPDATE, поэтому параллельные
+     * отметки одной привычки применяются последовательно. Если отметку нельзя учесть
+     * инкрементально, статистика пересчитывается по истории привычки.
+     * </p>
+     *
+     * @param conn    соединение с открытой транзакцией
+     * @param habitId ID привычки
+     * @param date    дата выполнения
+     * @throws SQLException при ошибке выполнения запроса
+     */
+    static void applyCompletion(Connection conn, int habitId, LocalDate date) throws SQLException {
+        try (PreparedStatement insert = conn.prepareStatement(SqlConstants.INSERT_HABIT_STATS_IF_ABSENT);
+             PreparedStatement select = conn.prepareStatement(SqlConstants.SELECT_HABIT_STATS_BY_HABIT_ID_FOR_UPDATE);
+             PreparedStatement upsert = conn.prepareStatement(SqlConstants.UPSERT_HABIT_STATS)) {
+
+            insert.setInt(1, habitId);
+            insert.executeUpdate();
+
+            select.setInt(1, habitId);
+            HabitStats stats;
+            try (ResultSet rs = select.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("Статистика привычки " + habitId + " не найдена");
+                }
+                stats = mapRow(rs);
+            }
+
+            HabitStats.Update update = stats.applyCompletion(date);
+            if (update == HabitStats.Update.APPLIED) {
+                addUpsert(upsert, stats);
+                upsert.executeBatch();
+            } else if (update == HabitStats.Update.REBUILD_REQUIRED) {
+                rebuild(conn, habitId);
+            }
+        }
+    }
+
+    /**
+     * Учитывает выполнение нескольких привычек в указанную дату в рамках транзакции соединения.
+     * <p>
+     * Строки статистики блокируются одним запросом в порядке ID привычки, изменения записываются одним пакетом.
+     * </p>
+     *
+     * @param conn     соединение с открытой транзакцией
+     * @param habitIds массив ID привычек
+     * @param date     дата выполнения
+     * @throws SQLException при ошибке выполнения запроса
+     */
+    static void applyCompletions(Connection conn, Array habitIds, LocalDate date) throws SQLException {
+        try (PreparedStatement insert = conn.prepareStatement(SqlConstants.INSERT_HABIT_STATS_IF_ABSENT_BULK);
+             PreparedStatement select = conn.prepareStatement(SqlConstants.SELECT_HABIT_STATS_BY_HABIT_IDS_FOR_UPDATE);
+             PreparedStatement upsert = conn.prepareStatement(SqlConstants.UPSERT_HABIT_STATS)) {
+
+            insert.setArray(1, habitIds);
+            insert.executeUpdate();
+
+            select.setArray(1, habitIds);
+            boolean changed = false;
+            List<Integer> rebuilt = new ArrayList<>();
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    HabitStats stats = mapRow(rs);
+                    HabitStats.Update update = stats.applyCompletion(date);
+                    if (update == HabitStats.Update.APPLIED) {
+                        addUpsert(upsert, stats);
+                        changed = true;
+                    } else if (update == HabitStats.Update.REBUILD_REQUIRED) {
+                        rebuilt.add(stats.getHabitId());
+                    }
+                }
+            }
+            if (changed) {
+                upsert.executeBatch();
+            }
+            for (Integer habitId : rebuilt) {
+                rebuild(conn, habitId);
+            }
+        }
+    }
+
+    private static void addUpsert(PreparedStatement upsert, HabitStats stats) throws SQLException {
+        upsert.setInt(1, stats.getHabitId());
+        upsert.setInt(2, stats.getCurrentStreak());
+        upsert.setInt(3, stats.getLongestStreak());
+        upsert.setDate(4, stats.getLastCompletedDate() != null ? Date.valueOf(stats.getLastCompletedDate()) : null);
+        upsert.setInt(5, stats.getTotalCompletions());
+        upsert.setLong(6, stats.getRecentDays());
+        upsert.addBatch();
+    }
+
+    private static HabitStats mapRow(ResultSet rs) throws SQLException {
+        Date lastCompleted = rs.getDate("last_completed_date");
+        return new HabitStats(
+                rs.getInt("habit_id"),
+                rs.getInt("current_streak"),
+                rs.getInt("longest_streak"),
+                lastCompleted != null ? lastCompleted.toLocalDate() : null,
+                rs.getInt("total_completions"),
+                rs.getLong("recent_days")
+        );
+    }
+}
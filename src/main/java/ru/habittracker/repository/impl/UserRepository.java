@@ -1,11 +1,11 @@
 package ru.habittracker.repository.impl;
 
 import ru.habittracker.config.DatabaseConnectionManager;
+import ru.habittracker.config.DatabaseWorkload;
 import ru.habittracker.model.User;
 import ru.habittracker.repository.IUserRepository;
 import ru.habittracker.repository.SqlConstants;
 
-import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -35,21 +35,23 @@ public class UserRepository implements IUserRepository {
 
     @Override
     public Optional<User> save(User user) {
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(SqlConstants.INSERT_USER)) {
-
-            stmt.setString(1, user.getEmail());
-            stmt.setString(2, user.getPassword());
-            stmt.setString(3, user.getName());
-            try (ResultSet rs = stmt.executeQuery()) {
-
-                if (rs.next()) {
-                    int id = rs.getInt("id");
-                    user.setId(id);
-                    return Optional.of(user);
+        try {
+            return dbManager.execute(DatabaseWorkload.WRITE, false, conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(SqlConstants.INSERT_USER)) {
+                    stmt.setString(1, user.getEmail());
+                    stmt.setString(2, user.getPassword());
+                    stmt.setString(3, user.getName());
+                    try (ResultSet rs = stmt.executeQuery()) {
+
+                        if (rs.next()) {
+                            int id = rs.getInt("id");
+                            user.setId(id);
+                            return Optional.of(user);
+                        }
+                    }
                 }
-            }
-
+                return Optional.<User>empty();
+            });
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -58,84 +60,90 @@ public class UserRepository implements IUserRepository {
 
     @Override
     public Optional<User> findByEmail(String email) {
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(SqlConstants.SELECT_USER_BY_EMAIL)) {
-
-            stmt.setString(1, email);
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    User user = new User(
-                            rs.getInt("id"),
-                            rs.getString("email"),
-                            rs.getString("password"),
-                            rs.getString("name")
-                    );
-                    return Optional.of(user);
-                }
-            }
-
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return Optional.empty();
+        return findUser(SqlConstants.SELECT_USER_BY_EMAIL, stmt -> stmt.setString(1, email));
     }
 
     @Override
     public Optional<User> findById(int userId) {
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(SqlConstants.SELECT_USER_BY_ID)) {
+        return findUser(SqlConstants.SELECT_USER_BY_ID, stmt -> stmt.setInt(1, userId));
+    }
 
-            stmt.setInt(1, userId);
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    User user = new User(
-                            rs.getInt("id"),
-                            rs.getString("email"),
-                            rs.getString("password"),
-                            rs.getString("name")
-                    );
-                    return Optional.of(user);
+    @Override
+    public boolean update(User user) {
+        try {
+            // Не идемпотентно: после обрыва связи повтор уже применённого обновления увидел бы чужую версию
+            return dbManager.execute(DatabaseWorkload.WRITE, false, conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(SqlConstants.UPDATE_USER)) {
+                    stmt.setString(1, user.getEmail());
+                    stmt.setString(2, user.getPassword());
+                    stmt.setString(3, user.getName());
+                    stmt.setInt(4, user.getId());
+                    stmt.setInt(5, user.getVersion());
+
+                    // Ни одной строки: пользователя нет или его уже изменили с другого устройства
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (rs.next()) {
+                            user.setVersion(rs.getInt(1));
+                            return true;
+                        }
+                    }
                 }
-            }
-
+                return false;
+            });
         } catch (SQLException e) {
             e.printStackTrace();
         }
-        return Optional.empty();
+        return false;
     }
 
     @Override
-    public boolean update(User user) {
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(SqlConstants.UPDATE_USER)) {
-
-            stmt.setString(1, user.getEmail());
-            stmt.setString(2, user.getPassword());
-            stmt.setString(3, user.getName());
-            stmt.setInt(4, user.getId());
-
-            int rowsUpdated = stmt.executeUpdate();
-            return rowsUpdated > 0;
+    public boolean delete(int userId) {
+        try {
+            return dbManager.execute(DatabaseWorkload.WRITE, false, conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(SqlConstants.DELETE_USER_BY_ID)) {
+                    stmt.setInt(1, userId);
 
+                    int rowsDeleted = stmt.executeUpdate();
+                    return rowsDeleted > 0;
+                }
+            });
         } catch (SQLException e) {
             e.printStackTrace();
         }
         return false;
     }
 
-    @Override
-    public boolean delete(int userId) {
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(SqlConstants.DELETE_USER_BY_ID)) {
-
-            stmt.setInt(1, userId);
-
-            int rowsDeleted = stmt.executeUpdate();
-            return rowsDeleted > 0;
-
+    private Optional<User> findUser(String sql, StatementBinder binder) {
+        try {
+            return dbManager.execute(DatabaseWorkload.READ, true, conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    binder.bind(stmt);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (rs.next()) {
+                            User user = new User(
+                                    rs.getInt("id"),
+                                    rs.getString("email"),
+                                    rs.getString("password"),
+                                    rs.getString("name"),
+                                    rs.getInt("version")
+                            );
+                            return Optional.of(user);
+                        }
+                    }
+                }
+                return Optional.<User>empty();
+            });
         } catch (SQLException e) {
             e.printStackTrace();
         }
-        return false;
+        return Optional.empty();
+    }
+
+    /**
+     * Установка параметров запроса.
+     */
+    @FunctionalInterface
+    private interface StatementBinder {
+        void bind(PreparedStatement stmt) throws SQLException;
     }
 }
@@ -0,0 +1,211 @@
+package ru.habittracker.repository.mapped;
+
+import ru.habittracker.model.BackfillPattern;
+import ru.habittracker.model.CompletionHistory;
+import ru.habittracker.model.CompletionResult;
+import ru.habittracker.model.Habit;
+import ru.habittracker.model.HabitRecord;
+import ru.habittracker.repository.HistoryVisitor;
+import ru.habittracker.repository.IHabitRecordRepository;
+import ru.habittracker.repository.IHabitRepository;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+
+/**
+ * Репозиторий записей о выполнении привычек поверх {@link MappedRecordLog}.
+ * <p>
+ * Записи хранятся в файлах, отображённых в память, без обращения к PostgreSQL.
+ * Привычки пользователя для поиска за дату берутся из {@link IHabitRepository}.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public class MappedHabitRecordRepository implements IHabitRecordRepository {
+
+    private final MappedRecordLog log;
+    private final IHabitRepository habitRepository;
+
+    /**
+     * Конструктор репозитория записей привычек.
+     *
+     * @param log             журнал записей
+     * @param habitRepository репозиторий привычек для поиска привычек пользователя
+     */
+    public MappedHabitRecordRepository(MappedRecordLog log, IHabitRepository habitRepository) {
+        this.log = log;
+        this.habitRepository = habitRepository;
+    }
+
+    @Override
+    public Optional<HabitRecord> save(HabitRecord record) {
+        return append(record, false);
+    }
+
+    @Override
+    public Optional<HabitRecord> saveCompletion(HabitRecord record) {
+        return append(record, true);
+    }
+
+    @Override
+    public Map<Integer, CompletionResult> saveCompletions(int userId, Collection<Integer> habitIds, LocalDate date) {
+        Set<Integer> owned = new HashSet<>();
+        for (Habit habit : habitRepository.findByUserId(userId)) {
+            owned.add(habit.getId());
+        }
+
+        long day = date.toEpochDay();
+        // Проверка и отметка под одной блокировкой: параллельная отметка не будет учтена дважды
+        return log.write(() -> {
+            Map<Integer, CompletionResult> results = new LinkedHashMap<>();
+            for (Integer habitId : habitIds) {
+                if (!owned.contains(habitId)) {
+                    results.put(habitId, CompletionResult.NOT_FOUND);
+                    continue;
+                }
+                boolean[] completed = new boolean[1];
+                log.scan(habitId, day, day, (id, recordHabitId, epochDay, recordCompleted) -> completed[0] |= recordCompleted);
+                if (completed[0]) {
+                    results.put(habitId, CompletionResult.ALREADY_MARKED);
+                } else if (append(new HabitRecord(habitId, date, true), true).isPresent()) {
+                    results.put(habitId, CompletionResult.MARKED);
+                }
+            }
+            return results;
+        });
+    }
+
+    @Override
+    public OptionalInt saveCompletionRange(int userId, int habitId, LocalDate from, LocalDate to, BackfillPattern pattern) {
+        Habit habit = habitRepository.findByIdAndUserId(habitId, userId);
+        if (habit == null) {
+            return OptionalInt.empty();
+        }
+
+        return log.write(() -> {
+            Set<Integer> completedDays = new HashSet<>();
+            log.scan(habitId, from.toEpochDay(), to.toEpochDay(), (id, recordHabitId, epochDay, completed) -> {
+                if (completed) {
+                    completedDays.add(epochDay);
+                }
+            });
+            int marked = 0;
+            for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+                if (pattern.matches(date) && !completedDays.contains((int) date.toEpochDay())
+                        && append(new HabitRecord(habitId, date, true), false).isPresent()) {
+                    marked++;
+                }
+            }
+            // Отметки задним числом могут быть старше окна инкрементальной статистики
+            if (marked > 0) {
+                log.rebuildStats(habitId);
+            }
+            return OptionalInt.of(marked);
+        });
+    }
+
+    @Override
+    public int saveAll(List<HabitRecord> records) {
+        int saved = 0;
+        for (HabitRecord record : records) {
+            if (append(record, false).isPresent()) {
+                saved++;
+            }
+        }
+        return saved;
+    }
+
+    @Override
+    public Optional<HabitRecord> findById(int id) {
+        List<HabitRecord> result = new ArrayList<>(1);
+        log.read(id, (recordId, habitId, epochDay, completed) -> result.add(toRecord(recordId, habitId, epochDay, completed)));
+        return result.stream().findFirst();
+    }
+
+    @Override
+    public List<HabitRecord> findByHabitId(int habitId) {
+        return findByHabitIdAndDateBetween(habitId, LocalDate.MIN, LocalDate.MAX);
+    }
+
+    /**
+     * Находит записи о выполнении привычки за период, упорядоченные по дате.
+     *
+     * @param habitId ID привычки
+     * @param from    начало периода (включительно)
+     * @param to      конец периода (включительно)
+     * @return список записей
+     */
+    public List<HabitRecord> findByHabitIdAndDateBetween(int habitId, LocalDate from, LocalDate to) {
+        List<HabitRecord> result = new ArrayList<>();
+        log.scan(habitId, from.toEpochDay(), to.toEpochDay(),
+                (id, recordHabitId, epochDay, completed) -> result.add(toRecord(id, recordHabitId, epochDay, completed)));
+        return result;
+    }
+
+    @Override
+    public CompletionHistory findCompletionHistory(int habitId) {
+        CompletionHistory.Builder history = new CompletionHistory.Builder();
+        log.scan(habitId, Integer.MIN_VALUE, Integer.MAX_VALUE, (id, recordHabitId, epochDay, completed) -> {
+            if (completed) {
+                history.add(epochDay);
+            }
+        });
+        return history.build();
+    }
+
+    @Override
+    public List<HabitRecord> findByUserIdAndDate(int userId, LocalDate date) {
+        List<HabitRecord> result = new ArrayList<>();
+        long day = date.toEpochDay();
+        for (Habit habit : habitRepository.findByUserId(userId)) {
+            log.scan(habit.getId(), day, day,
+                    (id, habitId, epochDay, completed) -> result.add(toRecord(id, habitId, epochDay, completed)));
+        }
+        return result;
+    }
+
+    @Override
+    public boolean streamUserHistory(int userId, HistoryVisitor visitor) {
+        List<Habit> habits = new ArrayList<>(habitRepository.findByUserId(userId));
+        habits.sort(Comparator.comparingInt(Habit::getId));
+        for (Habit habit : habits) {
+            visitor.habit(habit);
+            log.scan(habit.getId(), Integer.MIN_VALUE, Integer.MAX_VALUE,
+                    (id, habitId, epochDay, completed) -> visitor.record(id, epochDay, completed));
+        }
+        return true;
+    }
+
+    @Override
+    public boolean delete(int id) {
+        return log.delete(id);
+    }
+
+    private Optional<HabitRecord> append(HabitRecord record, boolean withStats) {
+        if (record.getDate() == null) {
+            return Optional.empty();
+        }
+        try {
+            record.setId(log.upsert(record.getHabitId(), record.getDate(), record.isCompleted(), withStats));
+            return Optional.of(record);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return Optional.empty();
+        }
+    }
+
+    private static HabitRecord toRecord(int id, int habitId, int epochDay, boolean completed) {
+        return new HabitRecord(id, habitId, LocalDate.ofEpochDay(epochDay), completed);
+    }
+}
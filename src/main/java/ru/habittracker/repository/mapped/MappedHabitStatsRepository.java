@@ -0,0 +1,44 @@
+package ru.habittracker.repository.mapped;
+
+import ru.habittracker.model.HabitStats;
+import ru.habittracker.repository.IHabitStatsRepository;
+
+import java.util.Optional;
+
+/**
+ * Репозиторий статистики привычек поверх {@link MappedRecordLog}.
+ * <p>
+ * Статистика обновляется журналом при сохранении выполнения и хранится в памяти.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public class MappedHabitStatsRepository implements IHabitStatsRepository {
+
+    private final MappedRecordLog log;
+
+    /**
+     * Конструктор репозитория статистики привычек.
+     *
+     * @param log журнал записей
+     */
+    public MappedHabitStatsRepository(MappedRecordLog log) {
+        this.log = log;
+    }
+
+    @Override
+    public Optional<HabitStats> findByHabitId(int habitId) {
+        return Optional.ofNullable(log.getStats(habitId));
+    }
+
+    @Override
+    public Optional<HabitStats> rebuild(int habitId) {
+        return Optional.ofNullable(log.rebuildStats(habitId));
+    }
+
+    @Override
+    public int rebuildAll() {
+        return log.rebuildAllStats();
+    }
+}
@@ -0,0 +1,701 @@
+package ru.habittracker.repository.mapped;
+
+import ru.habittracker.model.CompletionHistory;
+import ru.habittracker.model.HabitStats;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Журнал записей о выполнении привычек в файлах, отображённых в память.
+ * <p>
+ * Записи фиксированной длины добавляются в конец активного {@link RecordSegment}; заполненный
+ * сегмент закрывается для добавления и открывается новый. Для каждой привычки в памяти хранится
+ * индекс позиций её записей, упорядоченный по дате, поэтому чтение истории за период — это
+ * двоичный поиск и последовательный проход по отображённой памяти без копирования в буферы.
+ * Статистика привычек хранится в памяти и пересчитывается из журнала при открытии.
+ * </p>
+ * <p>
+ * Закрытые сегменты, в которых удалена большая часть записей, компактифицируются в фоне:
+ * живые записи переписываются во временный файл, который атомарно заменяет сегмент.
+ * Чтение выполняется под блокировкой чтения, изменения — под блокировкой записи.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public class MappedRecordLog implements Closeable {
+
+    public static final int DEFAULT_SEGMENT_CAPACITY = 1 << 16;
+
+    private static final String SEGMENT_PREFIX = "records-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private final Path directory;
+    private final int segmentCapacity;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final List<RecordSegment> segments = new ArrayList<>();
+    private final Map<Integer, RecordSegment> segmentsBySeq = new HashMap<>();
+    private final Map<Integer, HabitIndex> indexes = new HashMap<>();
+    private final Map<Integer, HabitStats> stats = new HashMap<>();
+
+    private int lastId;
+    private int lastSeq;
+    private ScheduledExecutorService maintenance;
+
+    private MappedRecordLog(Path directory, int segmentCapacity) {
+        this.directory = directory;
+        this.segmentCapacity = segmentCapacity;
+    }
+
+    /**
+     * Открывает журнал в каталоге, восстанавливая индексы и статистику из существующих сегментов.
+     *
+     * @param directory       каталог сегментов
+     * @param segmentCapacity количество записей в новом сегменте
+     * @return открытый журнал
+     * @throws IOException при ошибке чтения сегментов
+     */
+    public static MappedRecordLog open(Path directory, int segmentCapacity) throws IOException {
+        Files.createDirectories(directory);
+        MappedRecordLog log = new MappedRecordLog(directory, segmentCapacity);
+        log.load();
+        return log;
+    }
+
+    /**
+     * Запускает фоновую компактификацию и периодический сброс сегментов на диск.
+     *
+     * @param intervalSeconds интервал в секундах
+     */
+    public void startMaintenance(long intervalSeconds) {
+        maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "record-log-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintenance.scheduleWithFixedDelay(() -> {
+            try {
+                compact();
+                force();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Добавляет запись в журнал.
+     *
+     * @param habitId   ID привычки
+     * @param date      дата
+     * @param completed статус выполнения
+     * @param withStats обновить статистику привычки, если запись отмечает выполнение
+     * @return ID новой записи
+     * @throws IOException при ошибке создания нового сегмента
+     */
+    public int append(int habitId, LocalDate date, boolean completed, boolean withStats) throws IOException {
+        lock.writeLock().lock();
+        try {
+            RecordSegment active = segments.get(segments.size() - 1);
+            if (active.isFull()) {
+                active.force();
+                active = newSegment();
+            }
+            int id = ++lastId;
+            int day = (int) date.toEpochDay();
+            int slot = active.append(id, habitId, day, completed ? RecordSegment.FLAG_COMPLETED : 0);
+            indexes.computeIfAbsent(habitId, k -> new HabitIndex()).insert(position(active.seq(), slot), day, id);
+
+            if (withStats && completed) {
+                if (stats.computeIfAbsent(habitId, HabitStats::new).applyCompletion(date)
+                        == HabitStats.Update.REBUILD_REQUIRED) {
+                    updateStats(habitId);
+                }
+            } else if (withStats) {
+                updateStats(habitId);
+            }
+            return id;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Сохраняет запись привычки за дату, заменяя уже существующую запись за эту дату.
+     * <p>
+     * Запись с тем же статусом остаётся без изменений; запись с другим статусом удаляется,
+     * и новая добавляется с новым ID, как при уникальном индексе (habit_id, date) в БД.
+     * </p>
+     *
+     * @param habitId   ID привычки
+     * @param date      дата
+     * @param completed статус выполнения
+     * @param withStats обновить статистику привычки
+     * @return ID сохранённой записи
+     * @throws IOException при ошибке создания нового сегмента
+     */
+    public int upsert(int habitId, LocalDate date, boolean completed, boolean withStats) throws IOException {
+        lock.writeLock().lock();
+        try {
+            int day = (int) date.toEpochDay();
+            HabitIndex index = indexes.get(habitId);
+            List<Long> replaced = new ArrayList<>(1);
+            if (index != null) {
+                for (int i = index.lowerBound(day); i < index.size; i++) {
+                    long position = index.positions[i];
+                    RecordSegment segment = segmentsBySeq.get(seqOf(position));
+                    int slot = slotOf(position);
+                    if (segment.epochDay(slot) != day) {
+                        break;
+                    }
+                    if (((segment.flags(slot) & RecordSegment.FLAG_COMPLETED) != 0) == completed) {
+                        return segment.id(slot);
+                    }
+                    replaced.add(position);
+                }
+            }
+            for (Long position : replaced) {
+                remove(position);
+            }
+            return append(habitId, date, completed, withStats);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Выполняет несколько операций с журналом под одной блокировкой записи,
+     * например проверку наличия записи и её добавление.
+     *
+     * @param action операции с журналом
+     * @param <T>    тип результата
+     * @return результат операций
+     */
+    public <T> T write(Supplier<T> action) {
+        lock.writeLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Читает запись по ID.
+     *
+     * @param id      ID записи
+     * @param visitor получатель данных записи
+     * @return true, если запись найдена
+     */
+    public boolean read(int id, RecordVisitor visitor) {
+        lock.readLock().lock();
+        try {
+            long position = find(id);
+            if (position < 0) {
+                return false;
+            }
+            RecordSegment segment = segmentsBySeq.get(seqOf(position));
+            int slot = slotOf(position);
+            if (segment.isDeleted(slot)) {
+                return false;
+            }
+            visit(segment, slot, visitor);
+            return true;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Передаёт записи привычки за период в порядке даты напрямую из отображённой памяти.
+     *
+     * @param habitId ID привычки
+     * @param fromDay первый день эпохи периода (включительно)
+     * @param toDay   последний день эпохи периода (включительно)
+     * @param visitor получатель данных записей
+     * @return количество переданных записей
+     */
+    public int scan(int habitId, long fromDay, long toDay, RecordVisitor visitor) {
+        lock.readLock().lock();
+        try {
+            HabitIndex index = indexes.get(habitId);
+            if (index == null) {
+                return 0;
+            }
+            int count = 0;
+            for (int i = index.lowerBound(fromDay); i < index.size; i++) {
+                long position = index.positions[i];
+                RecordSegment segment = segmentsBySeq.get(seqOf(position));
+                int slot = slotOf(position);
+                if (segment.epochDay(slot) > toDay) {
+                    break;
+                }
+                visit(segment, slot, visitor);
+                count++;
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Удаляет запись по ID.
+     *
+     * @param id ID записи
+     * @return true, если запись была удалена
+     */
+    public boolean delete(int id) {
+        lock.writeLock().lock();
+        try {
+            long position = find(id);
+            if (position < 0) {
+                return false;
+            }
+            RecordSegment segment = segmentsBySeq.get(seqOf(position));
+            int slot = slotOf(position);
+            if (segment.isDeleted(slot)) {
+                return false;
+            }
+            remove(position);
+            int habitId = segment.habitId(slot);
+            if ((segment.flags(slot) & RecordSegment.FLAG_COMPLETED) != 0 && stats.containsKey(habitId)) {
+                updateStats(habitId);
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает копию статистики привычки.
+     *
+     * @param habitId ID привычки
+     * @return статистика или null, если привычка не выполнялась
+     */
+    public HabitStats getStats(int habitId) {
+        lock.readLock().lock();
+        try {
+            HabitStats habitStats = stats.get(habitId);
+            return habitStats != null ? copyOf(habitStats) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Пересчитывает статистику привычки из её записей.
+     *
+     * @param habitId ID привычки
+     * @return пересчитанная статистика или null, если выполнений нет
+     */
+    public HabitStats rebuildStats(int habitId) {
+        lock.writeLock().lock();
+        try {
+            HabitStats habitStats = updateStats(habitId);
+            return habitStats != null ? copyOf(habitStats) : null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Пересчитывает статистику всех привычек.
+     *
+     * @return количество привычек со статистикой
+     */
+    public int rebuildAllStats() {
+        lock.writeLock().lock();
+        try {
+            stats.clear();
+            for (Integer habitId : indexes.keySet()) {
+                HabitStats habitStats = computeStats(habitId);
+                if (habitStats != null) {
+                    stats.put(habitId, habitStats);
+                }
+            }
+            return stats.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Компактифицирует закрытые сегменты, в которых удалено больше половины записей.
+     * <p>
+     * Живые записи копируются без блокировки записи; замена сегмента выполняется под блокировкой
+     * и отменяется, если за время копирования в сегменте были удаления.
+     * </p>
+     *
+     * @return количество компактифицированных сегментов
+     * @throws IOException при ошибке записи файлов
+     */
+    public int compact() throws IOException {
+        List<RecordSegment> candidates = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < segments.size() - 1; i++) {
+                RecordSegment segment = segments.get(i);
+                if (segment.deleted() * 2 > segment.size()) {
+                    candidates.add(segment);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        int compacted = 0;
+        for (RecordSegment segment : candidates) {
+            if (compact(segment)) {
+                compacted++;
+            }
+        }
+        return compacted;
+    }
+
+    /**
+     * Сбрасывает изменения активного сегмента на диск.
+     */
+    public void force() {
+        lock.readLock().lock();
+        try {
+            segments.get(segments.size() - 1).force();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает количество сегментов.
+     *
+     * @return количество сегментов
+     */
+    public int getSegmentCount() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (maintenance != null) {
+            maintenance.shutdown();
+            try {
+                maintenance.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            for (RecordSegment segment : segments) {
+                segment.force();
+                segment.close();
+            }
+            segments.clear();
+            segmentsBySeq.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean compact(RecordSegment segment) throws IOException {
+        int seq = segment.seq();
+        Path tmp = directory.resolve(segment.path().getFileName() + TMP_SUFFIX);
+        Files.deleteIfExists(tmp);
+
+        int deletedBefore;
+        RecordSegment copy = null;
+        lock.readLock().lock();
+        try {
+            deletedBefore = segment.deleted();
+            if (segment.live() > 0) {
+                copy = RecordSegment.create(seq, tmp, segment.live(), segment.baseId());
+                for (int slot = 0; slot < segment.size(); slot++) {
+                    if (!segment.isDeleted(slot)) {
+                        copy.append(segment.id(slot), segment.habitId(slot), segment.epochDay(slot), segment.flags(slot));
+                    }
+                }
+                copy.force();
+                copy.close();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (segment.deleted() != deletedBefore || segmentsBySeq.get(seq) != segment) {
+                Files.deleteIfExists(tmp);
+                return false;
+            }
+            int listIndex = segments.indexOf(segment);
+            if (copy == null) {
+                segments.remove(listIndex);
+                segmentsBySeq.remove(seq);
+                segment.closeAndDelete();
+                return true;
+            }
+
+            Files.move(tmp, segment.path(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            RecordSegment replacement = RecordSegment.open(seq, segment.path());
+
+            // Позиции ищутся по старому сегменту и заменяются только после поиска всех,
+            // так как старый и новый сегменты имеют один номер
+            HabitIndex[] affected = new HabitIndex[replacement.size()];
+            int[] at = new int[replacement.size()];
+            for (int slot = 0; slot < replacement.size(); slot++) {
+                affected[slot] = indexes.get(replacement.habitId(slot));
+                at[slot] = affected[slot].search(replacement.epochDay(slot), replacement.id(slot));
+            }
+            for (int slot = 0; slot < replacement.size(); slot++) {
+                affected[slot].positions[at[slot]] = position(seq, slot);
+            }
+            segments.set(listIndex, replacement);
+            segmentsBySeq.put(seq, replacement);
+            segment.close();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void load() throws IOException {
+        List<RecordSegment> loaded = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                String name = path.getFileName().toString();
+                if (name.endsWith(TMP_SUFFIX)) {
+                    Files.delete(path);
+                } else if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    int seq = Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+                    loaded.add(RecordSegment.open(seq, path));
+                    lastSeq = Math.max(lastSeq, seq);
+                }
+            }
+        }
+        // Сегменты упорядочиваются по первому ID; пустые сегменты, кроме последнего, не нужны
+        loaded.sort((a, b) -> Integer.compare(a.size() == 0 ? Integer.MAX_VALUE : a.id(0),
+                b.size() == 0 ? Integer.MAX_VALUE : b.id(0)));
+        for (int i = 0; i < loaded.size(); i++) {
+            RecordSegment segment = loaded.get(i);
+            if (segment.size() == 0 && i < loaded.size() - 1) {
+                segment.closeAndDelete();
+                continue;
+            }
+            addSegment(segment);
+        }
+        if (segments.isEmpty()) {
+            newSegment();
+        }
+
+        for (RecordSegment segment : segments) {
+            lastId = Math.max(lastId, segment.baseId());
+            for (int slot = 0; slot < segment.size(); slot++) {
+                lastId = Math.max(lastId, segment.id(slot));
+                if (!segment.isDeleted(slot)) {
+                    indexes.computeIfAbsent(segment.habitId(slot), k -> new HabitIndex())
+                            .insert(position(segment.seq(), slot), segment.epochDay(slot), segment.id(slot));
+                }
+            }
+        }
+        rebuildAllStats();
+    }
+
+    private RecordSegment newSegment() throws IOException {
+        int seq = ++lastSeq;
+        Path path = directory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, seq, SEGMENT_SUFFIX));
+        RecordSegment segment = RecordSegment.create(seq, path, segmentCapacity, lastId);
+        addSegment(segment);
+        return segment;
+    }
+
+    private void addSegment(RecordSegment segment) {
+        segments.add(segment);
+        segmentsBySeq.put(segment.seq(), segment);
+    }
+
+    private long find(int id) {
+        int low = 0;
+        int high = segments.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            RecordSegment segment = segments.get(mid);
+            if (segment.size() == 0 || segment.id(0) > id) {
+                high = mid - 1;
+            } else if (segment.id(segment.size() - 1) < id) {
+                low = mid + 1;
+            } else {
+                int slot = segment.findSlot(id);
+                return slot < 0 ? -1 : position(segment.seq(), slot);
+            }
+        }
+        return -1;
+    }
+
+    // Удаляет живую запись из индекса и помечает удалённой; вызывается под блокировкой записи
+    private void remove(long position) {
+        RecordSegment segment = segmentsBySeq.get(seqOf(position));
+        int slot = slotOf(position);
+        HabitIndex index = indexes.get(segment.habitId(slot));
+        if (index != null) {
+            index.remove(segment.epochDay(slot), segment.id(slot));
+        }
+        segment.markDeleted(slot);
+    }
+
+    private HabitStats updateStats(int habitId) {
+        HabitStats habitStats = computeStats(habitId);
+        if (habitStats == null) {
+            stats.remove(habitId);
+        } else {
+            stats.put(habitId, habitStats);
+        }
+        return habitStats;
+    }
+
+    private HabitStats computeStats(int habitId) {
+        HabitIndex index = indexes.get(habitId);
+        if (index == null) {
+            return null;
+        }
+        CompletionHistory.Builder history = new CompletionHistory.Builder(index.size);
+        for (int i = 0; i < index.size; i++) {
+            long position = index.positions[i];
+            RecordSegment segment = segmentsBySeq.get(seqOf(position));
+            int slot = slotOf(position);
+            if ((segment.flags(slot) & RecordSegment.FLAG_COMPLETED) != 0) {
+                history.add(segment.epochDay(slot));
+            }
+        }
+        HabitStats habitStats = HabitStats.of(habitId, history.build());
+        return habitStats.getTotalCompletions() > 0 ? habitStats : null;
+    }
+
+    private static void visit(RecordSegment segment, int slot, RecordVisitor visitor) {
+        visitor.visit(segment.id(slot), segment.habitId(slot), segment.epochDay(slot),
+                (segment.flags(slot) & RecordSegment.FLAG_COMPLETED) != 0);
+    }
+
+    private static HabitStats copyOf(HabitStats habitStats) {
+        return new HabitStats(habitStats.getHabitId(), habitStats.getCurrentStreak(), habitStats.getLongestStreak(),
+                habitStats.getLastCompletedDate(), habitStats.getTotalCompletions(), habitStats.getRecentDays());
+    }
+
+    private static long position(int seq, int slot) {
+        return ((long) seq << 32) | (slot & 0xFFFFFFFFL);
+    }
+
+    private static int seqOf(long position) {
+        return (int) (position >>> 32);
+    }
+
+    private static int slotOf(long position) {
+        return (int) position;
+    }
+
+    /**
+     * Получатель данных записи, читаемых напрямую из отображённой памяти.
+     */
+    @FunctionalInterface
+    public interface RecordVisitor {
+        void visit(int id, int habitId, int epochDay, boolean completed);
+    }
+
+    /**
+     * Позиции записей одной привычки, упорядоченные по дате и ID.
+     * <p>
+     * Записи обычно добавляются в порядке дат, поэтому вставка почти всегда идёт в конец массива.
+     * </p>
+     */
+    private final class HabitIndex {
+        private long[] positions = new long[8];
+        private int size;
+
+        void insert(long position, int day, int id) {
+            int at = size;
+            if (size > 0 && compare(size - 1, day, id) > 0) {
+                at = search(day, id);
+                at = at < 0 ? -at - 1 : at;
+            }
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            System.arraycopy(positions, at, positions, at + 1, size - at);
+            positions[at] = position;
+            size++;
+        }
+
+        void remove(int day, int id) {
+            int at = search(day, id);
+            if (at >= 0) {
+                System.arraycopy(positions, at + 1, positions, at, size - at - 1);
+                size--;
+            }
+        }
+
+        int lowerBound(long day) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (dayAt(mid) < day) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        int search(int day, int id) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = compare(mid, day, id);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        private int compare(int i, int day, int id) {
+            RecordSegment segment = segmentsBySeq.get(seqOf(positions[i]));
+            int slot = slotOf(positions[i]);
+            int cmp = Integer.compare(segment.epochDay(slot), day);
+            return cmp != 0 ? cmp : Integer.compare(segment.id(slot), id);
+        }
+
+        private int dayAt(int i) {
+            return segmentsBySeq.get(seqOf(positions[i])).epochDay(slotOf(positions[i]));
+        }
+    }
+}
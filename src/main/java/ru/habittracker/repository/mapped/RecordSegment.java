@@ -0,0 +1,235 @@
+package ru.habittracker.repository.mapped;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Сегмент журнала записей о выполнении, отображённый в память.
+ * <p>
+ * Файл состоит из заголовка {@code [magic][версия][ёмкость][базовый ID]} и слотов фиксированной
+ * длины {@value #RECORD_SIZE} байт: {@code [id][habitId][день эпохи][флаги]}. Слоты заполняются последовательно, ID в сегменте
+ * возрастают. ID записывается последним, поэтому незаполненный слот всегда имеет ID 0.
+ * Удаление только выставляет флаг; удалённые слоты освобождаются при компактификации.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+final class RecordSegment implements Closeable {
+
+    static final int RECORD_SIZE = 16;
+    static final int FLAG_COMPLETED = 1;
+    static final int FLAG_DELETED = 2;
+
+    private static final int MAGIC = 0x48524C47;
+    private static final int VERSION = 1;
+
+    private final int seq;
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+
+    private int size;
+    private int deleted;
+
+    private RecordSegment(int seq, Path path, FileChannel channel, MappedByteBuffer buffer, int capacity) {
+        this.seq = seq;
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Создает новый пустой сегмент.
+     *
+     * @param seq      номер сегмента
+     * @param path     путь к файлу
+     * @param capacity количество слотов
+     * @param baseId   последний выданный ID на момент создания сегмента
+     * @return сегмент
+     * @throws IOException при ошибке создания файла
+     */
+    static RecordSegment create(int seq, Path path, int capacity, int baseId) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) RECORD_SIZE * (capacity + 1));
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, capacity);
+        buffer.putInt(12, baseId);
+        return new RecordSegment(seq, path, channel, buffer, capacity);
+    }
+
+    /**
+     * Открывает существующий сегмент и определяет количество заполненных слотов.
+     *
+     * @param seq  номер сегмента
+     * @param path путь к файлу
+     * @return сегмент
+     * @throws IOException при ошибке чтения или неверном формате файла
+     */
+    static RecordSegment open(int seq, Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long fileSize = channel.size();
+        if (fileSize < RECORD_SIZE || fileSize % RECORD_SIZE != 0) {
+            channel.close();
+            throw new IOException("Неверный размер сегмента " + path);
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            channel.close();
+            throw new IOException("Неверный формат сегмента " + path);
+        }
+        RecordSegment segment = new RecordSegment(seq, path, channel, buffer, (int) (fileSize / RECORD_SIZE) - 1);
+
+        // Первый незаполненный слот ищется двоичным поиском: заполненные слоты идут подряд
+        int low = 0;
+        int high = segment.capacity;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (segment.id(mid) != 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        segment.size = low;
+        for (int slot = 0; slot < segment.size; slot++) {
+            if (segment.isDeleted(slot)) {
+                segment.deleted++;
+            }
+        }
+        return segment;
+    }
+
+    int seq() {
+        return seq;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int deleted() {
+        return deleted;
+    }
+
+    int live() {
+        return size - deleted;
+    }
+
+    boolean isFull() {
+        return size == capacity;
+    }
+
+    /**
+     * Возвращает последний ID, выданный до создания сегмента. Позволяет не выдавать ID повторно,
+     * даже если все записи с большими ID удалены и компактифицированы.
+     *
+     * @return базовый ID сегмента
+     */
+    int baseId() {
+        return buffer.getInt(12);
+    }
+
+    int id(int slot) {
+        return buffer.getInt(offset(slot));
+    }
+
+    int habitId(int slot) {
+        return buffer.getInt(offset(slot) + 4);
+    }
+
+    int epochDay(int slot) {
+        return buffer.getInt(offset(slot) + 8);
+    }
+
+    int flags(int slot) {
+        return buffer.getInt(offset(slot) + 12);
+    }
+
+    boolean isDeleted(int slot) {
+        return (flags(slot) & FLAG_DELETED) != 0;
+    }
+
+    /**
+     * Добавляет запись в следующий свободный слот.
+     *
+     * @return номер слота
+     */
+    int append(int id, int habitId, int epochDay, int flags) {
+        int slot = size;
+        int offset = offset(slot);
+        buffer.putInt(offset + 4, habitId);
+        buffer.putInt(offset + 8, epochDay);
+        buffer.putInt(offset + 12, flags);
+        buffer.putInt(offset, id);
+        size++;
+        if ((flags & FLAG_DELETED) != 0) {
+            deleted++;
+        }
+        return slot;
+    }
+
+    void markDeleted(int slot) {
+        int offset = offset(slot) + 12;
+        buffer.putInt(offset, buffer.getInt(offset) | FLAG_DELETED);
+        deleted++;
+    }
+
+    /**
+     * Ищет слот записи с указанным ID.
+     *
+     * @param id ID записи
+     * @return номер слота или -1, если записи нет в сегменте
+     */
+    int findSlot(int id) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midId = id(mid);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    void closeAndDelete() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+    }
+
+    private static int offset(int slot) {
+        return RECORD_SIZE * (slot + 1);
+    }
+}
@@ -0,0 +1,243 @@
+package ru.habittracker.repository.memory;
+
+import ru.habittracker.model.BackfillPattern;
+import ru.habittracker.model.CompletionHistory;
+import ru.habittracker.model.CompletionResult;
+import ru.habittracker.model.Habit;
+import ru.habittracker.model.HabitRecord;
+import ru.habittracker.model.HabitStats;
+import ru.habittracker.repository.HistoryVisitor;
+import ru.habittracker.repository.IHabitRecordRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+/**
+ * In-memory репозиторий записей о выполнении привычек.
+ * <p>
+ * Записи индексируются по ID привычки и дате, поэтому история привычки возвращается
+ * упорядоченной по дате, а поиск за день не требует полного просмотра.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public class InMemoryHabitRecordRepository implements IHabitRecordRepository {
+
+    private final InMemoryStore store;
+
+    /**
+     * Конструктор in-memory репозитория записей привычек.
+     *
+     * @param store общее хранилище данных
+     */
+    public InMemoryHabitRecordRepository(InMemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public Optional<HabitRecord> save(HabitRecord record) {
+        return store.write(() -> {
+            if (store.getHabit(record.getHabitId()) == null) {
+                return Optional.empty();
+            }
+            upsert(record);
+            return Optional.of(record);
+        });
+    }
+
+    @Override
+    public Optional<HabitRecord> saveCompletion(HabitRecord record) {
+        return store.write(() -> {
+            Optional<HabitRecord> saved = save(record);
+            if (saved.isEmpty()) {
+                return saved;
+            }
+            if (!record.isCompleted()) {
+                rebuildStats(record.getHabitId());
+                return saved;
+            }
+            HabitStats existing = store.getStats(record.getHabitId());
+            HabitStats stats = existing != null
+                    ? InMemoryStore.copyOf(existing)
+                    : new HabitStats(record.getHabitId());
+            HabitStats.Update update = stats.applyCompletion(record.getDate());
+            if (update == HabitStats.Update.APPLIED) {
+                store.putStats(stats);
+            } else if (update == HabitStats.Update.REBUILD_REQUIRED) {
+                rebuildStats(record.getHabitId());
+            }
+            return saved;
+        });
+    }
+
+    @Override
+    public Map<Integer, CompletionResult> saveCompletions(int userId, Collection<Integer> habitIds, LocalDate date) {
+        return store.write(() -> {
+            Map<Integer, CompletionResult> results = new LinkedHashMap<>();
+            for (Integer habitId : habitIds) {
+                Habit habit = store.getHabit(habitId);
+                if (habit == null || habit.getUserId() != userId) {
+                    results.put(habitId, CompletionResult.NOT_FOUND);
+                } else if (isCompleted(habitId, date)) {
+                    results.put(habitId, CompletionResult.ALREADY_MARKED);
+                } else {
+                    saveCompletion(new HabitRecord(habitId, date, true));
+                    results.put(habitId, CompletionResult.MARKED);
+                }
+            }
+            return results;
+        });
+    }
+
+    @Override
+    public OptionalInt saveCompletionRange(int userId, int habitId, LocalDate from, LocalDate to, BackfillPattern pattern) {
+        return store.write(() -> {
+            Habit habit = store.getHabit(habitId);
+            if (habit == null || habit.getUserId() != userId) {
+                return OptionalInt.empty();
+            }
+            int marked = 0;
+            for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+                if (pattern.matches(date) && !isCompleted(habitId, date)) {
+                    save(new HabitRecord(habitId, date, true));
+                    marked++;
+                }
+            }
+            if (marked > 0) {
+                rebuildStats(habitId);
+            }
+            return OptionalInt.of(marked);
+        });
+    }
+
+    @Override
+    public int saveAll(List<HabitRecord> records) {
+        return store.write(() -> {
+            int saved = 0;
+            for (HabitRecord record : records) {
+                if (store.getHabit(record.getHabitId()) == null) {
+                    continue;
+                }
+                upsert(record);
+                saved++;
+            }
+            return saved;
+        });
+    }
+
+    @Override
+    public Optional<HabitRecord> findById(int id) {
+        return Optional.ofNullable(store.getRecord(id)).map(InMemoryStore::copyOf);
+    }
+
+    @Override
+    public List<HabitRecord> findByHabitId(int habitId) {
+        List<HabitRecord> result = new ArrayList<>();
+        for (Long key : store.getRecordKeysByHabit(habitId)) {
+            addRecord(result, key);
+        }
+        return result;
+    }
+
+    @Override
+    public CompletionHistory findCompletionHistory(int habitId) {
+        CompletionHistory.Builder history = new CompletionHistory.Builder();
+        for (Long key : store.getRecordKeysByHabit(habitId)) {
+            HabitRecord record = store.getRecord(InMemoryStore.recordIdOf(key));
+            if (record != null && record.isCompleted()) {
+                history.add((int) (key >> 32));
+            }
+        }
+        return history.build();
+    }
+
+    @Override
+    public List<HabitRecord> findByUserIdAndDate(int userId, LocalDate date) {
+        List<HabitRecord> result = new ArrayList<>();
+        for (Integer habitId : store.getHabitIdsByUser(userId)) {
+            for (Long key : store.getRecordKeysByHabitAndDate(habitId, date)) {
+                addRecord(result, key);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean streamUserHistory(int userId, HistoryVisitor visitor) {
+        int[] habitIds = store.getHabitIdsByUser(userId).stream().mapToInt(Integer::intValue).sorted().toArray();
+        for (int habitId : habitIds) {
+            Habit habit = store.getHabit(habitId);
+            if (habit == null) {
+                continue;
+            }
+            visitor.habit(InMemoryStore.copyOf(habit));
+            for (Long key : store.getRecordKeysByHabit(habitId)) {
+                HabitRecord record = store.getRecord(InMemoryStore.recordIdOf(key));
+                if (record != null) {
+                    visitor.record(record.getId(), (int) (key >> 32), record.isCompleted());
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean delete(int id) {
+        return store.write(() -> {
+            HabitRecord record = store.getRecord(id);
+            if (record == null) {
+                return false;
+            }
+            store.removeRecord(id);
+            if (record.isCompleted()) {
+                rebuildStats(record.getHabitId());
+            }
+            return true;
+        });
+    }
+
+    // Запись привычки за ту же дату заменяется, как при уникальном индексе (habit_id, date) в БД
+    private void upsert(HabitRecord record) {
+        NavigableSet<Long> existing = store.getRecordKeysByHabitAndDate(record.getHabitId(), record.getDate());
+        if (existing.isEmpty()) {
+            record.setId(store.nextRecordId());
+        } else {
+            record.setId(InMemoryStore.recordIdOf(existing.first()));
+        }
+        store.putRecord(InMemoryStore.copyOf(record));
+    }
+
+    private void rebuildStats(int habitId) {
+        HabitStats stats = HabitStats.of(habitId, findCompletionHistory(habitId));
+        if (stats.getTotalCompletions() > 0) {
+            store.putStats(stats);
+        } else {
+            store.removeStats(habitId);
+        }
+    }
+
+    private boolean isCompleted(int habitId, LocalDate date) {
+        for (Long key : store.getRecordKeysByHabitAndDate(habitId, date)) {
+            HabitRecord record = store.getRecord(InMemoryStore.recordIdOf(key));
+            if (record != null && record.isCompleted()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void addRecord(List<HabitRecord> result, long key) {
+        HabitRecord record = store.getRecord(InMemoryStore.recordIdOf(key));
+        if (record != null) {
+            result.add(InMemoryStore.copyOf(record));
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package ru.habittracker.repository.memory;
+
+import ru.habittracker.model.Habit;
+import ru.habittracker.repository.IHabitRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * In-memory репозиторий привычек.
+ * <p>
+ * Повторяет семантику {@link ru.habittracker.repository.impl.HabitRepository}: привычка
+ * принадлежит существующему пользователю, а привычку с записями о выполнении удалить нельзя.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public class InMemoryHabitRepository implements IHabitRepository {
+
+    private final InMemoryStore store;
+
+    /**
+     * Конструктор in-memory репозитория привычек.
+     *
+     * @param store общее хранилище данных
+     */
+    public InMemoryHabitRepository(InMemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public Habit save(Habit habit) {
+        return store.write(() -> {
+            if (store.getUser(habit.getUserId()) == null) {
+                return null;
+            }
+            habit.setId(store.nextHabitId());
+            store.putHabit(InMemoryStore.copyOf(habit));
+            return habit;
+        });
+    }
+
+    @Override
+    public Habit findByIdAndUserId(int id, int userId) {
+        Habit habit = store.getHabit(id);
+        if (habit == null || habit.getUserId() != userId) {
+            return null;
+        }
+        return InMemoryStore.copyOf(habit);
+    }
+
+    @Override
+    public List<Habit> findByUserId(int userId) {
+        return findByUser(userId, habit -> true);
+    }
+
+    @Override
+    public List<Habit> findByUserIdAndCreationDate(int userId, LocalDate date) {
+        return findByUser(userId, habit -> date.equals(habit.getCreationDate()));
+    }
+
+    @Override
+    public List<Habit> findByUserIdAndFrequency(int userId, int frequency) {
+        return findByUser(userId, habit -> habit.getFrequency() == frequency);
+    }
+
+    @Override
+    public boolean update(Habit habit) {
+        return store.write(() -> {
+            Habit existing = store.getHabit(habit.getId());
+            if (existing == null || existing.getUserId() != habit.getUserId()
+                    || existing.getVersion() != habit.getVersion()) {
+                return false;
+            }
+            Habit updated = InMemoryStore.copyOf(existing);
+            updated.setTitle(habit.getTitle());
+            updated.setDescription(habit.getDescription());
+            updated.setFrequency(habit.getFrequency());
+            updated.setVersion(existing.getVersion() + 1);
+            store.putHabit(updated);
+            habit.setVersion(updated.getVersion());
+            return true;
+        });
+    }
+
+    @Override
+    public boolean deleteByIdAndUserId(int id, int userId) {
+        return store.write(() -> {
+            Habit existing = store.getHabit(id);
+            if (existing == null || existing.getUserId() != userId || !store.getRecordKeysByHabit(id).isEmpty()) {
+                return false;
+            }
+            store.removeHabit(id);
+            return true;
+        });
+    }
+
+    private List<Habit> findByUser(int userId, Predicate<Habit> filter) {
+        List<Habit> result = new ArrayList<>();
+        for (Integer habitId : store.getHabitIdsByUser(userId)) {
+            Habit habit = store.getHabit(habitId);
+            if (habit != null && habit.getUserId() == userId && filter.test(habit)) {
+                result.add(InMemoryStore.copyOf(habit));
+            }
+        }
+        return result;
+    }
+}
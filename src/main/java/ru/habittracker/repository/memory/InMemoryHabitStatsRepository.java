@@ -0,0 +1,66 @@
+package ru.habittracker.repository.memory;
+
+import ru.habittracker.model.CompletionHistory;
+import ru.habittracker.model.HabitRecord;
+import ru.habittracker.model.HabitStats;
+import ru.habittracker.repository.IHabitStatsRepository;
+
+import java.util.Optional;
+
+/**
+ * In-memory репозиторий агрегированной статистики привычек.
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public class InMemoryHabitStatsRepository implements IHabitStatsRepository {
+
+    private final InMemoryStore store;
+
+    /**
+     * Конструктор in-memory репозитория статистики привычек.
+     *
+     * @param store общее хранилище данных
+     */
+    public InMemoryHabitStatsRepository(InMemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public Optional<HabitStats> findByHabitId(int habitId) {
+        return Optional.ofNullable(store.getStats(habitId)).map(InMemoryStore::copyOf);
+    }
+
+    @Override
+    public Optional<HabitStats> rebuild(int habitId) {
+        return store.write(() -> {
+            CompletionHistory.Builder history = new CompletionHistory.Builder();
+            for (Long key : store.getRecordKeysByHabit(habitId)) {
+                HabitRecord record = store.getRecord(InMemoryStore.recordIdOf(key));
+                if (record != null && record.isCompleted()) {
+                    history.add((int) (key >> 32));
+                }
+            }
+            HabitStats stats = HabitStats.of(habitId, history.build());
+            if (stats.getTotalCompletions() == 0) {
+                store.removeStats(habitId);
+                return Optional.empty();
+            }
+            store.putStats(stats);
+            return Optional.of(InMemoryStore.copyOf(stats));
+        });
+    }
+
+    @Override
+    public int rebuildAll() {
+        return store.write(() -> {
+            int rebuilt = 0;
+            for (Integer habitId : store.getHabitIds()) {
+                if (rebuild(habitId).isPresent()) {
+                    rebuilt++;
+                }
+            }
+            return rebuilt;
+        });
+    }
+}
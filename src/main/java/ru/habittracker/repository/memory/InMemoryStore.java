@@ -0,0 +1,336 @@
+package ru.habittracker.repository.memory;
+
+import ru.habittracker.model.Habit;
+import ru.habittracker.model.HabitRecord;
+import ru.habittracker.model.HabitStats;
+import ru.habittracker.model.User;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Общее хранилище данных для in-memory репозиториев.
+ * <p>
+ * Хранит пользователей, привычки, записи о выполнении и статистику в {@link ConcurrentHashMap}
+ * с индексами по ID пользователя, ID привычки и дате. Чтение выполняется без блокировок,
+ * а изменения, затрагивающие несколько индексов, выполняются через {@link #write(Supplier)}
+ * под общей блокировкой записи. Хранимые объекты никогда не передаются наружу:
+ * репозитории возвращают их копии.
+ * </p>
+ * <p>
+ * Если подключён {@link StoreJournal}, каждое изменение записывается в журнал под блокировкой,
+ * а {@link #write(Supplier)} возвращает управление только после сброса журнала на диск.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public class InMemoryStore {
+
+    private final Map<Integer, User> users = new ConcurrentHashMap<>();
+    private final Map<String, Integer> userIdsByEmail = new ConcurrentHashMap<>();
+    private final Map<Integer, Habit> habits = new ConcurrentHashMap<>();
+    private final Map<Integer, Set<Integer>> habitIdsByUser = new ConcurrentHashMap<>();
+    private final Map<Integer, HabitRecord> records = new ConcurrentHashMap<>();
+    private final Map<Integer, NavigableSet<Long>> recordKeysByHabit = new ConcurrentHashMap<>();
+    private final Map<Integer, HabitStats> stats = new ConcurrentHashMap<>();
+
+    private final AtomicInteger userSeq = new AtomicInteger();
+    private final AtomicInteger habitSeq = new AtomicInteger();
+    private final AtomicInteger recordSeq = new AtomicInteger();
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile StoreJournal journal;
+
+    /**
+     * Подключает журнал изменений. Вызывается после восстановления данных.
+     *
+     * @param journal журнал изменений или null для работы без журнала
+     */
+    public void setJournal(StoreJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Выполняет изменение хранилища под блокировкой записи.
+     * <p>
+     * Ожидание сброса журнала выполняется уже после снятия блокировки, поэтому
+     * параллельные изменения сбрасываются на диск одной группой.
+     * </p>
+     *
+     * @param action изменение
+     * @param <T>    тип результата
+     * @return результат изменения
+     */
+    public <T> T write(Supplier<T> action) {
+        T result;
+        long lsn = -1;
+        writeLock.lock();
+        try {
+            result = action.get();
+            StoreJournal current = journal;
+            if (current != null && writeLock.getHoldCount() == 1) {
+                lsn = current.lastAppendedLsn();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        StoreJournal current = journal;
+        if (lsn > 0 && current != null) {
+            current.awaitDurable(lsn);
+        }
+        return result;
+    }
+
+    /**
+     * Возвращает текущие значения последовательностей ID.
+     *
+     * @return массив {ID пользователя, ID привычки, ID записи}
+     */
+    public int[] getSequences() {
+        return new int[]{userSeq.get(), habitSeq.get(), recordSeq.get()};
+    }
+
+    /**
+     * Восстанавливает последовательности ID не ниже указанных значений.
+     *
+     * @param userId   последний выданный ID пользователя
+     * @param habitId  последний выданный ID привычки
+     * @param recordId последний выданный ID записи
+     */
+    public void restoreSequences(int userId, int habitId, int recordId) {
+        userSeq.accumulateAndGet(userId, Math::max);
+        habitSeq.accumulateAndGet(habitId, Math::max);
+        recordSeq.accumulateAndGet(recordId, Math::max);
+    }
+
+    // Пользователи
+
+    public int nextUserId() {
+        return userSeq.incrementAndGet();
+    }
+
+    public User getUser(int id) {
+        return users.get(id);
+    }
+
+    public User getUserByEmail(String email) {
+        Integer id = userIdsByEmail.get(email);
+        return id != null ? users.get(id) : null;
+    }
+
+    public void putUser(User user) {
+        User previous = users.put(user.getId(), user);
+        if (previous != null && !previous.getEmail().equals(user.getEmail())) {
+            userIdsByEmail.remove(previous.getEmail(), previous.getId());
+        }
+        userIdsByEmail.put(user.getEmail(), user.getId());
+        userSeq.accumulateAndGet(user.getId(), Math::max);
+        StoreJournal current = journal;
+        if (current != null) {
+            current.logPutUser(user);
+        }
+    }
+
+    public void removeUser(int id) {
+        User removed = users.remove(id);
+        if (removed != null) {
+            userIdsByEmail.remove(removed.getEmail(), id);
+            StoreJournal current = journal;
+            if (current != null) {
+                current.logRemoveUser(id);
+            }
+        }
+    }
+
+    public Collection<User> getUsers() {
+        return users.values();
+    }
+
+    // Привычки
+
+    public int nextHabitId() {
+        return habitSeq.incrementAndGet();
+    }
+
+    public Habit getHabit(int id) {
+        return habits.get(id);
+    }
+
+    public Set<Integer> getHabitIds() {
+        return habits.keySet();
+    }
+
+    public Set<Integer> getHabitIdsByUser(int userId) {
+        return habitIdsByUser.getOrDefault(userId, Collections.emptySet());
+    }
+
+    public void putHabit(Habit habit) {
+        habits.put(habit.getId(), habit);
+        habitIdsByUser.computeIfAbsent(habit.getUserId(), k -> ConcurrentHashMap.newKeySet()).add(habit.getId());
+        habitSeq.accumulateAndGet(habit.getId(), Math::max);
+        StoreJournal current = journal;
+        if (current != null) {
+            current.logPutHabit(habit);
+        }
+    }
+
+    public void removeHabit(int id) {
+        Habit removed = habits.remove(id);
+        if (removed != null) {
+            Set<Integer> ids = habitIdsByUser.get(removed.getUserId());
+            if (ids != null) {
+                ids.remove(id);
+            }
+            stats.remove(id);
+            StoreJournal current = journal;
+            if (current != null) {
+                current.logRemoveHabit(id);
+            }
+        }
+    }
+
+    public Collection<Habit> getHabits() {
+        return habits.values();
+    }
+
+    // Записи о выполнении
+
+    public int nextRecordId() {
+        return recordSeq.incrementAndGet();
+    }
+
+    public HabitRecord getRecord(int id) {
+        return records.get(id);
+    }
+
+    /**
+     * Возвращает ключи записей привычки, упорядоченные по дате.
+     * <p>
+     * Ключ записи составлен из дня эпохи (старшие 32 бита) и ID записи (младшие 32 бита),
+     * поэтому диапазон дат соответствует непрерывному диапазону ключей.
+     * </p>
+     *
+     * @param habitId ID привычки
+     * @return упорядоченное множество ключей записей
+     */
+    public NavigableSet<Long> getRecordKeysByHabit(int habitId) {
+        return recordKeysByHabit.getOrDefault(habitId, Collections.emptyNavigableSet());
+    }
+
+    /**
+     * Возвращает ключи записей привычки за указанную дату.
+     *
+     * @param habitId ID привычки
+     * @param date    дата
+     * @return ключи записей за дату
+     */
+    public NavigableSet<Long> getRecordKeysByHabitAndDate(int habitId, LocalDate date) {
+        long day = date.toEpochDay();
+        return getRecordKeysByHabit(habitId).subSet(day << 32, true, ((day + 1) << 32) - 1, true);
+    }
+
+    public void putRecord(HabitRecord record) {
+        HabitRecord previous = records.put(record.getId(), record);
+        if (previous != null) {
+            NavigableSet<Long> keys = recordKeysByHabit.get(previous.getHabitId());
+            if (keys != null) {
+                keys.remove(recordKey(previous));
+            }
+        }
+        recordKeysByHabit.computeIfAbsent(record.getHabitId(), k -> new ConcurrentSkipListSet<>()).add(recordKey(record));
+        recordSeq.accumulateAndGet(record.getId(), Math::max);
+        StoreJournal current = journal;
+        if (current != null) {
+            current.logPutRecord(record);
+        }
+    }
+
+    public void removeRecord(int id) {
+        HabitRecord removed = records.remove(id);
+        if (removed != null) {
+            NavigableSet<Long> keys = recordKeysByHabit.get(removed.getHabitId());
+            if (keys != null) {
+                keys.remove(recordKey(removed));
+            }
+            StoreJournal current = journal;
+            if (current != null) {
+                current.logRemoveRecord(id);
+            }
+        }
+    }
+
+    public Collection<HabitRecord> getRecords() {
+        return records.values();
+    }
+
+    /**
+     * Извлекает ID записи из ключа индекса.
+     *
+     * @param key ключ записи
+     * @return ID записи
+     */
+    public static int recordIdOf(long key) {
+        return (int) key;
+    }
+
+    private static long recordKey(HabitRecord record) {
+        return (record.getDate().toEpochDay() << 32) | (record.getId() & 0xFFFFFFFFL);
+    }
+
+    // Статистика
+
+    public HabitStats getStats(int habitId) {
+        return stats.get(habitId);
+    }
+
+    public void putStats(HabitStats habitStats) {
+        stats.put(habitStats.getHabitId(), habitStats);
+        StoreJournal current = journal;
+        if (current != null) {
+            current.logPutStats(habitStats);
+        }
+    }
+
+    public void removeStats(int habitId) {
+        if (stats.remove(habitId) != null) {
+            StoreJournal current = journal;
+            if (current != null) {
+                current.logRemoveStats(habitId);
+            }
+        }
+    }
+
+    public Collection<HabitStats> getAllStats() {
+        return stats.values();
+    }
+
+    // Копирование объектов
+
+    static User copyOf(User user) {
+        return new User(user.getId(), user.getEmail(), user.getPassword(), user.getName(), user.getVersion());
+    }
+
+    static Habit copyOf(Habit habit) {
+        return new Habit(habit.getId(), habit.getTitle(), habit.getDescription(), habit.getFrequency(),
+                habit.getUserId(), habit.getCreationDate(), habit.getVersion());
+    }
+
+    static HabitRecord copyOf(HabitRecord record) {
+        return new HabitRecord(record.getId(), record.getHabitId(), record.getDate(), record.isCompleted());
+    }
+
+    static HabitStats copyOf(HabitStats habitStats) {
+        return new HabitStats(habitStats.getHabitId(), habitStats.getCurrentStreak(), habitStats.getLongestStreak(),
+                habitStats.getLastCompletedDate(), habitStats.getTotalCompletions(), habitStats.getRecentDays());
+    }
+}
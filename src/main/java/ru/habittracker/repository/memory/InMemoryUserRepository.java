@@ -0,0 +1,82 @@
+package ru.habittracker.repository.memory;
+
+import ru.habittracker.model.User;
+import ru.habittracker.repository.IUserRepository;
+
+import java.util.Optional;
+
+/**
+ * In-memory репозиторий пользователей.
+ * <p>
+ * Повторяет семантику {@link ru.habittracker.repository.impl.UserRepository}: email уникален,
+ * а пользователя с привычками удалить нельзя.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public class InMemoryUserRepository implements IUserRepository {
+
+    private final InMemoryStore store;
+
+    /**
+     * Конструктор in-memory репозитория пользователей.
+     *
+     * @param store общее хранилище данных
+     */
+    public InMemoryUserRepository(InMemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public Optional<User> save(User user) {
+        return store.write(() -> {
+            if (store.getUserByEmail(user.getEmail()) != null) {
+                return Optional.empty();
+            }
+            user.setId(store.nextUserId());
+            store.putUser(InMemoryStore.copyOf(user));
+            return Optional.of(user);
+        });
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return Optional.ofNullable(store.getUserByEmail(email)).map(InMemoryStore::copyOf);
+    }
+
+    @Override
+    public Optional<User> findById(int userId) {
+        return Optional.ofNullable(store.getUser(userId)).map(InMemoryStore::copyOf);
+    }
+
+    @Override
+    public boolean update(User user) {
+        return store.write(() -> {
+            User existing = store.getUser(user.getId());
+            if (existing == null || existing.getVersion() != user.getVersion()) {
+                return false;
+            }
+            User emailOwner = store.getUserByEmail(user.getEmail());
+            if (emailOwner != null && emailOwner.getId() != user.getId()) {
+                return false;
+            }
+            User updated = InMemoryStore.copyOf(user);
+            updated.setVersion(existing.getVersion() + 1);
+            store.putUser(updated);
+            user.setVersion(updated.getVersion());
+            return true;
+        });
+    }
+
+    @Override
+    public boolean delete(int userId) {
+        return store.write(() -> {
+            if (store.getUser(userId) == null || !store.getHabitIdsByUser(userId).isEmpty()) {
+                return false;
+            }
+            store.removeUser(userId);
+            return true;
+        });
+    }
+}
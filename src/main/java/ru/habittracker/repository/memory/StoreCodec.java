@@ -0,0 +1,136 @@
+package ru.habittracker.repository.memory;
+
+import ru.habittracker.model.Habit;
+import ru.habittracker.model.HabitRecord;
+import ru.habittracker.model.HabitStats;
+import ru.habittracker.model.User;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDate;
+
+/**
+ * Компактное бинарное представление объектов in-memory хранилища.
+ * <p>
+ * Используется журналом упреждающей записи и снимками. Даты хранятся как номер дня эпохи,
+ * строки — в модифицированном UTF-8 с признаком null.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+final class StoreCodec {
+
+    static final byte REMOVE_USER = 2;
+    static final byte REMOVE_HABIT = 4;
+    static final byte PUT_RECORD = 5;
+    static final byte REMOVE_RECORD = 6;
+    static final byte PUT_STATS = 7;
+    static final byte REMOVE_STATS = 8;
+    static final byte PUT_USER = 9;
+    static final byte PUT_HABIT = 10;
+    // Пользователь и привычка без версии: только чтение журналов и снимков, записанных до её появления
+    static final byte PUT_USER_UNVERSIONED = 1;
+    static final byte PUT_HABIT_UNVERSIONED = 3;
+
+    private static final int NULL_DATE = Integer.MIN_VALUE;
+
+    private StoreCodec() {
+    }
+
+    /**
+     * Применяет операцию журнала к хранилищу.
+     *
+     * @param store хранилище
+     * @param type  тип операции
+     * @param in    источник данных операции
+     * @throws IOException при ошибке чтения или неизвестном типе операции
+     */
+    static void apply(InMemoryStore store, byte type, DataInput in) throws IOException {
+        switch (type) {
+            case PUT_USER -> store.putUser(readUser(in, true));
+            case PUT_USER_UNVERSIONED -> store.putUser(readUser(in, false));
+            case REMOVE_USER -> store.removeUser(in.readInt());
+            case PUT_HABIT -> store.putHabit(readHabit(in, true));
+            case PUT_HABIT_UNVERSIONED -> store.putHabit(readHabit(in, false));
+            case REMOVE_HABIT -> store.removeHabit(in.readInt());
+            case PUT_RECORD -> store.putRecord(readRecord(in));
+            case REMOVE_RECORD -> store.removeRecord(in.readInt());
+            case PUT_STATS -> store.putStats(readStats(in));
+            case REMOVE_STATS -> store.removeStats(in.readInt());
+            default -> throw new IOException("Неизвестный тип операции журнала: " + type);
+        }
+    }
+
+    static void writeUser(DataOutput out, User user) throws IOException {
+        out.writeInt(user.getId());
+        writeString(out, user.getEmail());
+        writeString(out, user.getPassword());
+        writeString(out, user.getName());
+        out.writeInt(user.getVersion());
+    }
+
+    static User readUser(DataInput in, boolean versioned) throws IOException {
+        return new User(in.readInt(), readString(in), readString(in), readString(in), versioned ? in.readInt() : 0);
+    }
+
+    static void writeHabit(DataOutput out, Habit habit) throws IOException {
+        out.writeInt(habit.getId());
+        writeString(out, habit.getTitle());
+        writeString(out, habit.getDescription());
+        out.writeInt(habit.getFrequency());
+        out.writeInt(habit.getUserId());
+        writeDate(out, habit.getCreationDate());
+        out.writeInt(habit.getVersion());
+    }
+
+    static Habit readHabit(DataInput in, boolean versioned) throws IOException {
+        return new Habit(in.readInt(), readString(in), readString(in), in.readInt(), in.readInt(), readDate(in),
+                versioned ? in.readInt() : 0);
+    }
+
+    static void writeRecord(DataOutput out, HabitRecord record) throws IOException {
+        out.writeInt(record.getId());
+        out.writeInt(record.getHabitId());
+        writeDate(out, record.getDate());
+        out.writeBoolean(record.isCompleted());
+    }
+
+    static HabitRecord readRecord(DataInput in) throws IOException {
+        return new HabitRecord(in.readInt(), in.readInt(), readDate(in), in.readBoolean());
+    }
+
+    static void writeStats(DataOutput out, HabitStats stats) throws IOException {
+        out.writeInt(stats.getHabitId());
+        out.writeInt(stats.getCurrentStreak());
+        out.writeInt(stats.getLongestStreak());
+        writeDate(out, stats.getLastCompletedDate());
+        out.writeInt(stats.getTotalCompletions());
+        out.writeLong(stats.getRecentDays());
+    }
+
+    static HabitStats readStats(DataInput in) throws IOException {
+        return new HabitStats(in.readInt(), in.readInt(), in.readInt(), readDate(in), in.readInt(), in.readLong());
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeDate(DataOutput out, LocalDate date) throws IOException {
+        out.writeInt(date != null ? (int) date.toEpochDay() : NULL_DATE);
+    }
+
+    private static LocalDate readDate(DataInput in) throws IOException {
+        int day = in.readInt();
+        return day != NULL_DATE ? LocalDate.ofEpochDay(day) : null;
+    }
+}
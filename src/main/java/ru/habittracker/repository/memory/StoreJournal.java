@@ -0,0 +1,51 @@
+package ru.habittracker.repository.memory;
+
+import ru.habittracker.model.Habit;
+import ru.habittracker.model.HabitRecord;
+import ru.habittracker.model.HabitStats;
+import ru.habittracker.model.User;
+
+/**
+ * Журнал изменений {@link InMemoryStore}.
+ * <p>
+ * Хранилище вызывает методы журнала после каждого изменения под блокировкой записи,
+ * поэтому порядок записей в журнале совпадает с порядком изменений. Все операции
+ * журнала абсолютные (положить объект целиком или удалить по ключу), поэтому их
+ * повторное применение при восстановлении идемпотентно.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public interface StoreJournal {
+
+    void logPutUser(User user);
+
+    void logRemoveUser(int id);
+
+    void logPutHabit(Habit habit);
+
+    void logRemoveHabit(int id);
+
+    void logPutRecord(HabitRecord record);
+
+    void logRemoveRecord(int id);
+
+    void logPutStats(HabitStats stats);
+
+    void logRemoveStats(int habitId);
+
+    /**
+     * Возвращает номер последней записи, добавленной в журнал.
+     *
+     * @return номер последней записи
+     */
+    long lastAppendedLsn();
+
+    /**
+     * Ожидает, пока записи до указанного номера включительно будут сброшены на диск.
+     *
+     * @param lsn номер записи
+     */
+    void awaitDurable(long lsn);
+}
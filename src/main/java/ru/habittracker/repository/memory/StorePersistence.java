@@ -0,0 +1,139 @@
+package ru.habittracker.repository.memory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Долговременное хранение {@link InMemoryStore} на диске.
+ * <p>
+ * При запуске загружает последний снимок и воспроизводит журнал упреждающей записи после него,
+ * затем подключает журнал к хранилищу. Снимки делаются периодически в фоновом потоке;
+ * после записи снимка сегменты журнала, вошедшие в него, и старые снимки удаляются.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public class StorePersistence implements Closeable {
+
+    private final Path directory;
+    private final InMemoryStore store;
+    private final Object snapshotLock = new Object();
+
+    private WriteAheadLog wal;
+    private ScheduledExecutorService scheduler;
+    private long recoveryMillis;
+    private long replayedLsn;
+
+    /**
+     * Создает объект хранения для указанного каталога и хранилища.
+     *
+     * @param directory каталог для снимков и журнала
+     * @param store     пустое хранилище, в которое будут восстановлены данные
+     */
+    public StorePersistence(Path directory, InMemoryStore store) {
+        this.directory = directory;
+        this.store = store;
+    }
+
+    /**
+     * Восстанавливает данные из снимка и журнала и подключает журнал к хранилищу.
+     *
+     * @throws IOException при ошибке чтения или повреждении данных
+     */
+    public void recover() throws IOException {
+        long start = System.nanoTime();
+        Files.createDirectories(directory);
+
+        long snapshotLsn = StoreSnapshot.load(directory, store);
+        long lastLsn = WriteAheadLog.replay(directory, snapshotLsn, store);
+
+        wal = WriteAheadLog.open(directory, lastLsn);
+        store.setJournal(wal);
+
+        replayedLsn = lastLsn - snapshotLsn;
+        recoveryMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    /**
+     * Запускает периодическое создание снимков.
+     *
+     * @param intervalSeconds интервал между снимками в секундах
+     */
+    public void startSnapshots(long intervalSeconds) {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "store-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Записывает снимок хранилища и удаляет ставшие ненужными сегменты журнала и снимки.
+     * <p>
+     * Запись в хранилище во время снимка не блокируется.
+     * </p>
+     *
+     * @throws IOException при ошибке записи
+     */
+    public void snapshot() throws IOException {
+        synchronized (snapshotLock) {
+            long lsn = wal.rotate();
+            Path written = StoreSnapshot.write(directory, store, lsn);
+            wal.deleteOldSegments();
+            StoreSnapshot.deleteOthers(directory, written);
+        }
+    }
+
+    /**
+     * Возвращает время последнего восстановления в миллисекундах.
+     *
+     * @return время восстановления
+     */
+    public long getRecoveryMillis() {
+        return recoveryMillis;
+    }
+
+    /**
+     * Возвращает количество записей журнала, воспроизведённых при последнем восстановлении.
+     *
+     * @return количество воспроизведённых записей
+     */
+    public long getReplayedEntries() {
+        return replayedLsn;
+    }
+
+    /**
+     * Останавливает создание снимков, записывает финальный снимок и закрывает журнал.
+     *
+     * @throws IOException при ошибке записи
+     */
+    @Override
+    public void close() throws IOException {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (wal != null) {
+            snapshot();
+            store.setJournal(null);
+            wal.close();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package ru.habittracker.repository.memory;
+
+import ru.habittracker.model.Habit;
+import ru.habittracker.model.HabitRecord;
+import ru.habittracker.model.HabitStats;
+import ru.habittracker.model.User;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Компактный бинарный снимок {@link InMemoryStore}.
+ * <p>
+ * Снимок пишется без остановки записи в хранилище («нечёткий» снимок): в него попадает
+ * состояние не раньше момента с номером журнала {@code lsn}. При восстановлении поверх снимка
+ * воспроизводятся все записи журнала после {@code lsn}; так как операции журнала абсолютные,
+ * повторное применение уже попавших в снимок изменений даёт то же итоговое состояние.
+ * Файл сначала пишется во временный и затем атомарно переименовывается.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+final class StoreSnapshot {
+
+    private static final int MAGIC = 0x48545353;
+    private static final int VERSION = 1;
+    private static final byte END = 0;
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+
+    private StoreSnapshot() {
+    }
+
+    /**
+     * Записывает снимок хранилища.
+     *
+     * @param directory каталог данных
+     * @param store     хранилище
+     * @param lsn       номер записи журнала, изменения до которой включительно уже есть в хранилище
+     * @return путь к записанному снимку
+     * @throws IOException при ошибке записи
+     */
+    static Path write(Path directory, InMemoryStore store, long lsn) throws IOException {
+        Path target = directory.resolve(String.format("%s%020d%s", PREFIX, lsn, SUFFIX));
+        Path tmp = directory.resolve(target.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            CRC32 crc = new CRC32();
+            OutputStream raw = Channels.newOutputStream(channel);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(raw, crc), 1 << 16));
+
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(lsn);
+            int[] sequences = store.getSequences();
+            for (int sequence : sequences) {
+                out.writeInt(sequence);
+            }
+            for (User user : store.getUsers()) {
+                out.writeByte(StoreCodec.PUT_USER);
+                StoreCodec.writeUser(out, user);
+            }
+            for (Habit habit : store.getHabits()) {
+                out.writeByte(StoreCodec.PUT_HABIT);
+                StoreCodec.writeHabit(out, habit);
+            }
+            for (HabitRecord record : store.getRecords()) {
+                out.writeByte(StoreCodec.PUT_RECORD);
+                StoreCodec.writeRecord(out, record);
+            }
+            for (HabitStats stats : store.getAllStats()) {
+                out.writeByte(StoreCodec.PUT_STATS);
+                StoreCodec.writeStats(out, stats);
+            }
+            out.writeByte(END);
+            out.flush();
+
+            DataOutputStream trailer = new DataOutputStream(raw);
+            trailer.writeInt((int) crc.getValue());
+            trailer.flush();
+            channel.force(true);
+        }
+
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return target;
+    }
+
+    /**
+     * Загружает последний снимок в хранилище.
+     *
+     * @param directory каталог данных
+     * @param store     пустое хранилище
+     * @return номер записи журнала, на момент которой сделан снимок, или 0, если снимков нет
+     * @throws IOException при ошибке чтения или повреждении снимка
+     */
+    static long load(Path directory, InMemoryStore store) throws IOException {
+        List<Path> snapshots = list(directory);
+        if (snapshots.isEmpty()) {
+            return 0;
+        }
+        Path latest = snapshots.get(snapshots.size() - 1);
+
+        CRC32 crc = new CRC32();
+        try (BufferedInputStream raw = new BufferedInputStream(Files.newInputStream(latest), 1 << 16)) {
+            DataInputStream in = new DataInputStream(new CheckedInputStream(raw, crc));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Неверный формат снимка " + latest);
+            }
+            long lsn = in.readLong();
+            int userSeq = in.readInt();
+            int habitSeq = in.readInt();
+            int recordSeq = in.readInt();
+
+            byte type;
+            while ((type = in.readByte()) != END) {
+                StoreCodec.apply(store, type, in);
+            }
+            int expectedCrc = (int) crc.getValue();
+            if (new DataInputStream(raw).readInt() != expectedCrc) {
+                throw new IOException("Неверная контрольная сумма снимка " + latest);
+            }
+            store.restoreSequences(userSeq, habitSeq, recordSeq);
+            return lsn;
+        }
+    }
+
+    /**
+     * Удаляет все снимки, кроме указанного, и незавершённые временные файлы.
+     *
+     * @param directory каталог данных
+     * @param keep      снимок, который нужно оставить
+     * @throws IOException при ошибке удаления
+     */
+    static void deleteOthers(Path directory, Path keep) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                String name = path.getFileName().toString();
+                if (name.startsWith(PREFIX) && !path.equals(keep)) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+    }
+
+    private static List<Path> list(Path directory) throws IOException {
+        List<Path> snapshots = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return snapshots;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+            }).sorted().forEach(snapshots::add);
+        }
+        return snapshots;
+    }
+}
@@ -0,0 +1,345 @@
+package ru.habittracker.repository.memory;
+
+import ru.habittracker.model.Habit;
+import ru.habittracker.model.HabitRecord;
+import ru.habittracker.model.HabitStats;
+import ru.habittracker.model.User;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал упреждающей записи (WAL) для {@link InMemoryStore}.
+ * <p>
+ * Записи добавляются в конец текущего сегмента через {@link FileChannel} в формате
+ * {@code [длина][crc32][lsn][тип][данные]}. Сброс на диск групповой: поток, вызвавший
+ * {@link #awaitDurable(long)}, выполняет один {@code force} сразу для всех записей,
+ * добавленных к этому моменту другими потоками. Сегменты называются по номеру первой
+ * записи и удаляются после того, как их содержимое попало в снимок.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public class WriteAheadLog implements StoreJournal, Closeable {
+
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_SIZE = 8;
+    private static final int MAX_ENTRY_SIZE = 1 << 20;
+
+    private final Path directory;
+    private final ExposedByteArrayOutputStream body = new ExposedByteArrayOutputStream(256);
+    private final DataOutputStream bodyOut = new DataOutputStream(body);
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    private final CRC32 crc = new CRC32();
+    private final Object syncLock = new Object();
+
+    private FileChannel channel;
+    private Path segment;
+    private long appendedLsn;
+    private volatile long durableLsn;
+
+    private WriteAheadLog(Path directory, long lastLsn) throws IOException {
+        this.directory = directory;
+        this.appendedLsn = lastLsn;
+        this.durableLsn = lastLsn;
+        openSegment(lastLsn + 1);
+    }
+
+    /**
+     * Открывает журнал для записи, продолжая нумерацию после последней восстановленной записи.
+     *
+     * @param directory каталог журнала
+     * @param lastLsn   номер последней записи, уже применённой к хранилищу
+     * @return журнал, готовый к записи
+     * @throws IOException при ошибке открытия сегмента
+     */
+    public static WriteAheadLog open(Path directory, long lastLsn) throws IOException {
+        Files.createDirectories(directory);
+        return new WriteAheadLog(directory, lastLsn);
+    }
+
+    /**
+     * Воспроизводит записи журнала с номером больше указанного.
+     * <p>
+     * Оборванная или повреждённая запись в конце последнего сегмента считается следствием
+     * сбоя во время записи: сегмент обрезается до последней целой записи. Повреждение
+     * в середине журнала приводит к ошибке.
+     * </p>
+     *
+     * @param directory каталог журнала
+     * @param afterLsn  номер записи, после которой начинается воспроизведение
+     * @param store     хранилище, к которому применяются записи
+     * @return номер последней записи в журнале (не меньше {@code afterLsn})
+     * @throws IOException при ошибке чтения или повреждении журнала
+     */
+    public static long replay(Path directory, long afterLsn, InMemoryStore store) throws IOException {
+        List<Path> segments = listSegments(directory);
+        long lastLsn = afterLsn;
+        byte[] buffer = new byte[256];
+        CRC32 checksum = new CRC32();
+
+        for (int i = 0; i < segments.size(); i++) {
+            Path path = segments.get(i);
+            long validSize = 0;
+            boolean torn = false;
+
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+                while (true) {
+                    int length;
+                    try {
+                        length = in.readInt();
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    try {
+                        int expectedCrc = in.readInt();
+                        if (length <= 0 || length > MAX_ENTRY_SIZE) {
+                            torn = true;
+                            break;
+                        }
+                        if (buffer.length < length) {
+                            buffer = new byte[Math.max(length, buffer.length * 2)];
+                        }
+                        in.readFully(buffer, 0, length);
+                        checksum.reset();
+                        checksum.update(buffer, 0, length);
+                        if ((int) checksum.getValue() != expectedCrc) {
+                            torn = true;
+                            break;
+                        }
+                    } catch (EOFException e) {
+                        torn = true;
+                        break;
+                    }
+
+                    DataInputStream entry = new DataInputStream(new ByteArrayInputStream(buffer, 0, length));
+                    long lsn = entry.readLong();
+                    byte type = entry.readByte();
+                    if (lsn > afterLsn) {
+                        StoreCodec.apply(store, type, entry);
+                    }
+                    lastLsn = Math.max(lastLsn, lsn);
+                    validSize += HEADER_SIZE + length;
+                }
+            }
+
+            if (torn) {
+                if (i != segments.size() - 1) {
+                    throw new IOException("Повреждён сегмент журнала " + path);
+                }
+                try (FileChannel ch = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    ch.truncate(validSize);
+                    ch.force(true);
+                }
+            }
+        }
+        return lastLsn;
+    }
+
+    @Override
+    public void logPutUser(User user) {
+        append(StoreCodec.PUT_USER, out -> StoreCodec.writeUser(out, user));
+    }
+
+    @Override
+    public void logRemoveUser(int id) {
+        append(StoreCodec.REMOVE_USER, out -> out.writeInt(id));
+    }
+
+    @Override
+    public void logPutHabit(Habit habit) {
+        append(StoreCodec.PUT_HABIT, out -> StoreCodec.writeHabit(out, habit));
+    }
+
+    @Override
+    public void logRemoveHabit(int id) {
+        append(StoreCodec.REMOVE_HABIT, out -> out.writeInt(id));
+    }
+
+    @Override
+    public void logPutRecord(HabitRecord record) {
+        append(StoreCodec.PUT_RECORD, out -> StoreCodec.writeRecord(out, record));
+    }
+
+    @Override
+    public void logRemoveRecord(int id) {
+        append(StoreCodec.REMOVE_RECORD, out -> out.writeInt(id));
+    }
+
+    @Override
+    public void logPutStats(HabitStats stats) {
+        append(StoreCodec.PUT_STATS, out -> StoreCodec.writeStats(out, stats));
+    }
+
+    @Override
+    public void logRemoveStats(int habitId) {
+        append(StoreCodec.REMOVE_STATS, out -> out.writeInt(habitId));
+    }
+
+    @Override
+    public synchronized long lastAppendedLsn() {
+        return appendedLsn;
+    }
+
+    @Override
+    public void awaitDurable(long lsn) {
+        if (durableLsn >= lsn) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (durableLsn >= lsn) {
+                return;
+            }
+            long target;
+            FileChannel current;
+            synchronized (this) {
+                target = appendedLsn;
+                current = channel;
+            }
+            try {
+                current.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Ошибка сброса журнала на диск", e);
+            }
+            durableLsn = target;
+        }
+    }
+
+    /**
+     * Начинает новый сегмент журнала.
+     * <p>
+     * Все записи с номером не больше возвращённого находятся в предыдущих сегментах
+     * и уже сброшены на диск.
+     * </p>
+     *
+     * @return номер последней записи в предыдущих сегментах
+     * @throws IOException при ошибке открытия нового сегмента
+     */
+    public long rotate() throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                channel.force(false);
+                channel.close();
+                durableLsn = appendedLsn;
+                openSegment(appendedLsn + 1);
+                return appendedLsn;
+            }
+        }
+    }
+
+    /**
+     * Удаляет сегменты, предшествующие текущему.
+     *
+     * @throws IOException при ошибке удаления
+     */
+    public void deleteOldSegments() throws IOException {
+        Path current;
+        synchronized (this) {
+            current = segment;
+        }
+        for (Path path : listSegments(directory)) {
+            if (!path.equals(current) && segmentStart(path) < segmentStart(current)) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                channel.force(false);
+                channel.close();
+                durableLsn = appendedLsn;
+            }
+        }
+    }
+
+    private synchronized void append(byte type, EntryWriter writer) {
+        long lsn = appendedLsn + 1;
+        try {
+            body.reset();
+            bodyOut.writeLong(lsn);
+            bodyOut.writeByte(type);
+            writer.write(bodyOut);
+
+            crc.reset();
+            crc.update(body.buffer(), 0, body.size());
+            header.clear();
+            header.putInt(body.size());
+            header.putInt((int) crc.getValue());
+            header.flip();
+
+            ByteBuffer[] buffers = {header, ByteBuffer.wrap(body.buffer(), 0, body.size())};
+            while (buffers[1].hasRemaining()) {
+                channel.write(buffers);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка записи в журнал", e);
+        }
+        appendedLsn = lsn;
+    }
+
+    private void openSegment(long startLsn) throws IOException {
+        segment = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, startLsn, SEGMENT_SUFFIX));
+        channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static List<Path> listSegments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).sorted().forEach(segments::add);
+        }
+        return segments;
+    }
+
+    private static long segmentStart(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Запись данных операции в буфер журнала.
+     */
+    private interface EntryWriter {
+        void write(DataOutput out) throws IOException;
+    }
+
+    /**
+     * {@link ByteArrayOutputStream} с доступом к внутреннему буферу без копирования.
+     */
+    private static final class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+        ExposedByteArrayOutputStream(int size) {
+            super(size);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package ru.habittracker.repository.sharded;
+
+import ru.habittracker.config.DatabaseWorkload;
+import ru.habittracker.config.ShardedConnectionManager;
+import ru.habittracker.repository.SqlConstants;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Определяет шард, на котором хранится привычка.
+ * <p>
+ * Записи о выполнении и статистика адресуются только ID привычки, поэтому шард привычки
+ * кэшируется: при сохранении и чтении привычек через {@link ShardedHabitRepository},
+ * а для неизвестных привычек — после опроса всех шардов. Кэш действителен, пока пользователи
+ * не переносятся между шардами; перенос выполняется при остановленном приложении.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public class HabitShardLocator {
+
+    private final ShardedConnectionManager shards;
+    private final Map<Integer, Integer> habitShards = new ConcurrentHashMap<>();
+
+    /**
+     * Конструктор поиска шарда привычки.
+     *
+     * @param shards менеджер подключений к шардам
+     */
+    public HabitShardLocator(ShardedConnectionManager shards) {
+        this.shards = shards;
+    }
+
+    /**
+     * Возвращает шард привычки.
+     *
+     * @param habitId ID привычки
+     * @return номер шарда или -1, если привычка не найдена ни на одном шарде
+     */
+    public int shardOf(int habitId) {
+        Integer cached = habitShards.get(habitId);
+        if (cached != null) {
+            return cached;
+        }
+        List<Boolean> found = shards.queryAll(shard -> exists(shard, habitId));
+        for (int shard = 0; shard < found.size(); shard++) {
+            if (found.get(shard)) {
+                habitShards.put(habitId, shard);
+                return shard;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Запоминает шард привычки.
+     *
+     * @param habitId ID привычки
+     * @param shard   номер шарда
+     */
+    void remember(int habitId, int shard) {
+        habitShards.put(habitId, shard);
+    }
+
+    /**
+     * Удаляет привычку из кэша.
+     *
+     * @param habitId ID привычки
+     */
+    void forget(int habitId) {
+        habitShards.remove(habitId);
+    }
+
+    private boolean exists(int shard, int habitId) {
+        try {
+            return shards.getShard(shard).execute(DatabaseWorkload.READ, true, conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(SqlConstants.SELECT_HABIT_OWNER_BY_ID)) {
+                    stmt.setInt(1, habitId);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        return rs.next();
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+}
@@ -0,0 +1,126 @@
+package ru.habittracker.repository.sharded;
+
+import ru.habittracker.config.ShardedConnectionManager;
+import ru.habittracker.model.BackfillPattern;
+import ru.habittracker.model.CompletionHistory;
+import ru.habittracker.model.CompletionResult;
+import ru.habittracker.model.HabitRecord;
+import ru.habittracker.repository.HistoryVisitor;
+import ru.habittracker.repository.IHabitRecordRepository;
+import ru.habittracker.repository.impl.HabitRecordRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+/**
+ * Репозиторий записей о выполнении привычек, распределённых по шардам.
+ * <p>
+ * Записи хранятся на шарде привычки, который определяет {@link HabitShardLocator}.
+ * Запросы по ID записи (поиск и удаление) не знают владельца и опрашивают все шарды параллельно.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public class ShardedHabitRecordRepository implements IHabitRecordRepository {
+
+    private final ShardedConnectionManager shards;
+    private final HabitShardLocator locator;
+    private final HabitRecordRepository[] repositories;
+
+    /**
+     * Конструктор репозитория записей привычек.
+     *
+     * @param shards  менеджер подключений к шардам
+     * @param locator поиск шарда привычки
+     */
+    public ShardedHabitRecordRepository(ShardedConnectionManager shards, HabitShardLocator locator) {
+        this.shards = shards;
+        this.locator = locator;
+        this.repositories = new HabitRecordRepository[shards.getShardCount()];
+        for (int shard = 0; shard < repositories.length; shard++) {
+            repositories[shard] = new HabitRecordRepository(shards.getShard(shard));
+        }
+    }
+
+    @Override
+    public Optional<HabitRecord> save(HabitRecord record) {
+        int shard = locator.shardOf(record.getHabitId());
+        return shard < 0 ? Optional.empty() : repositories[shard].save(record);
+    }
+
+    @Override
+    public Optional<HabitRecord> saveCompletion(HabitRecord record) {
+        int shard = locator.shardOf(record.getHabitId());
+        return shard < 0 ? Optional.empty() : repositories[shard].saveCompletion(record);
+    }
+
+    @Override
+    public Map<Integer, CompletionResult> saveCompletions(int userId, Collection<Integer> habitIds, LocalDate date) {
+        // Привычки пользователя хранятся на его шарде
+        return repositories[shards.shardForUser(userId)].saveCompletions(userId, habitIds, date);
+    }
+
+    @Override
+    public OptionalInt saveCompletionRange(int userId, int habitId, LocalDate from, LocalDate to, BackfillPattern pattern) {
+        return repositories[shards.shardForUser(userId)].saveCompletionRange(userId, habitId, from, to, pattern);
+    }
+
+    @Override
+    public int saveAll(List<HabitRecord> records) {
+        List<List<HabitRecord>> byShard = new ArrayList<>(repositories.length);
+        for (int shard = 0; shard < repositories.length; shard++) {
+            byShard.add(new ArrayList<>());
+        }
+        for (HabitRecord record : records) {
+            int shard = locator.shardOf(record.getHabitId());
+            if (shard >= 0) {
+                byShard.get(shard).add(record);
+            }
+        }
+        int saved = 0;
+        for (int shard = 0; shard < repositories.length; shard++) {
+            saved += repositories[shard].saveAll(byShard.get(shard));
+        }
+        return saved;
+    }
+
+    @Override
+    public Optional<HabitRecord> findById(int id) {
+        return shards.queryAll(shard -> repositories[shard].findById(id)).stream()
+                .flatMap(Optional::stream)
+                .findFirst();
+    }
+
+    @Override
+    public List<HabitRecord> findByHabitId(int habitId) {
+        int shard = locator.shardOf(habitId);
+        return shard < 0 ? new ArrayList<>() : repositories[shard].findByHabitId(habitId);
+    }
+
+    @Override
+    public CompletionHistory findCompletionHistory(int habitId) {
+        int shard = locator.shardOf(habitId);
+        return shard < 0 ? CompletionHistory.empty() : repositories[shard].findCompletionHistory(habitId);
+    }
+
+    @Override
+    public List<HabitRecord> findByUserIdAndDate(int userId, LocalDate date) {
+        return repositories[shards.shardForUser(userId)].findByUserIdAndDate(userId, date);
+    }
+
+    @Override
+    public boolean streamUserHistory(int userId, HistoryVisitor visitor) {
+        return repositories[shards.shardForUser(userId)].streamUserHistory(userId, visitor);
+    }
+
+    @Override
+    public boolean delete(int id) {
+        return shards.queryAll(shard -> repositories[shard].delete(id)).contains(true);
+    }
+}
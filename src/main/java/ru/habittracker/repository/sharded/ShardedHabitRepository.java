@@ -0,0 +1,101 @@
+package ru.habittracker.repository.sharded;
+
+import ru.habittracker.config.ShardedConnectionManager;
+import ru.habittracker.model.Habit;
+import ru.habittracker.repository.IHabitRepository;
+import ru.habittracker.repository.impl.HabitRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Репозиторий привычек, распределённых по шардам.
+ * <p>
+ * Привычка хранится на шарде своего пользователя, поэтому каждый запрос направляется
+ * на один шард по ID пользователя. Шард найденных и сохранённых привычек запоминается
+ * в {@link HabitShardLocator} для запросов записей и статистики.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public class ShardedHabitRepository implements IHabitRepository {
+
+    private final ShardedConnectionManager shards;
+    private final HabitShardLocator locator;
+    private final HabitRepository[] repositories;
+
+    /**
+     * Конструктор репозитория привычек.
+     *
+     * @param shards  менеджер подключений к шардам
+     * @param locator поиск шарда привычки
+     */
+    public ShardedHabitRepository(ShardedConnectionManager shards, HabitShardLocator locator) {
+        this.shards = shards;
+        this.locator = locator;
+        this.repositories = new HabitRepository[shards.getShardCount()];
+        for (int shard = 0; shard < repositories.length; shard++) {
+            repositories[shard] = new HabitRepository(shards.getShard(shard));
+        }
+    }
+
+    @Override
+    public Habit save(Habit habit) {
+        int shard = shards.shardForUser(habit.getUserId());
+        Habit saved = repositories[shard].save(habit);
+        if (saved != null) {
+            locator.remember(saved.getId(), shard);
+        }
+        return saved;
+    }
+
+    @Override
+    public Habit findByIdAndUserId(int id, int userId) {
+        int shard = shards.shardForUser(userId);
+        Habit habit = repositories[shard].findByIdAndUserId(id, userId);
+        if (habit != null) {
+            locator.remember(id, shard);
+        }
+        return habit;
+    }
+
+    @Override
+    public List<Habit> findByUserId(int userId) {
+        int shard = shards.shardForUser(userId);
+        return remember(shard, repositories[shard].findByUserId(userId));
+    }
+
+    @Override
+    public List<Habit> findByUserIdAndCreationDate(int userId, LocalDate date) {
+        int shard = shards.shardForUser(userId);
+        return remember(shard, repositories[shard].findByUserIdAndCreationDate(userId, date));
+    }
+
+    @Override
+    public List<Habit> findByUserIdAndFrequency(int userId, int frequency) {
+        int shard = shards.shardForUser(userId);
+        return remember(shard, repositories[shard].findByUserIdAndFrequency(userId, frequency));
+    }
+
+    @Override
+    public boolean update(Habit habit) {
+        return repositories[shards.shardForUser(habit.getUserId())].update(habit);
+    }
+
+    @Override
+    public boolean deleteByIdAndUserId(int id, int userId) {
+        boolean deleted = repositories[shards.shardForUser(userId)].deleteByIdAndUserId(id, userId);
+        if (deleted) {
+            locator.forget(id);
+        }
+        return deleted;
+    }
+
+    private List<Habit> remember(int shard, List<Habit> habits) {
+        for (Habit habit : habits) {
+            locator.remember(habit.getId(), shard);
+        }
+        return habits;
+    }
+}
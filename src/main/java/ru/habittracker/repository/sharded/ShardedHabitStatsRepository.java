@@ -0,0 +1,59 @@
+package ru.habittracker.repository.sharded;
+
+import ru.habittracker.config.ShardedConnectionManager;
+import ru.habittracker.model.HabitStats;
+import ru.habittracker.repository.IHabitStatsRepository;
+import ru.habittracker.repository.impl.HabitStatsRepository;
+
+import java.util.Optional;
+
+/**
+ * Репозиторий статистики привычек, распределённой по шардам.
+ * <p>
+ * Статистика хранится рядом с записями на шарде привычки. Полный пересчёт выполняется
+ * на всех шардах параллельно.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public class ShardedHabitStatsRepository implements IHabitStatsRepository {
+
+    private final ShardedConnectionManager shards;
+    private final HabitShardLocator locator;
+    private final HabitStatsRepository[] repositories;
+
+    /**
+     * Конструктор репозитория статистики привычек.
+     *
+     * @param shards  менеджер подключений к шардам
+     * @param locator поиск шарда привычки
+     */
+    public ShardedHabitStatsRepository(ShardedConnectionManager shards, HabitShardLocator locator) {
+        this.shards = shards;
+        this.locator = locator;
+        this.repositories = new HabitStatsRepository[shards.getShardCount()];
+        for (int shard = 0; shard < repositories.length; shard++) {
+            repositories[shard] = new HabitStatsRepository(shards.getShard(shard));
+        }
+    }
+
+    @Override
+    public Optional<HabitStats> findByHabitId(int habitId) {
+        int shard = locator.shardOf(habitId);
+        return shard < 0 ? Optional.empty() : repositories[shard].findByHabitId(habitId);
+    }
+
+    @Override
+    public Optional<HabitStats> rebuild(int habitId) {
+        int shard = locator.shardOf(habitId);
+        return shard < 0 ? Optional.empty() : repositories[shard].rebuild(habitId);
+    }
+
+    @Override
+    public int rebuildAll() {
+        return shards.queryAll(shard -> repositories[shard].rebuildAll()).stream()
+                .mapToInt(Integer::intValue)
+                .sum();
+    }
+}
@@ -0,0 +1,107 @@
+package ru.habittracker.repository.sharded;
+
+import ru.habittracker.config.DatabaseWorkload;
+import ru.habittracker.config.ShardedConnectionManager;
+import ru.habittracker.model.User;
+import ru.habittracker.repository.IUserRepository;
+import ru.habittracker.repository.SqlConstants;
+import ru.habittracker.repository.impl.UserRepository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+/**
+ * Репозиторий пользователей, распределённых по шардам.
+ * <p>
+ * Запросы по ID направляются на шард пользователя. Новый ID берётся из последовательности
+ * очередного шарда (ID уникальны глобально), после чего строка вставляется на шард,
+ * которому этот ID принадлежит по кольцу. Поиск по email опрашивает все шарды параллельно;
+ * уникальность email между шардами проверяется сервисом перед сохранением.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public class ShardedUserRepository implements IUserRepository {
+
+    private final ShardedConnectionManager shards;
+    private final UserRepository[] repositories;
+
+    /**
+     * Конструктор репозитория пользователей.
+     *
+     * @param shards менеджер подключений к шардам
+     */
+    public ShardedUserRepository(ShardedConnectionManager shards) {
+        this.shards = shards;
+        this.repositories = new UserRepository[shards.getShardCount()];
+        for (int shard = 0; shard < repositories.length; shard++) {
+            repositories[shard] = new UserRepository(shards.getShard(shard));
+        }
+    }
+
+    @Override
+    public Optional<User> save(User user) {
+        OptionalInt id;
+        try {
+            // Повтор после обрыва соединения только пропускает значение последовательности
+            id = shards.getShard(shards.nextIdShard()).execute(DatabaseWorkload.WRITE, true, conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(SqlConstants.SELECT_NEXT_USER_ID);
+                     ResultSet rs = stmt.executeQuery()) {
+                    return rs.next() ? OptionalInt.of(rs.getInt(1)) : OptionalInt.empty();
+                }
+            });
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return Optional.empty();
+        }
+        if (id.isEmpty()) {
+            return Optional.empty();
+        }
+
+        try {
+            return shards.getShard(shards.shardForUser(id.getAsInt())).execute(DatabaseWorkload.WRITE, false, conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(SqlConstants.INSERT_USER_WITH_ID)) {
+                    stmt.setInt(1, id.getAsInt());
+                    stmt.setString(2, user.getEmail());
+                    stmt.setString(3, user.getPassword());
+                    stmt.setString(4, user.getName());
+                    stmt.setInt(5, user.getVersion());
+                    if (stmt.executeUpdate() > 0) {
+                        user.setId(id.getAsInt());
+                        return Optional.of(user);
+                    }
+                }
+                return Optional.<User>empty();
+            });
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return shards.queryAll(shard -> repositories[shard].findByEmail(email)).stream()
+                .flatMap(Optional::stream)
+                .findFirst();
+    }
+
+    @Override
+    public Optional<User> findById(int userId) {
+        return repositories[shards.shardForUser(userId)].findById(userId);
+    }
+
+    @Override
+    public boolean update(User user) {
+        return repositories[shards.shardForUser(user.getId())].update(user);
+    }
+
+    @Override
+    public boolean delete(int userId) {
+        return repositories[shards.shardForUser(userId)].delete(userId);
+    }
+}
@@ -0,0 +1,25 @@
+package ru.habittracker.security;
+
+/**
+ * Исключение, выбрасываемое, когда очередь проверки паролей заполнена.
+ * <p>
+ * Запрос отклоняется сразу, не дожидаясь освобождения потоков, чтобы волна входов
+ * не занимала потоки обработки остальных запросов.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public class LoginThrottledException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Конструктор исключения.
+     *
+     * @param message сообщение об ошибке
+     */
+    public LoginThrottledException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,146 @@
+package ru.habittracker.security;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Хеширование паролей алгоритмом PBKDF2 (HMAC-SHA256) средствами JDK.
+ * <p>
+ * Хеш хранится в поле пароля в виде {@code pbkdf2$<итерации>$<соль>$<хеш>} (соль и хеш в Base64),
+ * поэтому количество итераций можно увеличивать без миграции: старые хеши продолжают проверяться,
+ * а {@link #needsRehash(String)} сообщает, что пароль пора перехешировать. Значения без префикса
+ * считаются паролями, сохранёнными открытым текстом до перехода на хеширование.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public class PasswordHasher {
+
+    /**
+     * Количество итераций по умолчанию (рекомендация OWASP для PBKDF2-HMAC-SHA256).
+     */
+    public static final int DEFAULT_ITERATIONS = 600_000;
+
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String PREFIX = "pbkdf2$";
+    private static final int SALT_BYTES = 16;
+    private static final int KEY_BITS = 256;
+
+    private final int iterations;
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * Конструктор с количеством итераций по умолчанию.
+     */
+    public PasswordHasher() {
+        this(DEFAULT_ITERATIONS);
+    }
+
+    /**
+     * Конструктор хешера.
+     *
+     * @param iterations количество итераций PBKDF2
+     */
+    public PasswordHasher(int iterations) {
+        if (iterations <= 0) {
+            throw new IllegalArgumentException("Количество итераций должно быть положительным");
+        }
+        this.iterations = iterations;
+    }
+
+    /**
+     * Вычисляет хеш пароля со случайной солью.
+     *
+     * @param password пароль
+     * @return хеш в формате для хранения
+     */
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return PREFIX + iterations + '$' + encoder.encodeToString(salt) + '$'
+                + encoder.encodeToString(derive(password, salt, iterations));
+    }
+
+    /**
+     * Проверяет пароль по сохранённому значению за время, не зависящее от места расхождения.
+     *
+     * @param password пароль
+     * @param stored   сохранённый хеш или пароль открытым текстом
+     * @return true, если пароль верный
+     */
+    public boolean verify(String password, String stored) {
+        if (password == null || stored == null) {
+            return false;
+        }
+        if (!isHashed(stored)) {
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8), stored.getBytes(StandardCharsets.UTF_8));
+        }
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4) {
+            return false;
+        }
+        try {
+            Base64.Decoder decoder = Base64.getDecoder();
+            byte[] expected = decoder.decode(parts[3]);
+            return MessageDigest.isEqual(derive(password, decoder.decode(parts[2]), Integer.parseInt(parts[1])), expected);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Проверяет, сохранено ли значение как хеш.
+     *
+     * @param stored сохранённое значение
+     * @return true, если это хеш PBKDF2
+     */
+    public boolean isHashed(String stored) {
+        return stored != null && stored.startsWith(PREFIX);
+    }
+
+    /**
+     * Проверяет, нужно ли перехешировать пароль: он хранится открытым текстом или
+     * с меньшим количеством итераций, чем настроено.
+     *
+     * @param stored сохранённое значение
+     * @return true, если пароль нужно перехешировать
+     */
+    public boolean needsRehash(String stored) {
+        if (!isHashed(stored)) {
+            return true;
+        }
+        int end = stored.indexOf('$', PREFIX.length());
+        try {
+            return end < 0 || Integer.parseInt(stored.substring(PREFIX.length(), end)) < iterations;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Возвращает количество итераций PBKDF2.
+     *
+     * @return количество итераций
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, KEY_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Алгоритм " + ALGORITHM + " недоступен", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package ru.habittracker.security;
+
+import java.io.Closeable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ограниченный пул для хеширования и проверки паролей.
+ * <p>
+ * PBKDF2 занимает процессор на сотни миллисекунд, поэтому вычисления выполняются на отдельном пуле
+ * размером с число ядер и с ограниченной очередью. Когда очередь заполнена, задача отклоняется сразу
+ * с {@link LoginThrottledException}: при волне входов остальные запросы продолжают обслуживаться,
+ * а лишние входы получают быстрый отказ вместо долгого ожидания.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public class PasswordVerificationExecutor implements Closeable {
+
+    private static final int DEFAULT_QUEUE_PER_THREAD = 8;
+
+    private final PasswordHasher hasher;
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Конструктор пула размером с число ядер.
+     *
+     * @param hasher хешер паролей
+     */
+    public PasswordVerificationExecutor(PasswordHasher hasher) {
+        this(hasher, Runtime.getRuntime().availableProcessors(),
+                Runtime.getRuntime().availableProcessors() * DEFAULT_QUEUE_PER_THREAD);
+    }
+
+    /**
+     * Конструктор пула.
+     *
+     * @param hasher        хешер паролей
+     * @param threads       количество потоков
+     * @param queueCapacity максимальное количество ожидающих задач
+     */
+    public PasswordVerificationExecutor(PasswordHasher hasher, int threads, int queueCapacity) {
+        this.hasher = hasher;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-worker-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Проверяет пароль.
+     *
+     * @param password пароль
+     * @param stored   сохранённый хеш или пароль открытым текстом
+     * @return true, если пароль верный
+     * @throws LoginThrottledException если очередь проверки заполнена
+     */
+    public boolean verify(String password, String stored) {
+        return submit(() -> hasher.verify(password, stored));
+    }
+
+    /**
+     * Вычисляет хеш пароля.
+     *
+     * @param password пароль
+     * @return хеш в формате для хранения
+     * @throws LoginThrottledException если очередь хеширования заполнена
+     */
+    public String hash(String password) {
+        return submit(() -> hasher.hash(password));
+    }
+
+    /**
+     * Возвращает хешер паролей.
+     *
+     * @return хешер
+     */
+    public PasswordHasher getHasher() {
+        return hasher;
+    }
+
+    /**
+     * Останавливает пул.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private <T> T submit(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            throw new LoginThrottledException("Слишком много одновременных входов, повторите попытку позже");
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Проверка пароля прервана", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import ru.habittracker.model.Habit;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.OptionalInt;
 
 /**
  * Интерфейс для сервиса управления привычками.
@@ -26,6 +27,27 @@ public interface IHabitService {
      */
     Habit createHabit(int userId, String title, String description, int frequency);
 
+    /**
+     * Создаёт новую привычку с заданной датой создания, например при импорте истории из другого приложения.
+     *
+     * @param userId       ID пользователя
+     * @param title        название привычки
+     * @param description  описание привычки
+     * @param frequency    частота выполнения
+     * @param creationDate дата создания
+     * @return созданная привычка
+     */
+    Habit createHabit(int userId, String title, String description, int frequency, LocalDate creationDate);
+
+    /**
+     * Получает привычку пользователя по ID.
+     *
+     * @param userId  ID пользователя
+     * @param habitId ID привычки
+     * @return привычка или null, если привычка не найдена или принадлежит другому пользователю
+     */
+    Habit getHabit(int userId, int habitId);
+
     /**
      * Получает все привычки пользователя.
      *
@@ -53,16 +75,19 @@ public interface IHabitService {
     List<Habit> getHabitsByFrequency(int userId, int frequency);
 
     /**
-     * Обновляет существующую привычку.
+     * Обновляет привычку, если её не изменили после чтения клиентом. Привычка не читается перед обновлением:
+     * версия сравнивается в самом запросе обновления.
      *
-     * @param userId        ID пользователя
-     * @param habitId       ID привычки
-     * @param newTitle      новое название
+     * @param userId         ID пользователя
+     * @param habitId        ID привычки
+     * @param version        версия привычки, прочитанная клиентом
+     * @param newTitle       новое название
      * @param newDescription новое описание
-     * @param newFrequency  новая частота
-     * @return true, если обновление прошло успешно
+     * @param newFrequency   новая частота
+     * @return новая версия или пустой результат, если привычка не найдена или уже изменена с другого устройства
      */
-    boolean updateHabit(int userId, int habitId, String newTitle, String newDescription, int newFrequency);
+    OptionalInt updateHabit(int userId, int habitId, int version, String newTitle, String newDescription,
+                            int newFrequency);
 
     /**
      * Удаляет привычку.
@@ -1,9 +1,18 @@
 package ru.habittracker.service;
 
+import ru.habittracker.export.ExportFormat;
+import ru.habittracker.model.BackfillPattern;
+import ru.habittracker.model.CompletionResult;
 import ru.habittracker.model.Habit;
+import ru.habittracker.model.HabitRecord;
+import ru.habittracker.report.ReportFormat;
 
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
 
 /**
  * Интерфейс для сервиса отслеживания выполнения привычек.
@@ -30,6 +39,35 @@ public interface IHabitTrackerService {
      */
     void markHabitCompletion(int userId, int habitId, LocalDate date);
 
+    /**
+     * Отмечает выполнение нескольких привычек пользователя в указанную дату.
+     * <p>
+     * Принадлежность привычек проверяется одним запросом, записи сохраняются одной транзакцией.
+     * </p>
+     *
+     * @param userId   ID пользователя
+     * @param habitIds ID привычек
+     * @param date     дата выполнения
+     * @return результат по каждой привычке в порядке первого появления в {@code habitIds}
+     */
+    Map<Integer, CompletionResult> markHabitCompletions(int userId, List<Integer> habitIds, LocalDate date);
+
+    /**
+     * Отмечает выполнение привычки задним числом за каждый день периода, подходящий под шаблон.
+     * <p>
+     * Уже отмеченные дни не дублируются; статистика привычки пересчитывается.
+     * </p>
+     *
+     * @param userId  ID пользователя
+     * @param habitId ID привычки
+     * @param from    первый день периода
+     * @param to      последний день периода включительно, не позже сегодняшнего
+     * @param pattern дни недели для отметки
+     * @return количество новых отметок или пустой результат, если привычка не найдена
+     * @throws IllegalArgumentException если период некорректен
+     */
+    OptionalInt backfill(int userId, int habitId, LocalDate from, LocalDate to, BackfillPattern pattern);
+
     /**
      * Получает историю выполнения привычки.
      *
@@ -39,6 +77,38 @@ public interface IHabitTrackerService {
      */
     String getHabitHistory(int userId, int habitId);
 
+    /**
+     * Выгружает все привычки пользователя и их записи в канал в указанном формате.
+     * <p>
+     * История читается и кодируется потоком через буфер фиксированного размера, поэтому расход памяти
+     * не зависит от её объёма. Канал не закрывается.
+     * </p>
+     *
+     * @param userId  ID пользователя
+     * @param format  формат выгрузки
+     * @param channel канал для записи
+     * @return количество выгруженных записей о выполнении
+     * @throws IOException при ошибке записи в канал или чтения истории
+     */
+    long exportHistory(int userId, ExportFormat format, WritableByteChannel channel) throws IOException;
+
+    /**
+     * Сохраняет пакет импортированных записей без обновления статистики.
+     * Вызывающий отвечает за то, что привычки принадлежат импортирующему пользователю;
+     * после импорта статистику нужно пересчитать через {@link #rebuildStats(int)}.
+     *
+     * @param records записи, не больше одной на привычку и дату
+     * @return количество сохранённых записей
+     */
+    int saveRecords(List<HabitRecord> records);
+
+    /**
+     * Пересчитывает статистику привычки по всей истории.
+     *
+     * @param habitId ID привычки
+     */
+    void rebuildStats(int habitId);
+
     /**
      * Вычисляет текущую серию выполнения привычки.
      *
@@ -65,4 +135,19 @@ public interface IHabitTrackerService {
      * @return строка с отчётом о прогрессе
      */
     String generateProgressReport(int userId, List<Habit> habits);
+
+    /**
+     * Записывает отчёт о прогрессе по мере расчёта статистики каждой привычки.
+     * <p>
+     * Отчёт не собирается в памяти целиком: раздел каждой привычки сразу передаётся в {@code out}.
+     * Буферизация и сброс остаются за вызывающей стороной.
+     * </p>
+     *
+     * @param userId ID пользователя
+     * @param habits список привычек
+     * @param format формат отчёта
+     * @param out    получатель отчёта
+     * @throws IOException при ошибке записи
+     */
+    void writeProgressReport(int userId, List<Habit> habits, ReportFormat format, Appendable out) throws IOException;
 }
@@ -3,6 +3,7 @@ package ru.habittracker.service;
 import ru.habittracker.model.User;
 
 import java.util.Optional;
+import java.util.OptionalInt;
 
 /**
  * Интерфейс для сервиса управления пользователями.
@@ -30,19 +31,23 @@ public interface IUserService {
      * @param email    email пользователя
      * @param password пароль
      * @return объект пользователя, если вход успешен
+     * @throws ru.habittracker.security.LoginThrottledException если очередь проверки паролей заполнена
      */
     Optional<User> loginUser(String email, String password);
 
     /**
-     * Обновляет данные пользователя.
+     * Обновляет данные пользователя, если их не изменили после чтения клиентом. Пользователь не читается
+     * перед обновлением: версия сравнивается в самом запросе обновления.
      *
      * @param userId      ID пользователя
+     * @param version     версия пользователя, прочитанная клиентом
      * @param newEmail    новый email
      * @param newPassword новый пароль
      * @param newName     новое имя
-     * @return true, если обновление прошло успешно
+     * @return новая версия или пустой результат, если пользователь не найден, уже изменён с другого устройства
+     * или email занят другим пользователем
      */
-    boolean updateUser(int userId, String newEmail, String newPassword, String newName);
+    OptionalInt updateUser(int userId, int version, String newEmail, String newPassword, String newName);
 
     /**
      * Удаляет пользователя.
@@ -2,12 +2,14 @@ package ru.habittracker.service.impl;
 
 import ru.habittracker.config.DatabaseConnectionManager;
 import ru.habittracker.model.Habit;
+import ru.habittracker.report.ReportCache;
 import ru.habittracker.repository.impl.HabitRepository;
 import ru.habittracker.repository.IHabitRepository;
 import ru.habittracker.service.IHabitService;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.OptionalInt;
 
 /**
  * Сервис для управления привычками пользователя.
@@ -20,6 +22,7 @@ import java.util.List;
  */
 public class HabitService implements IHabitService {
     private final IHabitRepository habitRepository;
+    private final ReportCache reportCache;
 
     /**
      * Конструктор сервиса привычек.
@@ -27,13 +30,45 @@ public class HabitService implements IHabitService {
      * @param dbManager менеджер подключения к базе данных
      */
     public HabitService(DatabaseConnectionManager dbManager) {
-        this.habitRepository = new HabitRepository(dbManager);
+        this(new HabitRepository(dbManager));
+    }
+
+    /**
+     * Конструктор сервиса привычек с заданным репозиторием.
+     *
+     * @param habitRepository репозиторий привычек
+     */
+    public HabitService(IHabitRepository habitRepository) {
+        this(habitRepository, new ReportCache(0));
+    }
+
+    /**
+     * Конструктор сервиса привычек с кэшем статистики отчётов.
+     *
+     * @param habitRepository репозиторий привычек
+     * @param reportCache     кэш статистики отчётов, общий с {@link HabitTrackerService}
+     */
+    public HabitService(IHabitRepository habitRepository, ReportCache reportCache) {
+        this.habitRepository = habitRepository;
+        this.reportCache = reportCache;
     }
 
     @Override
     public Habit createHabit(int userId, String title, String description, int frequency) {
-        Habit habit = new Habit(0, title, description, frequency, userId, LocalDate.now());
-        return habitRepository.save(habit);
+        return createHabit(userId, title, description, frequency, LocalDate.now());
+    }
+
+    @Override
+    public Habit createHabit(int userId, String title, String description, int frequency, LocalDate creationDate) {
+        Habit habit = new Habit(0, title, description, frequency, userId, creationDate);
+        Habit saved = habitRepository.save(habit);
+        reportCache.invalidateUser(userId);
+        return saved;
+    }
+
+    @Override
+    public Habit getHabit(int userId, int habitId) {
+        return habitRepository.findByIdAndUserId(habitId, userId);
     }
 
     @Override
@@ -52,19 +87,21 @@ public class HabitService implements IHabitService {
     }
 
     @Override
-    public boolean updateHabit(int userId, int habitId, String newTitle, String newDescription, int newFrequency) {
-        Habit habit = habitRepository.findByIdAndUserId(habitId, userId);
-        if (habit == null) {
-            return false;
+    public OptionalInt updateHabit(int userId, int habitId, int version, String newTitle, String newDescription,
+                                   int newFrequency) {
+        // Дата создания не обновляется, поэтому привычку не нужно читать перед изменением
+        Habit habit = new Habit(habitId, newTitle, newDescription, newFrequency, userId, null, version);
+        if (!habitRepository.update(habit)) {
+            return OptionalInt.empty();
         }
-        habit.setTitle(newTitle);
-        habit.setDescription(newDescription);
-        habit.setFrequency(newFrequency);
-        return habitRepository.update(habit);
+        reportCache.invalidateUser(userId);
+        return OptionalInt.of(habit.getVersion());
     }
 
     @Override
     public boolean deleteHabit(int userId, int habitId) {
-        return habitRepository.deleteByIdAndUserId(habitId, userId);
+        boolean deleted = habitRepository.deleteByIdAndUserId(habitId, userId);
+        reportCache.invalidateUser(userId);
+        return deleted;
     }
 }
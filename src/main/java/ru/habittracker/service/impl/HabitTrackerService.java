@@ -1,15 +1,30 @@
 package ru.habittracker.service.impl;
 
 import ru.habittracker.config.DatabaseConnectionManager;
+import ru.habittracker.export.ExportFormat;
+import ru.habittracker.export.HistoryEncoder;
+import ru.habittracker.model.BackfillPattern;
+import ru.habittracker.model.CompletionBitmap;
+import ru.habittracker.model.CompletionResult;
 import ru.habittracker.model.Habit;
 import ru.habittracker.model.HabitRecord;
+import ru.habittracker.model.HabitStats;
+import ru.habittracker.report.ProgressReportWriter;
+import ru.habittracker.report.ReportCache;
+import ru.habittracker.report.ReportFormat;
 import ru.habittracker.repository.impl.HabitRecordRepository;
 import ru.habittracker.repository.IHabitRecordRepository;
+import ru.habittracker.repository.IHabitStatsRepository;
+import ru.habittracker.repository.impl.HabitStatsRepository;
 import ru.habittracker.service.IHabitTrackerService;
+import ru.habittracker.view.TextFormatter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Сервис для отслеживания выполнения привычек.
@@ -21,6 +36,7 @@ import java.util.stream.Collectors;
  * <ul>
  *     <li>{@link IHabitTrackerService}</li>
  *     <li>{@link HabitRecordRepository}</li>
+ *     <li>{@link HabitStatsRepository}</li>
  *     <li>{@link HabitRecord}</li>
  *     <li>{@link Habit}</li>
  * </ul>
@@ -30,7 +46,12 @@ import java.util.stream.Collectors;
  *     Ekaterina Ishchuk
  */
 public class HabitTrackerService implements IHabitTrackerService {
+    // Ограничение периода заполнения задним числом (около 10 лет)
+    private static final int MAX_BACKFILL_DAYS = 3660;
+
     private final IHabitRecordRepository habitRecordRepository;
+    private final IHabitStatsRepository habitStatsRepository;
+    private final ReportCache reportCache;
 
     /**
      * Конструктор сервиса отслеживания привычек.
@@ -38,79 +59,205 @@ public class HabitTrackerService implements IHabitTrackerService {
      * @param dbManager менеджер подключения к базе данных
      */
     public HabitTrackerService(DatabaseConnectionManager dbManager) {
-        this.habitRecordRepository = new HabitRecordRepository(dbManager);
+        this(new HabitRecordRepository(dbManager), new HabitStatsRepository(dbManager));
+    }
+
+    /**
+     * Конструктор сервиса отслеживания привычек с заданными репозиториями.
+     *
+     * @param habitRecordRepository репозиторий записей о выполнении
+     * @param habitStatsRepository  репозиторий статистики привычек
+     */
+    public HabitTrackerService(IHabitRecordRepository habitRecordRepository, IHabitStatsRepository habitStatsRepository) {
+        this(habitRecordRepository, habitStatsRepository, new ReportCache(0));
+    }
+
+    /**
+     * Конструктор сервиса отслеживания привычек с кэшем статистики отчётов.
+     *
+     * @param habitRecordRepository репозиторий записей о выполнении
+     * @param habitStatsRepository  репозиторий статистики привычек
+     * @param reportCache           кэш статистики отчётов, общий с {@link HabitService}
+     */
+    public HabitTrackerService(IHabitRecordRepository habitRecordRepository, IHabitStatsRepository habitStatsRepository,
+                               ReportCache reportCache) {
+        this.habitRecordRepository = habitRecordRepository;
+        this.habitStatsRepository = habitStatsRepository;
+        this.reportCache = reportCache;
     }
 
     @Override
     public void markHabitCompletion(int userId, int habitId, LocalDate date) {
         HabitRecord record = new HabitRecord(habitId, date, true);
-        habitRecordRepository.save(record);
+        habitRecordRepository.saveCompletion(record);
+        reportCache.invalidateUser(userId);
+    }
 
-        System.out.println("Привычка отмечена как выполненная за " + date + ".");
+    @Override
+    public Map<Integer, CompletionResult> markHabitCompletions(int userId, List<Integer> habitIds, LocalDate date) {
+        Set<Integer> uniqueIds = new LinkedHashSet<>(habitIds);
+        if (uniqueIds.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+        Map<Integer, CompletionResult> results = habitRecordRepository.saveCompletions(userId, uniqueIds, date);
+        reportCache.invalidateUser(userId);
+        return results;
+    }
+
+    @Override
+    public OptionalInt backfill(int userId, int habitId, LocalDate from, LocalDate to, BackfillPattern pattern) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Начало периода позже его окончания");
+        }
+        if (to.isAfter(LocalDate.now())) {
+            throw new IllegalArgumentException("Нельзя отметить выполнение в будущем");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_BACKFILL_DAYS) {
+            throw new IllegalArgumentException("Период не может быть длиннее " + MAX_BACKFILL_DAYS + " дней");
+        }
+        OptionalInt marked = habitRecordRepository.saveCompletionRange(userId, habitId, from, to, pattern);
+        reportCache.invalidateUser(userId);
+        return marked;
     }
 
     @Override
     public String getHabitHistory(int userId, int habitId) {
-        List<HabitRecord> records = habitRecordRepository.findByHabitId(habitId);
+        List<HabitRecord> records = new ArrayList<>(habitRecordRepository.findByHabitId(habitId));
+        if (records.isEmpty()) {
+            return "История отсутствует.";
+        }
+        records.sort(Comparator.comparing(HabitRecord::getDate));
 
-        String history = records.stream()
-                .sorted(Comparator.comparing(HabitRecord::getDate))
-                .map(HabitRecord::toString)
-                .collect(Collectors.joining("\n"));
+        StringBuilder history = new StringBuilder(records.size() * 48);
+        for (HabitRecord record : records) {
+            if (history.length() > 0) {
+                history.append('\n');
+            }
+            TextFormatter.appendRecord(history, record);
+        }
+        return history.toString();
+    }
 
-        return history.isEmpty() ? "История отсутствует." : history;
+    @Override
+    public long exportHistory(int userId, ExportFormat format, WritableByteChannel channel) throws IOException {
+        HistoryEncoder encoder = new HistoryEncoder(channel, format);
+        try {
+            if (!habitRecordRepository.streamUserHistory(userId, encoder)) {
+                throw new IOException("Не удалось прочитать историю пользователя " + userId);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        encoder.finish();
+        return encoder.getRecords();
     }
 
     @Override
-    public int calculateStreak(int userId, int habitId) {
-        List<HabitRecord> records = habitRecordRepository.findByHabitId(habitId)
-                .stream()
-                .filter(HabitRecord::isCompleted)
-                .sorted(Comparator.comparing(HabitRecord::getDate).reversed())
-                .collect(Collectors.toList());
+    public int saveRecords(List<HabitRecord> records) {
+        int saved = habitRecordRepository.saveAll(records);
+        Set<Integer> habitIds = new HashSet<>();
+        for (HabitRecord record : records) {
+            habitIds.add(record.getHabitId());
+        }
+        reportCache.invalidateHabits(habitIds);
+        return saved;
+    }
 
-        int streak = 0;
-        LocalDate currentDate = LocalDate.now();
+    @Override
+    public void rebuildStats(int habitId) {
+        habitStatsRepository.rebuild(habitId);
+        reportCache.invalidateHabits(List.of(habitId));
+    }
 
-        for (HabitRecord record : records) {
-            if (record.getDate().equals(currentDate) || record.getDate().equals(currentDate.minusDays(1))) {
-                streak++;
-                currentDate = record.getDate();
-            } else {
-                break;
-            }
+    @Override
+    public int calculateStreak(int userId, int habitId) {
+        Optional<HabitStats> stats = habitStatsRepository.findByHabitId(habitId);
+        if (stats.isPresent()) {
+            return stats.get().streakAsOf(LocalDate.now());
         }
-        return streak;
+        return historyOf(habitId).streakAsOf(LocalDate.now().toEpochDay());
     }
 
     @Override
     public double calculateSuccessRate(int userId, int habitId) {
-        List<HabitRecord> records = habitRecordRepository.findByHabitId(habitId);
-        LocalDate thirtyDaysAgo = LocalDate.now().minusDays(30);
-
-        long totalDays = 30;
-        long completedDays = records.stream()
-                .filter(record -> record.isCompleted() && !record.getDate().isBefore(thirtyDaysAgo))
-                .count();
+        Optional<HabitStats> stats = habitStatsRepository.findByHabitId(habitId);
+        if (stats.isPresent()) {
+            return stats.get().successRateAsOf(LocalDate.now());
+        }
+        return historyOf(habitId).successRateAsOf(LocalDate.now().toEpochDay());
+    }
 
-        return (double) completedDays / totalDays * 100;
+    /**
+     * Загружает полную историю выполнения в виде битовой карты дней.
+     * <p>
+     * Используется для привычек, у которых ещё нет строки в habit_stats
+     * (например, записи добавлены в обход {@link #markHabitCompletion}):
+     * серия и процент успеха считаются по одной загруженной истории.
+     * </p>
+     *
+     * @param habitId ID привычки
+     * @return битовая карта истории выполнения
+     */
+    private CompletionBitmap historyOf(int habitId) {
+        return CompletionBitmap.of(habitRecordRepository.findCompletionHistory(habitId));
     }
 
     @Override
     public String generateProgressReport(int userId, List<Habit> habits) {
-        StringBuilder report = new StringBuilder("Отчет о прогрессе:\n");
+        StringBuilder report = new StringBuilder(32 + habits.size() * 160);
+        try {
+            writeProgressReport(userId, habits, ReportFormat.TEXT, report);
+        } catch (IOException e) {
+            // StringBuilder не выбрасывает IOException
+            throw new UncheckedIOException(e);
+        }
+        return report.toString();
+    }
 
-        for (Habit habit : habits) {
-            int streak = calculateStreak(userId, habit.getId());
-            double successRate = calculateSuccessRate(userId, habit.getId());
+    @Override
+    public void writeProgressReport(int userId, List<Habit> habits, ReportFormat format, Appendable out)
+            throws IOException {
+        LocalDate today = LocalDate.now();
+        ReportCache.Entry stats = reportCache.get(userId, today, habits);
+        if (stats == null) {
+            // Метка берётся до расчёта: если отметка придёт во время расчёта, устаревшая запись не попадёт в кэш
+            long stamp = reportCache.stamp();
+            stats = calculateReportStats(habits, today);
+            reportCache.put(userId, stats, stamp);
+        }
 
-            report.append("Привычка: ").append(habit.getTitle()).append("\n")
-                    .append("Частота: ").append(habit.getFrequency() == 1 ? "Ежедневная" : "Недельная").append("\n")
-                    .append("Текущая серия: ").append(streak).append(" дней\n")
-                    .append("Процент успеха: ").append(String.format("%.2f", successRate)).append("% за последний месяц\n")
-                    .append("----------\n");
+        ProgressReportWriter writer = new ProgressReportWriter(out, format);
+        writer.begin(userId, today);
+        for (int i = 0; i < habits.size(); i++) {
+            writer.entry(habits.get(i), stats.streaks()[i], stats.successRates()[i]);
         }
+        writer.end();
+    }
 
-        return report.toString();
+    /**
+     * Рассчитывает серии и процент успеха привычек отчёта.
+     *
+     * @param habits привычки отчёта
+     * @param today  текущая дата
+     * @return статистика отчёта
+     */
+    private ReportCache.Entry calculateReportStats(List<Habit> habits, LocalDate today) {
+        int[] habitIds = new int[habits.size()];
+        int[] streaks = new int[habits.size()];
+        double[] successRates = new double[habits.size()];
+        for (int i = 0; i < habits.size(); i++) {
+            int habitId = habits.get(i).getId();
+            Optional<HabitStats> stats = habitStatsRepository.findByHabitId(habitId);
+            habitIds[i] = habitId;
+            if (stats.isPresent()) {
+                streaks[i] = stats.get().streakAsOf(today);
+                successRates[i] = stats.get().successRateAsOf(today);
+            } else {
+                CompletionBitmap history = historyOf(habitId);
+                streaks[i] = history.streakAsOf(today.toEpochDay());
+                successRates[i] = history.successRateAsOf(today.toEpochDay());
+            }
+        }
+        return new ReportCache.Entry((int) today.toEpochDay(), habitIds, streaks, successRates);
     }
 }
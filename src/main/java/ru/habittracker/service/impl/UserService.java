@@ -4,21 +4,32 @@ import ru.habittracker.config.DatabaseConnectionManager;
 import ru.habittracker.model.User;
 import ru.habittracker.repository.impl.UserRepository;
 import ru.habittracker.repository.IUserRepository;
+import ru.habittracker.security.PasswordHasher;
+import ru.habittracker.security.PasswordVerificationExecutor;
 import ru.habittracker.service.IUserService;
 
 import java.util.Optional;
+import java.util.OptionalInt;
 
 /**
  * Сервис для управления пользователями.
  * <p>
  * Предоставляет методы для регистрации, входа, обновления и удаления пользователей.
+ * Пароли хранятся в виде хешей PBKDF2; пароль, сохранённый открытым текстом, перехешируется
+ * при следующем успешном входе.
  * </p>
  *
  * author
  *     Ekaterina Ishchuk
  */
 public class UserService implements IUserService {
+    // Общий пул по умолчанию: потоки создаются только при первом входе
+    private static final PasswordVerificationExecutor DEFAULT_PASSWORDS =
+            new PasswordVerificationExecutor(new PasswordHasher());
+
     private final IUserRepository userRepository;
+    private final PasswordVerificationExecutor passwords;
+    private volatile String dummyHash;
 
     /**
      * Конструктор сервиса пользователей.
@@ -26,7 +37,27 @@ public class UserService implements IUserService {
      * @param dbManager менеджер подключения к базе данных
      */
     public UserService(DatabaseConnectionManager dbManager) {
-        this.userRepository = new UserRepository(dbManager);
+        this(new UserRepository(dbManager));
+    }
+
+    /**
+     * Конструктор сервиса пользователей с заданным репозиторием.
+     *
+     * @param userRepository репозиторий пользователей
+     */
+    public UserService(IUserRepository userRepository) {
+        this(userRepository, DEFAULT_PASSWORDS);
+    }
+
+    /**
+     * Конструктор сервиса пользователей с заданным репозиторием и пулом проверки паролей.
+     *
+     * @param userRepository репозиторий пользователей
+     * @param passwords      пул хеширования и проверки паролей
+     */
+    public UserService(IUserRepository userRepository, PasswordVerificationExecutor passwords) {
+        this.userRepository = userRepository;
+        this.passwords = passwords;
     }
 
     @Override
@@ -37,39 +68,51 @@ public class UserService implements IUserService {
             return Optional.empty();
         }
 
-        User user = new User(email, password, name);
+        User user = new User(email, passwords.hash(password), name);
         return userRepository.save(user);
     }
 
     @Override
     public Optional<User> loginUser(String email, String password) {
         Optional<User> user = userRepository.findByEmail(email);
-        if (user.isPresent() && user.get().getPassword().equals(password)) {
-            return user;
+        // Для неизвестного email проверяется фиктивный хеш, чтобы время ответа не выдавало наличие аккаунта
+        String stored = user.map(User::getPassword).orElseGet(this::dummyHash);
+        if (!passwords.verify(password, stored) || user.isEmpty()) {
+            return Optional.empty();
         }
-        return Optional.empty();
+
+        if (passwords.getHasher().needsRehash(stored)) {
+            user.get().setPassword(passwords.hash(password));
+            userRepository.update(user.get());
+        }
+        return user;
     }
 
     @Override
-    public boolean updateUser(int userId, String newEmail, String newPassword, String newName) {
-        Optional<User> userOptional = userRepository.findById(userId);
-        if (userOptional.isEmpty()) return false;
-
+    public OptionalInt updateUser(int userId, int version, String newEmail, String newPassword, String newName) {
         Optional<User> emailUser = userRepository.findByEmail(newEmail);
         if (emailUser.isPresent() && emailUser.get().getId() != userId) {
-            return false;
+            return OptionalInt.empty();
         }
 
-        User user = userOptional.get();
-        user.setEmail(newEmail);
-        user.setPassword(newPassword);
-        user.setName(newName);
-
-        return userRepository.update(user);
+        User user = new User(userId, newEmail, passwords.hash(newPassword), newName, version);
+        if (!userRepository.update(user)) {
+            return OptionalInt.empty();
+        }
+        return OptionalInt.of(user.getVersion());
     }
 
     @Override
     public boolean deleteUser(int userId) {
         return userRepository.delete(userId);
     }
+
+    private String dummyHash() {
+        String hash = dummyHash;
+        if (hash == null) {
+            hash = passwords.hash("");
+            dummyHash = hash;
+        }
+        return hash;
+    }
 }
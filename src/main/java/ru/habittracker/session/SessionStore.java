@@ -0,0 +1,216 @@
+package ru.habittracker.session;
+
+import ru.habittracker.model.User;
+
+import java.io.Closeable;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Хранилище сессий пользователей.
+ * <p>
+ * Сессия определяется непрозрачным случайным токеном и хранит ссылку на пользователя, поэтому
+ * пользователь по токену находится за O(1) без обращения к репозиторию. Срок жизни скользящий:
+ * каждое обращение продлевает сессию на {@code ttl}. Просроченные сессии не возвращаются сразу,
+ * а удаляются из памяти периодической очисткой, запускаемой {@link #startSweeper(Duration)}.
+ * </p>
+ * <p>
+ * Таблица сессий — {@link ConcurrentHashMap}: чтение не блокируется, запись блокирует только
+ * одну ячейку таблицы. Запись занимает около 200 байт (токен, узел таблицы и объект сессии)
+ * плюс объект пользователя; число сессий ограничено {@code maxSessions}.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public class SessionStore implements Closeable {
+
+    /**
+     * Срок жизни сессии по умолчанию.
+     */
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(30);
+
+    private static final int TOKEN_BYTES = 32;
+    // Продление записывается не чаще, чем раз в 1/64 срока жизни, чтобы частые запросы не писали в память
+    private static final int TOUCH_GRANULARITY = 64;
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final long ttlNanos;
+    private final int maxSessions;
+    private final LongSupplier clock;
+
+    private ScheduledExecutorService sweeper;
+
+    /**
+     * Конструктор хранилища с ограничением по умолчанию в миллион сессий.
+     *
+     * @param ttl срок жизни сессии без обращений
+     */
+    public SessionStore(Duration ttl) {
+        this(ttl, 1_000_000);
+    }
+
+    /**
+     * Конструктор хранилища.
+     *
+     * @param ttl         срок жизни сессии без обращений
+     * @param maxSessions максимальное количество сессий
+     */
+    public SessionStore(Duration ttl, int maxSessions) {
+        this(ttl, maxSessions, System::nanoTime);
+    }
+
+    SessionStore(Duration ttl, int maxSessions, LongSupplier clock) {
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Срок жизни сессии должен быть положительным");
+        }
+        if (maxSessions <= 0) {
+            throw new IllegalArgumentException("Количество сессий должно быть положительным");
+        }
+        this.ttlNanos = ttl.toNanos();
+        this.maxSessions = maxSessions;
+        this.clock = clock;
+    }
+
+    /**
+     * Создает сессию пользователя.
+     *
+     * @param user пользователь
+     * @return токен сессии
+     * @throws IllegalStateException если достигнуто максимальное количество сессий
+     */
+    public String create(User user) {
+        if (sessions.size() >= maxSessions && sweepExpired() == 0) {
+            throw new IllegalStateException("Достигнуто максимальное количество сессий: " + maxSessions);
+        }
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        sessions.put(token, new Session(user, clock.getAsLong() + ttlNanos));
+        return token;
+    }
+
+    /**
+     * Возвращает пользователя сессии и продлевает её срок жизни.
+     *
+     * @param token токен сессии
+     * @return пользователь или null, если сессии нет или она просрочена
+     */
+    public User userOf(String token) {
+        if (token == null) {
+            return null;
+        }
+        Session session = sessions.get(token);
+        if (session == null) {
+            return null;
+        }
+        long now = clock.getAsLong();
+        long expiresAt = session.expiresAt;
+        if (now - expiresAt >= 0) {
+            sessions.remove(token, session);
+            return null;
+        }
+        if (now + ttlNanos - expiresAt > ttlNanos / TOUCH_GRANULARITY) {
+            session.expiresAt = now + ttlNanos;
+        }
+        return session.user;
+    }
+
+    /**
+     * Завершает сессию.
+     *
+     * @param token токен сессии
+     */
+    public void remove(String token) {
+        if (token != null) {
+            sessions.remove(token);
+        }
+    }
+
+    /**
+     * Завершает все сессии пользователя.
+     * <p>
+     * Просматривает всю таблицу, поэтому предназначен для редких операций вроде удаления аккаунта.
+     * </p>
+     *
+     * @param userId ID пользователя
+     */
+    public void removeUser(int userId) {
+        sessions.values().removeIf(session -> session.user.getId() == userId);
+    }
+
+    /**
+     * Удаляет просроченные сессии.
+     *
+     * @return количество удалённых сессий
+     */
+    public int sweepExpired() {
+        long now = clock.getAsLong();
+        int removed = 0;
+        for (Map.Entry<String, Session> entry : sessions.entrySet()) {
+            if (now - entry.getValue().expiresAt >= 0 && sessions.remove(entry.getKey(), entry.getValue())) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Возвращает количество сессий, включая ещё не удалённые просроченные.
+     *
+     * @return количество сессий
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Запускает периодическую очистку просроченных сессий.
+     *
+     * @param interval интервал между очистками
+     */
+    public synchronized void startSweeper(Duration interval) {
+        if (sweeper != null) {
+            return;
+        }
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "session-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        sweeper.scheduleWithFixedDelay(this::sweepExpired, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Останавливает периодическую очистку.
+     */
+    @Override
+    public synchronized void close() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+            sweeper = null;
+        }
+    }
+
+    /**
+     * Сессия: пользователь и момент истечения по {@link System#nanoTime()}.
+     */
+    private static final class Session {
+        private final User user;
+        private volatile long expiresAt;
+
+        Session(User user, long expiresAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package ru.habittracker.view;
+
+import ru.habittracker.model.Habit;
+import ru.habittracker.model.HabitRecord;
+
+import java.io.PrintStream;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Постраничный вывод списков и отчётов в консоль.
+ * <p>
+ * Строки накапливаются в одном переиспользуемом буфере и выводятся целым экраном:
+ * одна запись в поток и один сброс на страницу вместо сброса после каждой строки.
+ * Перед первой строкой следующей страницы вызывается {@code nextPage}; если он возвращает false,
+ * оставшиеся строки до вызова {@link #finish()} пропускаются. Как {@link Appendable} принимает
+ * произвольный поток текста и сама делит его на строки.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public class ConsoleRenderer implements Appendable {
+
+    /**
+     * Количество строк на странице по умолчанию.
+     */
+    public static final int DEFAULT_PAGE_LINES = 40;
+
+    private final StringBuilder screen = new StringBuilder(8 * 1024);
+    private final int pageLines;
+    private final BooleanSupplier nextPage;
+    private int lines;
+    private boolean stopped;
+    private boolean atLineStart = true;
+
+    /**
+     * Создаёт вывод без разбиения на страницы.
+     */
+    public ConsoleRenderer() {
+        this(0, () -> true);
+    }
+
+    /**
+     * Создаёт постраничный вывод.
+     *
+     * @param pageLines количество строк на странице; 0 — без разбиения на страницы
+     * @param nextPage  вызывается перед выводом следующей страницы и возвращает false, чтобы прекратить вывод
+     */
+    public ConsoleRenderer(int pageLines, BooleanSupplier nextPage) {
+        if (pageLines < 0) {
+            throw new IllegalArgumentException("Количество строк на странице не может быть отрицательным");
+        }
+        this.pageLines = pageLines;
+        this.nextPage = nextPage;
+    }
+
+    /**
+     * Добавляет строку текста.
+     *
+     * @param text строка без перевода строки
+     * @return этот объект
+     */
+    public ConsoleRenderer line(CharSequence text) {
+        return append(text).append('\n');
+    }
+
+    /**
+     * Добавляет строку с описанием привычки.
+     *
+     * @param habit привычка
+     * @return этот объект
+     */
+    public ConsoleRenderer habit(Habit habit) {
+        if (startLine()) {
+            TextFormatter.appendHabit(screen, habit);
+        }
+        return append('\n');
+    }
+
+    /**
+     * Добавляет строку с описанием записи о выполнении.
+     *
+     * @param record запись
+     * @return этот объект
+     */
+    public ConsoleRenderer record(HabitRecord record) {
+        if (startLine()) {
+            TextFormatter.appendRecord(screen, record);
+        }
+        return append('\n');
+    }
+
+    /**
+     * Добавляет многострочный текст, разбивая его на строки для постраничного вывода.
+     *
+     * @param text текст
+     * @return этот объект
+     */
+    public ConsoleRenderer text(String text) {
+        append(text);
+        return text.endsWith("\n") ? this : append('\n');
+    }
+
+    @Override
+    public ConsoleRenderer append(CharSequence text) {
+        return append(text, 0, text.length());
+    }
+
+    @Override
+    public ConsoleRenderer append(CharSequence text, int start, int end) {
+        int pos = start;
+        while (pos < end && startLine()) {
+            int newline = pos;
+            while (newline < end && text.charAt(newline) != '\n') {
+                newline++;
+            }
+            if (newline == end) {
+                screen.append(text, pos, end);
+                break;
+            }
+            screen.append(text, pos, newline + 1);
+            atLineStart = true;
+            pos = newline + 1;
+        }
+        return this;
+    }
+
+    @Override
+    public ConsoleRenderer append(char c) {
+        if (startLine()) {
+            screen.append(c);
+            atLineStart = c == '\n';
+        }
+        return this;
+    }
+
+    /**
+     * Выводит накопленные строки и готовит буфер к следующему списку.
+     */
+    public void finish() {
+        if (!atLineStart && !stopped) {
+            screen.append('\n');
+        }
+        flushScreen();
+        lines = 0;
+        stopped = false;
+        atLineStart = true;
+    }
+
+    /**
+     * Возвращает true, если вывод текущего списка прерван пользователем.
+     *
+     * @return признак прерванного вывода
+     */
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    private boolean startLine() {
+        if (stopped) {
+            return false;
+        }
+        if (!atLineStart) {
+            return true;
+        }
+        if (pageLines > 0 && lines > 0 && lines % pageLines == 0) {
+            flushScreen();
+            if (!nextPage.getAsBoolean()) {
+                stopped = true;
+                return false;
+            }
+        }
+        lines++;
+        atLineStart = false;
+        return true;
+    }
+
+    private void flushScreen() {
+        if (screen.length() == 0) {
+            return;
+        }
+        // Поток берётся при выводе: в режиме сценария System.out перенаправлен в буфер
+        PrintStream out = System.out;
+        out.append(screen);
+        out.flush();
+        screen.setLength(0);
+    }
+}
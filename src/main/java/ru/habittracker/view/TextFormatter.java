@@ -0,0 +1,179 @@
+package ru.habittracker.view;
+
+import ru.habittracker.model.Habit;
+import ru.habittracker.model.HabitRecord;
+
+import java.text.DecimalFormatSymbols;
+
+/**
+ * Текстовое представление привычек, записей и отчёта о прогрессе.
+ * <p>
+ * Методы дописывают текст в переданный {@link StringBuilder}, поэтому длинные списки
+ * собираются в одном буфере без промежуточных строк и разбора шаблонов {@link String#format}.
+ * </p>
+ *
+ * author
+ *      Ekaterina Ishchuk
+ */
+public final class TextFormatter {
+
+    // Разделитель дробной части, как у String.format("%.2f") в локали по умолчанию
+    private static final char DECIMAL_SEPARATOR = DecimalFormatSymbols.getInstance().getDecimalSeparator();
+
+    private TextFormatter() {
+    }
+
+    /**
+     * Дописывает описание привычки.
+     *
+     * @param out   буфер
+     * @param habit привычка
+     * @return тот же буфер
+     */
+    public static StringBuilder appendHabit(StringBuilder out, Habit habit) {
+        return out.append("ID: ").append(habit.getId())
+                .append(", Название: ").append(habit.getTitle())
+                .append(", Описание: ").append(habit.getDescription())
+                .append(", Частота: ").append(frequencyName(habit.getFrequency()))
+                .append(", Дата создания: ").append(habit.getCreationDate());
+    }
+
+    /**
+     * Дописывает описание записи о выполнении.
+     *
+     * @param out    буфер
+     * @param record запись
+     * @return тот же буфер
+     */
+    public static StringBuilder appendRecord(StringBuilder out, HabitRecord record) {
+        return out.append("ID: ").append(record.getId())
+                .append(", Дата: ").append(record.getDate())
+                .append(", Выполнено: ").append(record.isCompleted() ? "Да" : "Нет");
+    }
+
+    /**
+     * Дописывает раздел отчёта о прогрессе по одной привычке.
+     *
+     * @param out         буфер
+     * @param habit       привычка
+     * @param streak      текущая серия в днях
+     * @param successRate процент успеха за последний месяц
+     * @return тот же буфер
+     */
+    public static StringBuilder appendReportEntry(StringBuilder out, Habit habit, int streak, double successRate) {
+        out.append("Привычка: ").append(habit.getTitle()).append('\n')
+                .append("Частота: ").append(frequencyName(habit.getFrequency())).append('\n')
+                .append("Текущая серия: ").append(streak).append(" дней\n")
+                .append("Процент успеха: ");
+        return appendPercent(out, successRate).append("% за последний месяц\n")
+                .append("----------\n");
+    }
+
+    /**
+     * Дописывает число, округлённое до двух знаков после запятой.
+     *
+     * @param out   буфер
+     * @param value число
+     * @return тот же буфер
+     */
+    public static StringBuilder appendPercent(StringBuilder out, double value) {
+        if (!Double.isFinite(value) || Math.abs(value) >= 1e15) {
+            return out.append(String.format("%.2f", value));
+        }
+        return appendDecimal(out, value, DECIMAL_SEPARATOR);
+    }
+
+    /**
+     * Дописывает конечное число, округлённое до двух знаков после разделителя.
+     *
+     * @param out       буфер
+     * @param value     число, по модулю меньше 10<sup>15</sup>
+     * @param separator разделитель дробной части
+     * @return тот же буфер
+     */
+    public static StringBuilder appendDecimal(StringBuilder out, double value, char separator) {
+        long hundredths = Math.round(Math.abs(value) * 100);
+        if (value < 0 && hundredths != 0) {
+            out.append('-');
+        }
+        long fraction = hundredths % 100;
+        out.append(hundredths / 100).append(separator);
+        if (fraction < 10) {
+            out.append('0');
+        }
+        return out.append(fraction);
+    }
+
+    /**
+     * Дописывает значение поля CSV, заключая его в кавычки при необходимости (RFC 4180).
+     *
+     * @param out   буфер
+     * @param value значение; null записывается как пустое поле
+     */
+    public static void appendCsv(StringBuilder out, String value) {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.append(value);
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+
+    /**
+     * Дописывает строку JSON в кавычках с экранированием.
+     *
+     * @param out   буфер
+     * @param value значение; null записывается как {@code null}
+     */
+    public static void appendJson(StringBuilder out, String value) {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append("\\u00");
+                        out.append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+
+    /**
+     * Возвращает название частоты привычки.
+     *
+     * @param frequency частота (1 - ежедневная, 2 - недельная)
+     * @return название частоты
+     */
+    public static String frequencyName(int frequency) {
+        return frequency == 1 ? "Ежедневная" : "Недельная";
+    }
+}
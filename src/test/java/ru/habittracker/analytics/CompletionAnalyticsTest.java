@@ -0,0 +1,153 @@
+package ru.habittracker.analytics;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тестовый класс для {@link CompletionAnalytics}.
+ * <p>
+ * Проверяет аналитические запросы над {@link CompletionColumns}, заполненным напрямую,
+ * в том числе параллельную агрегацию по нескольким блокам строк.
+ * </p>
+ *
+ * <p><strong>Автор:</strong> Ekaterina Ishchuk</p>
+ */
+public class CompletionAnalyticsTest {
+
+    // Понедельник
+    private static final LocalDate MONDAY = LocalDate.of(2024, 6, 3);
+
+    private CompletionColumns columns;
+    private CompletionAnalytics analytics;
+
+    @BeforeEach
+    public void setUp() {
+        columns = new CompletionColumns(16);
+        analytics = new CompletionAnalytics(columns);
+
+        columns.putHabit(10, 1, 1);
+        columns.putHabit(20, 1, 2);
+        columns.putHabit(30, 2, 1);
+    }
+
+    /**
+     * Тест процента выполнения по дням недели.
+     */
+    @Test
+    @DisplayName("Тест процента выполнения по дням недели")
+    public void testCompletionRateByWeekday() {
+        append(10, MONDAY, true);
+        append(30, MONDAY, false);
+        append(10, MONDAY.plusDays(1), true);
+        append(10, MONDAY.plusDays(7), true);
+        // Вне периода
+        append(30, MONDAY.minusDays(7), false);
+        columns.publish();
+
+        double[] rates = analytics.completionRateByWeekday(MONDAY, MONDAY.plusDays(7));
+
+        assertEquals(7, rates.length, "Rates should cover every weekday");
+        assertEquals(200.0 / 3, rates[DayOfWeek.MONDAY.ordinal()], 1e-9, "Monday rate should be 2 of 3");
+        assertEquals(100.0, rates[DayOfWeek.TUESDAY.ordinal()], 1e-9, "Tuesday rate should be 100%");
+        assertEquals(0.0, rates[DayOfWeek.SUNDAY.ordinal()], 1e-9, "Day without records should be 0");
+    }
+
+    /**
+     * Тест полной перезагрузки: прежний снимок доступен до публикации нового.
+     */
+    @Test
+    @DisplayName("Тест полной перезагрузки хранилища")
+    public void testResetKeepsSnapshotUntilPublish() {
+        append(10, MONDAY, true);
+        append(30, MONDAY, true);
+        columns.publish();
+
+        columns.reset();
+        columns.putHabit(10, 1, 1);
+        append(10, MONDAY, false);
+        assertEquals(2, analytics.countHabitsCompletedOn(MONDAY, 1), "Old snapshot should be used until publish");
+
+        columns.publish();
+        assertEquals(0, analytics.countHabitsCompletedOn(MONDAY, 1), "Changed and deleted records should be reloaded");
+    }
+
+    /**
+     * Тест подсчёта выполненных привычек за день по частоте.
+     */
+    @Test
+    @DisplayName("Тест подсчёта выполненных привычек за день по частоте")
+    public void testCountHabitsCompletedOn() {
+        append(10, MONDAY, true);
+        append(10, MONDAY, true);
+        append(20, MONDAY, true);
+        append(30, MONDAY, false);
+        columns.publish();
+
+        assertEquals(1, analytics.countHabitsCompletedOn(MONDAY, 1), "Repeated marks should count once");
+        assertEquals(1, analytics.countHabitsCompletedOn(MONDAY, 2), "Weekly habit should be counted");
+        assertEquals(0, analytics.countHabitsCompletedOn(MONDAY, 3), "Unknown frequency should give 0");
+        assertEquals(0, analytics.countHabitsCompletedOn(MONDAY.plusDays(1), 1), "Empty day should give 0");
+    }
+
+    /**
+     * Тест видимости только опубликованных изменений.
+     */
+    @Test
+    @DisplayName("Тест видимости только опубликованных изменений")
+    public void testOnlyPublishedRowsAreVisible() {
+        append(10, MONDAY, true);
+        columns.publish();
+        append(30, MONDAY, true);
+        columns.putHabit(10, 2, 1);
+
+        assertEquals(Map.of(1, 1L), analytics.completionsByUser(MONDAY, MONDAY),
+                "Unpublished rows and dimension changes should be invisible");
+        assertFalse(columns.append(99, (int) MONDAY.toEpochDay(), true), "Unknown habit should be skipped");
+
+        columns.publish();
+        assertEquals(Map.of(2, 2L), analytics.completionsByUser(MONDAY, MONDAY),
+                "Published changes should be visible");
+    }
+
+    /**
+     * Тест параллельной агрегации по нескольким блокам строк.
+     */
+    @Test
+    @DisplayName("Тест параллельной агрегации по нескольким блокам строк")
+    public void testParallelAggregation() {
+        int rows = (1 << 21) + 5;
+        int monday = (int) MONDAY.toEpochDay();
+        for (int row = 0; row < rows; row++) {
+            columns.append(row % 2 == 0 ? 10 : 30, monday + row % 7, row % 3 != 0);
+        }
+        columns.publish();
+
+        long expectedUser1 = 0;
+        long expectedUser2 = 0;
+        for (int row = 0; row < rows; row++) {
+            if (row % 3 != 0) {
+                if (row % 2 == 0) {
+                    expectedUser1++;
+                } else {
+                    expectedUser2++;
+                }
+            }
+        }
+
+        assertEquals(rows, columns.snapshot().size(), "All rows should be published");
+        assertEquals(Map.of(1, expectedUser1, 2, expectedUser2),
+                analytics.completionsByUser(MONDAY, MONDAY.plusDays(6)), "Chunk results should be summed");
+        assertEquals(2, analytics.countHabitsCompletedOn(MONDAY.plusDays(1), 1), "Chunk bitsets should be merged");
+    }
+
+    private void append(int habitId, LocalDate date, boolean done) {
+        assertTrue(columns.append(habitId, (int) date.toEpochDay(), done), "Known habit should be appended");
+    }
+}
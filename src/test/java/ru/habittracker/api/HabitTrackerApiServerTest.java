@@ -0,0 +1,299 @@
+package ru.habittracker.api;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.habittracker.repository.memory.InMemoryHabitRecordRepository;
+import ru.habittracker.repository.memory.InMemoryHabitRepository;
+import ru.habittracker.repository.memory.InMemoryHabitStatsRepository;
+import ru.habittracker.repository.memory.InMemoryStore;
+import ru.habittracker.repository.memory.InMemoryUserRepository;
+import ru.habittracker.security.PasswordHasher;
+import ru.habittracker.security.PasswordVerificationExecutor;
+import ru.habittracker.service.impl.HabitService;
+import ru.habittracker.service.impl.HabitTrackerService;
+import ru.habittracker.service.impl.UserService;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тестовый класс для {@link HabitTrackerApiServer}.
+ * <p>
+ * Запускает сервер на свободном порту поверх in-memory репозиториев и проверяет маршруты,
+ * авторизацию по токену и ограничения запросов.
+ * </p>
+ *
+ * <p><strong>Автор:</strong> Ekaterina Ishchuk</p>
+ */
+public class HabitTrackerApiServerTest {
+
+    private static final int MAX_BODY_BYTES = 1024;
+
+    private HabitTrackerApiServer server;
+    private HttpClient client;
+
+    /**
+     * Запуск сервера перед каждым тестом.
+     *
+     * @throws Exception возможное исключение при запуске
+     */
+    @BeforeEach
+    public void setUp() throws Exception {
+        InMemoryStore store = new InMemoryStore();
+        InMemoryHabitRepository habitRepository = new InMemoryHabitRepository(store);
+        server = new HabitTrackerApiServer(
+                new UserService(new InMemoryUserRepository(store),
+                        new PasswordVerificationExecutor(new PasswordHasher(1_000), 2, 16)),
+                new HabitService(habitRepository),
+                new HabitTrackerService(new InMemoryHabitRecordRepository(store), new InMemoryHabitStatsRepository(store)),
+                MAX_BODY_BYTES, 100, 4);
+        server.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        client = HttpClient.newHttpClient();
+    }
+
+    /**
+     * Остановка сервера после каждого теста.
+     */
+    @AfterEach
+    public void tearDown() {
+        server.close();
+    }
+
+    /**
+     * Тест регистрации, входа и работы с привычками по токену.
+     */
+    @Test
+    @DisplayName("Тест регистрации, входа и работы с привычками по токену")
+    public void testHabitLifecycle() throws Exception {
+        assertEquals(201, send("POST", "/api/users", null,
+                "{\"email\":\"user@example.com\",\"password\":\"secret\",\"name\":\"User\"}").statusCode(),
+                "Registration should succeed");
+        assertEquals(409, send("POST", "/api/users", null,
+                "{\"email\":\"user@example.com\",\"password\":\"secret\",\"name\":\"User\"}").statusCode(),
+                "Duplicate email should be rejected");
+
+        HttpResponse<String> login = send("POST", "/api/sessions", null,
+                "{\"email\":\"user@example.com\",\"password\":\"secret\"}");
+        assertEquals(200, login.statusCode(), "Login should succeed");
+        String token = (String) Json.parseObject(login.body()).get("token");
+
+        HttpResponse<String> created = send("POST", "/api/habits", token,
+                "{\"title\":\"Бег\",\"description\":\"Утром\",\"frequency\":1}");
+        assertEquals(201, created.statusCode(), "Habit should be created");
+        long habitId = (Long) Json.parseObject(created.body()).get("id");
+
+        assertEquals(201, send("POST", "/api/habits/" + habitId + "/completions", token, "").statusCode(),
+                "Completion should be recorded");
+        Map<String, Object> stats = Json.parseObject(send("GET", "/api/habits/" + habitId + "/stats", token, null).body());
+        assertEquals(1L, stats.get("streak"), "Streak should count today's completion");
+
+        HttpResponse<String> list = send("GET", "/api/habits?date=" + LocalDate.now(), token, null);
+        assertEquals(200, list.statusCode(), "Habits should be listed");
+        assertTrue(list.body().contains("Бег"), "Created habit should be listed");
+
+        assertEquals(204, send("DELETE", "/api/sessions", token, null).statusCode(), "Logout should succeed");
+        assertEquals(401, send("GET", "/api/habits", token, null).statusCode(), "Token should be invalid after logout");
+    }
+
+    /**
+     * Тест изоляции привычек разных пользователей.
+     */
+    @Test
+    @DisplayName("Тест изоляции привычек разных пользователей")
+    public void testUsersAreIsolated() throws Exception {
+        String first = registerAndLogin("first@example.com");
+        String second = registerAndLogin("second@example.com");
+
+        long habitId = (Long) Json.parseObject(send("POST", "/api/habits", first,
+                "{\"title\":\"Чтение\",\"frequency\":2}").body()).get("id");
+
+        assertEquals(404, send("GET", "/api/habits/" + habitId, second, null).statusCode(),
+                "Other user's habit should not be visible");
+        assertEquals(404, send("POST", "/api/habits/" + habitId + "/completions", second, "").statusCode(),
+                "Other user's habit should not be marked");
+        assertEquals(200, send("GET", "/api/habits/" + habitId, first, null).statusCode(),
+                "Owner should see the habit");
+    }
+
+    /**
+     * Тест массовой отметки выполнения привычек.
+     */
+    @Test
+    @DisplayName("Тест массовой отметки выполнения привычек")
+    public void testMarkManyCompletions() throws Exception {
+        String token = registerAndLogin("user@example.com");
+        long daily = (Long) Json.parseObject(send("POST", "/api/habits", token,
+                "{\"title\":\"Бег\",\"frequency\":1}").body()).get("id");
+        send("POST", "/api/habits", token, "{\"title\":\"Уборка\",\"frequency\":2}");
+
+        HttpResponse<String> all = send("POST", "/api/completions", token, "{}");
+        assertEquals(200, all.statusCode(), "Bulk mark should succeed");
+        assertTrue(all.body().contains("{\"habitId\":" + daily + ",\"result\":\"MARKED\"}"),
+                "Daily habit should be marked");
+        assertEquals(1, ((List<?>) Json.parseObject(all.body()).get("results")).size(),
+                "Only daily habits should be marked by default");
+
+        HttpResponse<String> listed = send("POST", "/api/completions", token,
+                "{\"habitIds\":[" + daily + ", 999999]}");
+        assertTrue(listed.body().contains("\"result\":\"ALREADY_MARKED\""), "Repeated mark should be reported");
+        assertTrue(listed.body().contains("\"result\":\"NOT_FOUND\""), "Unknown habit should be reported");
+        assertEquals(400, send("POST", "/api/completions", token, "{\"habitIds\":\"1\"}").statusCode(),
+                "Invalid habitIds should be 400");
+    }
+
+    /**
+     * Тест отклонения отметок в будущем и неизвестной периодичности.
+     */
+    @Test
+    @DisplayName("Тест проверки даты отметки и периодичности привычки")
+    public void testRejectsFutureDatesAndUnknownFrequency() throws Exception {
+        String token = registerAndLogin("user@example.com");
+        assertEquals(400, send("POST", "/api/habits", token, "{\"title\":\"Бег\",\"frequency\":3}").statusCode(),
+                "Unknown frequency should be 400");
+        long habitId = (Long) Json.parseObject(send("POST", "/api/habits", token,
+                "{\"title\":\"Бег\",\"frequency\":1}").body()).get("id");
+        assertEquals(400, send("PUT", "/api/habits/" + habitId, token,
+                "{\"title\":\"Бег\",\"frequency\":0,\"version\":0}").statusCode(), "Unknown frequency should be 400");
+
+        String tomorrow = "{\"date\":\"" + LocalDate.now().plusDays(1) + "\"}";
+        assertEquals(400, send("POST", "/api/habits/" + habitId + "/completions", token, tomorrow).statusCode(),
+                "Future completion should be 400");
+        assertEquals(400, send("POST", "/api/completions", token, tomorrow).statusCode(),
+                "Future bulk completion should be 400");
+        Map<String, Object> stats = Json.parseObject(send("GET", "/api/habits/" + habitId + "/stats", token, null).body());
+        assertEquals(0L, stats.get("streak"), "Rejected completions should not be recorded");
+    }
+
+    /**
+     * Тест потоковой выгрузки истории.
+     */
+    @Test
+    @DisplayName("Тест потоковой выгрузки истории")
+    public void testExport() throws Exception {
+        String token = registerAndLogin("user@example.com");
+        long id = (Long) Json.parseObject(send("POST", "/api/habits", token,
+                "{\"title\":\"Бег\",\"frequency\":1}").body()).get("id");
+        send("POST", "/api/habits/" + id + "/completions", token, "{\"date\":\"2024-04-01\"}");
+
+        HttpResponse<String> csv = send("GET", "/api/export", token, null);
+        assertEquals(200, csv.statusCode(), "Export should succeed");
+        assertTrue(csv.headers().firstValue("Content-Type").orElse("").startsWith("text/csv"), "CSV is the default");
+        assertTrue(csv.body().contains(id + ",Бег,,1,"), "Habit should be exported");
+        assertTrue(csv.body().endsWith(",2024-04-01,true\n"), "Record should be exported");
+
+        HttpResponse<String> ndjson = send("GET", "/api/export?format=ndjson", token, null);
+        assertEquals("2024-04-01", Json.parseObject(ndjson.body().trim()).get("date"), "NDJSON should be exported");
+        assertEquals(400, send("GET", "/api/export?format=xml", token, null).statusCode(),
+                "Unknown format should be 400");
+    }
+
+    /**
+     * Тест потоковой выдачи отчёта о прогрессе в разных форматах.
+     */
+    @Test
+    @DisplayName("Тест потоковой выдачи отчёта о прогрессе")
+    public void testReportFormats() throws Exception {
+        String token = registerAndLogin("user@example.com");
+        long id = (Long) Json.parseObject(send("POST", "/api/habits", token,
+                "{\"title\":\"Бег, утром\",\"frequency\":1}").body()).get("id");
+        send("POST", "/api/habits/" + id + "/completions", token, "{}");
+
+        HttpResponse<String> csv = send("GET", "/api/report?format=csv", token, null);
+        assertTrue(csv.headers().firstValue("Content-Type").orElse("").startsWith("text/csv"), "CSV should be sent");
+        assertEquals("habit_id,title,frequency,streak,success_rate\n" + id + ",\"Бег, утром\",1,1,3.33\n", csv.body(),
+                "CSV report should have one row per habit");
+
+        Map<String, Object> json = Json.parseObject(send("GET", "/api/report?format=json", token, null).body());
+        List<?> habits = (List<?>) json.get("habits");
+        assertEquals(1, habits.size(), "JSON report should list habits");
+        assertEquals(1L, ((Map<?, ?>) habits.get(0)).get("streak"), "Streak should be reported");
+
+        String text = send("GET", "/api/report?format=text", token, null).body();
+        assertTrue(text.startsWith("Отчет о прогрессе:\nПривычка: Бег, утром\n"), "Text report should be sent");
+        assertTrue(Json.parseObject(send("GET", "/api/report", token, null).body()).containsKey("report"),
+                "Report without format should keep the JSON wrapper");
+        assertEquals(400, send("GET", "/api/report?format=xml", token, null).statusCode(),
+                "Unknown format should be 400");
+    }
+
+    /**
+     * Тест обнаружения изменений привычки и профиля с другого устройства.
+     */
+    @Test
+    @DisplayName("Тест оптимистичной блокировки привычки и профиля")
+    public void testOptimisticUpdates() throws Exception {
+        String phone = registerAndLogin("devices@example.com");
+        HttpResponse<String> login = send("POST", "/api/sessions", null,
+                "{\"email\":\"devices@example.com\",\"password\":\"secret\"}");
+        String laptop = (String) Json.parseObject(login.body()).get("token");
+
+        Map<String, Object> habit = Json.parseObject(send("POST", "/api/habits", phone,
+                "{\"title\":\"Бег\",\"frequency\":1}").body());
+        String path = "/api/habits/" + habit.get("id");
+        assertEquals(0L, habit.get("version"), "New habit should have version 0");
+
+        HttpResponse<String> updated = send("PUT", path, phone, "{\"title\":\"Йога\",\"frequency\":1,\"version\":0}");
+        assertEquals(200, updated.statusCode(), "Update with current version should succeed");
+        assertEquals(1L, Json.parseObject(updated.body()).get("version"), "Version should be incremented");
+        assertEquals(409, send("PUT", path, laptop, "{\"title\":\"Плавание\",\"frequency\":1,\"version\":0}")
+                .statusCode(), "Stale version should be rejected");
+        assertEquals(404, send("PUT", "/api/habits/999", laptop, "{\"title\":\"x\",\"frequency\":1,\"version\":0}")
+                .statusCode(), "Missing habit should be 404");
+        assertEquals(400, send("PUT", path, laptop, "{\"title\":\"Плавание\",\"frequency\":1}").statusCode(),
+                "Update without version should be rejected");
+        assertTrue(send("GET", path, laptop, null).body().contains("Йога"), "First update should be kept");
+
+        assertEquals(200, send("PUT", "/api/users/me", phone,
+                "{\"email\":\"devices@example.com\",\"password\":\"secret\",\"name\":\"Phone\"}").statusCode(),
+                "Profile update should succeed");
+        assertEquals(409, send("PUT", "/api/users/me", laptop,
+                "{\"email\":\"devices@example.com\",\"password\":\"secret\",\"name\":\"Laptop\"}").statusCode(),
+                "Profile changed on another device should be rejected");
+        assertTrue(send("GET", "/api/users/me", phone, null).body().contains("Phone"), "First update should be kept");
+    }
+
+    /**
+     * Тест ответов на некорректные запросы.
+     */
+    @Test
+    @DisplayName("Тест ответов на некорректные запросы")
+    public void testInvalidRequests() throws Exception {
+        String token = registerAndLogin("user@example.com");
+
+        assertEquals(400, send("POST", "/api/habits", token, "{\"title\":").statusCode(), "Broken JSON should be 400");
+        assertEquals(400, send("POST", "/api/habits", token, "{\"title\":\"x\"}").statusCode(),
+                "Missing field should be 400");
+        assertEquals(413, send("POST", "/api/habits", token, "{\"title\":\"" + "x".repeat(MAX_BODY_BYTES) + "\"}")
+                .statusCode(), "Oversized body should be 413");
+        assertEquals(404, send("GET", "/api/unknown", token, null).statusCode(), "Unknown route should be 404");
+        assertEquals(405, send("PATCH", "/api/habits", token, "").statusCode(), "Unsupported method should be 405");
+        assertEquals(401, send("GET", "/api/report", null, null).statusCode(), "Missing token should be 401");
+    }
+
+    private String registerAndLogin(String email) throws Exception {
+        send("POST", "/api/users", null, "{\"email\":\"" + email + "\",\"password\":\"secret\",\"name\":\"User\"}");
+        HttpResponse<String> login = send("POST", "/api/sessions", null,
+                "{\"email\":\"" + email + "\",\"password\":\"secret\"}");
+        return (String) Json.parseObject(login.body()).get("token");
+    }
+
+    private HttpResponse<String> send(String method, String path, String token, String body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body));
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,51 @@
+package ru.habittracker.api;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тестовый класс для {@link Json}.
+ *
+ * <p><strong>Автор:</strong> Ekaterina Ishchuk</p>
+ */
+public class JsonTest {
+
+    /**
+     * Тест записи и повторного разбора значений.
+     */
+    @Test
+    @DisplayName("Тест записи и повторного разбора значений")
+    public void testRoundTrip() {
+        Map<String, Object> value = new LinkedHashMap<>();
+        value.put("name", "Привычка \"утро\"\n");
+        value.put("count", 3L);
+        value.put("rate", 12.5);
+        value.put("done", true);
+        value.put("missing", null);
+        value.put("items", List.of(1L, "два"));
+
+        String json = Json.write(value);
+
+        assertEquals(value, Json.parseObject(json), "Parsed value should match the written one");
+        assertEquals("{\"a\":\"\\u0001\"}", Json.write(Map.of("a", "\u0001")), "Control characters should be escaped");
+    }
+
+    /**
+     * Тест отклонения некорректного JSON.
+     */
+    @Test
+    @DisplayName("Тест отклонения некорректного JSON")
+    public void testRejectsInvalidJson() {
+        assertThrows(IllegalArgumentException.class, () -> Json.parseObject("[1, 2]"), "Array is not an object");
+        assertThrows(IllegalArgumentException.class, () -> Json.parseObject("{\"a\":1"), "Unclosed object");
+        assertThrows(IllegalArgumentException.class, () -> Json.parseObject("{\"a\":1} x"), "Trailing characters");
+        assertThrows(IllegalArgumentException.class, () -> Json.parseObject("{\"a\":tru}"), "Broken literal");
+        assertThrows(IllegalArgumentException.class, () -> Json.parseObject("[".repeat(100)), "Too deep nesting");
+    }
+}
@@ -0,0 +1,177 @@
+package ru.habittracker.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.habittracker.model.CompletionBitmap;
+import ru.habittracker.model.CompletionHistory;
+import ru.habittracker.model.HabitRecord;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Бенчмарк расчёта серий и процента успеха по битовой карте дней.
+ * <p>
+ * {@code stream*} повторяет расчёт через Stream API по списку {@link HabitRecord}, как в прежнем
+ * {@code HabitTrackerService}; {@code history*} — по массиву дней {@link CompletionHistory};
+ * {@code bitmap*} — по {@link CompletionBitmap}. История и карта строятся заранее,
+ * поэтому сравнивается только стоимость вычисления.
+ * </p>
+ *
+ * <p><strong>Автор:</strong> Ekaterina Ishchuk</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CompletionBitmapBenchmark {
+
+    private static final int SUCCESS_RATE_DAYS = 30;
+    private static final int ROLLING_DAYS = 365;
+
+    @Param({"365", "3650"})
+    int days;
+
+    private List<HabitRecord> records;
+    private CompletionHistory history;
+    private CompletionBitmap bitmap;
+    private int today;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        today = (int) LocalDate.now().toEpochDay();
+        records = new ArrayList<>();
+        CompletionHistory.Builder builder = new CompletionHistory.Builder(days);
+        for (int i = 0; i < days; i++) {
+            int day = today - days + 1 + i;
+            // Последние две недели выполнены подряд, чтобы серия была ненулевой
+            boolean completed = i >= days - 14 || random.nextInt(10) < 8;
+            records.add(new HabitRecord(i + 1, 1, LocalDate.ofEpochDay(day), completed));
+            if (completed) {
+                builder.add(day);
+            }
+        }
+        history = builder.build();
+        bitmap = CompletionBitmap.of(history);
+    }
+
+    @Benchmark
+    public int streamStreak() {
+        List<HabitRecord> completed = records.stream()
+                .filter(HabitRecord::isCompleted)
+                .sorted(Comparator.comparing(HabitRecord::getDate).reversed())
+                .collect(Collectors.toList());
+
+        int streak = 0;
+        LocalDate currentDate = LocalDate.ofEpochDay(today);
+        for (HabitRecord record : completed) {
+            if (record.getDate().equals(currentDate) || record.getDate().equals(currentDate.minusDays(1))) {
+                streak++;
+                currentDate = record.getDate();
+            } else {
+                break;
+            }
+        }
+        return streak;
+    }
+
+    @Benchmark
+    public int historyStreak() {
+        return history.streakAsOf(today);
+    }
+
+    @Benchmark
+    public int bitmapStreak() {
+        return bitmap.streakAsOf(today);
+    }
+
+    @Benchmark
+    public int streamLongestStreak() {
+        List<LocalDate> dates = records.stream()
+                .filter(HabitRecord::isCompleted)
+                .map(HabitRecord::getDate)
+                .sorted()
+                .collect(Collectors.toList());
+
+        int longest = 0;
+        int current = 0;
+        LocalDate previous = null;
+        for (LocalDate date : dates) {
+            current = previous != null && date.equals(previous.plusDays(1)) ? current + 1 : 1;
+            longest = Math.max(longest, current);
+            previous = date;
+        }
+        return longest;
+    }
+
+    @Benchmark
+    public int historyLongestStreak() {
+        return history.longestStreak();
+    }
+
+    @Benchmark
+    public int bitmapLongestStreak() {
+        return bitmap.longestStreak();
+    }
+
+    @Benchmark
+    public double streamSuccessRate() {
+        LocalDate thirtyDaysAgo = LocalDate.ofEpochDay(today).minusDays(SUCCESS_RATE_DAYS);
+        long completedDays = records.stream()
+                .filter(record -> record.isCompleted() && !record.getDate().isBefore(thirtyDaysAgo))
+                .count();
+        return (double) completedDays / SUCCESS_RATE_DAYS * 100;
+    }
+
+    @Benchmark
+    public double bitmapSuccessRate() {
+        return (double) bitmap.countSince(today - SUCCESS_RATE_DAYS) / SUCCESS_RATE_DAYS * 100;
+    }
+
+    @Benchmark
+    public int[] streamRollingCounts() {
+        int[] counts = new int[ROLLING_DAYS];
+        for (int i = 0; i < ROLLING_DAYS; i++) {
+            LocalDate end = LocalDate.ofEpochDay(today - ROLLING_DAYS + 1 + i);
+            LocalDate start = end.minusDays(SUCCESS_RATE_DAYS - 1);
+            counts[i] = (int) records.stream()
+                    .filter(record -> record.isCompleted()
+                            && !record.getDate().isBefore(start) && !record.getDate().isAfter(end))
+                    .count();
+        }
+        return counts;
+    }
+
+    @Benchmark
+    public int[] bitmapRollingCounts() {
+        return bitmap.rollingCounts(today - ROLLING_DAYS + 1, today, SUCCESS_RATE_DAYS);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(CompletionBitmapBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
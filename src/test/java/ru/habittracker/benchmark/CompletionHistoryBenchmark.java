@@ -0,0 +1,141 @@
+package ru.habittracker.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.habittracker.model.CompletionHistory;
+import ru.habittracker.model.HabitRecord;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Бенчмарк расчёта серии и процента успеха по многолетней истории.
+ * <p>
+ * Строки результата запроса моделируются массивами примитивов. {@code records*} повторяет прежний
+ * путь: {@link HabitRecord} и {@link LocalDate} на строку, сортировка и фильтрация через Stream API.
+ * {@code history*} заполняет {@link CompletionHistory} номерами дней и считает по массиву.
+ * Запускается с {@link GCProfiler}, чтобы сравнить {@code gc.alloc.rate.norm}.
+ * </p>
+ *
+ * <p><strong>Автор:</strong> Ekaterina Ishchuk</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CompletionHistoryBenchmark {
+
+    private static final int SUCCESS_RATE_DAYS = 30;
+
+    @Param({"3650"})
+    int days;
+
+    private int[] rowIds;
+    private int[] rowDays;
+    private boolean[] rowCompleted;
+    private int today;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        today = (int) LocalDate.now().toEpochDay();
+        rowIds = new int[days];
+        rowDays = new int[days];
+        rowCompleted = new boolean[days];
+        for (int i = 0; i < days; i++) {
+            rowIds[i] = i + 1;
+            rowDays[i] = today - days + 1 + i;
+            rowCompleted[i] = random.nextInt(10) < 8;
+        }
+        // Последние две недели выполнены подряд, чтобы серия была ненулевой
+        for (int i = days - 14; i < days; i++) {
+            rowCompleted[i] = true;
+        }
+    }
+
+    @Benchmark
+    public int recordsStreak() {
+        List<HabitRecord> records = loadRecords().stream()
+                .filter(HabitRecord::isCompleted)
+                .sorted(Comparator.comparing(HabitRecord::getDate).reversed())
+                .collect(Collectors.toList());
+
+        int streak = 0;
+        LocalDate currentDate = LocalDate.ofEpochDay(today);
+        for (HabitRecord record : records) {
+            if (record.getDate().equals(currentDate) || record.getDate().equals(currentDate.minusDays(1))) {
+                streak++;
+                currentDate = record.getDate();
+            } else {
+                break;
+            }
+        }
+        return streak;
+    }
+
+    @Benchmark
+    public double recordsSuccessRate() {
+        LocalDate thirtyDaysAgo = LocalDate.ofEpochDay(today).minusDays(SUCCESS_RATE_DAYS);
+        long completedDays = loadRecords().stream()
+                .filter(record -> record.isCompleted() && !record.getDate().isBefore(thirtyDaysAgo))
+                .count();
+        return (double) completedDays / SUCCESS_RATE_DAYS * 100;
+    }
+
+    @Benchmark
+    public int historyStreak() {
+        return loadHistory().streakAsOf(today);
+    }
+
+    @Benchmark
+    public double historySuccessRate() {
+        return (double) loadHistory().countSince(today - SUCCESS_RATE_DAYS) / SUCCESS_RATE_DAYS * 100;
+    }
+
+    private List<HabitRecord> loadRecords() {
+        List<HabitRecord> records = new ArrayList<>();
+        for (int i = 0; i < days; i++) {
+            records.add(new HabitRecord(rowIds[i], 1, LocalDate.ofEpochDay(rowDays[i]), rowCompleted[i]));
+        }
+        return records;
+    }
+
+    private CompletionHistory loadHistory() {
+        CompletionHistory.Builder history = new CompletionHistory.Builder();
+        for (int i = 0; i < days; i++) {
+            if (rowCompleted[i]) {
+                history.add(rowDays[i]);
+            }
+        }
+        return history.build();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(CompletionHistoryBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,168 @@
+package ru.habittracker.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.habittracker.model.Habit;
+import ru.habittracker.model.HabitRecord;
+import ru.habittracker.model.User;
+import ru.habittracker.repository.memory.InMemoryHabitRecordRepository;
+import ru.habittracker.repository.memory.InMemoryHabitRepository;
+import ru.habittracker.repository.memory.InMemoryStore;
+import ru.habittracker.repository.memory.InMemoryUserRepository;
+import ru.habittracker.repository.memory.StorePersistence;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Бенчмарк долговременного хранения in-memory хранилища.
+ * <p>
+ * {@code walAppend} измеряет пропускную способность записи отметок выполнения через журнал
+ * с групповым сбросом на диск при нескольких потоках; {@code recover} — время запуска
+ * с восстановлением из журнала без снимка и из снимка.
+ * </p>
+ * <p>
+ * Запускается отдельно от тестов через {@link #main(String[])}.
+ * </p>
+ *
+ * <p><strong>Автор:</strong> Ekaterina Ishchuk</p>
+ */
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class InMemoryStoreBenchmark {
+
+    /**
+     * Хранилище с журналом для измерения пропускной способности записи.
+     */
+    @State(Scope.Benchmark)
+    public static class WalState {
+        Path directory;
+        StorePersistence persistence;
+        InMemoryHabitRecordRepository records;
+        int habitId;
+        final AtomicInteger day = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("wal-bench");
+            InMemoryStore store = new InMemoryStore();
+            persistence = new StorePersistence(directory, store);
+            persistence.recover();
+            records = new InMemoryHabitRecordRepository(store);
+            habitId = populate(store, 1, 0).getId();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            persistence.close();
+            deleteRecursively(directory);
+        }
+    }
+
+    /**
+     * Каталог с заранее записанными данными для измерения времени восстановления.
+     */
+    @State(Scope.Benchmark)
+    public static class RecoveryState {
+        @Param({"100000"})
+        int records;
+
+        @Param({"false", "true"})
+        boolean snapshot;
+
+        Path directory;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("recovery-bench");
+            InMemoryStore store = new InMemoryStore();
+            StorePersistence persistence = new StorePersistence(directory, store);
+            persistence.recover();
+            populate(store, 100, records);
+            if (snapshot) {
+                persistence.snapshot();
+            }
+            store.setJournal(null);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            deleteRecursively(directory);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Threads(8)
+    public Optional<HabitRecord> walAppend(WalState state) {
+        LocalDate date = LocalDate.ofEpochDay(state.day.incrementAndGet());
+        return state.records.saveCompletion(new HabitRecord(state.habitId, date, true));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public InMemoryStore recover(RecoveryState state) throws IOException {
+        InMemoryStore store = new InMemoryStore();
+        StorePersistence persistence = new StorePersistence(state.directory, store);
+        persistence.recover();
+        store.setJournal(null);
+        return store;
+    }
+
+    private static Habit populate(InMemoryStore store, int habits, int records) {
+        User user = new InMemoryUserRepository(store)
+                .save(new User("bench@example.com", "password", "Bench")).orElseThrow();
+        InMemoryHabitRepository habitRepository = new InMemoryHabitRepository(store);
+        InMemoryHabitRecordRepository recordRepository = new InMemoryHabitRecordRepository(store);
+
+        Habit last = null;
+        for (int i = 0; i < habits; i++) {
+            last = habitRepository.save(new Habit(0, "Habit " + i, "Benchmark", 1, user.getId(), LocalDate.now()));
+        }
+        LocalDate start = LocalDate.now().minusDays(records / Math.max(habits, 1));
+        for (int i = 0; i < records; i++) {
+            int habitId = last.getId() - (i % habits);
+            recordRepository.save(new HabitRecord(habitId, start.plusDays(i / habits), true));
+        }
+        return last;
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(InMemoryStoreBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,65 @@
+package ru.habittracker.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.habittracker.security.PasswordHasher;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк проверки пароля PBKDF2.
+ * <p>
+ * Один поток — одно ядро, поэтому результат в операциях в секунду равен числу входов в секунду
+ * на ядро при выбранном количестве итераций. По нему подбираются {@code security.password.iterations}
+ * и размер очереди {@code security.password.queueCapacity}.
+ * </p>
+ *
+ * <p><strong>Автор:</strong> Ekaterina Ishchuk</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(1)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PasswordHasherBenchmark {
+
+    @Param({"210000", "600000"})
+    int iterations;
+
+    private PasswordHasher hasher;
+    private String stored;
+
+    @Setup
+    public void setUp() {
+        hasher = new PasswordHasher(iterations);
+        stored = hasher.hash("password123");
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return hasher.verify("password123", stored);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(PasswordHasherBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
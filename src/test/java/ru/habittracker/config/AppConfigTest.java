@@ -28,5 +28,6 @@ public class AppConfigTest {
         assertNotNull(appConfig.getDbPassword(), "Database password should not be null.");
         assertNotNull(appConfig.getDbDriver(), "Database driver should not be null.");
         assertNotNull(appConfig.getLiquibaseChangeLog(), "Liquibase changelog file should not be null.");
+        assertNotNull(appConfig.getStorageType(), "Storage type should not be null.");
     }
 }
@@ -0,0 +1,74 @@
+package ru.habittracker.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тестовый класс для {@link Bulkhead}.
+ * <p>
+ * Проверяет, что операции разных видов ограничиваются независимо и что операция без свободного места
+ * отклоняется по истечении времени ожидания.
+ * </p>
+ *
+ * <p><strong>Автор:</strong> Ekaterina Ishchuk</p>
+ */
+public class BulkheadTest {
+
+    /**
+     * Тест отметок выполнения при занятых местах отчётов.
+     */
+    @Test
+    @DisplayName("Тест независимых ограничений для видов операций")
+    public void testReportsDoNotStarveWrites() throws SQLException {
+        Bulkhead bulkhead = new Bulkhead(2, 1, 1, 10);
+
+        bulkhead.acquire(DatabaseWorkload.REPORT);
+        assertThrows(SQLTransientException.class, () -> bulkhead.acquire(DatabaseWorkload.REPORT),
+                "Second report should be rejected");
+
+        bulkhead.acquire(DatabaseWorkload.WRITE);
+        bulkhead.acquire(DatabaseWorkload.READ);
+        assertEquals(1, bulkhead.getAvailable(DatabaseWorkload.READ), "Reads should keep their own limit");
+        assertEquals(1, bulkhead.getRejected(DatabaseWorkload.REPORT), "Rejected report should be counted");
+        assertEquals(0, bulkhead.getRejected(DatabaseWorkload.WRITE), "Writes should not be rejected");
+
+        bulkhead.release(DatabaseWorkload.REPORT);
+        bulkhead.acquire(DatabaseWorkload.REPORT);
+        assertEquals(0, bulkhead.getAvailable(DatabaseWorkload.REPORT), "Released place should be reused");
+    }
+
+    /**
+     * Тест ожидания освобождения места и отсутствия ограничения при нулевом лимите.
+     */
+    @Test
+    @DisplayName("Тест ожидания места и отключённого ограничения")
+    public void testWaitsForPlace() throws Exception {
+        Bulkhead bulkhead = new Bulkhead(1, 1, 1, 5000);
+        bulkhead.acquire(DatabaseWorkload.WRITE);
+        Thread releaser = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            bulkhead.release(DatabaseWorkload.WRITE);
+        });
+        releaser.start();
+
+        bulkhead.acquire(DatabaseWorkload.WRITE);
+        releaser.join();
+        assertEquals(0, bulkhead.getRejected(DatabaseWorkload.WRITE), "Waiting write should get the released place");
+
+        Bulkhead unlimited = Bulkhead.unlimited();
+        for (int i = 0; i < 1000; i++) {
+            unlimited.acquire(DatabaseWorkload.REPORT);
+        }
+        assertThrows(IllegalArgumentException.class, () -> new Bulkhead(-1, 1, 1, 0),
+                "Negative limit should be rejected");
+    }
+}
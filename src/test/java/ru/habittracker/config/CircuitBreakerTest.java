@@ -0,0 +1,108 @@
+package ru.habittracker.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тестовый класс для {@link CircuitBreaker}.
+ * <p>
+ * Проверяет размыкание после серии сбоев, отклонение операций до истечения паузы и пробные операции
+ * после неё. Время задаётся вручную.
+ * </p>
+ *
+ * <p><strong>Автор:</strong> Ekaterina Ishchuk</p>
+ */
+public class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    /**
+     * Тест размыкания только после заданного числа сбоев подряд.
+     */
+    @Test
+    @DisplayName("Тест размыкания после серии сбоев")
+    public void testOpensAfterConsecutiveFailures() throws SQLException {
+        CircuitBreaker breaker = new CircuitBreaker(3, 1000, 1, now::get);
+
+        recordFailure(breaker);
+        recordFailure(breaker);
+        recordSuccess(breaker);
+        recordFailure(breaker);
+        recordFailure(breaker);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState(), "Success should reset the failure count");
+
+        recordFailure(breaker);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState(), "Third failure in a row should open the breaker");
+        assertThrows(SQLTransientConnectionException.class, breaker::acquirePermission,
+                "Open breaker should reject operations");
+        assertEquals(1, breaker.getTrips(), "Trip should be counted");
+        assertEquals(1, breaker.getRejected(), "Rejection should be counted");
+    }
+
+    /**
+     * Тест пробных операций после паузы.
+     */
+    @Test
+    @DisplayName("Тест пробных операций после паузы")
+    public void testHalfOpenProbes() throws SQLException {
+        CircuitBreaker breaker = new CircuitBreaker(1, 1000, 1, now::get);
+        recordFailure(breaker);
+
+        advance(999);
+        assertThrows(SQLTransientConnectionException.class, breaker::acquirePermission,
+                "Breaker should stay open until the pause ends");
+
+        advance(1);
+        breaker.acquirePermission();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState(), "Breaker should let a probe through");
+        assertThrows(SQLTransientConnectionException.class, breaker::acquirePermission,
+                "Only one probe should run at a time");
+        breaker.onResult(true);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState(), "Failed probe should open the breaker again");
+
+        advance(1000);
+        recordSuccess(breaker);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState(), "Successful probe should close the breaker");
+        recordSuccess(breaker);
+        assertEquals(2, breaker.getTrips(), "Both trips should be counted");
+    }
+
+    /**
+     * Тест учёта только ошибок недоступности базы.
+     */
+    @Test
+    @DisplayName("Тест определения сбоев, размыкающих выключатель")
+    public void testFailureClassification() {
+        assertTrue(CircuitBreaker.isFailure(new SQLException("x", "08001")), "Connect failure should count");
+        assertTrue(CircuitBreaker.isFailure(new SQLException("x", "57014")), "Query timeout should count");
+        assertFalse(CircuitBreaker.isFailure(new SQLException("x", "23505")), "Constraint violation should not count");
+        assertFalse(CircuitBreaker.isFailure(new SQLException("x", "40001")), "Rollback should not count");
+
+        CircuitBreaker disabled = CircuitBreaker.disabled();
+        for (int i = 0; i < 100; i++) {
+            disabled.onResult(true);
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, disabled.getState(), "Disabled breaker should never open");
+    }
+
+    private void advance(long millis) {
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    private static void recordFailure(CircuitBreaker breaker) throws SQLException {
+        breaker.acquirePermission();
+        breaker.onResult(true);
+    }
+
+    private static void recordSuccess(CircuitBreaker breaker) throws SQLException {
+        breaker.acquirePermission();
+        breaker.onResult(false);
+    }
+}
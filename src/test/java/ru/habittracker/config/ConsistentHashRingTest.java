@@ -0,0 +1,74 @@
+package ru.habittracker.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тестовый класс для {@link ConsistentHashRing}.
+ * <p>
+ * Проверяет равномерность распределения ключей и перемещение ключей при добавлении узла.
+ * </p>
+ *
+ * <p><strong>Автор:</strong> Ekaterina Ishchuk</p>
+ */
+public class ConsistentHashRingTest {
+
+    private static final int KEYS = 100_000;
+
+    /**
+     * Тест равномерного распределения последовательных ID.
+     */
+    @Test
+    @DisplayName("Тест равномерного распределения последовательных ID")
+    public void testKeysAreBalanced() {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("s0", "s1", "s2", "s3"), 128);
+
+        int[] counts = new int[4];
+        for (int key = 1; key <= KEYS; key++) {
+            counts[ring.nodeFor(key)]++;
+        }
+
+        for (int count : counts) {
+            assertTrue(Math.abs(count - KEYS / 4) < KEYS / 4 * 0.2, "Each node should get about a quarter of keys");
+        }
+    }
+
+    /**
+     * Тест перемещения ключей только на добавленный узел.
+     */
+    @Test
+    @DisplayName("Тест перемещения ключей только на добавленный узел")
+    public void testAddingNodeMovesKeysOnlyToNewNode() {
+        ConsistentHashRing before = new ConsistentHashRing(List.of("s0", "s1", "s2", "s3"), 128);
+        ConsistentHashRing after = new ConsistentHashRing(List.of("s0", "s1", "s2", "s3", "s4"), 128);
+
+        int moved = 0;
+        for (int key = 1; key <= KEYS; key++) {
+            int oldNode = before.nodeFor(key);
+            int newNode = after.nodeFor(key);
+            if (oldNode != newNode) {
+                assertEquals(4, newNode, "Keys should move only to the new node");
+                moved++;
+            }
+        }
+
+        assertTrue(moved > KEYS / 5 * 0.8 && moved < KEYS / 5 * 1.2, "About a fifth of keys should move");
+    }
+
+    /**
+     * Тест проверки параметров кольца.
+     */
+    @Test
+    @DisplayName("Тест проверки параметров кольца")
+    public void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing(List.of(), 16),
+                "Empty ring should be rejected");
+        assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing(List.of("s0"), 0),
+                "Non-positive virtual node count should be rejected");
+        assertEquals(0, new ConsistentHashRing(List.of("s0"), 1).nodeFor(42), "Single node should own every key");
+    }
+}
@@ -0,0 +1,133 @@
+package ru.habittracker.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тестовый класс для {@link QueryDeadline} и {@link QueryTimeouts}.
+ * <p>
+ * Проверяет привязку срока к потоку, вложенные сроки, передачу срока в другой поток, отмену
+ * выполняющихся операций и сокращение таймаутов запросов до срока.
+ * </p>
+ *
+ * <p><strong>Автор:</strong> Ekaterina Ishchuk</p>
+ */
+public class QueryDeadlineTest {
+
+    /**
+     * Проверка, что тест не оставил срок в потоке.
+     */
+    @AfterEach
+    public void tearDown() {
+        assertNull(QueryDeadline.current(), "Deadline should be removed from the thread");
+    }
+
+    /**
+     * Тест вложенного срока, который не может быть позже внешнего.
+     */
+    @Test
+    @DisplayName("Тест вложенных сроков")
+    public void testNestedDeadlines() {
+        try (QueryDeadline outer = QueryDeadline.start(1000)) {
+            assertSame(outer, QueryDeadline.current(), "Deadline should be bound to the thread");
+            try (QueryDeadline inner = QueryDeadline.start(60_000)) {
+                assertSame(inner, QueryDeadline.current(), "Inner deadline should be current");
+                assertTrue(inner.remainingMillis() <= 1000, "Inner deadline should not outlive the outer one");
+            }
+            assertSame(outer, QueryDeadline.current(), "Outer deadline should be restored");
+
+            try (QueryDeadline expired = QueryDeadline.start(0)) {
+                assertTrue(expired.isExpired(), "Zero timeout should expire immediately");
+                assertFalse(outer.isExpired(), "Outer deadline should not expire with the inner one");
+            }
+        }
+    }
+
+    /**
+     * Тест передачи срока в поток, выполняющий часть операции.
+     */
+    @Test
+    @DisplayName("Тест передачи срока в другой поток")
+    public void testCallWithin() throws InterruptedException {
+        try (QueryDeadline deadline = QueryDeadline.start(1000)) {
+            QueryDeadline[] seen = new QueryDeadline[2];
+            Thread worker = new Thread(() -> {
+                seen[0] = QueryDeadline.callWithin(deadline, QueryDeadline::current);
+                seen[1] = QueryDeadline.current();
+            });
+            worker.start();
+            worker.join();
+
+            assertSame(deadline, seen[0], "Deadline should be visible inside callWithin");
+            assertNull(seen[1], "Deadline should be removed after callWithin");
+        }
+    }
+
+    /**
+     * Тест прерывания соединений при отмене, в том числе отмене внешнего срока.
+     */
+    @Test
+    @DisplayName("Тест отмены выполняющихся операций")
+    public void testCancelAbortsConnections() {
+        AtomicInteger aborted = new AtomicInteger();
+        Connection first = connection(aborted);
+        Connection second = connection(aborted);
+
+        try (QueryDeadline outer = QueryDeadline.start(60_000);
+             QueryDeadline inner = QueryDeadline.start(60_000)) {
+            inner.register(first);
+            inner.register(second);
+            inner.unregister(second);
+
+            outer.cancel();
+            assertEquals(1, aborted.get(), "Only the running operation should be aborted");
+            assertTrue(inner.isExpired(), "Cancelling the outer deadline should expire the inner one");
+
+            inner.register(second);
+            assertEquals(2, aborted.get(), "Operation started after cancel should be aborted at once");
+        }
+    }
+
+    /**
+     * Тест таймаутов запросов по видам операций и их сокращения до срока.
+     */
+    @Test
+    @DisplayName("Тест таймаутов запросов с учётом срока")
+    public void testQueryTimeouts() {
+        QueryTimeouts timeouts = new QueryTimeouts(2000, 0, 30_000);
+        assertEquals(2000, timeouts.getMillis(DatabaseWorkload.READ, null), "Read timeout should apply");
+        assertEquals(0, timeouts.getMillis(DatabaseWorkload.WRITE, null), "Zero should mean no timeout");
+
+        try (QueryDeadline deadline = QueryDeadline.start(500)) {
+            assertTrue(timeouts.getMillis(DatabaseWorkload.REPORT, deadline) <= 500,
+                    "Timeout should be shortened to the deadline");
+            assertTrue(timeouts.getMillis(DatabaseWorkload.WRITE, deadline) > 0,
+                    "Deadline should bound operations without their own timeout");
+        }
+        assertThrows(IllegalArgumentException.class, () -> new QueryTimeouts(-1, 0, 0),
+                "Negative timeout should be rejected");
+    }
+
+    private static Connection connection(AtomicInteger aborted) {
+        return (Connection) Proxy.newProxyInstance(QueryDeadlineTest.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    if ("abort".equals(method.getName())) {
+                        aborted.incrementAndGet();
+                    }
+                    if ("hashCode".equals(method.getName())) {
+                        return System.identityHashCode(proxy);
+                    }
+                    if ("equals".equals(method.getName())) {
+                        return proxy == args[0];
+                    }
+                    return null;
+                });
+    }
+}
@@ -0,0 +1,152 @@
+package ru.habittracker.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тестовый класс для {@link SqlRetryPolicy}.
+ * <p>
+ * Проверяет классификацию ошибок по SQLState, повтор временных сбоев, отказ от повтора неидемпотентных
+ * операций при обрыве соединения и ограничение повторов бюджетом. База данных не требуется: соединения
+ * заменяются заглушками.
+ * </p>
+ *
+ * <p><strong>Автор:</strong> Ekaterina Ishchuk</p>
+ */
+public class SqlRetryPolicyTest {
+
+    /**
+     * Тест классификации ошибок, включая ошибки внутри пакета.
+     */
+    @Test
+    @DisplayName("Тест классификации ошибок по SQLState")
+    public void testClassify() {
+        assertEquals(SqlRetryPolicy.Failure.ROLLED_BACK, SqlRetryPolicy.classify(error("40001")),
+                "Serialization failure should be rolled back");
+        assertEquals(SqlRetryPolicy.Failure.ROLLED_BACK, SqlRetryPolicy.classify(error("40P01")),
+                "Deadlock should be rolled back");
+        assertEquals(SqlRetryPolicy.Failure.CONNECTION_LOST, SqlRetryPolicy.classify(error("08006")),
+                "Connection failure should be connection lost");
+        assertEquals(SqlRetryPolicy.Failure.CONNECTION_LOST, SqlRetryPolicy.classify(error("57P01")),
+                "Admin shutdown should be connection lost");
+        assertEquals(SqlRetryPolicy.Failure.TIMEOUT, SqlRetryPolicy.classify(error("57014")),
+                "Statement timeout should not be retried as a transient failure");
+        assertEquals(SqlRetryPolicy.Failure.PERMANENT, SqlRetryPolicy.classify(error("23505")),
+                "Unique violation should be permanent");
+        assertEquals(SqlRetryPolicy.Failure.PERMANENT, SqlRetryPolicy.classify(new SQLException("x")),
+                "Missing SQLState should be permanent");
+
+        BatchUpdateException batch = new BatchUpdateException("batch", "XX000", new int[0]);
+        batch.setNextException(error("40P01"));
+        assertEquals(SqlRetryPolicy.Failure.ROLLED_BACK, SqlRetryPolicy.classify(batch),
+                "Next exception of a batch should be classified");
+    }
+
+    /**
+     * Тест повтора операции после отказа в подключении и отката транзакции.
+     */
+    @Test
+    @DisplayName("Тест повтора при отказе в подключении и откате транзакции")
+    public void testRetriesTransientFailures() throws SQLException {
+        SqlRetryPolicy policy = new SqlRetryPolicy(3, 0, 0, 1);
+        AtomicInteger opened = new AtomicInteger();
+        SqlRetryPolicy.ConnectionSource source = () -> {
+            if (opened.incrementAndGet() == 1) {
+                throw error("08001");
+            }
+            return connection();
+        };
+        AtomicInteger runs = new AtomicInteger();
+
+        String result = policy.execute(source, false, conn -> {
+            if (runs.incrementAndGet() == 1) {
+                throw error("40001");
+            }
+            return "ok";
+        });
+
+        assertEquals("ok", result, "Operation should succeed after retries");
+        assertEquals(3, opened.get(), "Connection should be opened for each attempt");
+        assertEquals(2, policy.getRetries(), "Two retries should be made");
+        assertEquals(1, policy.getRecovered(), "Operation should be recovered");
+        assertEquals(1, policy.getFailures(SqlRetryPolicy.Failure.CONNECT), "Connect failure should be counted");
+        assertEquals(1, policy.getFailures(SqlRetryPolicy.Failure.ROLLED_BACK), "Rollback should be counted");
+    }
+
+    /**
+     * Тест повтора при обрыве соединения только для идемпотентных операций.
+     */
+    @Test
+    @DisplayName("Тест повтора при обрыве соединения только для идемпотентных операций")
+    public void testConnectionLossRetriedOnlyWhenIdempotent() throws SQLException {
+        SqlRetryPolicy policy = new SqlRetryPolicy(3, 0, 0, 1);
+        AtomicInteger runs = new AtomicInteger();
+        SqlRetryPolicy.SqlWork<Integer> lostOnce = conn -> {
+            if (runs.incrementAndGet() == 1) {
+                throw error("08006");
+            }
+            return runs.get();
+        };
+
+        assertEquals(2, (int) policy.execute(SqlRetryPolicyTest::connection, true, lostOnce),
+                "Idempotent operation should be retried");
+
+        runs.set(0);
+        SQLException thrown = assertThrows(SQLException.class,
+                () -> policy.execute(SqlRetryPolicyTest::connection, false, lostOnce),
+                "Non-idempotent operation should not be retried");
+        assertEquals("08006", thrown.getSQLState(), "Original error should be thrown");
+        assertEquals(1, runs.get(), "Non-idempotent operation should run once");
+
+        runs.set(0);
+        assertThrows(SQLException.class, () -> policy.execute(SqlRetryPolicyTest::connection, true, conn -> {
+            runs.incrementAndGet();
+            throw error("23505");
+        }), "Permanent error should not be retried");
+        assertEquals(1, runs.get(), "Permanent error should run once");
+        assertEquals(1, policy.getRetries(), "Only the idempotent operation should be retried");
+    }
+
+    /**
+     * Тест ограничения числа попыток и бюджета повторов.
+     */
+    @Test
+    @DisplayName("Тест исчерпания попыток и бюджета повторов")
+    public void testAttemptsAndBudget() {
+        SqlRetryPolicy policy = new SqlRetryPolicy(3, 0, 0, 0);
+        SqlRetryPolicy.ConnectionSource down = () -> {
+            throw error("08001");
+        };
+
+        assertThrows(SQLException.class, () -> policy.execute(down, true, conn -> 1), "Failure should be thrown");
+        assertEquals(2, policy.getRetries(), "Attempts should be limited");
+        assertEquals(1, policy.getExhausted(), "Exhausted operation should be counted");
+
+        // Начальный запас бюджета — 10 повторов; без пополнения он заканчивается на шестой операции
+        for (int i = 0; i < 5; i++) {
+            assertThrows(SQLException.class, () -> policy.execute(down, true, conn -> 1), "Failure should be thrown");
+        }
+        assertEquals(10, policy.getRetries(), "Retries should stop when the budget is spent");
+        assertTrue(policy.getBudgetRejected() > 0, "Rejected retries should be counted");
+
+        assertThrows(IllegalArgumentException.class, () -> new SqlRetryPolicy(0, 0, 0, 0),
+                "At least one attempt should be required");
+    }
+
+    private static SQLException error(String sqlState) {
+        return new SQLException("Ошибка " + sqlState, sqlState);
+    }
+
+    private static Connection connection() {
+        return (Connection) Proxy.newProxyInstance(SqlRetryPolicyTest.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> null);
+    }
+}
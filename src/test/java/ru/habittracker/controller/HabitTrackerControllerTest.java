@@ -10,14 +10,19 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import ru.habittracker.model.Habit;
 import ru.habittracker.model.User;
+import ru.habittracker.report.ReportFormat;
 import ru.habittracker.service.IHabitService;
 import ru.habittracker.service.IHabitTrackerService;
 import ru.habittracker.service.IUserService;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
+import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.*;
 
@@ -153,15 +158,20 @@ class HabitTrackerControllerTest {
     @Test
     @DisplayName("Тест успешного обновления профиля пользователя")
     void handleUpdateUserTest() {
-        habitTrackerController.setLoggedInUser(new User(1, "user@example.com", "password123", "John Doe"));
+        habitTrackerController.setLoggedInUser(new User(1, "user@example.com", "password123", "John Doe", 3));
         String simulatedInput = "newemail@example.com\nnewpassword\nNew Name\n";
         System.setIn(new ByteArrayInputStream(simulatedInput.getBytes()));
 
-        when(userService.updateUser(anyInt(), anyString(), anyString(), anyString())).thenReturn(true);
+        when(userService.updateUser(anyInt(), anyInt(), anyString(), anyString(), anyString()))
+                .thenReturn(OptionalInt.of(4));
 
         habitTrackerController.handleUpdateUser(new Scanner(System.in));
 
-        verify(userService, times(1)).updateUser(1, "newemail@example.com", "newpassword", "New Name");
+        verify(userService, times(1)).updateUser(1, 3, "newemail@example.com", "newpassword", "New Name");
+        User sessionUser = habitTrackerController.getLoggedInUser();
+        Assertions.assertEquals("newemail@example.com", sessionUser.getEmail(), "Session email should be refreshed");
+        Assertions.assertEquals("New Name", sessionUser.getName(), "Session name should be refreshed");
+        Assertions.assertEquals(4, sessionUser.getVersion(), "Session version should be refreshed");
     }
 
     /**
@@ -175,7 +185,7 @@ class HabitTrackerControllerTest {
 
         habitTrackerController.handleUpdateUser(new Scanner(System.in));
 
-        verify(userService, never()).updateUser(anyInt(), anyString(), anyString(), anyString());
+        verify(userService, never()).updateUser(anyInt(), anyInt(), anyString(), anyString(), anyString());
     }
 
     /**
@@ -188,11 +198,12 @@ class HabitTrackerControllerTest {
         String simulatedInput = "existing@example.com\nnewpassword\nNew Name\n";
         System.setIn(new ByteArrayInputStream(simulatedInput.getBytes()));
 
-        when(userService.updateUser(anyInt(), anyString(), anyString(), anyString())).thenReturn(false);
+        when(userService.updateUser(anyInt(), anyInt(), anyString(), anyString(), anyString()))
+                .thenReturn(OptionalInt.empty());
 
         habitTrackerController.handleUpdateUser(new Scanner(System.in));
 
-        verify(userService, times(1)).updateUser(1, "existing@example.com", "newpassword", "New Name");
+        verify(userService, times(1)).updateUser(1, 0, "existing@example.com", "newpassword", "New Name");
     }
 
     /**
@@ -399,11 +410,13 @@ class HabitTrackerControllerTest {
         String simulatedInput = "1\nНовое название\nНовое описание\n1\n";
         System.setIn(new ByteArrayInputStream(simulatedInput.getBytes()));
 
-        when(habitService.updateHabit(anyInt(), anyInt(), anyString(), anyString(), anyInt())).thenReturn(true);
+        when(habitService.getHabit(1, 1)).thenReturn(new Habit(1, "Название", "Описание", 1, 1, LocalDate.now(), 2));
+        when(habitService.updateHabit(anyInt(), anyInt(), anyInt(), anyString(), anyString(), anyInt()))
+                .thenReturn(OptionalInt.of(3));
 
         habitTrackerController.handleUpdateHabit(new Scanner(System.in));
 
-        verify(habitService, times(1)).updateHabit(1, 1, "Новое название", "Новое описание", 1);
+        verify(habitService, times(1)).updateHabit(1, 1, 2, "Новое название", "Новое описание", 1);
     }
 
     /**
@@ -418,7 +431,7 @@ class HabitTrackerControllerTest {
 
         habitTrackerController.handleUpdateHabit(new Scanner(System.in));
 
-        verify(habitService, never()).updateHabit(anyInt(), anyInt(), anyString(), anyString(), anyInt());
+        verify(habitService, never()).updateHabit(anyInt(), anyInt(), anyInt(), anyString(), anyString(), anyInt());
     }
 
     /**
@@ -465,9 +478,19 @@ class HabitTrackerControllerTest {
 
         doNothing().when(habitTrackerService).markHabitCompletion(anyInt(), anyInt(), any(LocalDate.class));
 
-        habitTrackerController.handleMarkComplete(new Scanner(System.in));
+        PrintStream originalOut = System.out;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(output, true, StandardCharsets.UTF_8));
+        try {
+            habitTrackerController.handleMarkComplete(new Scanner(System.in));
+        } finally {
+            System.setOut(originalOut);
+        }
 
         verify(habitTrackerService, times(1)).markHabitCompletion(1, 1, LocalDate.now());
+        Assertions.assertTrue(output.toString(StandardCharsets.UTF_8)
+                        .contains("Привычка отмечена как выполненная за " + LocalDate.now() + "."),
+                "Console should confirm the completion");
     }
 
     /**
@@ -526,19 +549,18 @@ class HabitTrackerControllerTest {
      */
     @Test
     @DisplayName("Тест генерации отчёта по прогрессу")
-    void handleGenerateReportTest() {
+    void handleGenerateReportTest() throws IOException {
         habitTrackerController.setLoggedInUser(new User(1, "user@example.com", "password123", "John Doe"));
         List<Habit> mockHabits = Arrays.asList(
                 new Habit(1, "Читать книгу", "Читать 30 страниц ежедневно", 1, 1, LocalDate.now()),
                 new Habit(2, "Упражнения", "Утренняя зарядка", 1, 1, LocalDate.now())
         );
         when(habitService.getHabits(anyInt())).thenReturn(mockHabits);
-        when(habitTrackerService.generateProgressReport(anyInt(), anyList())).thenReturn("Отчет о прогрессе");
 
         habitTrackerController.handleGenerateReport();
 
         verify(habitService, times(1)).getHabits(1);
-        verify(habitTrackerService, times(1)).generateProgressReport(1, mockHabits);
+        verify(habitTrackerService, times(1)).writeProgressReport(eq(1), eq(mockHabits), eq(ReportFormat.TEXT), any());
     }
 
     /**
@@ -546,10 +568,62 @@ class HabitTrackerControllerTest {
      */
     @Test
     @DisplayName("Тест генерации отчёта без входа в систему")
-    void handleGenerateReportNotLoggedInTest() {
+    void handleGenerateReportNotLoggedInTest() throws IOException {
         habitTrackerController.handleGenerateReport();
 
         verify(habitService, never()).getHabits(anyInt());
-        verify(habitTrackerService, never()).generateProgressReport(anyInt(), anyList());
+        verify(habitTrackerService, never()).writeProgressReport(anyInt(), anyList(), any(), any());
+    }
+
+    /**
+     * Тест выполнения сценария команд без меню и подсказок.
+     */
+    @Test
+    @DisplayName("Тест выполнения сценария команд")
+    void runScriptTest() throws IOException {
+        User mockUser = new User(1, "user@example.com", "password123", "John Doe");
+        when(userService.loginUser(anyString(), anyString())).thenReturn(Optional.of(mockUser));
+        when(habitService.getHabits(anyInt())).thenReturn(List.of(
+                new Habit(1, "Читать книгу", "Читать 30 страниц ежедневно", 1, 1, LocalDate.now())));
+        String script = """
+                # вход и создание привычки
+                login user@example.com password123
+
+                create-habit "Читать книгу" "Читать 30 страниц ежедневно" 1
+                6
+                unknown
+                exit
+                report
+                """;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        int executed = habitTrackerController.runScript(new StringReader(script), output);
+
+        String printed = output.toString(StandardCharsets.UTF_8);
+        Assertions.assertEquals(4, executed, "Commands after exit should not be executed");
+        verify(userService, times(1)).loginUser("user@example.com", "password123");
+        verify(habitService, times(1)).createHabit(1, "Читать книгу", "Читать 30 страниц ежедневно", 1);
+        verify(habitTrackerService, never()).writeProgressReport(anyInt(), anyList(), any(), any());
+        Assertions.assertTrue(printed.contains("Привычка успешно создана."), "Command output should be written");
+        Assertions.assertTrue(printed.contains("Строка 6: неизвестная команда 'unknown'."),
+                "Unknown command should be reported with its line number");
+        Assertions.assertFalse(printed.contains("Введите"), "Prompts should not be printed");
+        Assertions.assertFalse(printed.contains("Введите номер команды"), "Menu should not be printed");
+    }
+
+    /**
+     * Тест разбора строки сценария на аргументы.
+     */
+    @Test
+    @DisplayName("Тест разбора строки сценария на аргументы")
+    void tokenizeTest() {
+        Assertions.assertEquals(List.of("create-habit", "Бег по утрам", "", "1"),
+                HabitTrackerController.tokenize("create-habit  \"Бег по утрам\" \"\" 1"));
+        Assertions.assertEquals(List.of("say", "a \"b\" \\"),
+                HabitTrackerController.tokenize("say \"a \\\"b\\\" \\\\\""));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> HabitTrackerController.tokenize("login \"user"));
+        Assertions.assertEquals(17, HabitTrackerController.commandOf("Mark-Many"));
+        Assertions.assertNull(HabitTrackerController.commandOf("unknown"));
     }
 }
@@ -0,0 +1,83 @@
+package ru.habittracker.export;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.habittracker.api.Json;
+import ru.habittracker.model.Habit;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тестовый класс для {@link HistoryEncoder}.
+ *
+ * <p><strong>Автор:</strong> Ekaterina Ishchuk</p>
+ */
+public class HistoryEncoderTest {
+
+    private static final LocalDate CREATED = LocalDate.of(2024, 3, 10);
+
+    /**
+     * Тест выгрузки в CSV с экранированием полей.
+     */
+    @Test
+    @DisplayName("Тест выгрузки в CSV с экранированием полей")
+    public void testCsv() throws Exception {
+        String csv = encode(ExportFormat.CSV, 64 * 1024);
+
+        assertEquals("habit_id,title,description,frequency,creation_date,record_id,date,completed\n"
+                        + "1,Бег,\"Утром, \"\"легко\"\"\",1,2024-03-10,10,2024-04-01,true\n"
+                        + "1,Бег,\"Утром, \"\"легко\"\"\",1,2024-03-10,11,2024-04-02,false\n"
+                        + "2,Чтение,\"стр.\n10\",2,2024-03-10,,,\n",
+                csv, "CSV should contain one row per record and an empty row for a habit without records");
+    }
+
+    /**
+     * Тест выгрузки в NDJSON.
+     */
+    @Test
+    @DisplayName("Тест выгрузки в NDJSON")
+    public void testNdjson() throws Exception {
+        String[] lines = encode(ExportFormat.NDJSON, 64 * 1024).split("\n");
+
+        assertEquals(3, lines.length, "NDJSON should contain one line per row");
+        Map<String, Object> first = Json.parseObject(lines[0]);
+        assertEquals("Утром, \"легко\"", first.get("description"), "Description should be escaped");
+        assertEquals("2024-04-01", first.get("date"), "Date should be ISO formatted");
+        assertEquals(Boolean.TRUE, first.get("completed"), "Status should be boolean");
+        Map<String, Object> last = Json.parseObject(lines[2]);
+        assertEquals("стр.\n10", last.get("description"), "Line break should survive escaping");
+        assertTrue(last.containsKey("recordId") && last.get("recordId") == null, "Habit without records should have null record");
+    }
+
+    /**
+     * Тест независимости результата от размера буфера.
+     */
+    @Test
+    @DisplayName("Тест независимости результата от размера буфера")
+    public void testSmallBuffer() throws Exception {
+        assertEquals(encode(ExportFormat.CSV, 64 * 1024), encode(ExportFormat.CSV, 16),
+                "Small buffer should be drained without losing multibyte characters");
+        assertEquals(encode(ExportFormat.NDJSON, 64 * 1024), encode(ExportFormat.NDJSON, 16),
+                "Small buffer should be drained without losing multibyte characters");
+    }
+
+    private static String encode(ExportFormat format, int bufferBytes) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HistoryEncoder encoder = new HistoryEncoder(Channels.newChannel(out), format, bufferBytes);
+        encoder.habit(new Habit(1, "Бег", "Утром, \"легко\"", 1, 7, CREATED));
+        encoder.record(10, (int) LocalDate.of(2024, 4, 1).toEpochDay(), true);
+        encoder.record(11, (int) LocalDate.of(2024, 4, 2).toEpochDay(), false);
+        encoder.habit(new Habit(2, "Чтение", "стр.\n10", 2, 7, CREATED));
+        encoder.finish();
+
+        assertEquals(2, encoder.getHabits(), "Habits should be counted");
+        assertEquals(2, encoder.getRecords(), "Records should be counted");
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
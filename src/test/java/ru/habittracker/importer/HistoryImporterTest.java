@@ -0,0 +1,191 @@
+package ru.habittracker.importer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.habittracker.export.ExportFormat;
+import ru.habittracker.model.Habit;
+import ru.habittracker.model.HabitRecord;
+import ru.habittracker.model.User;
+import ru.habittracker.repository.memory.InMemoryHabitRecordRepository;
+import ru.habittracker.repository.memory.InMemoryHabitRepository;
+import ru.habittracker.repository.memory.InMemoryHabitStatsRepository;
+import ru.habittracker.repository.memory.InMemoryStore;
+import ru.habittracker.repository.memory.InMemoryUserRepository;
+import ru.habittracker.service.impl.HabitService;
+import ru.habittracker.service.impl.HabitTrackerService;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тестовый класс для {@link HistoryImporter}.
+ * <p>
+ * Использует in-memory хранилище и маленький размер части, чтобы файл делился на много частей.
+ * </p>
+ *
+ * <p><strong>Автор:</strong> Ekaterina Ishchuk</p>
+ */
+public class HistoryImporterTest {
+
+    private static final int CHUNK_BYTES = 128;
+
+    private Path directory;
+    private InMemoryStore store;
+    private HabitService habitService;
+    private HabitTrackerService habitTrackerService;
+    private User source;
+    private User target;
+
+    /**
+     * Создание хранилища, пользователей и временного каталога перед каждым тестом.
+     */
+    @BeforeEach
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("history-import-test");
+        store = new InMemoryStore();
+        habitService = new HabitService(new InMemoryHabitRepository(store));
+        habitTrackerService = new HabitTrackerService(
+                new InMemoryHabitRecordRepository(store), new InMemoryHabitStatsRepository(store));
+        InMemoryUserRepository users = new InMemoryUserRepository(store);
+        source = users.save(new User("source@example.com", "password", "Source")).orElseThrow();
+        target = users.save(new User("target@example.com", "password", "Target")).orElseThrow();
+    }
+
+    /**
+     * Удаление временного каталога после каждого теста.
+     */
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /**
+     * Тест переноса выгрузки в другой аккаунт.
+     */
+    @Test
+    @DisplayName("Тест переноса выгрузки CSV и NDJSON в другой аккаунт")
+    public void testRoundTrip() throws IOException {
+        LocalDate today = LocalDate.now();
+        Habit running = habitService.createHabit(source.getId(), "Бег", "Утром, \"легко\"\nи долго", 1,
+                today.minusDays(40));
+        habitService.createHabit(source.getId(), "Чтение", null, 2, today.minusDays(5));
+        for (int day = 0; day < 30; day++) {
+            habitTrackerService.markHabitCompletion(source.getId(), running.getId(), today.minusDays(day));
+        }
+
+        for (ExportFormat format : ExportFormat.values()) {
+            User account = format == ExportFormat.CSV ? target
+                    : new InMemoryUserRepository(store).save(new User("ndjson@example.com", "p", "N")).orElseThrow();
+            Path file = export(format);
+
+            ImportProgress result = new HistoryImporter(habitService, habitTrackerService, 4, CHUNK_BYTES)
+                    .run(account.getId(), file, format, progress -> { });
+
+            assertTrue(result.isComplete(), "Import should be complete");
+            assertTrue(result.chunksTotal() > 1, "File should be split into several chunks");
+            assertEquals(30, result.records(), "All records should be imported");
+            assertEquals(0, result.rejected(), "Nothing should be rejected");
+            List<Habit> habits = habitService.getHabits(account.getId());
+            assertEquals(2, habits.size(), "Both habits should be imported");
+            Habit imported = habits.stream().filter(h -> h.getTitle().equals("Бег")).findFirst().orElseThrow();
+            assertEquals(running.getDescription(), imported.getDescription(), "Quoted description should survive");
+            assertEquals(running.getCreationDate(), imported.getCreationDate(), "Creation date should be kept");
+            assertEquals(30, habitTrackerService.calculateStreak(account.getId(), imported.getId()),
+                    "Stats should be rebuilt after import");
+            assertFalse(Files.exists(HistoryImporter.checkpointOf(file)), "Checkpoint should be removed");
+        }
+    }
+
+    /**
+     * Тест отклонения некорректных строк.
+     */
+    @Test
+    @DisplayName("Тест отклонения некорректных строк")
+    public void testRejectsInvalidRows() throws IOException {
+        LocalDate today = LocalDate.now();
+        Path file = write("date,title,habit_id,frequency,extra\n"
+                + today + ",Бег,a,1,x\n"
+                + today.plusDays(1) + ",Бег,a,1,x\n"
+                + today + ",Сон,b,3,x\n"
+                + today + ",,c,1,x\n"
+                + "not-a-date,Бег,a,1,x\n"
+                + today.minusDays(1) + ",Бег,a,,x\n");
+
+        ImportProgress result = new HistoryImporter(habitService, habitTrackerService, 2, CHUNK_BYTES)
+                .run(target.getId(), file, ExportFormat.CSV, progress -> { });
+
+        assertEquals(6, result.rows(), "All rows should be read");
+        assertEquals(4, result.rejected(), "Future date, bad frequency, empty title and bad date should be rejected");
+        assertEquals(2, result.records(), "Valid rows should be imported");
+        assertEquals(1, habitService.getHabits(target.getId()).size(), "One habit should be created");
+        assertThrows(IllegalArgumentException.class, () -> new HistoryImporter(habitService, habitTrackerService)
+                .run(target.getId(), write("id,name\n1,x\n"), ExportFormat.CSV, progress -> { }),
+                "Missing required columns should fail");
+    }
+
+    /**
+     * Тест продолжения импорта после сбоя записи.
+     */
+    @Test
+    @DisplayName("Тест продолжения импорта после сбоя записи")
+    public void testResumeAfterFailure() throws IOException {
+        LocalDate today = LocalDate.now();
+        StringBuilder csv = new StringBuilder("habit_id,title,date,completed\n");
+        for (int day = 0; day < 100; day++) {
+            csv.append(day % 3).append(",Привычка ").append(day % 3).append(',')
+                    .append(today.minusDays(day)).append(",true\n");
+        }
+        Path file = write(csv.toString());
+
+        int[] calls = {0};
+        HabitTrackerService failing = new HabitTrackerService(
+                new InMemoryHabitRecordRepository(store), new InMemoryHabitStatsRepository(store)) {
+            @Override
+            public int saveRecords(List<HabitRecord> records) {
+                return ++calls[0] == 5 ? 0 : super.saveRecords(records);
+            }
+        };
+        assertThrows(IOException.class, () -> new HistoryImporter(habitService, failing, 3, CHUNK_BYTES)
+                .run(target.getId(), file, ExportFormat.CSV, progress -> { }), "Failed batch should stop the import");
+        assertTrue(Files.exists(HistoryImporter.checkpointOf(file)), "Checkpoint should be kept after failure");
+
+        ImportProgress result = new HistoryImporter(habitService, habitTrackerService, 3, CHUNK_BYTES)
+                .run(target.getId(), file, ExportFormat.CSV, progress -> { });
+
+        assertTrue(result.isComplete(), "Resumed import should complete");
+        assertEquals(100, result.records(), "Records of finished and resumed chunks should be counted once");
+        assertEquals(3, habitService.getHabits(target.getId()).size(), "Habits should not be created twice");
+        int total = habitService.getHabits(target.getId()).stream()
+                .mapToInt(h -> new InMemoryHabitRecordRepository(store).findByHabitId(h.getId()).size())
+                .sum();
+        assertEquals(100, total, "Repeated chunks should not duplicate records");
+    }
+
+    private Path export(ExportFormat format) throws IOException {
+        Path file = directory.resolve("history." + format.name().toLowerCase());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            habitTrackerService.exportHistory(source.getId(), format, channel);
+        }
+        return file;
+    }
+
+    private Path write(String content) throws IOException {
+        Path file = Files.createTempFile(directory, "import", ".csv");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return file;
+    }
+}
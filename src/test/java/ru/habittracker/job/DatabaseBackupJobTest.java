@@ -0,0 +1,202 @@
+package ru.habittracker.job;
+
+import liquibase.Liquibase;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.junit.jupiter.api.*;
+import ru.habittracker.BaseHabitTest;
+import ru.habittracker.config.DatabaseConnectionManager;
+import ru.habittracker.model.Habit;
+import ru.habittracker.model.HabitRecord;
+import ru.habittracker.model.User;
+import ru.habittracker.repository.impl.HabitRecordRepository;
+import ru.habittracker.repository.impl.HabitRepository;
+import ru.habittracker.repository.impl.HabitStatsRepository;
+import ru.habittracker.repository.impl.UserRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тестовый класс для {@link DatabaseBackupJob}.
+ * <p>
+ * Проверяет копирование таблиц в файлы, восстановление с заменой данных и сброс последовательностей.
+ * </p>
+ *
+ * <p><strong>Автор:</strong> Ekaterina Ishchuk</p>
+ */
+public class DatabaseBackupJobTest extends BaseHabitTest {
+
+    private static DatabaseConnectionManager dbManager;
+
+    private Path directory;
+
+    /**
+     * Инициализация ресурсов перед всеми тестами.
+     *
+     * @throws Exception возможное исключение при инициализации
+     */
+    @BeforeAll
+    public static void globalSetUp() throws Exception {
+        dbManager = new DatabaseConnectionManager(
+                postgresContainer.getJdbcUrl(),
+                postgresContainer.getUsername(),
+                postgresContainer.getPassword(),
+                postgresContainer.getDriverClassName()
+        );
+
+        try (Connection connection = dbManager.getConnection()) {
+            Database database = DatabaseFactory.getInstance()
+                    .findCorrectDatabaseImplementation(new JdbcConnection(connection));
+            database.setDefaultSchemaName("service");
+            database.setLiquibaseSchemaName("service");
+            new Liquibase("changelog-test.xml", new ClassLoaderResourceAccessor(), database).update("");
+        }
+    }
+
+    /**
+     * Очистка таблиц и создание каталога копии перед каждым тестом.
+     *
+     * @throws Exception возможное исключение при подготовке
+     */
+    @BeforeEach
+    public void setUp() throws Exception {
+        try (Connection connection = dbManager.getConnection()) {
+            connection.createStatement().execute("TRUNCATE TABLE service.users CASCADE");
+        }
+        directory = Files.createTempDirectory("backup-test");
+    }
+
+    /**
+     * Удаление каталога копии после каждого теста.
+     */
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /**
+     * Тест копирования и восстановления данных.
+     */
+    @Test
+    @DisplayName("Тест копирования и восстановления данных")
+    public void testBackupAndRestore() throws Exception {
+        UserRepository users = new UserRepository(dbManager);
+        HabitRepository habits = new HabitRepository(dbManager);
+        HabitRecordRepository records = new HabitRecordRepository(dbManager);
+        int habitCount = 0;
+        for (int i = 0; i < 10; i++) {
+            User user = users.save(new User("user" + i + "@example.com", "password", "User " + i)).orElseThrow();
+            for (int j = 0; j < 3; j++) {
+                Habit habit = habits.save(new Habit(0, "Привычка " + j, null, 1, user.getId(), LocalDate.now()));
+                habitCount++;
+                for (int day = 0; day < 5; day++) {
+                    records.saveCompletion(new HabitRecord(habit.getId(), LocalDate.now().minusDays(day), true));
+                }
+            }
+        }
+
+        DatabaseBackupJob job = new DatabaseBackupJob(dbManager, 3);
+        long saved = job.backup(directory);
+        assertEquals(10 + habitCount + habitCount * 5 + habitCount, saved, "All rows should be saved");
+        assertTrue(Files.exists(directory.resolve("manifest.properties")), "Manifest should be written last");
+        assertThrows(IllegalStateException.class, () -> job.backup(directory), "Existing backup should not be overwritten");
+
+        // Изменения после копии должны исчезнуть при восстановлении
+        users.save(new User("late@example.com", "password", "Late")).orElseThrow();
+        assertThrows(IllegalStateException.class, () -> job.restore(directory),
+                "Non-empty database should not be replaced without force");
+        assertEquals(11, count("users"), "Refused restore should keep current data");
+        long restored = job.restore(directory, true);
+
+        assertEquals(saved, restored, "All rows should be restored");
+        assertEquals(10, count("users"), "Users should be restored without later changes");
+        assertEquals(habitCount * 5, count("habit_records"), "Records should be restored");
+        assertEquals(habitCount, count("habit_stats"), "Stats should be restored");
+        assertTrue(new HabitStatsRepository(dbManager).findByHabitId(maxId("habits")).isPresent(),
+                "Stats should reference restored habits");
+
+        int restoredMaxUserId = maxId("users");
+        User next = users.save(new User("next@example.com", "password", "Next")).orElseThrow();
+        assertTrue(next.getId() > restoredMaxUserId, "User sequence should be moved past restored IDs");
+        Habit habit = habits.save(new Habit(0, "Новая", null, 1, next.getId(), LocalDate.now()));
+        assertNotNull(habit, "Habit sequence should not collide with restored IDs");
+        assertTrue(records.save(new HabitRecord(habit.getId(), LocalDate.now(), true)).isPresent(),
+                "Record sequence should not collide with restored IDs");
+    }
+
+    /**
+     * Тест восстановления из каталога без завершённой копии.
+     */
+    @Test
+    @DisplayName("Тест восстановления из каталога без завершённой копии")
+    public void testRestoreRequiresManifest() {
+        assertThrows(IOException.class, () -> new DatabaseBackupJob(dbManager, 2).restore(directory),
+                "Restore without manifest should fail");
+    }
+
+    /**
+     * Тест восстановления из копии с отсутствующей частью.
+     */
+    @Test
+    @DisplayName("Тест восстановления из копии с отсутствующей частью")
+    public void testRestoreChecksPartsBeforeTruncate() throws Exception {
+        UserRepository users = new UserRepository(dbManager);
+        users.save(new User("kept@example.com", "password", "Kept")).orElseThrow();
+        DatabaseBackupJob job = new DatabaseBackupJob(dbManager, 2);
+        job.backup(directory);
+        Files.delete(directory.resolve("users.0.bin.gz"));
+
+        assertThrows(IOException.class, () -> job.restore(directory, true), "Missing part should fail the restore");
+        assertEquals(1, count("users"), "Tables should not be truncated when a part is missing");
+    }
+
+    /**
+     * Тест восстановления из копии с обрезанной частью.
+     */
+    @Test
+    @DisplayName("Тест восстановления из копии с обрезанной частью")
+    public void testRestoreChecksTruncatedPartBeforeTruncate() throws Exception {
+        UserRepository users = new UserRepository(dbManager);
+        for (int i = 0; i < 100; i++) {
+            users.save(new User("user" + i + "@example.com", "password", "User " + i)).orElseThrow();
+        }
+        DatabaseBackupJob job = new DatabaseBackupJob(dbManager, 1);
+        job.backup(directory);
+        Path part = directory.resolve("users.0.bin.gz");
+        byte[] content = Files.readAllBytes(part);
+        Files.write(part, Arrays.copyOf(content, content.length / 2));
+
+        assertThrows(IOException.class, () -> job.restore(directory, true), "Truncated part should fail the restore");
+        assertEquals(100, count("users"), "Tables should not be truncated when a part is damaged");
+    }
+
+    private long count(String table) throws Exception {
+        try (Connection connection = dbManager.getConnection();
+             ResultSet rs = connection.createStatement().executeQuery("SELECT COUNT(*) FROM service." + table)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private int maxId(String table) throws Exception {
+        try (Connection connection = dbManager.getConnection();
+             ResultSet rs = connection.createStatement().executeQuery("SELECT MAX(id) FROM service." + table)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package ru.habittracker.job;
+
+import liquibase.Liquibase;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.junit.jupiter.api.*;
+import ru.habittracker.BaseHabitTest;
+import ru.habittracker.config.Bulkhead;
+import ru.habittracker.config.CircuitBreaker;
+import ru.habittracker.config.DatabaseConnectionManager;
+import ru.habittracker.config.DatabaseWorkload;
+import ru.habittracker.config.QueryTimeouts;
+import ru.habittracker.config.SqlRetryPolicy;
+import ru.habittracker.model.Habit;
+import ru.habittracker.model.HabitRecord;
+import ru.habittracker.model.User;
+import ru.habittracker.report.ReportFormat;
+import ru.habittracker.repository.impl.HabitRecordRepository;
+import ru.habittracker.repository.impl.HabitRepository;
+import ru.habittracker.repository.impl.UserRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тестовый класс для {@link NightlyReportJob}.
+ * <p>
+ * Проверяет постраничный обход пользователей, расчёт статистики с habit_stats и без неё, запись файлов отчётов
+ * и работу в пределах ограничения одновременных отчётных операций.
+ * </p>
+ *
+ * <p><strong>Автор:</strong> Ekaterina Ishchuk</p>
+ */
+public class NightlyReportJobTest extends BaseHabitTest {
+
+    private static DatabaseConnectionManager dbManager;
+
+    private Path directory;
+
+    /**
+     * Инициализация ресурсов перед всеми тестами.
+     *
+     * @throws Exception возможное исключение при инициализации
+     */
+    @BeforeAll
+    public static void globalSetUp() throws Exception {
+        dbManager = new DatabaseConnectionManager(
+                postgresContainer.getJdbcUrl(),
+                postgresContainer.getUsername(),
+                postgresContainer.getPassword(),
+                postgresContainer.getDriverClassName()
+        );
+
+        try (Connection connection = dbManager.getConnection()) {
+            Database database = DatabaseFactory.getInstance()
+                    .findCorrectDatabaseImplementation(new JdbcConnection(connection));
+            database.setDefaultSchemaName("service");
+            database.setLiquibaseSchemaName("service");
+            new Liquibase("changelog-test.xml", new ClassLoaderResourceAccessor(), database).update("");
+        }
+    }
+
+    /**
+     * Очистка таблиц и создание каталога отчётов перед каждым тестом.
+     *
+     * @throws Exception возможное исключение при подготовке
+     */
+    @BeforeEach
+    public void setUp() throws Exception {
+        try (Connection connection = dbManager.getConnection()) {
+            connection.createStatement().execute("TRUNCATE TABLE service.users CASCADE");
+        }
+        directory = Files.createTempDirectory("report-test");
+    }
+
+    /**
+     * Удаление каталога отчётов после каждого теста.
+     */
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /**
+     * Тест формирования отчётов всех пользователей несколькими страницами.
+     */
+    @Test
+    @DisplayName("Тест формирования отчётов всех пользователей")
+    public void testReportsAllUsers() throws Exception {
+        UserRepository users = new UserRepository(dbManager);
+        HabitRepository habits = new HabitRepository(dbManager);
+        HabitRecordRepository records = new HabitRecordRepository(dbManager);
+        LocalDate today = LocalDate.now();
+        List<Integer> userIds = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            User user = users.save(new User("user" + i + "@example.com", "password", "User " + i)).orElseThrow();
+            userIds.add(user.getId());
+            if (i == 6) {
+                continue;
+            }
+            Habit tracked = habits.save(new Habit(0, "Бег, утром", null, 1, user.getId(), today));
+            for (int day = 0; day < 3; day++) {
+                records.saveCompletion(new HabitRecord(tracked.getId(), today.minusDays(day), true));
+            }
+            // Записи без обновления habit_stats: статистика строится по истории
+            Habit untracked = habits.save(new Habit(0, "Чтение", null, 1, user.getId(), today));
+            records.save(new HabitRecord(untracked.getId(), today, true));
+        }
+
+        NightlyReportJob.Summary summary = new NightlyReportJob(dbManager, 2, 3)
+                .run(directory, ReportFormat.CSV, today);
+
+        assertEquals(7, summary.users(), "All users should be reported");
+        assertEquals(12, summary.habits(), "All habits should be reported");
+        assertEquals(3, summary.pages(), "Users should be read in pages");
+        assertTrue(summary.usersPerSecond() > 0, "Throughput should be measured");
+
+        Path dayDirectory = directory.resolve(today.toString());
+        String report = Files.readString(dayDirectory.resolve("user-" + userIds.get(0) + ".csv"), StandardCharsets.UTF_8);
+        String[] lines = report.split("\n");
+        assertEquals(3, lines.length, "Report should have a header and one row per habit");
+        assertTrue(lines[1].endsWith(",\"Бег, утром\",1,3,10.00"), "Stats should come from habit_stats");
+        assertTrue(lines[2].endsWith(",Чтение,1,1,3.33"), "Stats should be built from history");
+        assertEquals("habit_id,title,frequency,streak,success_rate\n",
+                Files.readString(dayDirectory.resolve("user-" + userIds.get(6) + ".csv"), StandardCharsets.UTF_8),
+                "User without habits should get an empty report");
+    }
+
+    /**
+     * Тест формирования отчётов при ограничении одновременных отчётных операций.
+     */
+    @Test
+    @DisplayName("Тест формирования отчётов в пределах ограничения операций")
+    public void testReportsWithinBulkhead() throws Exception {
+        UserRepository users = new UserRepository(dbManager);
+        HabitRepository habits = new HabitRepository(dbManager);
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < 10; i++) {
+            User user = users.save(new User("user" + i + "@example.com", "password", "User " + i)).orElseThrow();
+            habits.save(new Habit(0, "Бег", null, 1, user.getId(), today));
+        }
+        Bulkhead bulkhead = new Bulkhead(0, 0, 1, 50);
+        DatabaseConnectionManager limited = new DatabaseConnectionManager(postgresContainer.getJdbcUrl(),
+                postgresContainer.getUsername(), postgresContainer.getPassword(),
+                postgresContainer.getDriverClassName(), SqlRetryPolicy.NONE, bulkhead, CircuitBreaker.disabled(),
+                QueryTimeouts.none());
+
+        NightlyReportJob.Summary summary = new NightlyReportJob(limited, 4, 2).run(directory, ReportFormat.CSV, today);
+
+        assertEquals(10, summary.users(), "All users should be reported");
+        assertEquals(10, summary.habits(), "All habits should be reported");
+        assertEquals(0, bulkhead.getRejected(DatabaseWorkload.REPORT), "Report queries should not be rejected");
+        assertEquals(1, bulkhead.getAvailable(DatabaseWorkload.REPORT), "Report places should be released");
+    }
+}
@@ -0,0 +1,51 @@
+package ru.habittracker.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тестовый класс для {@link BackfillPattern}.
+ *
+ * <p><strong>Автор:</strong> Ekaterina Ishchuk</p>
+ */
+public class BackfillPatternTest {
+
+    // 2024-04-01 — понедельник
+    private static final LocalDate MONDAY = LocalDate.of(2024, 4, 1);
+
+    /**
+     * Тест разбора шаблона из строки.
+     */
+    @Test
+    @DisplayName("Тест разбора шаблона из строки")
+    public void testParse() {
+        assertEquals(BackfillPattern.daily(), BackfillPattern.parse(""), "Empty pattern should mean every day");
+        assertEquals(BackfillPattern.weekdays(), BackfillPattern.parse("weekdays"), "Weekdays should be parsed");
+        assertEquals(BackfillPattern.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY), BackfillPattern.parse("WEEKENDS"),
+                "Weekends should be parsed");
+        assertEquals(BackfillPattern.of(DayOfWeek.MONDAY, DayOfWeek.FRIDAY), BackfillPattern.parse("mon, fri"),
+                "Day list should be parsed");
+        assertEquals(0b1, BackfillPattern.parse("MONDAY").getDaysMask(), "Monday should be bit 0");
+        assertThrows(IllegalArgumentException.class, () -> BackfillPattern.parse("xyz"), "Unknown day should fail");
+        assertThrows(IllegalArgumentException.class, BackfillPattern::of, "Empty pattern should fail");
+    }
+
+    /**
+     * Тест проверки дней недели.
+     */
+    @Test
+    @DisplayName("Тест проверки дней недели")
+    public void testMatches() {
+        BackfillPattern weekdays = BackfillPattern.weekdays();
+
+        assertTrue(weekdays.matches(MONDAY), "Monday is a weekday");
+        assertTrue(weekdays.matches(MONDAY.plusDays(4)), "Friday is a weekday");
+        assertFalse(weekdays.matches(MONDAY.plusDays(5)), "Saturday is not a weekday");
+        assertFalse(weekdays.matches(MONDAY.plusDays(6)), "Sunday is not a weekday");
+    }
+}
@@ -0,0 +1,98 @@
+package ru.habittracker.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тестовый класс для {@link CompletionBitmap}.
+ * <p>
+ * Проверяет битовые операции на границах слов и сверяет результаты
+ * с расчётом по {@link CompletionHistory} на случайных историях.
+ * </p>
+ *
+ * <p><strong>Автор:</strong> Ekaterina Ishchuk</p>
+ */
+public class CompletionBitmapTest {
+
+    private static final int TODAY = (int) LocalDate.of(2024, 6, 30).toEpochDay();
+
+    /**
+     * Тест серий, пересекающих границы слов.
+     */
+    @Test
+    @DisplayName("Тест серий, пересекающих границы слов")
+    public void testRunsAcrossWordBoundaries() {
+        CompletionHistory.Builder builder = new CompletionHistory.Builder();
+        // Серия из 150 дней занимает несколько слов целиком
+        for (int day = TODAY - 149; day <= TODAY; day++) {
+            builder.add(day);
+        }
+        builder.add(TODAY - 300);
+        CompletionBitmap bitmap = CompletionBitmap.of(builder.build());
+
+        assertEquals(151, bitmap.cardinality(), "Every day should be set");
+        assertEquals(150, bitmap.streakAsOf(TODAY), "Streak should span several words");
+        assertEquals(150, bitmap.streakAsOf(TODAY + 1), "Streak ending yesterday should be active");
+        assertEquals(0, bitmap.streakAsOf(TODAY + 2), "Streak should break after a missed day");
+        assertEquals(0, bitmap.streakAsOf(TODAY - 302), "Days before history should give no streak");
+        assertEquals(150, bitmap.longestStreak(), "Longest streak should span several words");
+        assertEquals(64, bitmap.countBetween(TODAY - 63, TODAY + 10), "Range should be clipped to history");
+    }
+
+    /**
+     * Тест скользящего окна.
+     */
+    @Test
+    @DisplayName("Тест скользящего окна")
+    public void testRollingCounts() {
+        CompletionBitmap bitmap = CompletionBitmap.of(new CompletionHistory.Builder()
+                .add(TODAY - 3).add(TODAY - 2).add(TODAY)
+                .build());
+
+        int[] counts = bitmap.rollingCounts(TODAY - 4, TODAY + 1, 2);
+
+        assertArrayEquals(new int[]{0, 1, 2, 1, 1, 1}, counts, "Window counts should slide by one day");
+        assertThrows(IllegalArgumentException.class, () -> bitmap.rollingCounts(TODAY, TODAY, 0),
+                "Window must be positive");
+    }
+
+    /**
+     * Тест совпадения результатов с расчётом по истории выполнения.
+     */
+    @Test
+    @DisplayName("Тест совпадения результатов с расчётом по истории выполнения")
+    public void testMatchesCompletionHistory() {
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            CompletionHistory.Builder builder = new CompletionHistory.Builder();
+            int density = 1 + random.nextInt(10);
+            int days = random.nextInt(500);
+            for (int day = TODAY - days; day <= TODAY; day++) {
+                if (random.nextInt(10) < density) {
+                    builder.add(day);
+                }
+            }
+            CompletionHistory history = builder.build();
+            CompletionBitmap bitmap = CompletionBitmap.of(history);
+
+            assertEquals(history.size(), bitmap.cardinality(), "Cardinality should match");
+            assertEquals(history.longestStreak(), bitmap.longestStreak(), "Longest streak should match");
+            for (int today = TODAY - days - 2; today <= TODAY + 2; today += 1 + random.nextInt(5)) {
+                assertEquals(history.streakAsOf(today), bitmap.streakAsOf(today), "Streak should match");
+                assertEquals(history.countSince(today), bitmap.countSince(today), "Count since should match");
+                assertEquals(history.countBetween(today - 30, today), bitmap.countBetween(today - 30, today),
+                        "Count between should match");
+            }
+            HabitStats stats = HabitStats.of(1, history);
+            for (int today : new int[]{TODAY, TODAY + 1, TODAY + 40}) {
+                assertEquals(stats.successRateAsOf(LocalDate.ofEpochDay(today)), bitmap.successRateAsOf(today), 1e-9,
+                        "Success rate should match stats");
+            }
+        }
+    }
+}
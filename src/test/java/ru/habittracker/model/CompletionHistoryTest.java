@@ -0,0 +1,100 @@
+package ru.habittracker.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тестовый класс для {@link CompletionHistory}.
+ * <p>
+ * Проверяет построение истории и расчёт серий и количества выполнений,
+ * а также совпадение статистики с инкрементальным расчётом {@link HabitStats}.
+ * </p>
+ *
+ * <p><strong>Автор:</strong> Ekaterina Ishchuk</p>
+ */
+public class CompletionHistoryTest {
+
+    private static final int TODAY = (int) LocalDate.of(2024, 6, 30).toEpochDay();
+
+    /**
+     * Тест сортировки и удаления повторов при построении.
+     */
+    @Test
+    @DisplayName("Тест сортировки и удаления повторов при построении")
+    public void testBuilderSortsAndDeduplicates() {
+        CompletionHistory history = new CompletionHistory.Builder()
+                .add(TODAY).add(TODAY - 2).add(TODAY).add(TODAY - 1).add(TODAY - 2)
+                .build();
+
+        assertEquals(3, history.size(), "Duplicates should be removed");
+        assertEquals(TODAY - 2, history.dayAt(0), "Days should be sorted");
+        assertEquals(TODAY, history.lastDay(), "Last day should be the latest");
+        assertTrue(history.contains(TODAY - 1), "History should contain added day");
+        assertFalse(history.contains(TODAY - 3), "History should not contain missing day");
+    }
+
+    /**
+     * Тест расчёта текущей серии.
+     */
+    @Test
+    @DisplayName("Тест расчёта текущей серии")
+    public void testStreakAsOf() {
+        CompletionHistory history = new CompletionHistory.Builder()
+                .add(TODAY - 10).add(TODAY - 3).add(TODAY - 2).add(TODAY - 1)
+                .build();
+
+        assertEquals(3, history.streakAsOf(TODAY), "Streak ending yesterday should be active");
+        assertEquals(3, history.streakAsOf(TODAY - 1), "Streak ending today should be active");
+        assertEquals(0, history.streakAsOf(TODAY + 1), "Streak should break after a missed day");
+        assertEquals(1, history.streakAsOf(TODAY - 9), "Future days should be ignored");
+        assertEquals(0, CompletionHistory.empty().streakAsOf(TODAY), "Empty history has no streak");
+    }
+
+    /**
+     * Тест подсчёта выполнений за период и самой длинной серии.
+     */
+    @Test
+    @DisplayName("Тест подсчёта выполнений за период и самой длинной серии")
+    public void testCountsAndLongestStreak() {
+        CompletionHistory.Builder builder = new CompletionHistory.Builder();
+        for (int day = TODAY - 40; day <= TODAY; day += 2) {
+            builder.add(day);
+        }
+        for (int day = TODAY - 100; day < TODAY - 95; day++) {
+            builder.add(day);
+        }
+        CompletionHistory history = builder.build();
+
+        assertEquals(16, history.countSince(TODAY - 30), "Should count days since the start of the window");
+        assertEquals(3, history.countBetween(TODAY - 4, TODAY), "Should count days within the range");
+        assertEquals(5, history.longestStreak(), "Longest streak should be found");
+    }
+
+    /**
+     * Тест совпадения статистики из истории с инкрементальным расчётом.
+     */
+    @Test
+    @DisplayName("Тест совпадения статистики из истории с инкрементальным расчётом")
+    public void testStatsFromHistoryMatchIncrementalStats() {
+        CompletionHistory.Builder builder = new CompletionHistory.Builder();
+        HabitStats incremental = new HabitStats(1);
+        for (int day = TODAY - 200; day <= TODAY; day++) {
+            if (day % 7 != 0 && day % 11 != 0) {
+                builder.add(day);
+                incremental.applyCompletion(LocalDate.ofEpochDay(day));
+            }
+        }
+
+        HabitStats fromHistory = HabitStats.of(1, builder.build());
+
+        assertEquals(incremental.getCurrentStreak(), fromHistory.getCurrentStreak(), "Current streak should match");
+        assertEquals(incremental.getLongestStreak(), fromHistory.getLongestStreak(), "Longest streak should match");
+        assertEquals(incremental.getTotalCompletions(), fromHistory.getTotalCompletions(), "Total should match");
+        assertEquals(incremental.getRecentDays(), fromHistory.getRecentDays(), "Recent days mask should match");
+        assertEquals(incremental.getLastCompletedDate(), fromHistory.getLastCompletedDate(), "Last date should match");
+    }
+}
@@ -0,0 +1,79 @@
+package ru.habittracker.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тестовый класс для {@link HabitStats}.
+ * <p>
+ * Проверяет инкрементальный учёт отметок внутри окна, объединение серий при заполнении пропуска
+ * и отказ от инкрементального учёта, когда серия выходит за окно или дата старше окна.
+ * </p>
+ *
+ * <p><strong>Автор:</strong> Ekaterina Ishchuk</p>
+ */
+public class HabitStatsTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 30);
+
+    /**
+     * Тест объединения двух серий при заполнении пропуска внутри окна.
+     */
+    @Test
+    @DisplayName("Тест объединения серий при заполнении пропуска внутри окна")
+    public void testGapFillJoinsRunsWithinWindow() {
+        HabitStats stats = new HabitStats(1);
+        for (int age = 20; age >= 0; age--) {
+            if (age != 5 && age != 15) {
+                assertEquals(HabitStats.Update.APPLIED, stats.applyCompletion(TODAY.minusDays(age)),
+                        "Completion should be applied");
+            }
+        }
+        assertEquals(5, stats.getCurrentStreak(), "Current streak should end at the gap");
+        assertEquals(9, stats.getLongestStreak(), "Longest streak should be between the gaps");
+
+        assertEquals(HabitStats.Update.APPLIED, stats.applyCompletion(TODAY.minusDays(5)),
+                "Gap inside the window should be filled incrementally");
+        assertEquals(15, stats.getCurrentStreak(), "Current streak should join the older run");
+        assertEquals(15, stats.getLongestStreak(), "Longest streak should include the joined run");
+        assertEquals(20, stats.getTotalCompletions(), "Total should include the filled day");
+
+        assertEquals(HabitStats.Update.UNCHANGED, stats.applyCompletion(TODAY.minusDays(5)),
+                "Repeated completion should not change stats");
+        assertEquals(20, stats.getTotalCompletions(), "Repeated completion should not be counted");
+    }
+
+    /**
+     * Тест заполнения пропуска в серии длиннее окна.
+     */
+    @Test
+    @DisplayName("Тест заполнения пропуска в серии длиннее окна")
+    public void testGapFillLongerThanWindowRequiresRebuild() {
+        CompletionHistory.Builder history = new CompletionHistory.Builder();
+        HabitStats stats = new HabitStats(1);
+        for (int age = 99; age >= 0; age--) {
+            if (age != 10 && age != 90) {
+                history.add((int) TODAY.minusDays(age).toEpochDay());
+                stats.applyCompletion(TODAY.minusDays(age));
+            }
+        }
+        assertEquals(10, stats.getCurrentStreak(), "Current streak should end at the gap");
+
+        assertEquals(HabitStats.Update.REBUILD_REQUIRED, stats.applyCompletion(TODAY.minusDays(10)),
+                "Run reaching the window edge should require a rebuild");
+        assertEquals(10, stats.getCurrentStreak(), "Stats should not change when a rebuild is required");
+        assertEquals(HabitStats.Update.REBUILD_REQUIRED, stats.applyCompletion(TODAY.minusDays(90)),
+                "Date older than the window should require a rebuild");
+        assertEquals(98, stats.getTotalCompletions(), "Total should not change when a rebuild is required");
+
+        history.add((int) TODAY.minusDays(10).toEpochDay()).add((int) TODAY.minusDays(90).toEpochDay());
+        HabitStats rebuilt = HabitStats.of(1, history.build());
+        assertEquals(100, rebuilt.getCurrentStreak(), "Rebuilt streak should span the whole run");
+        assertEquals(100, rebuilt.getLongestStreak(), "Rebuilt longest streak should span the whole run");
+        assertEquals(100, rebuilt.getTotalCompletions(), "Rebuilt total should count each day once");
+    }
+}
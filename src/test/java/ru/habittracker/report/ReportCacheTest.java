@@ -0,0 +1,179 @@
+package ru.habittracker.report;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.habittracker.model.Habit;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тестовый класс для {@link ReportCache}.
+ * <p>
+ * Проверяет попадания и промахи, точечную инвалидацию, вытеснение по размеру и сохранение в файл.
+ * </p>
+ *
+ * <p><strong>Автор:</strong> Ekaterina Ishchuk</p>
+ */
+public class ReportCacheTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 4, 10);
+
+    private Path directory;
+
+    /**
+     * Создание временного каталога перед каждым тестом.
+     */
+    @BeforeEach
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("report-cache-test");
+    }
+
+    /**
+     * Удаление временного каталога после каждого теста.
+     */
+    @AfterEach
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(directory.resolve("cache.bin"));
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * Тест попаданий только для той же даты и тех же привычек.
+     */
+    @Test
+    @DisplayName("Тест попаданий и промахов кэша отчётов")
+    public void testHitsAndMisses() {
+        ReportCache cache = new ReportCache(1 << 20);
+        List<Habit> habits = List.of(habit(1, 1), habit(2, 1));
+
+        assertNull(cache.get(1, TODAY, habits), "Empty cache should miss");
+        cache.put(1, entry(TODAY, 1, 2));
+
+        assertNotNull(cache.get(1, TODAY, habits), "Same day and habits should hit");
+        assertNull(cache.get(1, TODAY.plusDays(1), habits), "Another day should miss");
+        assertNull(cache.get(1, TODAY, List.of(habit(1, 1))), "Changed habit list should miss");
+        assertEquals(1, cache.getHits(), "Hits should be counted");
+        assertEquals(3, cache.getMisses(), "Misses should be counted");
+        assertEquals(0.25, cache.getHitRatio(), 1e-9, "Hit ratio should be hits over requests");
+    }
+
+    /**
+     * Тест удаления записи только владельца изменённой привычки.
+     */
+    @Test
+    @DisplayName("Тест точечной инвалидации по пользователю и привычке")
+    public void testInvalidation() {
+        ReportCache cache = new ReportCache(1 << 20);
+        cache.put(1, entry(TODAY, 1, 2));
+        cache.put(2, entry(TODAY, 3));
+        long footprint = cache.getFootprintBytes();
+
+        cache.invalidateHabits(Set.of(3));
+        assertNull(cache.get(2, TODAY, List.of(habit(3, 2))), "Owner of the habit should be invalidated");
+        assertNotNull(cache.get(1, TODAY, List.of(habit(1, 1), habit(2, 1))), "Other users should stay cached");
+        assertTrue(cache.getFootprintBytes() < footprint, "Footprint should shrink");
+
+        cache.invalidateUser(1);
+        assertEquals(0, cache.size(), "User entry should be removed");
+        assertEquals(0, cache.getFootprintBytes(), "Empty cache should have no footprint");
+    }
+
+    /**
+     * Тест отбрасывания записи, данные которой инвалидировались во время расчёта.
+     */
+    @Test
+    @DisplayName("Тест отбрасывания записи, инвалидированной во время расчёта")
+    public void testStaleEntryIsDiscarded() {
+        ReportCache cache = new ReportCache(1 << 20);
+        cache.put(2, entry(TODAY, 3));
+
+        long stamp = cache.stamp();
+        cache.invalidateUser(1);
+        assertFalse(cache.put(1, entry(TODAY, 1), stamp), "Entry invalidated during calculation should be discarded");
+        assertTrue(cache.put(1, entry(TODAY, 1), cache.stamp()), "Entry calculated after invalidation should be saved");
+
+        stamp = cache.stamp();
+        cache.invalidateHabits(Set.of(3));
+        assertTrue(cache.put(1, entry(TODAY, 1, 2), stamp), "Invalidation of another user should not discard the entry");
+        assertFalse(cache.put(2, entry(TODAY, 3), stamp), "Owner of invalidated habit should be discarded");
+
+        stamp = cache.stamp();
+        cache.invalidateHabits(Set.of(42));
+        assertFalse(cache.put(1, entry(TODAY, 1), stamp), "Habit with unknown owner should discard every entry");
+
+        stamp = cache.stamp();
+        for (int userId = 100; userId <= 100 + ReportCache.TRACKED_INVALIDATIONS; userId++) {
+            cache.invalidateUser(userId);
+        }
+        assertFalse(cache.put(1, entry(TODAY, 1), stamp), "Stamp older than tracked invalidations should be discarded");
+    }
+
+    /**
+     * Тест вытеснения давно не использованных записей при превышении размера.
+     */
+    @Test
+    @DisplayName("Тест вытеснения записей по размеру")
+    public void testEvictsLeastRecentlyUsed() {
+        long entrySize = entry(TODAY, 1).footprint();
+        ReportCache cache = new ReportCache(2 * entrySize);
+        cache.put(1, entry(TODAY, 1));
+        cache.put(2, entry(TODAY, 2));
+        cache.get(1, TODAY, List.of(habit(1, 1)));
+        cache.put(3, entry(TODAY, 3));
+
+        assertEquals(2, cache.size(), "Cache should stay within its limit");
+        assertEquals(1, cache.getEvictions(), "One entry should be evicted");
+        assertNull(cache.get(2, TODAY, List.of(habit(2, 2))), "Least recently used entry should be evicted");
+        assertNotNull(cache.get(1, TODAY, List.of(habit(1, 1))), "Recently used entry should stay");
+        assertTrue(cache.getFootprintBytes() <= 2 * entrySize, "Footprint should not exceed the limit");
+
+        ReportCache disabled = new ReportCache(0);
+        disabled.put(1, entry(TODAY, 1));
+        assertEquals(0, disabled.size(), "Disabled cache should keep nothing");
+    }
+
+    /**
+     * Тест сохранения и загрузки кэша с пропуском записей прошлых дней.
+     */
+    @Test
+    @DisplayName("Тест сохранения кэша отчётов между запусками")
+    public void testSaveAndLoad() throws IOException {
+        Path file = directory.resolve("cache.bin");
+        ReportCache cache = new ReportCache(1 << 20);
+        cache.put(1, entry(TODAY, 1, 2));
+        cache.put(2, entry(TODAY.minusDays(1), 3));
+        cache.save(file);
+
+        ReportCache restored = new ReportCache(1 << 20);
+        assertEquals(1, restored.load(file, TODAY), "Only today's entries should be loaded");
+        ReportCache.Entry entry = restored.get(1, TODAY, List.of(habit(1, 1), habit(2, 1)));
+        assertNotNull(entry, "Loaded entry should hit");
+        assertArrayEquals(new int[]{10, 20}, entry.streaks(), "Streaks should be restored");
+        assertArrayEquals(new double[]{1.5, 2.5}, entry.successRates(), "Success rates should be restored");
+        assertEquals(0, new ReportCache(1 << 20).load(directory.resolve("missing.bin"), TODAY),
+                "Missing file should load nothing");
+    }
+
+    private static Habit habit(int id, int userId) {
+        return new Habit(id, "Привычка " + id, "", 1, userId, TODAY.minusDays(30));
+    }
+
+    private static ReportCache.Entry entry(LocalDate date, int... habitIds) {
+        int[] streaks = new int[habitIds.length];
+        double[] successRates = new double[habitIds.length];
+        for (int i = 0; i < habitIds.length; i++) {
+            streaks[i] = habitIds[i] * 10;
+            successRates[i] = habitIds[i] + 0.5;
+        }
+        return new ReportCache.Entry((int) date.toEpochDay(), habitIds, streaks, successRates);
+    }
+}
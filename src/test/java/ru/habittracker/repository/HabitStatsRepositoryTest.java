@@ -0,0 +1,181 @@
+package ru.habittracker.repository;
+
+import liquibase.Liquibase;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.junit.jupiter.api.*;
+import ru.habittracker.BaseHabitTest;
+import ru.habittracker.config.DatabaseConnectionManager;
+import ru.habittracker.model.Habit;
+import ru.habittracker.model.HabitRecord;
+import ru.habittracker.model.HabitStats;
+import ru.habittracker.model.User;
+import ru.habittracker.repository.impl.HabitRecordRepository;
+import ru.habittracker.repository.impl.HabitRepository;
+import ru.habittracker.repository.impl.HabitStatsRepository;
+import ru.habittracker.repository.impl.UserRepository;
+
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тестовый класс для {@link HabitStatsRepository}.
+ * <p>
+ * Проверяет инкрементальное обновление и пересчёт статистики привычек.
+ * </p>
+ *
+ * <p><strong>Автор:</strong> Ekaterina Ishchuk</p>
+ */
+public class HabitStatsRepositoryTest extends BaseHabitTest {
+
+    private static DatabaseConnectionManager dbManager;
+    private static IHabitRecordRepository habitRecordRepository;
+    private static IHabitStatsRepository habitStatsRepository;
+    private static IHabitRepository habitRepository;
+    private static IUserRepository userRepository;
+    private static User testUser;
+    private static Habit testHabit;
+
+    /**
+     * Инициализация ресурсов перед всеми тестами.
+     *
+     * @throws Exception возможное исключение при инициализации
+     */
+    @BeforeAll
+    public static void globalSetUp() throws Exception {
+        dbManager = new DatabaseConnectionManager(
+                postgresContainer.getJdbcUrl(),
+                postgresContainer.getUsername(),
+                postgresContainer.getPassword(),
+                postgresContainer.getDriverClassName()
+        );
+
+        try (Connection connection = dbManager.getConnection()) {
+            connection.createStatement().execute("SET search_path TO service");
+
+            Database database = DatabaseFactory.getInstance()
+                    .findCorrectDatabaseImplementation(new JdbcConnection(connection));
+
+            database.setDefaultSchemaName("service");
+            database.setLiquibaseSchemaName("service");
+
+            Liquibase liquibase = new Liquibase(
+                    "changelog-test.xml",
+                    new ClassLoaderResourceAccessor(),
+                    database
+            );
+            liquibase.update("");
+        }
+
+        habitRecordRepository = new HabitRecordRepository(dbManager);
+        habitStatsRepository = new HabitStatsRepository(dbManager);
+        habitRepository = new HabitRepository(dbManager);
+        userRepository = new UserRepository(dbManager);
+    }
+
+    /**
+     * Подготовка тестовых данных перед каждым тестом.
+     *
+     * @throws Exception возможное исключение при подготовке данных
+     */
+    @BeforeEach
+    public void setUp() throws Exception {
+        try (Connection connection = dbManager.getConnection()) {
+            connection.createStatement().execute(
+                    "TRUNCATE TABLE service.habit_records, service.habits, service.users RESTART IDENTITY CASCADE;"
+            );
+        }
+
+        // Создание тестового пользователя
+        User user = new User(0, "user@example.com", "password123", "Test User");
+        Optional<User> savedUserOptional = userRepository.save(user);
+        assertTrue(savedUserOptional.isPresent(), "User should be successfully saved.");
+        testUser = savedUserOptional.get();
+
+        // Создание тестовой привычки
+        Habit habit = new Habit(0, "Exercise", "Morning exercise", 1, testUser.getId(), LocalDate.now());
+        testHabit = habitRepository.save(habit);
+        assertNotNull(testHabit, "Habit should be successfully saved.");
+    }
+
+    /**
+     * Тест обновления статистики при сохранении выполнения.
+     */
+    @Test
+    @DisplayName("Тест обновления статистики при сохранении выполнения")
+    public void testSaveCompletionUpdatesStats() {
+        LocalDate today = LocalDate.now();
+        habitRecordRepository.saveCompletion(new HabitRecord(testHabit.getId(), today.minusDays(2), true));
+        habitRecordRepository.saveCompletion(new HabitRecord(testHabit.getId(), today.minusDays(1), true));
+        habitRecordRepository.saveCompletion(new HabitRecord(testHabit.getId(), today, true));
+
+        Optional<HabitStats> statsOptional = habitStatsRepository.findByHabitId(testHabit.getId());
+        assertTrue(statsOptional.isPresent(), "Stats should exist after completion.");
+        HabitStats stats = statsOptional.get();
+        assertEquals(3, stats.getCurrentStreak(), "Current streak should be 3.");
+        assertEquals(3, stats.getLongestStreak(), "Longest streak should be 3.");
+        assertEquals(3, stats.getTotalCompletions(), "Total completions should be 3.");
+        assertEquals(today, stats.getLastCompletedDate(), "Last completed date should be today.");
+    }
+
+    /**
+     * Тест повторной отметки того же дня.
+     */
+    @Test
+    @DisplayName("Тест повторной отметки того же дня")
+    public void testSaveCompletionSameDayIsCountedOnce() {
+        habitRecordRepository.saveCompletion(new HabitRecord(testHabit.getId(), LocalDate.now(), true));
+        habitRecordRepository.saveCompletion(new HabitRecord(testHabit.getId(), LocalDate.now(), true));
+
+        HabitStats stats = habitStatsRepository.findByHabitId(testHabit.getId()).orElseThrow();
+        assertEquals(1, stats.getTotalCompletions(), "Same day should be counted once.");
+        assertEquals(1, stats.getCurrentStreak(), "Current streak should be 1.");
+    }
+
+    /**
+     * Тест пересчёта статистики из истории выполнения.
+     */
+    @Test
+    @DisplayName("Тест пересчёта статистики из истории выполнения")
+    public void testRebuildAll() {
+        LocalDate today = LocalDate.now();
+        habitRecordRepository.save(new HabitRecord(testHabit.getId(), today.minusDays(10), true));
+        habitRecordRepository.save(new HabitRecord(testHabit.getId(), today.minusDays(9), true));
+        habitRecordRepository.save(new HabitRecord(testHabit.getId(), today.minusDays(1), true));
+        habitRecordRepository.save(new HabitRecord(testHabit.getId(), today, true));
+        habitRecordRepository.save(new HabitRecord(testHabit.getId(), today.minusDays(5), false));
+        assertFalse(habitStatsRepository.findByHabitId(testHabit.getId()).isPresent(),
+                "Plain save should not create stats.");
+
+        int rebuilt = habitStatsRepository.rebuildAll();
+        assertEquals(1, rebuilt, "Stats should be rebuilt for one habit.");
+
+        HabitStats stats = habitStatsRepository.findByHabitId(testHabit.getId()).orElseThrow();
+        assertEquals(2, stats.getCurrentStreak(), "Current streak should be 2.");
+        assertEquals(2, stats.getLongestStreak(), "Longest streak should be 2.");
+        assertEquals(4, stats.getTotalCompletions(), "Only completed records should be counted.");
+        assertEquals(4, stats.completedDaysSince(today.minusDays(30)), "Window should contain 4 completed days.");
+    }
+
+    /**
+     * Тест пересчёта статистики одной привычки.
+     */
+    @Test
+    @DisplayName("Тест пересчёта статистики одной привычки")
+    public void testRebuildSingleHabit() {
+        assertFalse(habitStatsRepository.rebuild(testHabit.getId()).isPresent(),
+                "Habit without completions should have no stats.");
+
+        habitRecordRepository.save(new HabitRecord(testHabit.getId(), LocalDate.now(), true));
+        Optional<HabitStats> stats = habitStatsRepository.rebuild(testHabit.getId());
+
+        assertTrue(stats.isPresent(), "Stats should be rebuilt.");
+        assertEquals(1, stats.get().getTotalCompletions(), "Total completions should be 1.");
+    }
+}
@@ -0,0 +1,204 @@
+package ru.habittracker.repository.mapped;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.habittracker.model.Habit;
+import ru.habittracker.model.HabitRecord;
+import ru.habittracker.model.HabitStats;
+import ru.habittracker.model.User;
+import ru.habittracker.repository.IHabitRepository;
+import ru.habittracker.repository.memory.InMemoryHabitRepository;
+import ru.habittracker.repository.memory.InMemoryStore;
+import ru.habittracker.repository.memory.InMemoryUserRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тестовый класс для {@link MappedHabitRecordRepository} и {@link MappedRecordLog}.
+ * <p>
+ * Проверяет порядок истории, поиск за период, удаление, переоткрытие журнала и компактификацию.
+ * </p>
+ *
+ * <p><strong>Автор:</strong> Ekaterina Ishchuk</p>
+ */
+public class MappedHabitRecordRepositoryTest {
+
+    private static final int SEGMENT_CAPACITY = 4;
+
+    private Path directory;
+    private IHabitRepository habitRepository;
+    private MappedRecordLog log;
+    private MappedHabitRecordRepository habitRecordRepository;
+    private User testUser;
+    private Habit testHabit;
+
+    /**
+     * Создание журнала с маленькими сегментами, пользователя и привычки перед каждым тестом.
+     */
+    @BeforeEach
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("mapped-record-log-test");
+        InMemoryStore store = new InMemoryStore();
+        habitRepository = new InMemoryHabitRepository(store);
+        testUser = new InMemoryUserRepository(store)
+                .save(new User("user@example.com", "password123", "Test User"))
+                .orElseThrow();
+        testHabit = habitRepository.save(new Habit(0, "Exercise", "Morning exercise", 1, testUser.getId(), LocalDate.now()));
+        reopen();
+    }
+
+    /**
+     * Закрытие журнала и удаление каталога после каждого теста.
+     */
+    @AfterEach
+    public void tearDown() throws IOException {
+        log.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /**
+     * Тест упорядоченности истории по дате при добавлении не по порядку.
+     */
+    @Test
+    @DisplayName("Тест упорядоченности истории по дате")
+    public void testFindByHabitIdIsOrderedByDate() {
+        LocalDate today = LocalDate.now();
+        habitRecordRepository.save(new HabitRecord(testHabit.getId(), today, true));
+        habitRecordRepository.save(new HabitRecord(testHabit.getId(), today.minusDays(2), true));
+        habitRecordRepository.save(new HabitRecord(testHabit.getId(), today.minusDays(1), false));
+
+        List<HabitRecord> records = habitRecordRepository.findByHabitId(testHabit.getId());
+
+        assertEquals(3, records.size(), "Should return all records of the habit");
+        assertEquals(today.minusDays(2), records.get(0).getDate(), "Records should be ordered by date");
+        assertEquals(today, records.get(2).getDate(), "Records should be ordered by date");
+        assertFalse(records.get(1).isCompleted(), "Completion flag should be preserved");
+    }
+
+    /**
+     * Тест поиска записей за период и за дату.
+     */
+    @Test
+    @DisplayName("Тест поиска записей за период и за дату")
+    public void testRangeAndDateQueries() {
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < 10; i++) {
+            habitRecordRepository.save(new HabitRecord(testHabit.getId(), today.minusDays(i), true));
+        }
+
+        List<HabitRecord> week = habitRecordRepository.findByHabitIdAndDateBetween(
+                testHabit.getId(), today.minusDays(6), today);
+        List<HabitRecord> byDate = habitRecordRepository.findByUserIdAndDate(testUser.getId(), today.minusDays(3));
+
+        assertEquals(7, week.size(), "Should return records within the range");
+        assertEquals(1, byDate.size(), "Should return the record for the date");
+        assertEquals(today.minusDays(3), byDate.get(0).getDate(), "Record date should match");
+    }
+
+    /**
+     * Тест удаления записи.
+     */
+    @Test
+    @DisplayName("Тест удаления записи")
+    public void testDelete() {
+        HabitRecord record = habitRecordRepository.save(new HabitRecord(testHabit.getId(), LocalDate.now(), true)).orElseThrow();
+
+        assertTrue(habitRecordRepository.delete(record.getId()), "Delete should succeed");
+        assertFalse(habitRecordRepository.delete(record.getId()), "Second delete should fail");
+        assertTrue(habitRecordRepository.findById(record.getId()).isEmpty(), "Deleted record should not be found");
+        assertTrue(habitRecordRepository.findByHabitId(testHabit.getId()).isEmpty(), "Deleted record should leave the index");
+    }
+
+    /**
+     * Тест сохранения записей и статистики после переоткрытия журнала.
+     */
+    @Test
+    @DisplayName("Тест сохранения данных после переоткрытия журнала")
+    public void testReopen() throws IOException {
+        LocalDate today = LocalDate.now();
+        for (int i = 9; i >= 0; i--) {
+            habitRecordRepository.saveCompletion(new HabitRecord(testHabit.getId(), today.minusDays(i), true));
+        }
+        HabitRecord deleted = habitRecordRepository.findByHabitId(testHabit.getId()).get(0);
+        habitRecordRepository.delete(deleted.getId());
+
+        reopen();
+
+        assertEquals(9, habitRecordRepository.findByHabitId(testHabit.getId()).size(), "Records should survive reopening");
+        Optional<HabitStats> stats = new MappedHabitStatsRepository(log).findByHabitId(testHabit.getId());
+        assertTrue(stats.isPresent(), "Stats should be rebuilt on reopening");
+        assertEquals(9, stats.get().getCurrentStreak(), "Current streak should be rebuilt on reopening");
+
+        HabitRecord next = habitRecordRepository.save(new HabitRecord(testHabit.getId(), today.plusDays(1), true)).orElseThrow();
+        assertEquals(11, next.getId(), "IDs should continue after reopening");
+    }
+
+    /**
+     * Тест компактификации закрытых сегментов.
+     */
+    @Test
+    @DisplayName("Тест компактификации сегментов")
+    public void testCompaction() throws IOException {
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < 12; i++) {
+            habitRecordRepository.save(new HabitRecord(testHabit.getId(), today.minusDays(i), true));
+        }
+        // Первый сегмент (ID 1-4) удаляется полностью, во втором (ID 5-8) остаётся одна запись
+        for (int id = 1; id <= 7; id++) {
+            habitRecordRepository.delete(id);
+        }
+
+        int compacted = log.compact();
+
+        assertEquals(2, compacted, "Both sparse sealed segments should be compacted");
+        assertEquals(2, log.getSegmentCount(), "Empty segment should be removed");
+        List<HabitRecord> records = habitRecordRepository.findByHabitId(testHabit.getId());
+        assertEquals(5, records.size(), "Live records should survive compaction");
+        assertEquals(8, habitRecordRepository.findById(8).orElseThrow().getId(), "Compacted record should be found by ID");
+        assertTrue(habitRecordRepository.delete(8), "Compacted record should be deletable");
+
+        reopen();
+        assertEquals(4, habitRecordRepository.findByHabitId(testHabit.getId()).size(), "Compaction should be durable");
+    }
+
+    /**
+     * Тест замены записи привычки за ту же дату вместо создания повтора.
+     */
+    @Test
+    @DisplayName("Тест замены записи за ту же дату")
+    public void testSaveReplacesRecordForSameDate() {
+        LocalDate today = LocalDate.now();
+        HabitRecord first = habitRecordRepository.saveCompletion(new HabitRecord(testHabit.getId(), today, true)).orElseThrow();
+        HabitRecord repeated = habitRecordRepository.saveCompletion(new HabitRecord(testHabit.getId(), today, true)).orElseThrow();
+
+        assertEquals(first.getId(), repeated.getId(), "Same record should be kept");
+        assertEquals(1, habitRecordRepository.findByHabitId(testHabit.getId()).size(), "No duplicate should be created");
+        assertEquals(1, log.getStats(testHabit.getId()).getTotalCompletions(), "Repeated mark should not be counted");
+
+        habitRecordRepository.save(new HabitRecord(testHabit.getId(), today, false));
+        List<HabitRecord> records = habitRecordRepository.findByHabitId(testHabit.getId());
+        assertEquals(1, records.size(), "Record should be replaced");
+        assertFalse(records.get(0).isCompleted(), "New status should be saved");
+    }
+
+    private void reopen() throws IOException {
+        if (log != null) {
+            log.close();
+        }
+        log = MappedRecordLog.open(directory, SEGMENT_CAPACITY);
+        habitRecordRepository = new MappedHabitRecordRepository(log, habitRepository);
+    }
+}
@@ -0,0 +1,248 @@
+package ru.habittracker.repository.memory;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.habittracker.model.BackfillPattern;
+import ru.habittracker.model.CompletionResult;
+import ru.habittracker.model.Habit;
+import ru.habittracker.model.HabitRecord;
+import ru.habittracker.model.HabitStats;
+import ru.habittracker.model.User;
+import ru.habittracker.repository.HistoryVisitor;
+import ru.habittracker.repository.IHabitRecordRepository;
+import ru.habittracker.repository.IHabitStatsRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тестовый класс для {@link InMemoryHabitRecordRepository} и {@link InMemoryHabitStatsRepository}.
+ * <p>
+ * Проверяет индексы записей по привычке и дате, а также обновление статистики.
+ * </p>
+ *
+ * <p><strong>Автор:</strong> Ekaterina Ishchuk</p>
+ */
+public class InMemoryHabitRecordRepositoryTest {
+
+    private InMemoryStore store;
+    private IHabitRecordRepository habitRecordRepository;
+    private IHabitStatsRepository habitStatsRepository;
+    private User testUser;
+    private Habit testHabit;
+
+    /**
+     * Создание хранилища, пользователя и привычки перед каждым тестом.
+     */
+    @BeforeEach
+    public void setUp() {
+        store = new InMemoryStore();
+        habitRecordRepository = new InMemoryHabitRecordRepository(store);
+        habitStatsRepository = new InMemoryHabitStatsRepository(store);
+        testUser = new InMemoryUserRepository(store)
+                .save(new User("user@example.com", "password123", "Test User"))
+                .orElseThrow();
+        testHabit = new InMemoryHabitRepository(store)
+                .save(new Habit(0, "Exercise", "Morning exercise", 1, testUser.getId(), LocalDate.now()));
+    }
+
+    /**
+     * Тест упорядоченности истории по дате.
+     */
+    @Test
+    @DisplayName("Тест упорядоченности истории по дате")
+    public void testFindByHabitIdIsOrderedByDate() {
+        LocalDate today = LocalDate.now();
+        habitRecordRepository.save(new HabitRecord(testHabit.getId(), today, true));
+        habitRecordRepository.save(new HabitRecord(testHabit.getId(), today.minusDays(2), true));
+        habitRecordRepository.save(new HabitRecord(testHabit.getId(), today.minusDays(1), false));
+
+        List<HabitRecord> records = habitRecordRepository.findByHabitId(testHabit.getId());
+        assertEquals(3, records.size(), "There should be 3 records.");
+        assertEquals(today.minusDays(2), records.get(0).getDate(), "Oldest record should come first.");
+        assertEquals(today, records.get(2).getDate(), "Newest record should come last.");
+    }
+
+    /**
+     * Тест массовой отметки выполнения с проверкой владельца.
+     */
+    @Test
+    @DisplayName("Тест массовой отметки выполнения с проверкой владельца")
+    public void testSaveCompletions() {
+        LocalDate today = LocalDate.now();
+        habitRecordRepository.saveCompletion(new HabitRecord(testHabit.getId(), today.minusDays(1), true));
+
+        Map<Integer, CompletionResult> first = habitRecordRepository.saveCompletions(testUser.getId(),
+                List.of(testHabit.getId(), testHabit.getId() + 100), today);
+        Map<Integer, CompletionResult> second = habitRecordRepository.saveCompletions(testUser.getId(),
+                List.of(testHabit.getId()), today);
+        Map<Integer, CompletionResult> foreign = habitRecordRepository.saveCompletions(testUser.getId() + 1,
+                List.of(testHabit.getId()), today);
+
+        assertEquals(CompletionResult.MARKED, first.get(testHabit.getId()), "Habit should be marked.");
+        assertEquals(CompletionResult.NOT_FOUND, first.get(testHabit.getId() + 100), "Unknown habit should not be found.");
+        assertEquals(CompletionResult.ALREADY_MARKED, second.get(testHabit.getId()), "Repeated mark should be reported.");
+        assertEquals(CompletionResult.NOT_FOUND, foreign.get(testHabit.getId()), "Other user's habit should not be found.");
+        assertEquals(1, habitRecordRepository.findByUserIdAndDate(testUser.getId(), today).size(),
+                "Only one record should exist for today.");
+        assertEquals(2, habitStatsRepository.findByHabitId(testHabit.getId()).orElseThrow().getCurrentStreak(),
+                "Stats should include the bulk completion.");
+    }
+
+    /**
+     * Тест отметки выполнения за период по шаблону.
+     */
+    @Test
+    @DisplayName("Тест отметки выполнения за период по шаблону")
+    public void testSaveCompletionRange() {
+        LocalDate today = LocalDate.now();
+        habitRecordRepository.saveCompletion(new HabitRecord(testHabit.getId(), today.minusDays(1), true));
+
+        OptionalInt marked = habitRecordRepository.saveCompletionRange(testUser.getId(), testHabit.getId(),
+                today.minusDays(99), today, BackfillPattern.daily());
+
+        assertEquals(OptionalInt.of(99), marked, "Only days without a completion should be marked.");
+        assertEquals(100, habitRecordRepository.findByHabitId(testHabit.getId()).size(), "No duplicates should be created.");
+        HabitStats stats = habitStatsRepository.findByHabitId(testHabit.getId()).orElseThrow();
+        assertEquals(100, stats.getCurrentStreak(), "Streak should cover the whole backfilled range.");
+        assertEquals(100, stats.getTotalCompletions(), "Stats should be rebuilt from history.");
+
+        assertEquals(OptionalInt.of(0), habitRecordRepository.saveCompletionRange(testUser.getId(), testHabit.getId(),
+                today.minusDays(10), today, BackfillPattern.weekdays()), "Repeated backfill should mark nothing.");
+        assertTrue(habitRecordRepository.saveCompletionRange(testUser.getId() + 1, testHabit.getId(),
+                today.minusDays(10), today, BackfillPattern.daily()).isEmpty(), "Other user's habit should not be found.");
+    }
+
+    /**
+     * Тест поиска записей пользователя за дату.
+     */
+    @Test
+    @DisplayName("Тест поиска записей пользователя за дату")
+    public void testFindByUserIdAndDate() {
+        LocalDate today = LocalDate.now();
+        habitRecordRepository.save(new HabitRecord(testHabit.getId(), today, true));
+        habitRecordRepository.save(new HabitRecord(testHabit.getId(), today.minusDays(1), true));
+
+        assertEquals(1, habitRecordRepository.findByUserIdAndDate(testUser.getId(), today).size(),
+                "There should be 1 record for today.");
+        assertTrue(habitRecordRepository.findByUserIdAndDate(testUser.getId() + 1, today).isEmpty(),
+                "Other user should have no records.");
+    }
+
+    /**
+     * Тест удаления записи.
+     */
+    @Test
+    @DisplayName("Тест удаления записи")
+    public void testDelete() {
+        HabitRecord record = habitRecordRepository.save(new HabitRecord(testHabit.getId(), LocalDate.now(), true)).orElseThrow();
+
+        assertTrue(habitRecordRepository.delete(record.getId()), "Record should be deleted.");
+        assertFalse(habitRecordRepository.findById(record.getId()).isPresent(), "Record should not be found.");
+        assertTrue(habitRecordRepository.findByHabitId(testHabit.getId()).isEmpty(), "Habit index should be empty.");
+    }
+
+    /**
+     * Тест потоковой передачи истории пользователя.
+     */
+    @Test
+    @DisplayName("Тест потоковой передачи истории пользователя")
+    public void testStreamUserHistory() {
+        LocalDate today = LocalDate.now();
+        Habit empty = new InMemoryHabitRepository(store)
+                .save(new Habit(0, "Reading", "Evening reading", 1, testUser.getId(), today));
+        habitRecordRepository.save(new HabitRecord(testHabit.getId(), today, true));
+        habitRecordRepository.save(new HabitRecord(testHabit.getId(), today.minusDays(1), false));
+
+        List<String> events = new ArrayList<>();
+        assertTrue(habitRecordRepository.streamUserHistory(testUser.getId(), new HistoryVisitor() {
+            @Override
+            public void habit(Habit habit) {
+                events.add("habit " + habit.getId());
+            }
+
+            @Override
+            public void record(int recordId, int epochDay, boolean completed) {
+                events.add(LocalDate.ofEpochDay(epochDay) + " " + completed);
+            }
+        }), "History should be streamed.");
+
+        assertEquals(List.of("habit " + testHabit.getId(), today.minusDays(1) + " false", today + " true",
+                "habit " + empty.getId()), events, "Habits should come by ID, records by date.");
+    }
+
+    /**
+     * Тест обновления статистики при отметке выполнения.
+     */
+    @Test
+    @DisplayName("Тест обновления статистики при отметке выполнения")
+    public void testSaveCompletionUpdatesStats() {
+        LocalDate today = LocalDate.now();
+        habitRecordRepository.saveCompletion(new HabitRecord(testHabit.getId(), today.minusDays(1), true));
+        habitRecordRepository.saveCompletion(new HabitRecord(testHabit.getId(), today, true));
+
+        Optional<HabitStats> stats = habitStatsRepository.findByHabitId(testHabit.getId());
+        assertTrue(stats.isPresent(), "Stats should exist.");
+        assertEquals(2, stats.get().streakAsOf(today), "Streak should be 2.");
+
+        assertEquals(1, habitStatsRepository.rebuildAll(), "Stats should be rebuilt for one habit.");
+        assertEquals(2, habitStatsRepository.findByHabitId(testHabit.getId()).orElseThrow().getTotalCompletions(),
+                "Rebuilt stats should match incremental ones.");
+    }
+
+    /**
+     * Тест пересчёта статистики при заполнении пропуска в серии длиннее окна и при удалении записи.
+     */
+    @Test
+    @DisplayName("Тест пересчёта статистики при заполнении пропуска и удалении записи")
+    public void testStatsRebuiltOnGapFillAndDelete() {
+        LocalDate today = LocalDate.now();
+        for (int age = 99; age >= 0; age--) {
+            if (age != 10) {
+                habitRecordRepository.saveCompletion(new HabitRecord(testHabit.getId(), today.minusDays(age), true));
+            }
+        }
+        HabitRecord gap = habitRecordRepository
+                .saveCompletion(new HabitRecord(testHabit.getId(), today.minusDays(10), true)).orElseThrow();
+
+        HabitStats stats = habitStatsRepository.findByHabitId(testHabit.getId()).orElseThrow();
+        assertEquals(100, stats.getCurrentStreak(), "Filled gap should join the runs.");
+        assertEquals(100, stats.getLongestStreak(), "Longest streak should include the joined run.");
+        assertEquals(100, stats.getTotalCompletions(), "Total should count each day once.");
+
+        assertTrue(habitRecordRepository.delete(gap.getId()), "Record should be deleted.");
+        stats = habitStatsRepository.findByHabitId(testHabit.getId()).orElseThrow();
+        assertEquals(10, stats.getCurrentStreak(), "Deleted day should break the streak.");
+        assertEquals(89, stats.getLongestStreak(), "Longest streak should be recalculated.");
+        assertEquals(99, stats.getTotalCompletions(), "Deleted completion should not be counted.");
+    }
+
+    /**
+     * Тест замены записи привычки за ту же дату вместо создания повтора.
+     */
+    @Test
+    @DisplayName("Тест замены записи за ту же дату")
+    public void testSaveReplacesRecordForSameDate() {
+        LocalDate today = LocalDate.now();
+        HabitRecord first = habitRecordRepository.saveCompletion(new HabitRecord(testHabit.getId(), today, true)).orElseThrow();
+        HabitRecord repeated = habitRecordRepository.saveCompletion(new HabitRecord(testHabit.getId(), today, true)).orElseThrow();
+
+        assertEquals(first.getId(), repeated.getId(), "Same record should be updated.");
+        assertEquals(1, habitRecordRepository.findByHabitId(testHabit.getId()).size(), "No duplicate should be created.");
+        assertEquals(1, habitStatsRepository.findByHabitId(testHabit.getId()).orElseThrow().getTotalCompletions(),
+                "Repeated mark should not be counted.");
+
+        habitRecordRepository.saveCompletion(new HabitRecord(testHabit.getId(), today, false));
+        List<HabitRecord> records = habitRecordRepository.findByHabitId(testHabit.getId());
+        assertEquals(1, records.size(), "Record should be updated.");
+        assertFalse(records.get(0).isCompleted(), "New status should be saved.");
+        assertTrue(habitStatsRepository.findByHabitId(testHabit.getId()).isEmpty(), "Stats should be removed.");
+    }
+}
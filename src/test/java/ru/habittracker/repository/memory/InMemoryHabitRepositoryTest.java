@@ -0,0 +1,130 @@
+package ru.habittracker.repository.memory;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.habittracker.model.Habit;
+import ru.habittracker.model.HabitRecord;
+import ru.habittracker.model.User;
+import ru.habittracker.repository.IHabitRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тестовый класс для {@link InMemoryHabitRepository}.
+ * <p>
+ * Проверяет операции с привычками в in-memory хранилище.
+ * </p>
+ *
+ * <p><strong>Автор:</strong> Ekaterina Ishchuk</p>
+ */
+public class InMemoryHabitRepositoryTest {
+
+    private InMemoryStore store;
+    private IHabitRepository habitRepository;
+    private User testUser;
+
+    /**
+     * Создание хранилища и тестового пользователя перед каждым тестом.
+     */
+    @BeforeEach
+    public void setUp() {
+        store = new InMemoryStore();
+        habitRepository = new InMemoryHabitRepository(store);
+        testUser = new InMemoryUserRepository(store)
+                .save(new User("user@example.com", "password123", "Test User"))
+                .orElseThrow();
+    }
+
+    /**
+     * Тест сохранения привычки несуществующего пользователя.
+     */
+    @Test
+    @DisplayName("Тест сохранения привычки несуществующего пользователя")
+    public void testSaveForUnknownUser() {
+        Habit habit = habitRepository.save(new Habit(0, "Exercise", "Morning exercise", 1, 999, LocalDate.now()));
+
+        assertNull(habit, "Habit of unknown user should not be saved.");
+    }
+
+    /**
+     * Тест поиска привычек по пользователю, дате и частоте.
+     */
+    @Test
+    @DisplayName("Тест поиска привычек по пользователю, дате и частоте")
+    public void testFindByUser() {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        habitRepository.save(new Habit(0, "Exercise", "Morning exercise", 1, testUser.getId(), LocalDate.now()));
+        habitRepository.save(new Habit(0, "Read", "Read a book", 2, testUser.getId(), yesterday));
+
+        assertEquals(2, habitRepository.findByUserId(testUser.getId()).size(), "User should have 2 habits.");
+        List<Habit> byDate = habitRepository.findByUserIdAndCreationDate(testUser.getId(), yesterday);
+        assertEquals(1, byDate.size(), "One habit should be created yesterday.");
+        assertEquals("Read", byDate.get(0).getTitle(), "Habit title should match.");
+        assertEquals(1, habitRepository.findByUserIdAndFrequency(testUser.getId(), 1).size(), "One daily habit expected.");
+    }
+
+    /**
+     * Тест обновления привычки другого пользователя.
+     */
+    @Test
+    @DisplayName("Тест обновления привычки другого пользователя")
+    public void testUpdateChecksOwner() {
+        Habit habit = habitRepository.save(new Habit(0, "Exercise", "Morning exercise", 1, testUser.getId(), LocalDate.now()));
+        Habit foreign = new Habit(habit.getId(), "Hacked", "Hacked", 2, testUser.getId() + 1, LocalDate.now());
+
+        assertFalse(habitRepository.update(foreign), "Foreign habit should not be updated.");
+        assertEquals("Exercise", habitRepository.findByIdAndUserId(habit.getId(), testUser.getId()).getTitle(),
+                "Title should stay unchanged.");
+    }
+
+    /**
+     * Тест обнаружения одновременного изменения привычки с двух устройств.
+     */
+    @Test
+    @DisplayName("Тест оптимистичной блокировки при обновлении привычки")
+    public void testUpdateChecksVersion() {
+        Habit habit = habitRepository.save(new Habit(0, "Exercise", "Morning exercise", 1, testUser.getId(), LocalDate.now()));
+        Habit first = habitRepository.findByIdAndUserId(habit.getId(), testUser.getId());
+        Habit second = habitRepository.findByIdAndUserId(habit.getId(), testUser.getId());
+
+        first.setTitle("Yoga");
+        assertTrue(habitRepository.update(first), "First update should succeed.");
+        assertEquals(1, first.getVersion(), "Version should be incremented.");
+        second.setTitle("Running");
+        assertFalse(habitRepository.update(second), "Stale update should be rejected.");
+        assertEquals(0, second.getVersion(), "Rejected update should keep the version.");
+
+        Habit stored = habitRepository.findByIdAndUserId(habit.getId(), testUser.getId());
+        assertEquals("Yoga", stored.getTitle(), "First update should be kept.");
+        assertEquals(1, stored.getVersion(), "Stored version should match.");
+    }
+
+    /**
+     * Тест удаления привычки с записями о выполнении.
+     */
+    @Test
+    @DisplayName("Тест удаления привычки с записями о выполнении")
+    public void testDeleteHabitWithRecordsFails() {
+        Habit habit = habitRepository.save(new Habit(0, "Exercise", "Morning exercise", 1, testUser.getId(), LocalDate.now()));
+        new InMemoryHabitRecordRepository(store).save(new HabitRecord(habit.getId(), LocalDate.now(), true));
+
+        assertFalse(habitRepository.deleteByIdAndUserId(habit.getId(), testUser.getId()),
+                "Habit with records should not be deleted.");
+    }
+
+    /**
+     * Тест удаления привычки.
+     */
+    @Test
+    @DisplayName("Тест удаления привычки")
+    public void testDeleteHabit() {
+        Habit habit = habitRepository.save(new Habit(0, "Exercise", "Morning exercise", 1, testUser.getId(), LocalDate.now()));
+
+        assertTrue(habitRepository.deleteByIdAndUserId(habit.getId(), testUser.getId()), "Habit should be deleted.");
+        assertTrue(habitRepository.findByUserId(testUser.getId()).isEmpty(), "User should have no habits.");
+    }
+}
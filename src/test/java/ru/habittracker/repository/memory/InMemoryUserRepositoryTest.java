@@ -0,0 +1,103 @@
+package ru.habittracker.repository.memory;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.habittracker.model.Habit;
+import ru.habittracker.model.User;
+import ru.habittracker.repository.IUserRepository;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тестовый класс для {@link InMemoryUserRepository}.
+ * <p>
+ * Проверяет, что in-memory репозиторий повторяет семантику JDBC-репозитория пользователей.
+ * </p>
+ *
+ * <p><strong>Автор:</strong> Ekaterina Ishchuk</p>
+ */
+public class InMemoryUserRepositoryTest {
+
+    private InMemoryStore store;
+    private IUserRepository userRepository;
+
+    /**
+     * Создание пустого хранилища перед каждым тестом.
+     */
+    @BeforeEach
+    public void setUp() {
+        store = new InMemoryStore();
+        userRepository = new InMemoryUserRepository(store);
+    }
+
+    /**
+     * Тест сохранения и поиска пользователя.
+     */
+    @Test
+    @DisplayName("Тест сохранения и поиска пользователя")
+    public void testSaveAndFind() {
+        Optional<User> saved = userRepository.save(new User("user@example.com", "password123", "Test User"));
+        assertTrue(saved.isPresent(), "User should be saved.");
+        assertEquals(1, saved.get().getId(), "First user should get ID 1.");
+
+        assertTrue(userRepository.findByEmail("user@example.com").isPresent(), "User should be found by email.");
+        assertEquals("Test User", userRepository.findById(1).orElseThrow().getName(), "Name should match.");
+    }
+
+    /**
+     * Тест уникальности email.
+     */
+    @Test
+    @DisplayName("Тест уникальности email")
+    public void testDuplicateEmail() {
+        userRepository.save(new User("user@example.com", "password123", "Test User"));
+        Optional<User> duplicate = userRepository.save(new User("user@example.com", "other", "Other User"));
+
+        assertFalse(duplicate.isPresent(), "Duplicate email should be rejected.");
+    }
+
+    /**
+     * Тест изоляции хранимых объектов от изменений снаружи.
+     */
+    @Test
+    @DisplayName("Тест изоляции хранимых объектов от изменений снаружи")
+    public void testReturnedObjectsAreCopies() {
+        User user = userRepository.save(new User("user@example.com", "password123", "Test User")).orElseThrow();
+        user.setName("Changed");
+        userRepository.findById(user.getId()).orElseThrow().setName("Changed again");
+
+        assertEquals("Test User", userRepository.findById(user.getId()).orElseThrow().getName(),
+                "Stored user should not change without update().");
+    }
+
+    /**
+     * Тест обновления пользователя со сменой email.
+     */
+    @Test
+    @DisplayName("Тест обновления пользователя со сменой email")
+    public void testUpdateChangesEmailIndex() {
+        User user = userRepository.save(new User("user@example.com", "password123", "Test User")).orElseThrow();
+        user.setEmail("new@example.com");
+
+        assertTrue(userRepository.update(user), "Update should succeed.");
+        assertFalse(userRepository.findByEmail("user@example.com").isPresent(), "Old email should be released.");
+        assertTrue(userRepository.findByEmail("new@example.com").isPresent(), "New email should be indexed.");
+    }
+
+    /**
+     * Тест удаления пользователя с привычками.
+     */
+    @Test
+    @DisplayName("Тест удаления пользователя с привычками")
+    public void testDeleteUserWithHabitsFails() {
+        User user = userRepository.save(new User("user@example.com", "password123", "Test User")).orElseThrow();
+        new InMemoryHabitRepository(store).save(new Habit(0, "Exercise", "Morning exercise", 1, user.getId(), LocalDate.now()));
+
+        assertFalse(userRepository.delete(user.getId()), "User with habits should not be deleted.");
+        assertTrue(userRepository.findById(user.getId()).isPresent(), "User should still exist.");
+    }
+}
@@ -0,0 +1,177 @@
+package ru.habittracker.repository.memory;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.habittracker.model.Habit;
+import ru.habittracker.model.HabitRecord;
+import ru.habittracker.model.HabitStats;
+import ru.habittracker.model.User;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тестовый класс для {@link StorePersistence}.
+ * <p>
+ * Проверяет восстановление in-memory хранилища из журнала и снимков,
+ * в том числе после оборванной записи в конце журнала.
+ * </p>
+ *
+ * <p><strong>Автор:</strong> Ekaterina Ishchuk</p>
+ */
+public class StorePersistenceTest {
+
+    private Path directory;
+
+    /**
+     * Создание временного каталога данных перед каждым тестом.
+     */
+    @BeforeEach
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("store-persistence-test");
+    }
+
+    /**
+     * Удаление временного каталога после каждого теста.
+     */
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /**
+     * Тест восстановления данных из журнала без снимка.
+     */
+    @Test
+    @DisplayName("Тест восстановления данных из журнала")
+    public void testRecoverFromWal() throws IOException {
+        InMemoryStore store = new InMemoryStore();
+        StorePersistence persistence = new StorePersistence(directory, store);
+        persistence.recover();
+        int habitId = populate(store);
+        store.setJournal(null);
+
+        InMemoryStore recovered = recover();
+
+        assertRecovered(recovered, habitId);
+    }
+
+    /**
+     * Тест восстановления данных из снимка и журнала после него.
+     */
+    @Test
+    @DisplayName("Тест восстановления данных из снимка и журнала")
+    public void testRecoverFromSnapshotAndWal() throws IOException {
+        InMemoryStore store = new InMemoryStore();
+        StorePersistence persistence = new StorePersistence(directory, store);
+        persistence.recover();
+        int habitId = populate(store);
+        persistence.snapshot();
+        new InMemoryHabitRecordRepository(store)
+                .saveCompletion(new HabitRecord(habitId, LocalDate.now().minusDays(5), true));
+        store.setJournal(null);
+
+        InMemoryStore recovered = recover();
+
+        assertRecovered(recovered, habitId);
+        assertEquals(3, new InMemoryHabitRecordRepository(recovered).findByHabitId(habitId).size(),
+                "Record written after the snapshot should be replayed");
+    }
+
+    /**
+     * Тест восстановления после оборванной записи в конце журнала.
+     */
+    @Test
+    @DisplayName("Тест восстановления после оборванной записи в журнале")
+    public void testRecoverAfterTornWrite() throws IOException {
+        InMemoryStore store = new InMemoryStore();
+        StorePersistence persistence = new StorePersistence(directory, store);
+        persistence.recover();
+        int habitId = populate(store);
+        store.setJournal(null);
+
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(path -> path.getFileName().toString().startsWith("wal-"))
+                    .max(Comparator.naturalOrder())
+                    .orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 42, 1, 2}));
+        }
+
+        InMemoryStore recovered = recover();
+
+        assertRecovered(recovered, habitId);
+    }
+
+    /**
+     * Тест продолжения последовательностей ID после восстановления.
+     */
+    @Test
+    @DisplayName("Тест продолжения последовательностей ID после восстановления")
+    public void testSequencesContinueAfterRecovery() throws IOException {
+        InMemoryStore store = new InMemoryStore();
+        StorePersistence persistence = new StorePersistence(directory, store);
+        persistence.recover();
+        populate(store);
+        persistence.close();
+
+        InMemoryStore recovered = recover();
+        Optional<User> user = new InMemoryUserRepository(recovered)
+                .save(new User("second@example.com", "password", "Second"));
+
+        assertTrue(user.isPresent(), "User should be saved after recovery");
+        assertEquals(2, user.get().getId(), "User ID sequence should continue after recovery");
+    }
+
+    private InMemoryStore recover() throws IOException {
+        InMemoryStore recovered = new InMemoryStore();
+        StorePersistence persistence = new StorePersistence(directory, recovered);
+        persistence.recover();
+        recovered.setJournal(null);
+        return recovered;
+    }
+
+    private int populate(InMemoryStore store) {
+        User user = new InMemoryUserRepository(store)
+                .save(new User("user@example.com", "password123", "Test User"))
+                .orElseThrow();
+        InMemoryHabitRepository habitRepository = new InMemoryHabitRepository(store);
+        Habit removed = habitRepository.save(new Habit(0, "Reading", "Read a book", 1, user.getId(), LocalDate.now()));
+        Habit habit = habitRepository.save(new Habit(0, "Exercise", "Morning exercise", 1, user.getId(), LocalDate.now()));
+        habitRepository.deleteByIdAndUserId(removed.getId(), user.getId());
+
+        InMemoryHabitRecordRepository recordRepository = new InMemoryHabitRecordRepository(store);
+        recordRepository.saveCompletion(new HabitRecord(habit.getId(), LocalDate.now().minusDays(1), true));
+        recordRepository.saveCompletion(new HabitRecord(habit.getId(), LocalDate.now(), true));
+        return habit.getId();
+    }
+
+    private void assertRecovered(InMemoryStore recovered, int habitId) {
+        assertTrue(new InMemoryUserRepository(recovered).findByEmail("user@example.com").isPresent(),
+                "User should be recovered");
+        List<Habit> habits = new InMemoryHabitRepository(recovered).findByUserId(1);
+        assertEquals(1, habits.size(), "Deleted habit should stay deleted after recovery");
+        assertEquals("Exercise", habits.get(0).getTitle(), "Habit title should be recovered");
+
+        Optional<HabitStats> stats = new InMemoryHabitStatsRepository(recovered).findByHabitId(habitId);
+        assertTrue(stats.isPresent(), "Habit stats should be recovered");
+        assertEquals(2, stats.get().getCurrentStreak(), "Current streak should be recovered");
+    }
+}
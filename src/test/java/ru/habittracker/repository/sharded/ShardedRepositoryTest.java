@@ -0,0 +1,195 @@
+package ru.habittracker.repository.sharded;
+
+import liquibase.Contexts;
+import liquibase.LabelExpression;
+import liquibase.Liquibase;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.junit.jupiter.api.*;
+import org.testcontainers.containers.PostgreSQLContainer;
+import ru.habittracker.config.DatabaseConnectionManager;
+import ru.habittracker.config.ShardedConnectionManager;
+import ru.habittracker.job.ShardRebalanceJob;
+import ru.habittracker.model.Habit;
+import ru.habittracker.model.HabitRecord;
+import ru.habittracker.model.User;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тестовый класс для репозиториев, распределённых по шардам.
+ * <p>
+ * Запускает два отдельных контейнера PostgreSQL и проверяет маршрутизацию запросов по пользователю,
+ * уникальность ID между шардами и перенос пользователя между шардами.
+ * </p>
+ *
+ * <p><strong>Автор:</strong> Ekaterina Ishchuk</p>
+ */
+public class ShardedRepositoryTest {
+
+    private static final List<PostgreSQLContainer<?>> containers = new ArrayList<>();
+    private static final List<DatabaseConnectionManager> managers = new ArrayList<>();
+    private static ShardedConnectionManager shards;
+
+    private HabitShardLocator locator;
+    private ShardedUserRepository userRepository;
+    private ShardedHabitRepository habitRepository;
+    private ShardedHabitRecordRepository recordRepository;
+
+    /**
+     * Запуск контейнеров и миграций перед всеми тестами.
+     *
+     * @throws Exception возможное исключение при инициализации
+     */
+    @BeforeAll
+    public static void globalSetUp() throws Exception {
+        for (int shard = 0; shard < 2; shard++) {
+            PostgreSQLContainer<?> container = new PostgreSQLContainer<>("postgres:latest")
+                    .withDatabaseName("shard" + shard)
+                    .withUsername("postgres")
+                    .withPassword("password")
+                    .withInitScript("init.sql");
+            container.start();
+            containers.add(container);
+
+            DatabaseConnectionManager manager = new DatabaseConnectionManager(
+                    container.getJdbcUrl(), container.getUsername(), container.getPassword(),
+                    container.getDriverClassName());
+            managers.add(manager);
+
+            try (Connection connection = manager.getConnection()) {
+                Database database = DatabaseFactory.getInstance()
+                        .findCorrectDatabaseImplementation(new JdbcConnection(connection));
+                database.setDefaultSchemaName("service");
+                database.setLiquibaseSchemaName("service");
+                new Liquibase("changelog-test.xml", new ClassLoaderResourceAccessor(), database)
+                        .update(new Contexts("shard"), new LabelExpression());
+            }
+        }
+        shards = new ShardedConnectionManager(List.of("s0", "s1"), managers, 64);
+        shards.configureSequences();
+    }
+
+    /**
+     * Остановка контейнеров после всех тестов.
+     */
+    @AfterAll
+    public static void globalTearDown() {
+        shards.close();
+        containers.forEach(PostgreSQLContainer::stop);
+    }
+
+    /**
+     * Очистка данных и создание репозиториев перед каждым тестом.
+     *
+     * @throws Exception возможное исключение при очистке
+     */
+    @BeforeEach
+    public void setUp() throws Exception {
+        for (DatabaseConnectionManager manager : managers) {
+            try (Connection connection = manager.getConnection()) {
+                connection.createStatement().execute("TRUNCATE TABLE service.users CASCADE");
+            }
+        }
+        locator = new HabitShardLocator(shards);
+        userRepository = new ShardedUserRepository(shards);
+        habitRepository = new ShardedHabitRepository(shards, locator);
+        recordRepository = new ShardedHabitRecordRepository(shards, locator);
+    }
+
+    /**
+     * Тест размещения пользователей на шардах по кольцу.
+     */
+    @Test
+    @DisplayName("Тест размещения пользователей на шардах по кольцу")
+    public void testUsersArePlacedOnOwnerShard() throws Exception {
+        Set<Integer> ids = new HashSet<>();
+        for (int i = 0; i < 20; i++) {
+            Optional<User> user = userRepository.save(new User("user" + i + "@example.com", "password", "User " + i));
+            assertTrue(user.isPresent(), "User should be saved");
+            assertTrue(ids.add(user.get().getId()), "User IDs should be unique across shards");
+            assertTrue(existsOn(shards.shardForUser(user.get().getId()), "users", user.get().getId()),
+                    "User should be stored on the owner shard");
+        }
+
+        assertTrue(userRepository.findByEmail("user7@example.com").isPresent(), "Email lookup should scan all shards");
+        assertTrue(countOn(0, "users") > 0 && countOn(1, "users") > 0, "Users should be spread over both shards");
+    }
+
+    /**
+     * Тест маршрутизации привычек и записей по пользователю.
+     */
+    @Test
+    @DisplayName("Тест маршрутизации привычек и записей по пользователю")
+    public void testHabitsAndRecordsFollowUser() throws Exception {
+        User user = userRepository.save(new User("owner@example.com", "password", "Owner")).orElseThrow();
+        int shard = shards.shardForUser(user.getId());
+
+        Habit habit = habitRepository.save(new Habit(0, "Бег", "Утром", 1, user.getId(), LocalDate.now()));
+        assertNotNull(habit, "Habit should be saved");
+        assertTrue(existsOn(shard, "habits", habit.getId()), "Habit should be stored on the user's shard");
+
+        // Новый поиск шарда без кэша
+        HabitShardLocator freshLocator = new HabitShardLocator(shards);
+        ShardedHabitRecordRepository freshRecords = new ShardedHabitRecordRepository(shards, freshLocator);
+        Optional<HabitRecord> record = freshRecords.save(new HabitRecord(habit.getId(), LocalDate.now(), true));
+
+        assertTrue(record.isPresent(), "Record should be saved");
+        assertEquals(shard, freshLocator.shardOf(habit.getId()), "Locator should find the habit's shard");
+        assertTrue(recordRepository.findById(record.get().getId()).isPresent(), "Record should be found by ID");
+        assertEquals(1, recordRepository.findByUserIdAndDate(user.getId(), LocalDate.now()).size(),
+                "Records should be found by user");
+        assertTrue(recordRepository.delete(record.get().getId()), "Record should be deleted");
+    }
+
+    /**
+     * Тест переноса пользователя между шардами.
+     */
+    @Test
+    @DisplayName("Тест переноса пользователя между шардами")
+    public void testMoveUser() throws Exception {
+        User user = userRepository.save(new User("move@example.com", "password", "Mover")).orElseThrow();
+        int owner = shards.shardForUser(user.getId());
+        int other = 1 - owner;
+        Habit habit = habitRepository.save(new Habit(0, "Чтение", "Вечером", 1, user.getId(), LocalDate.now()));
+        recordRepository.saveCompletion(new HabitRecord(habit.getId(), LocalDate.now(), true));
+
+        ShardRebalanceJob rebalancer = new ShardRebalanceJob(shards);
+        assertTrue(rebalancer.moveUser(user.getId(), owner, other), "User should be moved away");
+        assertTrue(existsOn(other, "habits", habit.getId()), "Habit should be copied");
+        assertFalse(existsOn(owner, "users", user.getId()), "User should be removed from the source shard");
+
+        rebalancer.run();
+        assertTrue(existsOn(owner, "users", user.getId()), "Rebalance should return the user to the owner shard");
+        assertEquals(1, countOn(owner, "habit_records"), "Records should be moved with the user");
+        assertEquals(1, countOn(owner, "habit_stats"), "Stats should be moved with the user");
+        assertEquals(0, countOn(other, "habits"), "Nothing should stay on the other shard");
+    }
+
+    private boolean existsOn(int shard, String table, int id) throws Exception {
+        try (Connection connection = managers.get(shard).getConnection();
+             ResultSet rs = connection.createStatement()
+                     .executeQuery("SELECT 1 FROM service." + table + " WHERE id = " + id)) {
+            return rs.next();
+        }
+    }
+
+    private int countOn(int shard, String table) throws Exception {
+        try (Connection connection = managers.get(shard).getConnection();
+             ResultSet rs = connection.createStatement().executeQuery("SELECT COUNT(*) FROM service." + table)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
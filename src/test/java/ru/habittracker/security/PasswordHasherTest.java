@@ -0,0 +1,94 @@
+package ru.habittracker.security;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тестовый класс для {@link PasswordHasher}.
+ *
+ * <p><strong>Автор:</strong> Ekaterina Ishchuk</p>
+ */
+public class PasswordHasherTest {
+
+    private final PasswordHasher hasher = new PasswordHasher(1_000);
+
+    /**
+     * Тест хеширования и проверки пароля.
+     */
+    @Test
+    @DisplayName("Тест хеширования и проверки пароля")
+    public void testHashAndVerify() {
+        String first = hasher.hash("password123");
+        String second = hasher.hash("password123");
+
+        assertTrue(first.startsWith("pbkdf2$1000$"), "Hash should carry the algorithm and iterations");
+        assertNotEquals(first, second, "Salt should make hashes differ");
+        assertTrue(hasher.verify("password123", first), "Correct password should match");
+        assertFalse(hasher.verify("password124", first), "Wrong password should not match");
+        assertFalse(hasher.verify(null, first), "Null password should not match");
+        assertFalse(hasher.verify("password123", "pbkdf2$1000$broken"), "Malformed hash should not match");
+    }
+
+    /**
+     * Тест проверки паролей открытым текстом и необходимости перехеширования.
+     */
+    @Test
+    @DisplayName("Тест проверки паролей открытым текстом и необходимости перехеширования")
+    public void testPlaintextAndRehash() {
+        assertTrue(hasher.verify("password123", "password123"), "Legacy plaintext password should match");
+        assertFalse(hasher.verify("password12", "password123"), "Legacy plaintext mismatch should fail");
+
+        assertTrue(hasher.needsRehash("password123"), "Plaintext should be rehashed");
+        assertFalse(hasher.needsRehash(hasher.hash("password123")), "Current hash should not be rehashed");
+        assertTrue(new PasswordHasher(2_000).needsRehash(hasher.hash("password123")),
+                "Hash with fewer iterations should be rehashed");
+        assertTrue(new PasswordHasher(2_000).verify("password123", hasher.hash("password123")),
+                "Old hash should still verify after raising iterations");
+    }
+
+    /**
+     * Тест быстрого отказа при заполненной очереди проверки.
+     */
+    @Test
+    @DisplayName("Тест быстрого отказа при заполненной очереди проверки")
+    public void testExecutorRejectsWhenSaturated() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordHasher blocking = new PasswordHasher(1_000) {
+            @Override
+            public boolean verify(String password, String stored) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.verify(password, stored);
+            }
+        };
+
+        try (PasswordVerificationExecutor executor = new PasswordVerificationExecutor(blocking, 1, 1)) {
+            Thread running = new Thread(() -> executor.verify("a", "a"));
+            running.start();
+            started.await();
+            Thread queued = new Thread(() -> executor.verify("b", "b"));
+            queued.start();
+            // Поток ждёт результата только после того, как задача поставлена в очередь
+            while (queued.getState() != Thread.State.WAITING) {
+                Thread.sleep(1);
+            }
+
+            assertThrows(LoginThrottledException.class, () -> executor.verify("c", "c"),
+                    "Saturated executor should reject immediately");
+
+            release.countDown();
+            running.join();
+            queued.join();
+            assertTrue(executor.verify("d", "d"), "Executor should accept work after the queue drains");
+        }
+    }
+}
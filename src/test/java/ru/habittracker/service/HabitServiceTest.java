@@ -17,6 +17,7 @@ import java.sql.Connection;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalInt;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -123,8 +124,9 @@ public class HabitServiceTest extends BaseHabitTest {
         Habit habit = habitService.createHabit(testUser.getId(), "Exercise", "Morning exercise", 1);
         assertNotNull(habit, "Habit should not be null.");
 
-        boolean isUpdated = habitService.updateHabit(testUser.getId(), habit.getId(), "Yoga", "Evening yoga", 2);
-        assertTrue(isUpdated, "Habit should be successfully updated.");
+        OptionalInt isUpdated = habitService.updateHabit(testUser.getId(), habit.getId(), habit.getVersion(),
+                "Yoga", "Evening yoga", 2);
+        assertTrue(isUpdated.isPresent(), "Habit should be successfully updated.");
 
         List<Habit> habits = habitService.getHabits(testUser.getId());
         Habit updatedHabit = habits.stream().filter(h -> h.getId() == habit.getId()).findFirst().orElse(null);
@@ -134,6 +136,24 @@ public class HabitServiceTest extends BaseHabitTest {
         assertEquals(2, updatedHabit.getFrequency(), "Habit frequency should be updated.");
     }
 
+    /**
+     * Тест обновления привычки по версии без предварительного чтения.
+     */
+    @Test
+    @DisplayName("Тест обновления привычки по версии")
+    public void testUpdateHabitWithVersion() {
+        Habit habit = habitService.createHabit(testUser.getId(), "Exercise", "Morning exercise", 1);
+
+        OptionalInt version = habitService.updateHabit(testUser.getId(), habit.getId(), 0, "Yoga", "Evening yoga", 2);
+        assertEquals(OptionalInt.of(1), version, "Version should be incremented.");
+        assertTrue(habitService.updateHabit(testUser.getId(), habit.getId(), 0, "Running", "", 1).isEmpty(),
+                "Stale version should be rejected.");
+
+        Habit stored = habitService.getHabit(testUser.getId(), habit.getId());
+        assertEquals("Yoga", stored.getTitle(), "First update should be kept.");
+        assertEquals(1, stored.getVersion(), "Stored version should match.");
+    }
+
     /**
      * Тест удаления привычки.
      */
@@ -193,8 +213,8 @@ public class HabitServiceTest extends BaseHabitTest {
     @Test
     @DisplayName("Тест обновления несуществующей привычки")
     public void testUpdateNonexistentHabit() {
-        boolean isUpdated = habitService.updateHabit(testUser.getId(), 999, "Nonexistent", "Does not exist", 1);
-        assertFalse(isUpdated, "Updating a nonexistent habit should return false.");
+        OptionalInt isUpdated = habitService.updateHabit(testUser.getId(), 999, 0, "Nonexistent", "Does not exist", 1);
+        assertTrue(isUpdated.isEmpty(), "Updating a nonexistent habit should fail.");
     }
 
     /**
@@ -8,6 +8,8 @@ import liquibase.resource.ClassLoaderResourceAccessor;
 import org.junit.jupiter.api.*;
 import ru.habittracker.BaseHabitTest;
 import ru.habittracker.config.DatabaseConnectionManager;
+import ru.habittracker.model.BackfillPattern;
+import ru.habittracker.model.CompletionResult;
 import ru.habittracker.model.Habit;
 import ru.habittracker.model.User;
 import ru.habittracker.service.impl.HabitService;
@@ -17,7 +19,9 @@ import ru.habittracker.service.impl.UserService;
 import java.sql.Connection;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalInt;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -107,6 +111,56 @@ public class HabitTrackerServiceTest extends BaseHabitTest {
         assertTrue(history.contains(LocalDate.now().toString()), "History should contain today's date.");
     }
 
+    /**
+     * Тест массовой отметки выполнения привычек.
+     */
+    @Test
+    @DisplayName("Тест массовой отметки выполнения привычек")
+    public void testMarkHabitCompletions() {
+        Habit first = habitService.createHabit(testUser.getId(), "Exercise", "Morning exercise", 1);
+        Habit second = habitService.createHabit(testUser.getId(), "Reading", "Read a book", 1);
+        Optional<User> otherUser = userService.registerUser("other@example.com", "password123", "Other User");
+        assertTrue(otherUser.isPresent(), "Other user should be created.");
+        Habit foreign = habitService.createHabit(otherUser.get().getId(), "Foreign", "Not ours", 1);
+        habitTrackerService.markHabitCompletion(testUser.getId(), second.getId(), LocalDate.now());
+
+        Map<Integer, CompletionResult> results = habitTrackerService.markHabitCompletions(testUser.getId(),
+                List.of(first.getId(), second.getId(), foreign.getId(), first.getId()), LocalDate.now());
+
+        assertEquals(List.of(first.getId(), second.getId(), foreign.getId()), List.copyOf(results.keySet()),
+                "Results should follow input order without duplicates.");
+        assertEquals(CompletionResult.MARKED, results.get(first.getId()), "New completion should be marked.");
+        assertEquals(CompletionResult.ALREADY_MARKED, results.get(second.getId()), "Existing completion should be reported.");
+        assertEquals(CompletionResult.NOT_FOUND, results.get(foreign.getId()), "Foreign habit should not be marked.");
+        assertEquals(1, habitTrackerService.calculateStreak(testUser.getId(), first.getId()), "Stats should be updated.");
+        assertEquals("История отсутствует.", habitTrackerService.getHabitHistory(otherUser.get().getId(), foreign.getId()),
+                "Foreign habit should have no records.");
+    }
+
+    /**
+     * Тест отметки выполнения за период по шаблону.
+     */
+    @Test
+    @DisplayName("Тест отметки выполнения за период по шаблону")
+    public void testBackfill() {
+        Habit habit = habitService.createHabit(testUser.getId(), "Exercise", "Morning exercise", 1);
+        LocalDate today = LocalDate.now();
+        habitTrackerService.markHabitCompletion(testUser.getId(), habit.getId(), today);
+
+        OptionalInt marked = habitTrackerService.backfill(testUser.getId(), habit.getId(),
+                today.minusDays(364), today, BackfillPattern.daily());
+
+        assertEquals(OptionalInt.of(364), marked, "Every day of the year except today should be marked.");
+        assertEquals(365, habitTrackerService.calculateStreak(testUser.getId(), habit.getId()),
+                "Stats should be rebuilt after backfill.");
+        assertEquals(OptionalInt.of(0), habitTrackerService.backfill(testUser.getId(), habit.getId(),
+                today.minusDays(7), today, BackfillPattern.weekdays()), "Repeated backfill should mark nothing.");
+        assertTrue(habitTrackerService.backfill(testUser.getId() + 1000, habit.getId(),
+                today.minusDays(7), today, BackfillPattern.daily()).isEmpty(), "Foreign habit should not be found.");
+        assertThrows(IllegalArgumentException.class, () -> habitTrackerService.backfill(testUser.getId(), habit.getId(),
+                today, today.plusDays(1), BackfillPattern.daily()), "Future dates should be rejected.");
+    }
+
     /**
      * Тест вычисления текущей серии выполнения привычки.
      */
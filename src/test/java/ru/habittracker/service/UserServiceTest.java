@@ -12,7 +12,10 @@ import ru.habittracker.model.User;
 import ru.habittracker.service.impl.UserService;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.util.Optional;
+import java.util.OptionalInt;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -117,6 +120,32 @@ public class UserServiceTest extends BaseHabitTest {
         assertEquals("Test User", user.getName(), "User name should match.");
     }
 
+    /**
+     * Тест хранения пароля в виде хеша.
+     */
+    @Test
+    @DisplayName("Тест хранения пароля в виде хеша")
+    public void testPasswordIsStoredHashed() throws Exception {
+        assertTrue(storedPassword("testuser@example.com").startsWith("pbkdf2$"), "Password should be stored hashed.");
+    }
+
+    /**
+     * Тест перехеширования пароля, сохранённого открытым текстом, при входе.
+     */
+    @Test
+    @DisplayName("Тест перехеширования пароля, сохранённого открытым текстом, при входе")
+    public void testPlaintextPasswordIsUpgradedOnLogin() throws Exception {
+        try (Connection connection = dbManager.getConnection()) {
+            connection.createStatement().execute("INSERT INTO service.users (id, email, password, name) "
+                    + "VALUES (nextval('service.user_seq'), 'legacy@example.com', 'legacypass', 'Legacy')");
+        }
+
+        assertTrue(userService.loginUser("legacy@example.com", "legacypass").isPresent(), "Legacy user should log in.");
+        assertTrue(storedPassword("legacy@example.com").startsWith("pbkdf2$"), "Password should be upgraded to a hash.");
+        assertTrue(userService.loginUser("legacy@example.com", "legacypass").isPresent(),
+                "Upgraded user should still log in.");
+    }
+
     /**
      * Тест входа в систему с некорректным паролем.
      */
@@ -147,8 +176,9 @@ public class UserServiceTest extends BaseHabitTest {
         assertTrue(userOptional.isPresent(), "User should be found.");
         User user = userOptional.get();
 
-        boolean isUpdated = userService.updateUser(user.getId(), "updated@example.com", "newpassword", "Updated User");
-        assertTrue(isUpdated, "User should be successfully updated.");
+        OptionalInt isUpdated = userService.updateUser(user.getId(), user.getVersion(),
+                "updated@example.com", "newpassword", "Updated User");
+        assertTrue(isUpdated.isPresent(), "User should be successfully updated.");
 
         Optional<User> updatedUserOptional = userService.loginUser("updated@example.com", "newpassword");
         assertTrue(updatedUserOptional.isPresent(), "Updated user should successfully log in.");
@@ -172,4 +202,15 @@ public class UserServiceTest extends BaseHabitTest {
         Optional<User> deletedUserOptional = userService.loginUser("testuser@example.com", "password123");
         assertFalse(deletedUserOptional.isPresent(), "Deleted user should not be able to log in.");
     }
+
+    private String storedPassword(String email) throws Exception {
+        try (Connection connection = dbManager.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT password FROM service.users WHERE email = ?")) {
+            statement.setString(1, email);
+            try (ResultSet rs = statement.executeQuery()) {
+                assertTrue(rs.next(), "User should exist.");
+                return rs.getString(1);
+            }
+        }
+    }
 }
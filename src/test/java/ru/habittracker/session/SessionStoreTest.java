@@ -0,0 +1,100 @@
+package ru.habittracker.session;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.habittracker.model.User;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тестовый класс для {@link SessionStore}.
+ * <p>
+ * Использует управляемые часы, чтобы проверить скользящий срок жизни и очистку сессий.
+ * </p>
+ *
+ * <p><strong>Автор:</strong> Ekaterina Ishchuk</p>
+ */
+public class SessionStoreTest {
+
+    private static final Duration TTL = Duration.ofMinutes(30);
+
+    private final AtomicLong now = new AtomicLong();
+    private SessionStore store;
+    private User user;
+
+    /**
+     * Создание хранилища перед каждым тестом.
+     */
+    @BeforeEach
+    public void setUp() {
+        store = new SessionStore(TTL, 3, now::get);
+        user = new User(1, "user@example.com", "password", "User");
+    }
+
+    /**
+     * Тест поиска пользователя по токену.
+     */
+    @Test
+    @DisplayName("Тест поиска пользователя по токену")
+    public void testCreateAndResolve() {
+        String first = store.create(user);
+        String second = store.create(user);
+
+        assertNotEquals(first, second, "Tokens should be unique");
+        assertSame(user, store.userOf(first), "Token should resolve to the same user");
+        assertNull(store.userOf("unknown"), "Unknown token should not resolve");
+        assertNull(store.userOf(null), "Null token should not resolve");
+
+        store.remove(first);
+        assertNull(store.userOf(first), "Removed session should not resolve");
+        assertSame(user, store.userOf(second), "Other sessions should stay");
+    }
+
+    /**
+     * Тест скользящего срока жизни сессии.
+     */
+    @Test
+    @DisplayName("Тест скользящего срока жизни сессии")
+    public void testSlidingExpiry() {
+        String token = store.create(user);
+
+        advance(TTL.minusMinutes(1));
+        assertSame(user, store.userOf(token), "Session should be alive before TTL");
+        advance(TTL.minusMinutes(1));
+        assertSame(user, store.userOf(token), "Access should extend the session");
+        advance(TTL);
+        assertNull(store.userOf(token), "Idle session should expire");
+        assertEquals(0, store.size(), "Expired session should be removed on access");
+    }
+
+    /**
+     * Тест очистки просроченных сессий и ограничения количества.
+     */
+    @Test
+    @DisplayName("Тест очистки просроченных сессий и ограничения количества")
+    public void testSweepAndCapacity() {
+        store.create(user);
+        store.create(user);
+        advance(TTL.minusMinutes(10));
+        String fresh = store.create(user);
+
+        assertThrows(IllegalStateException.class, () -> store.create(user), "Store should be full");
+
+        advance(Duration.ofMinutes(10));
+        assertNotNull(store.create(user), "Full store should sweep expired sessions before rejecting");
+        assertEquals(2, store.size(), "Expired sessions should be swept");
+        assertSame(user, store.userOf(fresh), "Live session should survive sweeping");
+
+        store.removeUser(user.getId());
+        assertEquals(0, store.size(), "All user sessions should be removed");
+    }
+
+    private void advance(Duration duration) {
+        now.addAndGet(TimeUnit.NANOSECONDS.convert(duration));
+    }
+}
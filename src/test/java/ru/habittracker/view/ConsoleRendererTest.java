@@ -0,0 +1,134 @@
+package ru.habittracker.view;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.habittracker.model.Habit;
+import ru.habittracker.model.HabitRecord;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тестовый класс для {@link ConsoleRenderer} и {@link TextFormatter}.
+ * <p>
+ * Перехватывает {@link System#out} и проверяет постраничный вывод и текстовое представление моделей.
+ * </p>
+ *
+ * <p><strong>Автор:</strong> Ekaterina Ishchuk</p>
+ */
+public class ConsoleRendererTest {
+
+    private PrintStream originalOut;
+    private ByteArrayOutputStream output;
+
+    /**
+     * Перехват System.out перед каждым тестом.
+     */
+    @BeforeEach
+    public void setUp() {
+        originalOut = System.out;
+        output = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(output, false, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Восстановление System.out после каждого теста.
+     */
+    @AfterEach
+    public void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    /**
+     * Тест вывода строк только при заполнении страницы и по завершении списка.
+     */
+    @Test
+    @DisplayName("Тест вывода целыми страницами")
+    public void testOutputsWholePages() {
+        List<String> pages = new ArrayList<>();
+        ConsoleRenderer renderer = new ConsoleRenderer(2, () -> {
+            pages.add(printed());
+            return true;
+        });
+
+        renderer.line("1").line("2");
+        assertEquals("", printed(), "Nothing should be printed before the page is complete");
+        renderer.line("3").text("4\n5\n");
+        renderer.finish();
+
+        assertEquals(List.of("1\n2\n", "1\n2\n3\n4\n"), pages, "Each page should be printed before the pager is asked");
+        assertEquals("1\n2\n3\n4\n5\n", printed(), "All lines should be printed");
+    }
+
+    /**
+     * Тест прерывания вывода пользователем.
+     */
+    @Test
+    @DisplayName("Тест прерывания постраничного вывода")
+    public void testStopsWhenPagerDeclines() {
+        ConsoleRenderer renderer = new ConsoleRenderer(2, () -> false);
+
+        renderer.text("1\n2\n3\n4");
+        assertTrue(renderer.isStopped(), "Output should be stopped");
+        renderer.finish();
+        renderer.line("next");
+        renderer.finish();
+
+        assertEquals("1\n2\nnext\n", printed(), "Remaining lines should be skipped until the list is finished");
+        assertFalse(renderer.isStopped(), "Next list should be printed again");
+    }
+
+    /**
+     * Тест разбиения на строки текста, переданного частями через {@link Appendable}.
+     */
+    @Test
+    @DisplayName("Тест постраничного вывода текста, переданного частями")
+    public void testAppendableSplitsLines() {
+        List<String> pages = new ArrayList<>();
+        ConsoleRenderer renderer = new ConsoleRenderer(2, () -> {
+            pages.add(printed());
+            return true;
+        });
+
+        renderer.append("1").append("\n2").append('\n').append("3\n4\n5", 0, 5);
+        renderer.finish();
+
+        assertEquals(List.of("1\n2\n", "1\n2\n3\n4\n"), pages, "Pages should end after complete lines");
+        assertEquals("1\n2\n3\n4\n5\n", printed(), "Unterminated line should be completed on finish");
+    }
+
+    /**
+     * Тест текстового представления привычки, записи и отчёта.
+     */
+    @Test
+    @DisplayName("Тест текстового представления привычки, записи и отчёта")
+    public void testFormatsModels() {
+        LocalDate date = LocalDate.of(2024, 4, 1);
+        Habit habit = new Habit(7, "Бег", "Утром", 2, 1, date);
+        HabitRecord record = new HabitRecord(3, 7, date, true);
+
+        assertEquals("ID: 7, Название: Бег, Описание: Утром, Частота: Недельная, Дата создания: 2024-04-01",
+                habit.toString(), "Habit should be formatted");
+        assertEquals("ID: 3, Дата: 2024-04-01, Выполнено: Да", record.toString(), "Record should be formatted");
+        for (double rate : new double[]{0, 3.333, 12.5, 66.666, 99.999, 100}) {
+            assertEquals(String.format("%.2f", rate), TextFormatter.appendPercent(new StringBuilder(), rate).toString(),
+                    "Percent should match String.format for " + rate);
+        }
+
+        new ConsoleRenderer().habit(habit).record(record).finish();
+        assertEquals(habit + "\n" + record + "\n", printed(), "Renderer should print one model per line");
+    }
+
+    private String printed() {
+        System.out.flush();
+        return output.toString(StandardCharsets.UTF_8);
+    }
+}